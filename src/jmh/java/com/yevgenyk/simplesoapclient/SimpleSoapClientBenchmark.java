@@ -0,0 +1,78 @@
+package com.yevgenyk.simplesoapclient;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code SimpleSoapClientImpl.sendSoapRequest} against a local {@code StubSoapServer}, with request and
+ * response envelopes of {@code payloadSize} bytes, at several concurrency levels.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimpleSoapClientBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    private int payloadSize;
+
+    private StubSoapServer stubSoapServer;
+    private SimpleSoapClient client;
+    private Path requestXml;
+    private SoapEnvelopeTemplate template;
+    private Map<String, Object> templateValues;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SimpleSoapClientException {
+        stubSoapServer = new StubSoapServer(payloadSize);
+        // the contended benchmarks run up to 32 threads, more than the pool's default per-host limit
+        client = SimpleSoapClientImpl.builder(stubSoapServer.getServiceUrl(), "http://tempuri.org", "Add")
+                .maxConnectionsPerHost(ConnectionPool.UNBOUNDED)
+                .build();
+        requestXml = Files.createTempFile("simple-soap-client-benchmark", ".xml");
+        String envelope = StubSoapServer.envelope(
+                "<Add xmlns=\"http://tempuri.org/\"><intA>2</intA><intB>2</intB>", "</Add>", payloadSize);
+        Files.write(requestXml, envelope.getBytes(StandardCharsets.UTF_8));
+        template = SoapEnvelopeTemplate.compile(envelope.replace("<intA>2</intA>", "<intA>${a}</intA>"));
+        templateValues = Collections.singletonMap("a", 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        stubSoapServer.close();
+        Files.deleteIfExists(requestXml);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String sendSoapRequest1Thread() throws SimpleSoapClientException {
+        return client.sendSoapRequest(requestXml);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String sendSoapRequest8Threads() throws SimpleSoapClientException {
+        return client.sendSoapRequest(requestXml);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public String sendSoapRequest32Threads() throws SimpleSoapClientException {
+        return client.sendSoapRequest(requestXml);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String sendSoapRequestFromTemplate1Thread() throws SimpleSoapClientException {
+        return client.sendSoapRequest(template, templateValues);
+    }
+}
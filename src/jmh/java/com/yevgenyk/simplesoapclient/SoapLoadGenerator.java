@@ -0,0 +1,453 @@
+package com.yevgenyk.simplesoapclient;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.HdrHistogram.Histogram;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@code SoapLoadGenerator} measures how many requests per second one {@code SimpleSoapClient} sustains, and at what
+ * latencies. It drives {@code sendSoapRequest} with a request file from a fixed number of threads, against a given
+ * service URL or an embedded {@code StubSoapServer}, over HTTP/1.1 or HTTP/2, and reports throughput, latency
+ * percentiles, the allocation rate of the sending threads and GC activity.
+ * <p>
+ * Without a rate, each thread sends its next request as soon as the previous one returns (closed loop). With a rate,
+ * requests are sent on a fixed schedule (open loop), and each latency is measured from the time the request was due,
+ * so a stalled service is not hidden by the requests that were never sent while it stalled.
+ * <p>
+ * The longest GC is the longest collection the collectors reported, not the longest pause. For stop-the-world
+ * collectors they are the same, but collectors that work concurrently, like G1's concurrent cycle, ZGC or Shenandoah,
+ * report whole collections that mostly ran alongside the application. Their pauses are in the GC log
+ * ({@code -Xlog:gc}).
+ * <p>
+ * Run it with the {@code jmh} profile, for example:
+ * <pre>
+ * mvn -Pjmh -DskipTests test-compile exec:exec@load-test -Dload.args="--concurrency 16 --rate 2000"
+ * </pre>
+ */
+public final class SoapLoadGenerator {
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Options:",
+            "  --url <service URL>            The service to load, instead of an embedded stub server",
+            "  --namespace <URI>              The namespace of the operation (default: http://tempuri.org)",
+            "  --operation <name>             The operation to call (default: Add)",
+            "  --request <file>               The request .xml file (required with --url)",
+            "  --payload-size <bytes>         The size of the stub's requests and responses (default: 1024)",
+            "  --concurrency <threads>        The number of sending threads (default: 8)",
+            "  --duration <seconds>           The measured duration (default: 30)",
+            "  --warmup <seconds>             The unmeasured duration before it (default: 5)",
+            "  --rate <requests/s>            The open-loop rate over all threads (default: closed loop)",
+            "  --transport <http1|http2>      The HTTP version to send requests with (default: http1)",
+            "  --max-connections <count>      The maximal number of connections (default: unbounded)",
+            "  --no-keep-alive                Open a new connection for every request",
+            "  --request-compression <coding> Compress requests with gzip or deflate",
+            "  --no-response-compression      Don't accept compressed responses",
+            "  --histogram <file>             Also write the latency distribution, in microseconds, to a file");
+
+    private final Options options;
+    private final List<Worker> workers = new ArrayList<>();
+    private final AtomicLong maxGcMillis = new AtomicLong();
+    private volatile boolean measuring;
+
+    private SoapLoadGenerator(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        new SoapLoadGenerator(options).run(System.out);
+    }
+
+    private void run(PrintStream out) throws Exception {
+        StubSoapServer stubSoapServer = options.url == null ? new StubSoapServer(options.payloadSize) : null;
+        Path generatedRequest = null;
+        try {
+            String serviceUrl = stubSoapServer == null ? options.url : stubSoapServer.getServiceUrl();
+            Path requestXml = options.request;
+            if (requestXml == null) {
+                generatedRequest = Files.createTempFile("simple-soap-client-load", ".xml");
+                Files.write(generatedRequest, StubSoapServer.envelope(
+                        "<Add xmlns=\"http://tempuri.org/\"><intA>2</intA><intB>2</intB>", "</Add>",
+                        options.payloadSize).getBytes(StandardCharsets.UTF_8));
+                requestXml = generatedRequest;
+            }
+            SimpleSoapClientImpl.Builder builder = SimpleSoapClientImpl.builder(serviceUrl, options.namespace,
+                    options.operation)
+                    .keepAlive(options.keepAlive)
+                    .acceptCompressedResponses(options.acceptCompressedResponses)
+                    .requestCompression(options.requestCompression, 0);
+            if (options.http2) {
+                builder.transport(SoapTransport.http2());
+            }
+            // Unbounded unless limited, so the client's default limit doesn't cap the concurrency under test
+            builder.maxConnectionsPerHost(options.maxConnections > 0 ? options.maxConnections
+                    : ConnectionPool.UNBOUNDED);
+            SimpleSoapClient client = builder.build();
+            out.printf("Target:     %s%s%n", serviceUrl, stubSoapServer == null ? ""
+                    : String.format(" (embedded stub, %d byte responses)", options.payloadSize));
+            out.printf("Transport:  %s%n", options.http2 ? "HTTP/2 (h2c or ALPN, falling back to HTTP/1.1)"
+                    : "HTTP/1.1");
+            out.printf("Load:       %d threads, %s, %ds after a %ds warm-up%n", options.concurrency,
+                    options.rate > 0 ? String.format(Locale.ROOT, "open loop at %.1f requests/s", options.rate)
+                            : "closed loop", options.duration.getSeconds(), options.warmup.getSeconds());
+            measure(client, requestXml, out);
+        } finally {
+            if (stubSoapServer != null) {
+                stubSoapServer.close();
+            }
+            if (generatedRequest != null) {
+                Files.deleteIfExists(generatedRequest);
+            }
+        }
+    }
+
+    private void measure(SimpleSoapClient client, Path requestXml, PrintStream out) throws Exception {
+        long start = System.nanoTime();
+        long measureStart = start + options.warmup.toNanos();
+        long measureEnd = measureStart + options.duration.toNanos();
+        // Each thread sends every concurrency-th request of the schedule
+        long interval = options.rate > 0
+                ? (long) (TimeUnit.SECONDS.toNanos(1) * options.concurrency / options.rate) : 0;
+        for (int i = 0; i < options.concurrency; i++) {
+            Worker worker = new Worker(client, requestXml, start + interval * i / options.concurrency, interval,
+                    measureStart, measureEnd);
+            worker.setName("simple-soap-client-load-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+        for (Worker worker : workers) {
+            worker.start();
+        }
+
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        NotificationListener gcListener = (notification, handback) -> {
+            if (measuring && GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION
+                    .equals(notification.getType())) {
+                long duration = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData())
+                        .getGcInfo().getDuration();
+                maxGcMillis.accumulateAndGet(duration, Math::max);
+            }
+        };
+        for (GarbageCollectorMXBean collector : collectors) {
+            ((NotificationEmitter) collector).addNotificationListener(gcListener, null, null);
+        }
+        try {
+            sleepUntil(measureStart);
+            long[] gcCounts = new long[collectors.size()];
+            long[] gcTimes = new long[collectors.size()];
+            for (int i = 0; i < collectors.size(); i++) {
+                gcCounts[i] = collectors.get(i).getCollectionCount();
+                gcTimes[i] = collectors.get(i).getCollectionTime();
+            }
+            measuring = true;
+            sleepUntil(measureEnd);
+            measuring = false;
+            for (int i = 0; i < collectors.size(); i++) {
+                gcCounts[i] = collectors.get(i).getCollectionCount() - gcCounts[i];
+                gcTimes[i] = collectors.get(i).getCollectionTime() - gcTimes[i];
+            }
+            for (Worker worker : workers) {
+                worker.join();
+            }
+            report(collectors, gcCounts, gcTimes, out);
+        } finally {
+            for (GarbageCollectorMXBean collector : collectors) {
+                try {
+                    ((NotificationEmitter) collector).removeNotificationListener(gcListener);
+                } catch (ListenerNotFoundException e) {
+                    // Already removed
+                }
+            }
+        }
+    }
+
+    private void report(List<GarbageCollectorMXBean> collectors, long[] gcCounts, long[] gcTimes, PrintStream out)
+            throws IOException {
+        Histogram latencies = new Histogram(3);
+        long failed = 0;
+        long allocated = 0;
+        Exception firstFailure = null;
+        for (Worker worker : workers) {
+            latencies.add(worker.latencies);
+            failed += worker.failed;
+            allocated += worker.allocatedBytes;
+            if (firstFailure == null) {
+                firstFailure = worker.firstFailure.get();
+            }
+        }
+        double seconds = options.duration.toNanos() / 1e9;
+        long succeeded = latencies.getTotalCount();
+        out.printf("Requests:   %d succeeded, %d failed%n", succeeded, failed);
+        out.printf(Locale.ROOT, "Throughput: %.1f requests/s%n", succeeded / seconds);
+        out.printf(Locale.ROOT, "Latency:    p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms, mean %.3f ms%n",
+                millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(99)),
+                millis(latencies.getValueAtPercentile(99.9)), millis(latencies.getMaxValue()),
+                latencies.getMean() / 1e6);
+        if (allocatedBytes() >= 0) {
+            out.printf(Locale.ROOT, "Allocation: %.1f MB/s, %d bytes/request on the sending threads%n",
+                    allocated / seconds / (1024 * 1024),
+                    succeeded + failed == 0 ? 0 : allocated / (succeeded + failed));
+        } else {
+            out.println("Allocation: not supported by this JVM");
+        }
+        StringBuilder gc = new StringBuilder();
+        for (int i = 0; i < collectors.size(); i++) {
+            gc.append(String.format("%s%s: %d collections, %d ms", i == 0 ? "" : "; ", collectors.get(i).getName(),
+                    gcCounts[i], gcTimes[i]));
+        }
+        out.printf("GC:         %s; longest collection %d ms%n", gc, maxGcMillis.get());
+        if (firstFailure != null) {
+            out.printf("First failure: %s%n", firstFailure);
+        }
+        if (options.histogram != null) {
+            try (PrintStream histogramOut = new PrintStream(Files.newOutputStream(options.histogram), false, "UTF-8")) {
+                latencies.outputPercentileDistribution(histogramOut, 1000.0);
+            }
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static void sleepUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * Returns the number of bytes the current thread has allocated, or -1 if the JVM doesn't track it.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (allocationMXBean.isThreadAllocatedMemorySupported()
+                    && allocationMXBean.isThreadAllocatedMemoryEnabled()) {
+                return allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * {@code Worker} sends requests in a loop until the end of the measurement, and records the latencies of those
+     * that were due while measuring.
+     */
+    private static final class Worker extends Thread {
+
+        private final SimpleSoapClient client;
+        private final Path requestXml;
+        private final long firstDue;
+        private final long interval;
+        private final long measureStart;
+        private final long measureEnd;
+        private final Histogram latencies = new Histogram(3);
+        private final AtomicReference<Exception> firstFailure = new AtomicReference<>();
+        private long failed;
+        private long allocatedBytes;
+
+        private Worker(SimpleSoapClient client, Path requestXml, long firstDue, long interval, long measureStart,
+                       long measureEnd) {
+            this.client = client;
+            this.requestXml = requestXml;
+            this.firstDue = firstDue;
+            this.interval = interval;
+            this.measureStart = measureStart;
+            this.measureEnd = measureEnd;
+        }
+
+        @Override
+        public void run() {
+            long allocatedAtStart = -1;
+            long due = firstDue;
+            while (true) {
+                long sendTime;
+                if (interval > 0) {
+                    sleepUntil(due);
+                    sendTime = due;
+                    due += interval;
+                } else {
+                    sendTime = System.nanoTime();
+                }
+                if (sendTime >= measureEnd) {
+                    break;
+                }
+                boolean measured = sendTime >= measureStart;
+                if (measured && allocatedAtStart == -1) {
+                    allocatedAtStart = allocatedBytes();
+                }
+                try {
+                    client.sendSoapRequest(requestXml);
+                    if (measured) {
+                        latencies.recordValue(System.nanoTime() - sendTime);
+                    }
+                } catch (SimpleSoapClientException | RuntimeException e) {
+                    if (measured) {
+                        failed++;
+                        firstFailure.compareAndSet(null, e);
+                    }
+                }
+            }
+            allocatedBytes = allocatedAtStart == -1 ? 0 : allocatedBytes() - allocatedAtStart;
+        }
+    }
+
+    /**
+     * {@code Options} are the parsed command-line arguments.
+     */
+    private static final class Options {
+
+        private String url;
+        private String namespace = "http://tempuri.org";
+        private String operation = "Add";
+        private Path request;
+        private int payloadSize = 1024;
+        private int concurrency = 8;
+        private Duration duration = Duration.ofSeconds(30);
+        private Duration warmup = Duration.ofSeconds(5);
+        private double rate;
+        private int maxConnections;
+        private boolean keepAlive = true;
+        private boolean http2;
+        private ContentEncoding requestCompression;
+        private boolean acceptCompressedResponses = true;
+        private Path histogram;
+
+        private static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                switch (option) {
+                    case "--no-keep-alive":
+                        options.keepAlive = false;
+                        continue;
+                    case "--no-response-compression":
+                        options.acceptCompressedResponses = false;
+                        continue;
+                    case "--help":
+                        throw new IllegalArgumentException("Usage: SoapLoadGenerator [options]");
+                    default:
+                        break;
+                }
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException(String.format("Option %s requires a value", option));
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--url":
+                        options.url = value;
+                        break;
+                    case "--namespace":
+                        options.namespace = value;
+                        break;
+                    case "--operation":
+                        options.operation = value;
+                        break;
+                    case "--request":
+                        options.request = Paths.get(value);
+                        break;
+                    case "--payload-size":
+                        options.payloadSize = parseNumber(option, value, 1);
+                        break;
+                    case "--concurrency":
+                        options.concurrency = parseNumber(option, value, 1);
+                        break;
+                    case "--duration":
+                        options.duration = Duration.ofSeconds(parseNumber(option, value, 1));
+                        break;
+                    case "--warmup":
+                        options.warmup = Duration.ofSeconds(parseNumber(option, value, 0));
+                        break;
+                    case "--rate":
+                        options.rate = parseNumber(option, value, 1);
+                        break;
+                    case "--transport":
+                        options.http2 = parseTransport(value);
+                        break;
+                    case "--max-connections":
+                        options.maxConnections = parseNumber(option, value, 1);
+                        break;
+                    case "--request-compression":
+                        options.requestCompression = parseEncoding(value);
+                        break;
+                    case "--histogram":
+                        options.histogram = Paths.get(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException(String.format("Unknown option %s", option));
+                }
+            }
+            if (options.url != null && options.request == null) {
+                throw new IllegalArgumentException("Option --request is required with --url");
+            }
+            return options;
+        }
+
+        private static int parseNumber(String option, String value, int min) {
+            try {
+                int parsed = Integer.parseInt(value);
+                if (parsed >= min) {
+                    return parsed;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException(String.format("Option %s requires a number of at least %d", option,
+                    min));
+        }
+
+        private static boolean parseTransport(String value) {
+            switch (value.toLowerCase(Locale.ROOT)) {
+                case "http1":
+                    return false;
+                case "http2":
+                    if (!SoapTransport.isHttp2Supported()) {
+                        throw new IllegalArgumentException("Transport http2 requires Java 11 or newer");
+                    }
+                    return true;
+                default:
+                    throw new IllegalArgumentException(String.format("Unknown transport %s", value));
+            }
+        }
+
+        private static ContentEncoding parseEncoding(String value) {
+            for (ContentEncoding encoding : ContentEncoding.values()) {
+                if (encoding.name().equalsIgnoreCase(value)) {
+                    return encoding;
+                }
+            }
+            throw new IllegalArgumentException(String.format("Unknown content coding %s", value));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.yevgenyk.simplesoapclient;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@code StubSoapServer} is a lightweight local SOAP endpoint for performance measurements. It answers every request
+ * to "/calculator.asmx" with the same "AddResponse" envelope, padded to a requested size.
+ */
+public final class StubSoapServer implements AutoCloseable {
+
+    private final HttpServer httpServer;
+    private final ExecutorService executorService;
+
+    /**
+     * Starts a stub server on a free local port.
+     *
+     * @param responseSize
+     *         The approximate size of each response in bytes
+     * @throws IOException
+     *         If the server couldn't be started
+     */
+    public StubSoapServer(int responseSize) throws IOException {
+        byte[] response = envelope("<AddResponse xmlns=\"http://tempuri.org/\"><AddResult>4</AddResult>",
+                "</AddResponse>", responseSize).getBytes(StandardCharsets.UTF_8);
+        // Without TCP_NODELAY the headers and the body go out in separate segments and the body waits for the
+        // client's delayed ACK, which adds ~40ms to every exchange and hides the client's own cost
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        httpServer.createContext("/calculator.asmx", exchange -> {
+            try (InputStream requestBody = exchange.getRequestBody()) {
+                byte[] buffer = new byte[8192];
+                while (requestBody.read(buffer) != -1) {
+                    // Drain the request so the connection can be reused
+                }
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=utf-8");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(response);
+            }
+        });
+        executorService = Executors.newCachedThreadPool();
+        httpServer.setExecutor(executorService);
+        httpServer.start();
+    }
+
+    /**
+     * @return The service URL to pass to {@code SimpleSoapClientImpl}
+     */
+    public String getServiceUrl() {
+        return String.format("http://%s:%d/calculator", httpServer.getAddress().getHostString(),
+                httpServer.getAddress().getPort());
+    }
+
+    /**
+     * Builds a SOAP envelope around {@code bodyStart} and {@code bodyEnd}, padded with filler elements in between to
+     * approximately {@code size} bytes.
+     *
+     * @param bodyStart
+     *         The XML that opens the SOAP body content
+     * @param bodyEnd
+     *         The XML that closes the SOAP body content
+     * @param size
+     *         The approximate size of the envelope in bytes
+     * @return The SOAP envelope
+     */
+    public static String envelope(String bodyStart, String bodyEnd, int size) {
+        StringBuilder envelope = new StringBuilder(size + 256)
+                .append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n")
+                .append("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">\n")
+                .append(" <soap:Body>\n  ")
+                .append(bodyStart);
+        int fillerNumber = 0;
+        while (envelope.length() < size) {
+            envelope.append("\n   <Filler>").append(fillerNumber++).append("</Filler>");
+        }
+        return envelope.append("\n  ").append(bodyEnd).append("\n </soap:Body>\n</soap:Envelope>").toString();
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executorService.shutdownNow();
+    }
+}
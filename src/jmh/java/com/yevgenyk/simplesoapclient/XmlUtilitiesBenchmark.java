@@ -0,0 +1,71 @@
+package com.yevgenyk.simplesoapclient;
+
+import org.openjdk.jmh.annotations.*;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.TransformerException;
+import javax.xml.xpath.XPathExpressionException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@code XmlUtilities} functions on a SOAP response of {@code documentSize} bytes, whose "AddResult"
+ * element comes after all the filler elements.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XmlUtilitiesBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    private int documentSize;
+
+    private String xmlString;
+    private Document document;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ParserConfigurationException, IOException, SAXException {
+        xmlString = StubSoapServer.envelope("<AddResponse xmlns=\"http://tempuri.org/\">",
+                "<AddResult>4</AddResult></AddResponse>", documentSize);
+        document = XmlUtilities.xmlStringToDocument(xmlString);
+    }
+
+    @Benchmark
+    public Document xmlStringToDocument() throws ParserConfigurationException, IOException, SAXException {
+        return XmlUtilities.xmlStringToDocument(xmlString);
+    }
+
+    @Benchmark
+    public String getTextContentOfXmlElementByXPath() throws XPathExpressionException, XmlParsingException {
+        return XmlUtilities.getTextContentOfXmlElement(document, "//AddResponse/AddResult");
+    }
+
+    @Benchmark
+    public String getTextContentOfXmlElementByName() throws XPathExpressionException, XmlParsingException {
+        return XmlUtilities.getTextContentOfXmlElement(document, "AddResult");
+    }
+
+    @Benchmark
+    public Node findXmlNodeByName() throws XmlParsingException {
+        return XmlUtilities.findXmlNodeByName(document, "AddResult");
+    }
+
+    @Benchmark
+    public String xmlDocumentToString() throws TransformerException {
+        return XmlUtilities.xmlDocumentToString(document, false);
+    }
+
+    @Benchmark
+    public Map<String, String> extractTextContent() throws XMLStreamException, XmlParsingException {
+        return XmlUtilities.extractTextContent(xmlString, Collections.singleton("AddResult"));
+    }
+}
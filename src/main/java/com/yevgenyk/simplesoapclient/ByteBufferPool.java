@@ -0,0 +1,58 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * {@code ByteBufferPool} keeps a bounded number of direct buffers of a single size for reuse.
+ * <p>
+ * Direct buffers are expensive to allocate and are only freed by the garbage collector, and writing a heap buffer to a
+ * channel makes the JDK copy it into a temporary direct buffer that is cached per thread, which adds up with many (or
+ * virtual) threads. Reusing pooled direct buffers avoids both. When the pool is empty a new buffer is allocated, and
+ * buffers released to a full pool are dropped, so the pool never blocks.
+ */
+final class ByteBufferPool {
+
+    /**
+     * The size of the buffers of the shared pool, large enough to write most SOAP responses in a single system call.
+     */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The pool shared by all clients.
+     */
+    static final ByteBufferPool SHARED = new ByteBufferPool(BUFFER_SIZE, 64);
+
+    private final int bufferSize;
+    private final BlockingQueue<ByteBuffer> buffers;
+
+    ByteBufferPool(int bufferSize, int maxPooledBuffers) {
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<>(maxPooledBuffers);
+    }
+
+    /**
+     * Takes a buffer from the pool, or allocates one if the pool is empty.
+     *
+     * @return An empty direct buffer, which should be given back with {@link #release(ByteBuffer)}
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Gives a buffer back to the pool. The buffer must not be used after it's released.
+     */
+    void release(ByteBuffer buffer) {
+        // Cast for Java 8, where ByteBuffer doesn't override clear()
+        ((Buffer) buffer).clear();
+        buffers.offer(buffer);
+    }
+
+    int getPooledBuffers() {
+        return buffers.size();
+    }
+}
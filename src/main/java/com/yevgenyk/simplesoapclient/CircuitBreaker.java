@@ -0,0 +1,150 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code CircuitBreaker} fails requests fast while their endpoint is unhealthy, instead of letting them wait for
+ * timeouts and pile up.
+ * <p>
+ * Each service URL has its own circuit. A circuit opens after {@code failureThreshold} consecutive failures, which are
+ * connection-level failures, read timeouts and 5xx responses other than SOAP Faults. While it's open, requests fail
+ * immediately without connecting. After {@code openDuration}, the circuit is half-open: a single request is let
+ * through as a trial, and the circuit closes if it succeeds or opens again if it fails. Any response with a status
+ * below 500, and any SOAP Fault, counts as a success, since the server is up and answering.
+ * <p>
+ * A single circuit breaker may be shared by several clients, which then share the circuits of the service URLs they
+ * have in common.
+ */
+public class CircuitBreaker {
+
+    /**
+     * The state of a circuit.
+     */
+    public enum State {
+        /**
+         * Requests are sent normally.
+         */
+        CLOSED,
+        /**
+         * Requests fail fast.
+         */
+        OPEN,
+        /**
+         * The next request is sent as a trial, and others fail fast until it ends.
+         */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+    private final AtomicLong rejectedRequests = new AtomicLong();
+
+    /**
+     * Creates a {@code CircuitBreaker}.
+     *
+     * @param failureThreshold
+     *         The number of consecutive failures that opens a circuit
+     * @param openDuration
+     *         How long a circuit stays open before a trial request is let through
+     * @throws IllegalArgumentException
+     *         If {@code failureThreshold} is not positive or {@code openDuration} is negative
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive");
+        }
+        if (openDuration == null || openDuration.isNegative()) {
+            throw new IllegalArgumentException("Open duration must not be negative");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Gets the current state of the circuit of {@code serviceUrl}.
+     *
+     * @param serviceUrl
+     *         URL to a WS service, as given to the client
+     * @return The state of the circuit, {@link State#CLOSED} if no request was sent to the service yet
+     */
+    public State getState(String serviceUrl) {
+        Circuit circuit = circuits.get(serviceUrl);
+        return circuit == null ? State.CLOSED : circuit.getState();
+    }
+
+    /**
+     * @return The number of requests that failed fast since the circuit breaker was created
+     */
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+
+    /**
+     * Gets the circuit of {@code serviceUrl}, so a client can resolve it once.
+     */
+    Circuit circuit(String serviceUrl) {
+        return circuits.computeIfAbsent(serviceUrl, key -> new Circuit());
+    }
+
+    /**
+     * {@code Circuit} is the state of a single service URL. Its critical sections don't block, so it's guarded by its
+     * monitor.
+     */
+    final class Circuit {
+
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAtNanos;
+        private boolean trialInFlight;
+
+        /**
+         * Checks whether a request may be sent. Every permitted request must be followed by a call to
+         * {@link #onSuccess()}, {@link #onFailure()} or {@link #onIgnored()}.
+         *
+         * @return <b>false</b> if the request must fail fast
+         */
+        synchronized boolean tryAcquire() {
+            if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openDurationNanos) {
+                state = State.HALF_OPEN;
+            }
+            if (state == State.CLOSED || (state == State.HALF_OPEN && !trialInFlight)) {
+                trialInFlight = state == State.HALF_OPEN;
+                return true;
+            }
+            rejectedRequests.incrementAndGet();
+            return false;
+        }
+
+        synchronized void onSuccess() {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            trialInFlight = false;
+        }
+
+        synchronized void onFailure() {
+            trialInFlight = false;
+            if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+                state = State.OPEN;
+                openedAtNanos = System.nanoTime();
+            }
+        }
+
+        /**
+         * Ends a request that failed for a reason that says nothing about the endpoint's health.
+         */
+        synchronized void onIgnored() {
+            trialInFlight = false;
+        }
+
+        synchronized State getState() {
+            if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openDurationNanos) {
+                return State.HALF_OPEN;
+            }
+            return state;
+        }
+    }
+}
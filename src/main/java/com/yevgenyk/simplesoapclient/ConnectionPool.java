@@ -0,0 +1,180 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code ConnectionPool} bounds and tracks the persistent HTTP connections used by {@code SimpleSoapClientImpl}.
+ * <p>
+ * The sockets themselves are kept alive by the JDK's HTTP keep-alive cache, which reuses a socket as long as the
+ * previous response on it was fully read and its stream was closed (instead of disconnecting). The cache also takes
+ * care of idle eviction (using the server's "Keep-Alive" timeout) and checks that a cached socket is still open before
+ * reusing it. The pool limits the number of connections leased concurrently for each host, so no more than that many
+ * sockets are ever open to a host, and collects usage statistics.
+ * <p>
+ * The keep-alive cache keeps at most {@code http.maxConnections} idle sockets per host (5 unless the system property is
+ * set), and closes any socket returned beyond that. The default per-host limit is that same number, so every leased
+ * socket can be kept. A higher limit should go with a higher {@code http.maxConnections}, set before the first HTTP
+ * request of the JVM, or the sockets above it are opened and closed for each request. With the HTTP/2 transport, each
+ * lease is a stream of a shared connection, so the limit bounds the concurrent requests to a host instead.
+ * <p>
+ * Sockets have no maximal lifetime: the keep-alive cache doesn't expose when a socket was opened, so a socket is kept
+ * as long as the server keeps it open and it doesn't idle out.
+ * <p>
+ * A single pool may be shared by several clients.
+ */
+public class ConnectionPool {
+
+    /**
+     * Value of {@code maxConnectionsPerHost} that disables the per-host connection limit.
+     */
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    /**
+     * The default maximal number of concurrent connections to a single host, which is the number of idle sockets the
+     * JDK keeps alive per host ({@code http.maxConnections}, 5 by default).
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = defaultMaxConnectionsPerHost();
+
+    /**
+     * The default time to wait for a free connection when the per-host limit is reached.
+     */
+    public static final Duration DEFAULT_ACQUIRE_TIMEOUT = Duration.ofSeconds(30);
+
+    private final int maxConnectionsPerHost;
+    private final long acquireTimeoutNanos;
+    private final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private final AtomicInteger leasedConnections = new AtomicInteger();
+    private final AtomicInteger peakLeasedConnections = new AtomicInteger();
+    private final AtomicLong totalLeases = new AtomicLong();
+    private final AtomicLong timedOutLeases = new AtomicLong();
+
+    /**
+     * Creates a {@code ConnectionPool} with the default per-host limit ({@link #DEFAULT_MAX_CONNECTIONS_PER_HOST}) and
+     * acquire timeout ({@link #DEFAULT_ACQUIRE_TIMEOUT}).
+     */
+    public ConnectionPool() {
+        this(DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_ACQUIRE_TIMEOUT);
+    }
+
+    /**
+     * Creates a {@code ConnectionPool} that allows up to {@code maxConnectionsPerHost} concurrent connections to each
+     * host.
+     *
+     * @param maxConnectionsPerHost
+     *         The maximal number of concurrent connections to a single host, or {@link #UNBOUNDED}
+     * @param acquireTimeout
+     *         How long to wait for a free connection when the limit is reached
+     * @throws IllegalArgumentException
+     *         If {@code maxConnectionsPerHost} is not positive or {@code acquireTimeout} is negative
+     */
+    public ConnectionPool(int maxConnectionsPerHost, Duration acquireTimeout) {
+        if (maxConnectionsPerHost <= 0) {
+            throw new IllegalArgumentException("Max connections per host must be positive");
+        }
+        if (acquireTimeout == null || acquireTimeout.isNegative()) {
+            throw new IllegalArgumentException("Acquire timeout must not be negative");
+        }
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    }
+
+    /**
+     * Leases a connection slot for the host of {@code url}, waiting up to the acquire timeout if all slots are taken.
+     * Every successful call must be followed by a call to {@link #release(URL)}.
+     *
+     * @param url
+     *         The URL that is about to be connected
+     * @throws SimpleSoapClientException
+     *         If no slot became available in time, or the waiting thread was interrupted
+     */
+    public void acquire(URL url) throws SimpleSoapClientException {
+        acquire(hostKey(url));
+    }
+
+    /**
+     * Leases a connection slot for a host key created by {@link #hostKey(URL)}.
+     *
+     * @param hostKey
+     *         The "host:port" of the URL that is about to be connected
+     * @throws SimpleSoapClientException
+     *         If no slot became available in time, or the waiting thread was interrupted
+     */
+    void acquire(String hostKey) throws SimpleSoapClientException {
+        if (maxConnectionsPerHost != UNBOUNDED) {
+            Semaphore permits = hostPermits.computeIfAbsent(hostKey, key -> new Semaphore(maxConnectionsPerHost));
+            try {
+                if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                    timedOutLeases.incrementAndGet();
+                    throw new SimpleSoapClientException(
+                            String.format("Timed out waiting for a free connection to \"%s\"", hostKey));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SimpleSoapClientException("Interrupted while waiting for a free connection", e);
+            }
+        }
+        totalLeases.incrementAndGet();
+        peakLeasedConnections.accumulateAndGet(leasedConnections.incrementAndGet(), Math::max);
+    }
+
+    /**
+     * Returns a connection slot leased by {@link #acquire(URL)}.
+     *
+     * @param url
+     *         The URL that was connected
+     */
+    public void release(URL url) {
+        release(hostKey(url));
+    }
+
+    /**
+     * Returns a connection slot leased by {@link #acquire(String)}.
+     *
+     * @param hostKey
+     *         The "host:port" of the URL that was connected
+     */
+    void release(String hostKey) {
+        leasedConnections.decrementAndGet();
+        if (maxConnectionsPerHost != UNBOUNDED) {
+            hostPermits.get(hostKey).release();
+        }
+    }
+
+    /**
+     * Gets a snapshot of this pool's usage statistics.
+     *
+     * @return The current {@code ConnectionPoolStatistics}
+     */
+    public ConnectionPoolStatistics getStatistics() {
+        return new ConnectionPoolStatistics(leasedConnections.get(), peakLeasedConnections.get(), totalLeases.get(),
+                timedOutLeases.get());
+    }
+
+    /**
+     * @return The maximal number of concurrent connections to a single host
+     */
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    private static int defaultMaxConnectionsPerHost() {
+        // The keep-alive cache falls back to 5 for a missing or non-positive value as well
+        int keepAliveConnections = Integer.getInteger("http.maxConnections", 5);
+        return keepAliveConnections > 0 ? keepAliveConnections : 5;
+    }
+
+    /**
+     * @return The "host:port" that identifies the host of {@code url} in the pool
+     */
+    static String hostKey(URL url) {
+        int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        return url.getHost() + ":" + port;
+    }
+}
@@ -0,0 +1,53 @@
+package com.yevgenyk.simplesoapclient;
+
+/**
+ * {@code ConnectionPoolStatistics} is an immutable snapshot of a {@code ConnectionPool}'s usage.
+ */
+public final class ConnectionPoolStatistics {
+
+    private final int leasedConnections;
+    private final int peakLeasedConnections;
+    private final long totalLeases;
+    private final long timedOutLeases;
+
+    ConnectionPoolStatistics(int leasedConnections, int peakLeasedConnections, long totalLeases, long timedOutLeases) {
+        this.leasedConnections = leasedConnections;
+        this.peakLeasedConnections = peakLeasedConnections;
+        this.totalLeases = totalLeases;
+        this.timedOutLeases = timedOutLeases;
+    }
+
+    /**
+     * @return The number of connections currently in use
+     */
+    public int getLeasedConnections() {
+        return leasedConnections;
+    }
+
+    /**
+     * @return The highest number of connections that were in use at the same time
+     */
+    public int getPeakLeasedConnections() {
+        return peakLeasedConnections;
+    }
+
+    /**
+     * @return The number of connections leased since the pool was created
+     */
+    public long getTotalLeases() {
+        return totalLeases;
+    }
+
+    /**
+     * @return The number of lease attempts that timed out waiting for a free connection
+     */
+    public long getTimedOutLeases() {
+        return timedOutLeases;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPoolStatistics{leased=%d, peakLeased=%d, totalLeases=%d, timedOutLeases=%d}",
+                leasedConnections, peakLeasedConnections, totalLeases, timedOutLeases);
+    }
+}
@@ -0,0 +1,155 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * {@code ContentEncoding} is an HTTP content coding that SOAP request and response bodies can be compressed with.
+ * <p>
+ * Bodies are compressed and decompressed while they are streamed, so a compressed body is never held in memory.
+ */
+public enum ContentEncoding {
+
+    /**
+     * The "gzip" coding (RFC 1952).
+     */
+    GZIP("gzip") {
+        @Override
+        OutputStream compress(OutputStream outputStream) throws IOException {
+            return new GZIPOutputStream(outputStream, RequestBody.BUFFER_SIZE);
+        }
+    },
+
+    /**
+     * The "deflate" coding, which is the zlib format (RFC 1950).
+     */
+    DEFLATE("deflate") {
+        @Override
+        OutputStream compress(OutputStream outputStream) {
+            Deflater deflater = new Deflater();
+            return new DeflaterOutputStream(outputStream, deflater, RequestBody.BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        // A Deflater passed to DeflaterOutputStream is not ended by it, and holds native memory
+                        deflater.end();
+                    }
+                }
+            };
+        }
+    };
+
+    /**
+     * The value of the "Accept-Encoding" request header, listing every supported coding.
+     */
+    static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * @return The name of this coding in the "Content-Encoding" header
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Wraps a stream so the bytes written to it are compressed. Closing the returned stream finishes the compressed
+     * data and closes {@code outputStream}.
+     */
+    abstract OutputStream compress(OutputStream outputStream) throws IOException;
+
+    /**
+     * Wraps a response body so it's decompressed according to its "Content-Encoding" header.
+     *
+     * @param contentEncoding
+     *         The value of the "Content-Encoding" header, or <b>null</b> if it's missing
+     * @param inputStream
+     *         The response body as received
+     * @return The decompressed body, or {@code inputStream} itself if it's not compressed
+     * @throws IOException
+     *         If the coding is not supported, or the compressed data has no valid header
+     */
+    static InputStream decompress(String contentEncoding, InputStream inputStream) throws IOException {
+        if (contentEncoding == null) {
+            return inputStream;
+        }
+        String coding = contentEncoding.trim();
+        if (coding.isEmpty() || coding.equalsIgnoreCase("identity")) {
+            return inputStream;
+        }
+        if (coding.equalsIgnoreCase(GZIP.token) || coding.equalsIgnoreCase("x-gzip")) {
+            return drainingOnClose(new GZIPInputStream(inputStream, RequestBody.BUFFER_SIZE), inputStream);
+        }
+        if (coding.equalsIgnoreCase(DEFLATE.token)) {
+            return drainingOnClose(inflate(inputStream), inputStream);
+        }
+        throw new IOException(String.format("Unsupported content encoding \"%s\"", contentEncoding));
+    }
+
+    /**
+     * The decompressor stops at the end of the compressed data, which may leave the end of the HTTP body (like the
+     * last chunk of a chunked response) unread, and then the JDK closes the socket instead of keeping it alive. So the
+     * rest of the body is drained before it's closed, up to a small limit.
+     */
+    private static InputStream drainingOnClose(InputStream decompressedStream, InputStream bodyStream) {
+        return new FilterInputStream(decompressedStream) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    byte[] buffer = new byte[256];
+                    int drained = 0;
+                    int read;
+                    while (drained < RequestBody.BUFFER_SIZE && (read = bodyStream.read(buffer)) != -1) {
+                        drained += read;
+                    }
+                } finally {
+                    super.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Some servers send raw deflate data instead of the zlib format that "deflate" stands for, so the zlib header is
+     * checked before picking the inflater.
+     */
+    private static InputStream inflate(InputStream inputStream) throws IOException {
+        PushbackInputStream pushbackStream = new PushbackInputStream(inputStream, 2);
+        int first = pushbackStream.read();
+        int second = first == -1 ? -1 : pushbackStream.read();
+        if (second != -1) {
+            pushbackStream.unread(second);
+        }
+        if (first != -1) {
+            pushbackStream.unread(first);
+        }
+        boolean zlib = second != -1 && (first & 0x0F) == 8 && ((first << 8) | second) % 31 == 0;
+        Inflater inflater = new Inflater(!zlib);
+        return new InflaterInputStream(pushbackStream, inflater, RequestBody.BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package com.yevgenyk.simplesoapclient;
+
+/**
+ * {@code ExecutionMode} selects the kind of threads that run asynchronous and bulk requests of
+ * {@code SimpleSoapClientImpl}.
+ */
+public enum ExecutionMode {
+
+    /**
+     * Requests run on a shared pool of {@value SimpleSoapClientImpl#DEFAULT_ASYNC_THREADS} platform (OS) threads.
+     */
+    PLATFORM_THREADS,
+
+    /**
+     * Each request runs on its own virtual thread. Requires Java 21 or newer.
+     */
+    VIRTUAL_THREADS;
+
+    /**
+     * Checks whether virtual threads are available on the running JVM.
+     *
+     * @return <b>true</b> if {@link #VIRTUAL_THREADS} can be used
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return VirtualThreads.isSupported();
+    }
+}
@@ -0,0 +1,21 @@
+package com.yevgenyk.simplesoapclient;
+
+/**
+ * {@code Http2Transport} provides the HTTP/2 {@code SoapTransport} where the running JVM has an HTTP/2 client.
+ * <p>
+ * This is the Java 8 variant, a Java 11 variant is packaged in the multi-release JAR.
+ */
+final class Http2Transport {
+
+    static boolean isSupported() {
+        return false;
+    }
+
+    static SoapTransport create() {
+        throw new UnsupportedOperationException("HTTP/2 requires Java 11 or newer");
+    }
+
+    private Http2Transport() {
+        throw new AssertionError();
+    }
+}
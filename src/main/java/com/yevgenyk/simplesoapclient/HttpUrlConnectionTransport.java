@@ -0,0 +1,119 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * {@code HttpUrlConnectionTransport} sends each exchange over an {@code HttpURLConnection}, with one request in flight
+ * per connection. Idle connections are kept in the JDK's keep-alive cache, unless keep-alive is disabled.
+ */
+final class HttpUrlConnectionTransport implements SoapTransport {
+
+    private final boolean keepAlive;
+
+    /**
+     * @param keepAlive
+     *         if <b>false</b> - each connection is closed after its response is read
+     */
+    HttpUrlConnectionTransport(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    @Override
+    public Exchange newExchange(URL url, int connectTimeoutMillis, int readTimeoutMillis) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        if (!keepAlive) {
+            connection.setRequestProperty("Connection", "close");
+        }
+        connection.setDoOutput(true);
+        if (connectTimeoutMillis != 0) {
+            connection.setConnectTimeout(connectTimeoutMillis);
+        }
+        if (readTimeoutMillis != 0) {
+            connection.setReadTimeout(readTimeoutMillis);
+        }
+        return new UrlConnectionExchange(connection);
+    }
+
+    /**
+     * {@code UrlConnectionExchange} maps an exchange onto the calls of an {@code HttpURLConnection}.
+     */
+    private final class UrlConnectionExchange implements Exchange {
+
+        private final HttpURLConnection connection;
+
+        UrlConnectionExchange(HttpURLConnection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public void setRequestHeader(String name, String value) {
+            connection.setRequestProperty(name, value);
+        }
+
+        @Override
+        public void connect(long contentLength) throws IOException {
+            if (contentLength >= 0) {
+                connection.setFixedLengthStreamingMode(contentLength);
+            } else {
+                connection.setChunkedStreamingMode(0);
+            }
+            connection.connect();
+        }
+
+        @Override
+        public OutputStream getRequestStream() throws IOException {
+            return connection.getOutputStream();
+        }
+
+        @Override
+        public int getStatusCode() throws IOException {
+            return connection.getResponseCode();
+        }
+
+        @Override
+        public String getStatusMessage() throws IOException {
+            return connection.getResponseMessage();
+        }
+
+        @Override
+        public String getResponseHeader(String name) {
+            return connection.getHeaderField(name);
+        }
+
+        @Override
+        public long getResponseContentLength() {
+            return connection.getContentLengthLong();
+        }
+
+        /**
+         * The body of an unsuccessful response is the error stream. Whatever isn't read of it is left to the JDK,
+         * which drains it if it's short or closes the socket otherwise.
+         */
+        @Override
+        public InputStream getResponseStream() throws IOException {
+            return connection.getResponseCode() >= HttpURLConnection.HTTP_BAD_REQUEST ? connection.getErrorStream()
+                    : connection.getInputStream();
+        }
+
+        /**
+         * With keep-alive, the response streams were already fully read and closed, which returns the socket to the
+         * JDK's keep-alive cache, so the connection is only disconnected when keep-alive is disabled.
+         */
+        @Override
+        public void close() {
+            if (!keepAlive) {
+                connection.disconnect();
+            }
+        }
+
+        @Override
+        public void abort() {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.yevgenyk.simplesoapclient;
+
+/**
+ * {@code LatencyHistogram} records latencies in a fixed number of logarithmic buckets, so its size doesn't depend on
+ * the number of recorded values.
+ * <p>
+ * Each power of two is split into {@value #SUB_BUCKETS} linear sub-buckets, so percentiles are accurate to within
+ * about 6%. Not thread-safe.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private long sum;
+
+    void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts[bucket(value)]++;
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sum += value;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    long getMax() {
+        return max;
+    }
+
+    long getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * Gets the value at or below which {@code percentile} percent of the recorded values are.
+     *
+     * @param percentile
+     *         The percentile, between 0 and 100
+     * @return The upper bound of the bucket of the percentile, capped at the maximal recorded value
+     */
+    long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(upperBound(bucket), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Values below {@value #SUB_BUCKETS} have a bucket each. Larger values are shifted right until they have
+     * {@code SUB_BUCKET_BITS + 1} significant bits, and the bucket is picked by the shift and the remaining bits.
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long significantBits = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((significantBits + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,416 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * {@code LoadBalancer} spreads the requests of a SOAP service over several replicated endpoints.
+ * <p>
+ * Each request (and each retry) is sent to the endpoint picked by a {@link LoadBalancingStrategy}, round-robin by
+ * default. Retries avoid the endpoint that just failed, so a {@code RetryPolicy} fails requests over to another
+ * endpoint.
+ * <p>
+ * Endpoints are ejected passively: after {@code ejectionThreshold} consecutive failures, which are connection-level
+ * failures, read timeouts and 5xx responses other than SOAP Faults, like for the {@code CircuitBreaker}, an endpoint
+ * stops getting requests. While it's ejected, it's probed in the background every {@code probeInterval} with a GET
+ * request to its ".asmx?WSDL" URL, and it's brought back as soon as it answers with a status below 500. If every
+ * endpoint is ejected, requests are spread over all of them, and the first successful one brings its endpoint back as
+ * well.
+ * <p>
+ * A single load balancer may be shared by several clients, typically the operation clients of a
+ * {@code SimpleSoapServiceClient}, which then share its endpoint statistics and ejections.
+ */
+public class LoadBalancer {
+
+    /**
+     * The default number of consecutive failures that ejects an endpoint.
+     */
+    public static final int DEFAULT_EJECTION_THRESHOLD = 5;
+
+    private static final double LATENCY_EWMA_WEIGHT = 0.25;
+
+    private final List<Endpoint> endpoints;
+    private final LoadBalancingStrategy strategy;
+    private final int ejectionThreshold;
+    private final long probeIntervalNanos;
+    private final long latencyHalfLifeNanos;
+    private final int probeTimeoutMillis;
+    private final AtomicLong ejections = new AtomicLong();
+    private volatile List<Endpoint> availableEndpoints;
+
+    private LoadBalancer(Builder builder) {
+        if (builder.serviceUrls == null || builder.serviceUrls.isEmpty()) {
+            throw new IllegalArgumentException("At least one service URL is required");
+        }
+        if (builder.strategy == null) {
+            throw new IllegalArgumentException("Load balancing strategy is required");
+        }
+        if (builder.ejectionThreshold < 0) {
+            throw new IllegalArgumentException("Ejection threshold must not be negative");
+        }
+        if (builder.probeInterval == null || builder.probeInterval.isNegative() || builder.probeInterval.isZero()) {
+            throw new IllegalArgumentException("Probe interval must be positive");
+        }
+        if (builder.latencyHalfLife == null || builder.latencyHalfLife.isNegative()
+                || builder.latencyHalfLife.isZero()) {
+            throw new IllegalArgumentException("Latency half-life must be positive");
+        }
+        Set<String> serviceUrls = new HashSet<>();
+        List<Endpoint> newEndpoints = new ArrayList<>(builder.serviceUrls.size());
+        for (String serviceUrl : builder.serviceUrls) {
+            if (serviceUrl == null || serviceUrl.isEmpty()) {
+                throw new IllegalArgumentException("Service URL must not be empty");
+            }
+            if (!serviceUrls.add(serviceUrl)) {
+                throw new IllegalArgumentException(String.format("Service URL \"%s\" was already added", serviceUrl));
+            }
+            newEndpoints.add(new Endpoint(serviceUrl, newEndpoints.size()));
+        }
+        this.endpoints = Collections.unmodifiableList(newEndpoints);
+        this.availableEndpoints = endpoints;
+        this.strategy = builder.strategy;
+        this.ejectionThreshold = builder.ejectionThreshold;
+        this.probeIntervalNanos = builder.probeInterval.toNanos();
+        this.latencyHalfLifeNanos = builder.latencyHalfLife.toNanos();
+        this.probeTimeoutMillis = (int) Math.max(1, Math.min(builder.probeInterval.toMillis(), Integer.MAX_VALUE));
+    }
+
+    /**
+     * Creates a {@code Builder} for a {@code LoadBalancer}.
+     *
+     * @param serviceUrls
+     *         URLs to the replicas of a WS service - "http://node1/calculator" and "http://node2/calculator" for
+     *         example
+     * @return A new {@code Builder}
+     */
+    public static Builder builder(List<String> serviceUrls) {
+        return new Builder(serviceUrls);
+    }
+
+    /**
+     * Creates the load balancer of a client with a single service URL, which never ejects it.
+     */
+    static LoadBalancer single(String serviceUrl) {
+        return builder(Collections.singletonList(serviceUrl)).ejectionThreshold(0).build();
+    }
+
+    /**
+     * @return The endpoints, in the order of their service URLs
+     */
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @return The number of times an endpoint was ejected since the load balancer was created
+     */
+    public long getEjections() {
+        return ejections.get();
+    }
+
+    /**
+     * Picks the endpoint of the next request.
+     *
+     * @param previous
+     *         The endpoint of the previous attempt of the request, which is avoided if there are other candidates, or
+     *         <b>null</b>
+     * @return The picked endpoint
+     */
+    Endpoint select(Endpoint previous) {
+        List<Endpoint> candidates = availableEndpoints;
+        if (candidates.isEmpty()) {
+            candidates = endpoints;
+        }
+        if (previous != null && candidates.size() > 1 && candidates.contains(previous)) {
+            candidates = new ArrayList<>(candidates);
+            candidates.remove(previous);
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        Endpoint selected = strategy.select(Collections.unmodifiableList(candidates));
+        if (selected == null || selected.index >= endpoints.size() || endpoints.get(selected.index) != selected) {
+            throw new IllegalStateException("Load balancing strategy picked an endpoint of another load balancer");
+        }
+        return selected;
+    }
+
+    /**
+     * Finds the endpoint with the lowest cost, starting the search at a different endpoint on each turn so ties are
+     * broken in turn.
+     */
+    static Endpoint cheapest(List<Endpoint> endpoints, int turn, ToDoubleFunction<Endpoint> cost) {
+        int size = endpoints.size();
+        int start = Math.floorMod(turn, size);
+        Endpoint cheapest = null;
+        double lowestCost = 0;
+        for (int i = 0; i < size; i++) {
+            Endpoint endpoint = endpoints.get((start + i) % size);
+            double endpointCost = cost.applyAsDouble(endpoint);
+            if (cheapest == null || endpointCost < lowestCost) {
+                cheapest = endpoint;
+                lowestCost = endpointCost;
+            }
+        }
+        return cheapest;
+    }
+
+    private synchronized void updateAvailableEndpoints() {
+        List<Endpoint> available = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.ejected) {
+                available.add(endpoint);
+            }
+        }
+        availableEndpoints = available.size() == endpoints.size() ? endpoints
+                : Collections.unmodifiableList(available);
+    }
+
+    private void scheduleProbe(Endpoint endpoint) {
+        Probes.SCHEDULER.schedule(() -> probe(endpoint), probeIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void probe(Endpoint endpoint) {
+        if (!endpoint.ejected) {
+            return;
+        }
+        if (isAnswering(endpoint.probeUrl)) {
+            endpoint.reinstate();
+        } else {
+            scheduleProbe(endpoint);
+        }
+    }
+
+    private boolean isAnswering(String probeUrl) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) URI.create(probeUrl).toURL().openConnection();
+            connection.setConnectTimeout(probeTimeoutMillis);
+            connection.setReadTimeout(probeTimeoutMillis);
+            return connection.getResponseCode() < HttpURLConnection.HTTP_INTERNAL_ERROR;
+        } catch (IOException | IllegalArgumentException e) {
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * {@code Endpoint} is a single replica of the service, with the live statistics strategies pick endpoints by. Its
+     * health is guarded by its monitor, and the statistics that strategies read are lock-free.
+     */
+    public final class Endpoint {
+
+        private final String serviceUrl;
+        private final String probeUrl;
+        private final int index;
+        private final AtomicInteger outstandingRequests = new AtomicInteger();
+        private volatile long latencyEwmaNanos;
+        private volatile long latencyUpdatedNanos;
+        private volatile boolean ejected;
+        private int consecutiveFailures;
+
+        private Endpoint(String serviceUrl, int index) {
+            this.serviceUrl = serviceUrl;
+            this.probeUrl = String.format("%s.asmx?WSDL", serviceUrl);
+            this.index = index;
+        }
+
+        /**
+         * @return URL to the WS service, as given to the load balancer
+         */
+        public String getServiceUrl() {
+            return serviceUrl;
+        }
+
+        /**
+         * @return The number of requests to this endpoint whose response was not closed yet
+         */
+        public int getOutstandingRequests() {
+            return outstandingRequests.get();
+        }
+
+        /**
+         * Gets the exponentially weighted moving average of the time until the response headers were received. The
+         * average decays by half every latency half-life without a response, so an endpoint that was slow once is
+         * eventually tried again, even if it's never picked in the meantime.
+         *
+         * @return The latency average in nanoseconds, or 0 if no response was received yet
+         */
+        public long getLatencyEwmaNanos() {
+            // The two fields are read without the lock, which at worst decays a fresh average a little too much
+            long updatedNanos = latencyUpdatedNanos;
+            return (long) (latencyEwmaNanos * decay(System.nanoTime() - updatedNanos));
+        }
+
+        /**
+         * @return <b>true</b> if the endpoint is ejected and doesn't get requests until a probe succeeds
+         */
+        public boolean isEjected() {
+            return ejected;
+        }
+
+        int index() {
+            return index;
+        }
+
+        void start() {
+            outstandingRequests.incrementAndGet();
+        }
+
+        void finish() {
+            outstandingRequests.decrementAndGet();
+        }
+
+        /**
+         * Records a response, successful or not, since the server is up and answering.
+         */
+        synchronized void onResponse(long latencyNanos) {
+            consecutiveFailures = 0;
+            long sample = Math.max(1, latencyNanos);
+            long nowNanos = System.nanoTime();
+            // The staler the average, the more the new sample counts, up to replacing an average that decayed away
+            double decay = decay(nowNanos - latencyUpdatedNanos);
+            double weight = Math.max(LATENCY_EWMA_WEIGHT, 1 - decay);
+            double average = latencyEwmaNanos * decay;
+            latencyEwmaNanos = Math.max(1, (long) (average + weight * (sample - average)));
+            latencyUpdatedNanos = nowNanos;
+            if (ejected) {
+                reinstate();
+            }
+        }
+
+        private double decay(long elapsedNanos) {
+            return Math.pow(0.5, (double) Math.max(0, elapsedNanos) / latencyHalfLifeNanos);
+        }
+
+        synchronized void onFailure() {
+            if (ejectionThreshold > 0 && ++consecutiveFailures >= ejectionThreshold && !ejected) {
+                ejected = true;
+                ejections.incrementAndGet();
+                updateAvailableEndpoints();
+                scheduleProbe(this);
+            }
+        }
+
+        private synchronized void reinstate() {
+            consecutiveFailures = 0;
+            if (ejected) {
+                ejected = false;
+                updateAvailableEndpoints();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return serviceUrl;
+        }
+    }
+
+    /**
+     * {@code Builder} configures and creates {@code LoadBalancer} instances.
+     */
+    public static final class Builder {
+
+        private final List<String> serviceUrls;
+        private LoadBalancingStrategy strategy = LoadBalancingStrategy.roundRobin();
+        private int ejectionThreshold = DEFAULT_EJECTION_THRESHOLD;
+        private Duration probeInterval = Duration.ofSeconds(5);
+        private Duration latencyHalfLife = Duration.ofSeconds(10);
+
+        private Builder(List<String> serviceUrls) {
+            this.serviceUrls = serviceUrls == null ? null : new ArrayList<>(serviceUrls);
+        }
+
+        /**
+         * Sets the strategy that picks the endpoint of each request. {@link LoadBalancingStrategy#roundRobin()} by
+         * default.
+         *
+         * @param strategy
+         *         The strategy, which must not be shared with other load balancers
+         * @return This builder
+         */
+        public Builder strategy(LoadBalancingStrategy strategy) {
+            this.strategy = strategy;
+            return this;
+        }
+
+        /**
+         * Sets the number of consecutive failures that ejects an endpoint. {@value #DEFAULT_EJECTION_THRESHOLD} by
+         * default.
+         *
+         * @param ejectionThreshold
+         *         The number of failures, or 0 to never eject endpoints
+         * @return This builder
+         */
+        public Builder ejectionThreshold(int ejectionThreshold) {
+            this.ejectionThreshold = ejectionThreshold;
+            return this;
+        }
+
+        /**
+         * Sets how often ejected endpoints are probed, which is also the timeout of each probe. 5 seconds by default.
+         *
+         * @param probeInterval
+         *         The time between probes
+         * @return This builder
+         */
+        public Builder probeInterval(Duration probeInterval) {
+            this.probeInterval = probeInterval;
+            return this;
+        }
+
+        /**
+         * Sets how fast the latency average of an endpoint decays while it gets no responses, which is how long a
+         * slow response keeps a {@link LoadBalancingStrategy#latencyEwma()} strategy away from an endpoint. 10
+         * seconds by default.
+         *
+         * @param latencyHalfLife
+         *         The time in which the latency average of an idle endpoint drops by half
+         * @return This builder
+         */
+        public Builder latencyHalfLife(Duration latencyHalfLife) {
+            this.latencyHalfLife = latencyHalfLife;
+            return this;
+        }
+
+        /**
+         * Creates the configured {@code LoadBalancer}.
+         *
+         * @return A new {@code LoadBalancer}
+         * @throws IllegalArgumentException
+         *         If no service URL was given, a service URL is empty or repeated, or the strategy, ejection
+         *         threshold, probe interval or latency half-life are invalid
+         */
+        public LoadBalancer build() {
+            return new LoadBalancer(this);
+        }
+    }
+
+    /**
+     * The thread that probes ejected endpoints, shared by all load balancers and created on first use.
+     */
+    private static final class Probes {
+
+        static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "simple-soap-client-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
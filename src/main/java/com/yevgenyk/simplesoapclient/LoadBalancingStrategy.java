@@ -0,0 +1,63 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code LoadBalancingStrategy} picks the endpoint of a {@code LoadBalancer} that each request is sent to.
+ * <p>
+ * Strategies are called concurrently by every request, so they must be thread-safe and must not block. Each of the
+ * built-in strategies keeps its own state, so a new instance should be created for each load balancer.
+ */
+@FunctionalInterface
+public interface LoadBalancingStrategy {
+
+    /**
+     * Picks the endpoint of the next request.
+     *
+     * @param endpoints
+     *         The endpoints that may be picked, never empty. Ejected endpoints are left out, unless all of them are
+     *         ejected
+     * @return One of {@code endpoints}
+     */
+    LoadBalancer.Endpoint select(List<LoadBalancer.Endpoint> endpoints);
+
+    /**
+     * Creates a strategy that sends requests to the endpoints in turn.
+     *
+     * @return A new round-robin strategy
+     */
+    static LoadBalancingStrategy roundRobin() {
+        AtomicInteger next = new AtomicInteger();
+        return endpoints -> endpoints.get(Math.floorMod(next.getAndIncrement(), endpoints.size()));
+    }
+
+    /**
+     * Creates a strategy that sends each request to the endpoint with the fewest requests in flight. Ties are broken
+     * in turn, so idle endpoints share the load evenly.
+     *
+     * @return A new least-outstanding-requests strategy
+     */
+    static LoadBalancingStrategy leastOutstandingRequests() {
+        AtomicInteger next = new AtomicInteger();
+        return endpoints -> LoadBalancer.cheapest(endpoints, next.getAndIncrement(),
+                endpoint -> endpoint.getOutstandingRequests());
+    }
+
+    /**
+     * Creates a strategy that sends each request to the endpoint with the lowest expected latency, which is the
+     * exponentially weighted moving average of its response times multiplied by its requests in flight plus one.
+     * Endpoints without a measured response yet are tried first. Ties are broken in turn.
+     * <p>
+     * The average of an endpoint that gets no requests decays over time (see
+     * {@link LoadBalancer.Builder#latencyHalfLife(java.time.Duration)}), so an endpoint that was slow once gets a
+     * request again, and a fast response brings it back.
+     *
+     * @return A new latency-weighted strategy
+     */
+    static LoadBalancingStrategy latencyEwma() {
+        AtomicInteger next = new AtomicInteger();
+        return endpoints -> LoadBalancer.cheapest(endpoints, next.getAndIncrement(),
+                endpoint -> (double) endpoint.getLatencyEwmaNanos() * (endpoint.getOutstandingRequests() + 1));
+    }
+}
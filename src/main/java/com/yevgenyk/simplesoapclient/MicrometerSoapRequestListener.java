@@ -0,0 +1,184 @@
+package com.yevgenyk.simplesoapclient;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code MicrometerSoapRequestListener} records SOAP requests in a Micrometer {@code MeterRegistry}. All meters are
+ * tagged with the WS operation:
+ * <ul>
+ * <li>{@value #REQUESTS} - timer of whole requests, also tagged with the HTTP status and outcome</li>
+ * <li>{@value #PHASES} - timer of each request phase ("connect", "write", "server" and "read"), with a percentile
+ * histogram</li>
+ * <li>{@value #REQUEST_SIZE} and {@value #RESPONSE_SIZE} - body sizes in bytes</li>
+ * <li>{@value #ERRORS} - counter of failed requests, also tagged with the HTTP status ("none" if there was no
+ * response)</li>
+ * <li>{@value #ACTIVE_REQUESTS} - gauge of requests in flight</li>
+ * </ul>
+ * This class needs {@code io.micrometer:micrometer-core}, which is an optional dependency of this library.
+ */
+public class MicrometerSoapRequestListener implements SoapRequestListener {
+
+    /**
+     * Name of the whole request timer.
+     */
+    public static final String REQUESTS = "soap.client.requests";
+    /**
+     * Name of the request phase timer.
+     */
+    public static final String PHASES = "soap.client.request.phases";
+    /**
+     * Name of the request body size summary.
+     */
+    public static final String REQUEST_SIZE = "soap.client.request.size";
+    /**
+     * Name of the response body size summary.
+     */
+    public static final String RESPONSE_SIZE = "soap.client.response.size";
+    /**
+     * Name of the failed request counter.
+     */
+    public static final String ERRORS = "soap.client.errors";
+    /**
+     * Name of the in-flight request gauge.
+     */
+    public static final String ACTIVE_REQUESTS = "soap.client.requests.active";
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, OperationMeters> operationMeters = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a {@code MicrometerSoapRequestListener}.
+     *
+     * @param meterRegistry
+     *         The registry to record requests in
+     */
+    public MicrometerSoapRequestListener(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void onRequestStart(String wsOperation) {
+        meters(wsOperation).activeRequests.incrementAndGet();
+    }
+
+    @Override
+    public void onRequestEnd(SoapRequestEvent event) {
+        OperationMeters meters = meters(event.getWsOperation());
+        meters.activeRequests.decrementAndGet();
+        record(meters.connect, event.getConnectNanos());
+        record(meters.write, event.getWriteNanos());
+        record(meters.server, event.getServerNanos());
+        record(meters.read, event.getReadNanos());
+        meters.requestSize.record(event.getRequestBytes());
+        meters.responseSize.record(event.getResponseBytes());
+        if (event.isFailed()) {
+            OutcomeMeters errors = meters.errors(event.getHttpStatus());
+            errors.requests.record(event.getTotalNanos(), TimeUnit.NANOSECONDS);
+            errors.errors.increment();
+        } else {
+            meters.successes(event.getHttpStatus()).requests.record(event.getTotalNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private OperationMeters meters(String wsOperation) {
+        OperationMeters meters = operationMeters.get(wsOperation);
+        if (meters == null) {
+            meters = operationMeters.computeIfAbsent(wsOperation, operation -> new OperationMeters(meterRegistry,
+                    operation));
+        }
+        return meters;
+    }
+
+    private static void record(Timer timer, long nanos) {
+        if (nanos >= 0) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * The meters of a single operation, registered once. The meters tagged with an HTTP status are registered when
+     * that status is first seen.
+     */
+    private static final class OperationMeters {
+
+        private final MeterRegistry meterRegistry;
+        private final Tags tags;
+        private final Timer connect;
+        private final Timer write;
+        private final Timer server;
+        private final Timer read;
+        private final DistributionSummary requestSize;
+        private final DistributionSummary responseSize;
+        private final AtomicInteger activeRequests;
+        private final ConcurrentMap<Integer, OutcomeMeters> successes = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Integer, OutcomeMeters> errors = new ConcurrentHashMap<>();
+
+        OperationMeters(MeterRegistry meterRegistry, String wsOperation) {
+            this.meterRegistry = meterRegistry;
+            tags = Tags.of("operation", wsOperation);
+            connect = phase(meterRegistry, "connect");
+            write = phase(meterRegistry, "write");
+            server = phase(meterRegistry, "server");
+            read = phase(meterRegistry, "read");
+            requestSize = DistributionSummary.builder(REQUEST_SIZE).baseUnit("bytes").tags(tags)
+                    .register(meterRegistry);
+            responseSize = DistributionSummary.builder(RESPONSE_SIZE).baseUnit("bytes").tags(tags)
+                    .register(meterRegistry);
+            activeRequests = meterRegistry.gauge(ACTIVE_REQUESTS, tags, new AtomicInteger());
+        }
+
+        private Timer phase(MeterRegistry meterRegistry, String phase) {
+            return Timer.builder(PHASES)
+                    .tags(tags)
+                    .tag("phase", phase)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        OutcomeMeters successes(int httpStatus) {
+            OutcomeMeters meters = successes.get(httpStatus);
+            if (meters == null) {
+                meters = successes.computeIfAbsent(httpStatus, status -> new OutcomeMeters(meterRegistry, tags,
+                        status, false));
+            }
+            return meters;
+        }
+
+        OutcomeMeters errors(int httpStatus) {
+            OutcomeMeters meters = errors.get(httpStatus);
+            if (meters == null) {
+                meters = errors.computeIfAbsent(httpStatus, status -> new OutcomeMeters(meterRegistry, tags, status,
+                        true));
+            }
+            return meters;
+        }
+    }
+
+    /**
+     * The meters of a single operation, HTTP status and outcome.
+     */
+    private static final class OutcomeMeters {
+
+        private final Timer requests;
+        private final Counter errors;
+
+        OutcomeMeters(MeterRegistry meterRegistry, Tags tags, int httpStatus, boolean failed) {
+            String status = httpStatus == -1 ? "none" : Integer.toString(httpStatus);
+            requests = Timer.builder(REQUESTS)
+                    .tags(tags)
+                    .tag("status", status)
+                    .tag("outcome", failed ? "error" : "success")
+                    .register(meterRegistry);
+            errors = failed ? Counter.builder(ERRORS).tags(tags).tag("status", status).register(meterRegistry) : null;
+        }
+    }
+}
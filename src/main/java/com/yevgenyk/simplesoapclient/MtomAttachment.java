@@ -0,0 +1,97 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * {@code MtomAttachment} is a binary part of an MTOM/XOP response, referenced from the XML part by its content ID.
+ * <p>
+ * Small attachments are kept in memory, and larger ones are spilled to a temporary file while the response is read.
+ * The file is deleted when the {@code MtomResponse} is closed, so attachments that should be kept must be copied or
+ * moved with {@link #transferTo(Path)} first.
+ */
+public final class MtomAttachment {
+
+    private final String contentId;
+    private final String contentType;
+    private final byte[] bytes;
+    private final Path file;
+    private final long size;
+
+    MtomAttachment(String contentId, String contentType, byte[] bytes, Path file, long size) {
+        this.contentId = contentId;
+        this.contentType = contentType;
+        this.bytes = bytes;
+        this.file = file;
+        this.size = size;
+    }
+
+    /**
+     * @return The content ID, without angle brackets - "scan@example.org" for example
+     */
+    public String getContentId() {
+        return contentId;
+    }
+
+    /**
+     * @return The value of the part's "Content-Type" header, or "application/octet-stream" if it's missing
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return The size of the attachment in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return <b>true</b> if the attachment is kept in memory, or <b>false</b> if it was spilled to a temporary file
+     */
+    public boolean isInMemory() {
+        return file == null;
+    }
+
+    /**
+     * Opens the content of the attachment. Each call opens a new stream from the start.
+     *
+     * @return A stream of the attachment's bytes, which must be closed by the caller
+     * @throws IOException
+     *         If the temporary file couldn't be opened, like after the response was closed
+     */
+    public InputStream getInputStream() throws IOException {
+        return file == null ? new ByteArrayInputStream(bytes) : Files.newInputStream(file);
+    }
+
+    /**
+     * Stores the attachment in a file, replacing it if it exists. A spilled attachment is moved, without copying it,
+     * so it can't be read again from this response.
+     *
+     * @param target
+     *         The file to store the attachment in
+     * @throws IOException
+     *         If the attachment couldn't be stored
+     */
+    public void transferTo(Path target) throws IOException {
+        if (file == null) {
+            Files.write(target, bytes);
+        } else {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Deletes the temporary file of a spilled attachment, if it still exists.
+     */
+    void delete() throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+}
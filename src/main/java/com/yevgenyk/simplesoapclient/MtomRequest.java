@@ -0,0 +1,220 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * {@code MtomRequest} is a SOAP request with binary attachments, sent as an MTOM/XOP multipart body instead of base64
+ * text inside the envelope.
+ * <p>
+ * The envelope references each attachment by its content ID with an {@code <xop:Include href="cid:..."/>} element, in
+ * place of the base64 value. Attachments are streamed from their files or channels into the connection while the
+ * request is sent, so they are never loaded into memory. If every attachment is a file, the request is sent with a
+ * fixed length, and can be retried.
+ * <p>
+ * Requests from files can be sent any number of times, and requests with channel attachments only once.
+ */
+public final class MtomRequest {
+
+    private static final String ROOT_CONTENT_ID = "root.message@simple-soap-client";
+    private static final String ROOT_CONTENT_TYPE = "application/xop+xml; charset=UTF-8; type=\"text/xml\"";
+
+    private final String contentType;
+    private final List<byte[]> partHeaders;
+    private final List<RequestBody> partBodies;
+    private final byte[] closingBoundary;
+
+    private MtomRequest(Builder builder) {
+        String boundary = "uuid:" + UUID.randomUUID();
+        this.contentType = String.format("multipart/related; type=\"application/xop+xml\"; boundary=\"%s\"; " +
+                "start=\"<%s>\"; start-info=\"text/xml\"", boundary, ROOT_CONTENT_ID);
+        this.partHeaders = new ArrayList<>(builder.contentIds.size() + 1);
+        this.partBodies = new ArrayList<>(builder.contentIds.size() + 1);
+        partHeaders.add(partHeader(boundary, true, ROOT_CONTENT_ID, ROOT_CONTENT_TYPE, "8bit"));
+        partBodies.add(builder.envelope);
+        for (int i = 0; i < builder.contentIds.size(); i++) {
+            partHeaders.add(partHeader(boundary, false, builder.contentIds.get(i), builder.contentTypes.get(i),
+                    "binary"));
+            partBodies.add(builder.attachments.get(i));
+        }
+        this.closingBoundary = String.format("\r\n--%s--\r\n", boundary).getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] partHeader(String boundary, boolean first, String contentId, String contentType,
+                                     String transferEncoding) {
+        return String.format("%s--%s\r\nContent-Type: %s\r\nContent-Transfer-Encoding: %s\r\nContent-ID: <%s>\r\n\r\n",
+                first ? "" : "\r\n", boundary, contentType, transferEncoding, contentId)
+                .getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Creates a {@code Builder} for a request whose envelope is read from a file.
+     *
+     * @param envelopeXml
+     *         The path of the .xml file that contains the SOAP request, in UTF-8
+     * @return A new {@code Builder}
+     */
+    public static Builder builder(Path envelopeXml) {
+        return new Builder(envelopeXml == null ? null : RequestBody.of(envelopeXml));
+    }
+
+    /**
+     * Creates a {@code Builder} for a request whose envelope is rendered from a template.
+     *
+     * @param template
+     *         The template of the SOAP request
+     * @param values
+     *         The value of each of the template's placeholders
+     * @return A new {@code Builder}
+     * @throws IllegalArgumentException
+     *         If a placeholder has no value
+     */
+    public static Builder builder(SoapEnvelopeTemplate template, Map<String, ?> values) {
+        return new Builder(template == null ? null : RequestBody.of(template, values));
+    }
+
+    /**
+     * @return The "Content-Type" of the request, with its boundary and root part
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Gets the multipart body of this request.
+     */
+    RequestBody body() {
+        return new RequestBody() {
+            @Override
+            public long contentLength() throws IOException {
+                long contentLength = closingBoundary.length;
+                for (int i = 0; i < partBodies.size(); i++) {
+                    long partLength = partBodies.get(i).contentLength();
+                    if (partLength < 0) {
+                        return -1;
+                    }
+                    contentLength += partHeaders.get(i).length + partLength;
+                }
+                return contentLength;
+            }
+
+            @Override
+            public void writeTo(OutputStream outputStream) throws IOException {
+                for (int i = 0; i < partBodies.size(); i++) {
+                    outputStream.write(partHeaders.get(i));
+                    partBodies.get(i).writeTo(outputStream);
+                }
+                outputStream.write(closingBoundary);
+            }
+
+            @Override
+            public boolean isReplayable() {
+                for (RequestBody partBody : partBodies) {
+                    if (!partBody.isReplayable()) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public String contentType() {
+                return contentType;
+            }
+        };
+    }
+
+    /**
+     * {@code Builder} adds the attachments of an {@code MtomRequest}.
+     */
+    public static final class Builder {
+
+        private final RequestBody envelope;
+        private final List<String> contentIds = new ArrayList<>();
+        private final List<String> contentTypes = new ArrayList<>();
+        private final List<RequestBody> attachments = new ArrayList<>();
+        private final Set<String> addedContentIds = new HashSet<>();
+
+        private Builder(RequestBody envelope) {
+            this.envelope = envelope;
+        }
+
+        /**
+         * Adds an attachment that is streamed from a file.
+         *
+         * @param contentId
+         *         The content ID the envelope references, without "cid:" and angle brackets - "scan@example.org" for
+         *         example
+         * @param contentType
+         *         The media type of the attachment - "application/pdf" for example
+         * @param file
+         *         The file to send
+         * @return This builder
+         * @throws IllegalArgumentException
+         *         If the content ID or type are empty, or the content ID was already added
+         */
+        public Builder attachment(String contentId, String contentType, Path file) {
+            return attachment(contentId, contentType, file == null ? null : RequestBody.of(file));
+        }
+
+        /**
+         * Adds an attachment that is streamed from a channel to its end. The channel is not closed.
+         *
+         * @param contentId
+         *         The content ID the envelope references, without "cid:" and angle brackets - "scan@example.org" for
+         *         example
+         * @param contentType
+         *         The media type of the attachment - "application/pdf" for example
+         * @param channel
+         *         The channel to send
+         * @return This builder
+         * @throws IllegalArgumentException
+         *         If the content ID or type are empty, or the content ID was already added
+         */
+        public Builder attachment(String contentId, String contentType, ReadableByteChannel channel) {
+            return attachment(contentId, contentType, channel == null ? null : RequestBody.of(channel));
+        }
+
+        private Builder attachment(String contentId, String contentType, RequestBody attachment) {
+            if (contentId == null || contentId.isEmpty()) {
+                throw new IllegalArgumentException("Content ID is required");
+            }
+            if (contentType == null || contentType.isEmpty()) {
+                throw new IllegalArgumentException("Content type is required");
+            }
+            if (attachment == null) {
+                throw new IllegalArgumentException(String.format("Attachment \"%s\" has no content", contentId));
+            }
+            if (contentId.equals(ROOT_CONTENT_ID) || !addedContentIds.add(contentId)) {
+                throw new IllegalArgumentException(String.format("Attachment \"%s\" was already added", contentId));
+            }
+            contentIds.add(contentId);
+            contentTypes.add(contentType);
+            attachments.add(attachment);
+            return this;
+        }
+
+        /**
+         * Creates the configured {@code MtomRequest}.
+         *
+         * @return A new {@code MtomRequest}
+         * @throws IllegalArgumentException
+         *         If no envelope was given
+         */
+        public MtomRequest build() {
+            if (envelope == null) {
+                throw new IllegalArgumentException("Request envelope is required");
+            }
+            return new MtomRequest(this);
+        }
+    }
+}
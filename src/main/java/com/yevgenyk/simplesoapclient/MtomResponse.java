@@ -0,0 +1,258 @@
+package com.yevgenyk.simplesoapclient;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code MtomResponse} is a SOAP response read as an MTOM/XOP multipart body: an XML part, and the binary attachments
+ * it references with {@code <xop:Include href="cid:..."/>} elements.
+ * <p>
+ * The body is parsed while it's received. The XML part is kept in memory for extraction, like with
+ * {@link XmlUtilities#extractTextContent(String, java.util.Collection)} or an {@link XmlExtractionPlan}. Attachments of
+ * up to the in-memory limit are kept in memory, and larger ones are spilled to temporary files, so a response with
+ * large binaries never has to fit in the heap. Responses that are not multipart are read as a single XML part.
+ * <p>
+ * An {@code MtomResponse} must be closed to delete its temporary files, preferably with try-with-resources.
+ */
+public final class MtomResponse implements Closeable {
+
+    /**
+     * Default maximal size of an attachment that is kept in memory instead of a temporary file.
+     */
+    public static final int DEFAULT_MAX_IN_MEMORY_SIZE = 64 * 1024;
+
+    private static final String DEFAULT_ATTACHMENT_TYPE = "application/octet-stream";
+
+    private final byte[] xml;
+    private final Charset charset;
+    private final List<MtomAttachment> attachments;
+    private final Map<String, MtomAttachment> attachmentsByContentId;
+
+    private MtomResponse(byte[] xml, Charset charset, List<MtomAttachment> attachments) {
+        this.xml = xml;
+        this.charset = charset;
+        this.attachments = attachments;
+        Map<String, MtomAttachment> attachmentsByContentId = new HashMap<>();
+        for (MtomAttachment attachment : attachments) {
+            if (!attachment.getContentId().isEmpty()) {
+                attachmentsByContentId.put(attachment.getContentId(), attachment);
+            }
+        }
+        this.attachmentsByContentId = attachmentsByContentId;
+    }
+
+    /**
+     * Reads a response body to its end.
+     *
+     * @param inputStream
+     *         The response body
+     * @param contentType
+     *         The "Content-Type" of the body, with the multipart boundary and root part
+     * @param spillDirectory
+     *         The directory of temporary files, or <b>null</b> for the default temporary-file directory
+     * @param maxInMemorySize
+     *         The maximal size of an attachment that is kept in memory
+     * @throws IOException
+     *         If the body couldn't be read, is not a valid multipart body, or two parts have the same "Content-ID"
+     */
+    static MtomResponse read(InputStream inputStream, String contentType, Path spillDirectory, int maxInMemorySize)
+            throws IOException {
+        if (maxInMemorySize < 0) {
+            throw new IllegalArgumentException("Max in-memory size must not be negative");
+        }
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")) {
+            return new MtomResponse(readFully(inputStream), SoapResponse.charsetOf(contentType),
+                    Collections.emptyList());
+        }
+        String boundary = MultipartReader.parameter(contentType, "boundary");
+        if (boundary == null || boundary.isEmpty()) {
+            throw new IOException("Multipart response has no boundary");
+        }
+        String start = MultipartReader.parameter(contentType, "start");
+        String rootContentId = start == null ? null : unbracket(start);
+        MultipartReader multipartReader = new MultipartReader(inputStream, boundary);
+        // Every attachment is kept in the list, so all of their temporary files are deleted
+        List<MtomAttachment> attachments = new ArrayList<>();
+        Set<String> contentIds = new HashSet<>();
+        byte[] xml = null;
+        Charset charset = null;
+        try {
+            Map<String, String> headers;
+            while ((headers = multipartReader.nextPart()) != null) {
+                String contentId = headers.containsKey("content-id") ? unbracket(headers.get("content-id")) : "";
+                String partType = headers.get("content-type");
+                if (xml == null && (rootContentId == null || rootContentId.equals(contentId))) {
+                    xml = readFully(multipartReader.getPartInputStream());
+                    charset = SoapResponse.charsetOf(partType);
+                } else {
+                    if (!contentId.isEmpty() && !contentIds.add(contentId)) {
+                        throw new IOException(String.format("Multipart response has more than one part with "
+                                + "Content-ID \"%s\"", contentId));
+                    }
+                    attachments.add(readAttachment(multipartReader.getPartInputStream(), contentId,
+                            partType == null ? DEFAULT_ATTACHMENT_TYPE : partType, spillDirectory, maxInMemorySize));
+                }
+            }
+            if (xml == null) {
+                throw new IOException("Multipart response has no root part");
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteAll(attachments, e);
+            throw e;
+        }
+        return new MtomResponse(xml, charset, Collections.unmodifiableList(attachments));
+    }
+
+    private static MtomAttachment readAttachment(InputStream partStream, String contentId, String contentType,
+                                                 Path spillDirectory, int maxInMemorySize) throws IOException {
+        byte[] buffer = new byte[RequestBody.BUFFER_SIZE];
+        ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        Path file = null;
+        OutputStream fileStream = null;
+        long size = 0;
+        try {
+            int read;
+            while ((read = partStream.read(buffer)) != -1) {
+                size += read;
+                if (fileStream == null && size > maxInMemorySize) {
+                    file = spillDirectory == null ? Files.createTempFile("mtom-", ".part")
+                            : Files.createTempFile(spillDirectory, "mtom-", ".part");
+                    fileStream = Files.newOutputStream(file);
+                    memory.writeTo(fileStream);
+                    memory = null;
+                }
+                (fileStream != null ? fileStream : memory).write(buffer, 0, read);
+            }
+            if (fileStream != null) {
+                fileStream.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (fileStream != null) {
+                try {
+                    fileStream.close();
+                    Files.deleteIfExists(file);
+                } catch (IOException deleteFailure) {
+                    e.addSuppressed(deleteFailure);
+                }
+            }
+            throw e;
+        }
+        return new MtomAttachment(contentId, contentType, file == null ? memory.toByteArray() : null, file, size);
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[RequestBody.BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static String unbracket(String contentId) {
+        String trimmed = contentId.trim();
+        return trimmed.startsWith("<") && trimmed.endsWith(">") ? trimmed.substring(1, trimmed.length() - 1) : trimmed;
+    }
+
+    private static void deleteAll(Iterable<MtomAttachment> attachments, Exception failure) {
+        for (MtomAttachment attachment : attachments) {
+            try {
+                attachment.delete();
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * @return The XML part, decoded with the charset of its "Content-Type"
+     */
+    public String getXml() {
+        return new String(xml, charset);
+    }
+
+    /**
+     * Creates a StAX pull parser over the XML part. DTDs and external entities are not supported.
+     *
+     * @return A new {@code XMLStreamReader} over the XML part
+     * @throws XMLStreamException
+     *         If the parser couldn't be created
+     */
+    public XMLStreamReader getXmlStreamReader() throws XMLStreamException {
+        return XmlUtilities.newXmlStreamReader(new ByteArrayInputStream(xml), charset.name());
+    }
+
+    /**
+     * @return The attachments, in the order they were received, including parts without a "Content-ID", which an
+     * {@code xop:Include} element can't reference
+     */
+    public List<MtomAttachment> getAttachments() {
+        return attachments;
+    }
+
+    /**
+     * Gets the attachment an {@code xop:Include} element references.
+     *
+     * @param reference
+     *         The "href" of the {@code xop:Include} element - "cid:scan%40example.org" for example, or the content ID
+     *         itself
+     * @return The attachment, or <b>null</b> if the response has no such attachment
+     */
+    public MtomAttachment getAttachment(String reference) {
+        String contentId = reference;
+        if (reference.regionMatches(true, 0, "cid:", 0, 4)) {
+            try {
+                // A "cid" URL is percent-encoded, where a plus sign is not a space
+                contentId = URLDecoder.decode(reference.substring(4).replace("+", "%2B"), "UTF-8");
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return attachmentsByContentId.get(contentId);
+    }
+
+    /**
+     * Deletes the temporary files of spilled attachments that were not moved.
+     *
+     * @throws IOException
+     *         If a temporary file couldn't be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (MtomAttachment attachment : attachments) {
+            try {
+                attachment.delete();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * {@code MultipartReader} splits a MIME multipart body into its parts while it's being read.
+ * <p>
+ * Parts are read in order, each through its own stream that ends at the next boundary, so a part is never buffered
+ * as a whole. Only a buffer of {@link RequestBody#BUFFER_SIZE} bytes is kept, to find boundaries that span reads.
+ */
+final class MultipartReader {
+
+    private static final int MAX_HEADER_LINE_LENGTH = 8192;
+
+    private final InputStream inputStream;
+    private final byte[] delimiter;
+    private final byte[] buffer = new byte[RequestBody.BUFFER_SIZE];
+    private int start;
+    private int end;
+    private boolean endOfInput;
+    private boolean finished;
+    private PartInputStream currentPart;
+
+    /**
+     * @param inputStream
+     *         The multipart body
+     * @param boundary
+     *         The boundary parameter of the body's "Content-Type"
+     */
+    MultipartReader(InputStream inputStream, String boundary) {
+        this.inputStream = inputStream;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        // The first boundary may be the first line of the body, so the line break before it is implied
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        end = 2;
+    }
+
+    /**
+     * Moves to the next part, skipping whatever is left of the current one (or the preamble, before the first part).
+     *
+     * @return The headers of the next part, with lower-case names, or <b>null</b> after the last part
+     * @throws IOException
+     *         If an I/O error occurs, or the body is not a valid multipart body
+     */
+    Map<String, String> nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        PartInputStream skippedPart = currentPart != null ? currentPart : new PartInputStream();
+        while (skippedPart.skip(Long.MAX_VALUE) > 0) {
+            // Skipping until the boundary
+        }
+        // A "--" after the boundary closes the body, and anything else up to the line break is padding
+        if (!fill(2)) {
+            throw new IOException("Multipart body ended before its closing boundary");
+        }
+        if (buffer[start] == '-' && buffer[start + 1] == '-') {
+            finished = true;
+            currentPart = null;
+            return null;
+        }
+        readLine();
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+        currentPart = new PartInputStream();
+        return headers;
+    }
+
+    /**
+     * @return The body of the current part, which ends at the next boundary
+     */
+    InputStream getPartInputStream() {
+        return currentPart;
+    }
+
+    /**
+     * Gets a parameter of a header value like "multipart/related; boundary="uuid:1"; type=text/xml".
+     *
+     * @return The value of the parameter, unquoted, or <b>null</b> if it's missing
+     */
+    static String parameter(String headerValue, String name) {
+        if (headerValue == null) {
+            return null;
+        }
+        int index = 0;
+        while (index < headerValue.length()) {
+            int semicolon = indexOutsideQuotes(headerValue, ';', index);
+            if (semicolon < 0) {
+                return null;
+            }
+            int equals = headerValue.indexOf('=', semicolon);
+            if (equals < 0) {
+                return null;
+            }
+            int valueEnd = indexOutsideQuotes(headerValue, ';', equals);
+            if (valueEnd < 0) {
+                valueEnd = headerValue.length();
+            }
+            if (headerValue.substring(semicolon + 1, equals).trim().equalsIgnoreCase(name)) {
+                String value = headerValue.substring(equals + 1, valueEnd).trim();
+                return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")
+                        ? value.substring(1, value.length() - 1) : value;
+            }
+            index = valueEnd;
+        }
+        return null;
+    }
+
+    private static int indexOutsideQuotes(String value, char character, int fromIndex) {
+        boolean quoted = false;
+        for (int i = fromIndex; i < value.length(); i++) {
+            char current = value.charAt(i);
+            if (current == '"') {
+                quoted = !quoted;
+            } else if (current == character && !quoted) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a header line, without its line break.
+     */
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        while (true) {
+            if (!fill(1)) {
+                throw new IOException("Multipart body ended in the headers of a part");
+            }
+            byte next = buffer[start++];
+            if (next == '\n') {
+                int length = line.length();
+                return length > 0 && line.charAt(length - 1) == '\r' ? line.substring(0, length - 1) : line.toString();
+            }
+            if (line.length() == MAX_HEADER_LINE_LENGTH) {
+                throw new IOException("Multipart header line is too long");
+            }
+            line.append((char) (next & 0xff));
+        }
+    }
+
+    /**
+     * Reads until at least {@code count} bytes are buffered, or the input ends.
+     *
+     * @return <b>false</b> if the input ended before {@code count} bytes were buffered
+     */
+    private boolean fill(int count) throws IOException {
+        if (end - start >= count) {
+            return true;
+        }
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        while (end < count && !endOfInput) {
+            int read = inputStream.read(buffer, end, buffer.length - end);
+            if (read == -1) {
+                endOfInput = true;
+            } else {
+                end += read;
+            }
+        }
+        return end - start >= count;
+    }
+
+    /**
+     * Finds the delimiter in the buffered bytes.
+     *
+     * @return The index of the delimiter, or -1 if it's not buffered
+     */
+    private int indexOfDelimiter() {
+        int last = end - delimiter.length;
+        for (int i = start; i <= last; i++) {
+            if (buffer[i] == delimiter[0]) {
+                int matched = 1;
+                while (matched < delimiter.length && buffer[i + matched] == delimiter[matched]) {
+                    matched++;
+                }
+                if (matched == delimiter.length) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * {@code PartInputStream} reads a part up to the next boundary, which it consumes.
+     */
+    private final class PartInputStream extends InputStream {
+
+        private boolean ended;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (ended || currentPart != this && currentPart != null) {
+                return -1;
+            }
+            if (length == 0) {
+                return 0;
+            }
+            int available = available(length);
+            if (available == -1) {
+                return -1;
+            }
+            System.arraycopy(buffer, start, bytes, offset, available);
+            start += available;
+            return available;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            if (ended) {
+                return 0;
+            }
+            int available = available((int) Math.min(count, Integer.MAX_VALUE));
+            if (available == -1) {
+                return 0;
+            }
+            start += available;
+            return available;
+        }
+
+        /**
+         * Finds how many bytes of the part can be read without crossing the boundary, consuming the boundary if the
+         * part ends.
+         *
+         * @return The number of bytes, at most {@code length}, or -1 at the end of the part
+         */
+        private int available(int length) throws IOException {
+            while (true) {
+                int delimiterIndex = indexOfDelimiter();
+                if (delimiterIndex == start) {
+                    start += delimiter.length;
+                    ended = true;
+                    return -1;
+                }
+                if (delimiterIndex >= 0) {
+                    return Math.min(length, delimiterIndex - start);
+                }
+                // Bytes that may be the start of a delimiter are kept until the next read decides
+                int safe = end - start - (delimiter.length - 1);
+                if (safe > 0) {
+                    return Math.min(length, safe);
+                }
+                if (!fill(end - start + 1)) {
+                    throw new IOException("Multipart body ended before its closing boundary");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.yevgenyk.simplesoapclient;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * {@code RequestBody} streams the body of a SOAP request into the HTTP connection, without loading it into memory.
+ */
+interface RequestBody {
+
+    /**
+     * Size of the buffer used to copy streams and channels.
+     */
+    int BUFFER_SIZE = 8192;
+
+    /**
+     * Gets the length of the body in bytes, if it's known before writing it.
+     *
+     * @return The length of the body, or -1 if it's unknown (and must be sent in chunks)
+     * @throws IOException
+     *         If an I/O error occurs
+     */
+    long contentLength() throws IOException;
+
+    /**
+     * Writes the whole body to {@code outputStream}.
+     *
+     * @param outputStream
+     *         The HTTP request stream
+     * @throws IOException
+     *         If an I/O error occurs
+     */
+    void writeTo(OutputStream outputStream) throws IOException;
+
+    /**
+     * Checks whether the body can be written more than once, so its request can be retried.
+     *
+     * @return <b>false</b> if the body is read from a stream or channel, that can be read only once
+     */
+    default boolean isReplayable() {
+        return true;
+    }
+
+    /**
+     * Gets the "Content-Type" of the body, if it's not a plain SOAP envelope.
+     *
+     * @return The content type, or <b>null</b> for "text/xml; charset=utf-8"
+     */
+    default String contentType() {
+        return null;
+    }
+
+    /**
+     * Creates a {@code RequestBody} that transfers a file with {@code FileChannel.transferTo}.
+     *
+     * @param path
+     *         The file to send
+     * @return A fixed-length {@code RequestBody}
+     */
+    static RequestBody of(Path path) {
+        return new RequestBody() {
+            @Override
+            public long contentLength() throws IOException {
+                return Files.size(path);
+            }
+
+            @Override
+            public void writeTo(OutputStream outputStream) throws IOException {
+                try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    WritableByteChannel target = Channels.newChannel(outputStream);
+                    long size = fileChannel.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += fileChannel.transferTo(position, size - position, target);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a {@code RequestBody} that renders a template.
+     *
+     * @param template
+     *         The template to render
+     * @param values
+     *         The value of each of the template's placeholders
+     * @return A fixed-length {@code RequestBody}
+     * @throws IllegalArgumentException
+     *         If a placeholder has no value
+     */
+    static RequestBody of(SoapEnvelopeTemplate template, Map<String, ?> values) {
+        long contentLength = template.contentLength(values);
+        return new RequestBody() {
+            @Override
+            public long contentLength() {
+                return contentLength;
+            }
+
+            @Override
+            public void writeTo(OutputStream outputStream) throws IOException {
+                template.writeTo(outputStream, values);
+            }
+        };
+    }
+
+    /**
+     * Creates a {@code RequestBody} that writes a SOAP envelope with a marshalled object as its body.
+     *
+     * @param value
+     *         The object to send
+     * @param marshaller
+     *         The marshaller of the object
+     * @return A chunked {@code RequestBody}
+     */
+    static <T> RequestBody of(T value, SoapMarshaller<T> marshaller) {
+        return new RequestBody() {
+            @Override
+            public long contentLength() {
+                return -1;
+            }
+
+            @Override
+            public void writeTo(OutputStream outputStream) throws IOException {
+                try {
+                    SoapMarshallers.writeEnvelope(value, marshaller, outputStream);
+                } catch (XMLStreamException e) {
+                    throw new IOException("Couldn't write SOAP request", e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a {@code RequestBody} of bytes that were already read into memory.
+     *
+     * @param bytes
+     *         The bytes to send
+     * @return A fixed-length {@code RequestBody}
+     */
+    static RequestBody of(byte[] bytes) {
+        return new RequestBody() {
+            @Override
+            public long contentLength() {
+                return bytes.length;
+            }
+
+            @Override
+            public void writeTo(OutputStream outputStream) throws IOException {
+                outputStream.write(bytes);
+            }
+        };
+    }
+
+    /**
+     * Creates a {@code RequestBody} that copies an {@code InputStream} to its end. The stream is not closed.
+     *
+     * @param inputStream
+     *         The stream to send
+     * @return A chunked {@code RequestBody}
+     */
+    static RequestBody of(InputStream inputStream) {
+        return new RequestBody() {
+            @Override
+            public long contentLength() {
+                return -1;
+            }
+
+            @Override
+            public boolean isReplayable() {
+                return false;
+            }
+
+            @Override
+            public void writeTo(OutputStream outputStream) throws IOException {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    outputStream.write(buffer, 0, read);
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a {@code RequestBody} that copies a {@code ReadableByteChannel} to its end. The channel is not closed.
+     *
+     * @param channel
+     *         The channel to send
+     * @return A chunked {@code RequestBody}
+     */
+    static RequestBody of(ReadableByteChannel channel) {
+        return new RequestBody() {
+            @Override
+            public long contentLength() {
+                return -1;
+            }
+
+            @Override
+            public boolean isReplayable() {
+                return false;
+            }
+
+            @Override
+            public void writeTo(OutputStream outputStream) throws IOException {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                while (channel.read(buffer) != -1) {
+                    ((Buffer) buffer).flip();
+                    outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                    ((Buffer) buffer).clear();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,291 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code ResponseCache} is an in-process cache of SOAP responses for idempotent operations, like pure lookups.
+ * <p>
+ * Responses are keyed by the endpoint, the "SOAPAction" header and a SHA-256 hash of the request body, and kept for the
+ * time-to-live of the operation they were sent to (see
+ * {@link SimpleSoapClientImpl.Builder#responseCache(ResponseCache, Duration)}). When the cache is full, the least
+ * recently used response is evicted. Concurrent identical requests are coalesced, so only one of them is sent to the
+ * service and the others wait for its response. If that request gives up without an answer from the service, because
+ * it timed out, was cancelled or was interrupted, the waiting requests load the response themselves rather than fail
+ * with it. Only successful responses are cached.
+ * <p>
+ * A single cache may be shared by several clients.
+ */
+public class ResponseCache {
+
+    private final int maximumSize;
+    private final Map<Key, Entry> entries;
+    private final ConcurrentMap<Key, CompletableFuture<String>> loadsInFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalescedRequests = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * Creates a {@code ResponseCache}.
+     *
+     * @param maximumSize
+     *         The maximal number of cached responses
+     * @throws IllegalArgumentException
+     *         If {@code maximumSize} is not positive
+     */
+    public ResponseCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum cache size must be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<Key, ResponseCache.Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ResponseCache.Entry> eldest) {
+                if (size() > ResponseCache.this.maximumSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets a snapshot of this cache's usage statistics.
+     *
+     * @return The current {@code ResponseCacheStatistics}
+     */
+    public ResponseCacheStatistics getStatistics() {
+        return new ResponseCacheStatistics(size(), hits.get(), misses.get(), coalescedRequests.get(), evictions.get(),
+                expirations.get());
+    }
+
+    /**
+     * @return The number of cached responses, including expired responses that weren't looked up since they expired
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The maximal number of cached responses
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Removes all cached responses.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the cached response for {@code key}, or loads and caches it. If the same key is already being loaded by
+     * another thread, waits for that load instead of starting a new one.
+     *
+     * @param key
+     *         The request key
+     * @param timeToLive
+     *         How long a loaded response stays cached
+     * @param loader
+     *         Sends the request when the response is not cached
+     * @return The response
+     * @throws SimpleSoapClientException
+     *         If loading the response failed, either in this request or in a coalesced request that got an answer
+     *         from the service
+     */
+    String get(Key key, Duration timeToLive, Loader loader) throws SimpleSoapClientException {
+        String response = lookup(key);
+        if (response != null) {
+            hits.incrementAndGet();
+            return response;
+        }
+        CompletableFuture<String> load = new CompletableFuture<>();
+        CompletableFuture<String> loadInFlight = loadsInFlight.putIfAbsent(key, load);
+        if (loadInFlight != null) {
+            coalescedRequests.incrementAndGet();
+            response = await(loadInFlight);
+            // A null response means the coalesced request gave up, so this one tries to load the response itself
+            return response != null ? response : get(key, timeToLive, loader);
+        }
+        try {
+            // A load that completed between the lookup and registering this one has already cached the response
+            response = lookup(key);
+            if (response != null) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+                response = loader.load();
+                store(key, response, timeToLive);
+            }
+            load.complete(response);
+            return response;
+        } catch (SimpleSoapClientException | RuntimeException e) {
+            if (isAbandoned(e)) {
+                load.complete(null);
+            } else {
+                load.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            loadsInFlight.remove(key, load);
+        }
+    }
+
+    private synchronized String lookup(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtNanos - System.nanoTime() <= 0) {
+            entries.remove(key);
+            expirations.incrementAndGet();
+            return null;
+        }
+        return entry.response;
+    }
+
+    private synchronized void store(Key key, String response, Duration timeToLive) {
+        entries.put(key, new Entry(response, System.nanoTime() + timeToLive.toNanos()));
+    }
+
+    /**
+     * Checks whether a failed load ended because of the loading request itself (it timed out, or was cancelled and
+     * interrupted), rather than because of the service's answer, which requests waiting for it would get as well.
+     */
+    private static boolean isAbandoned(Exception failure) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof InterruptedException
+                    || cause instanceof InterruptedIOException || cause instanceof CancellationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String await(CompletableFuture<String> load) throws SimpleSoapClientException {
+        try {
+            return load.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SimpleSoapClientException) {
+                throw new SimpleSoapClientException(cause.getMessage(), cause);
+            }
+            throw new SimpleSoapClientException("Couldn't send SOAP request", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SimpleSoapClientException("Interrupted while waiting for a coalesced SOAP response", e);
+        }
+    }
+
+    /**
+     * Creates the cache key of a request. The body is read once to hash it, so it must be replayable.
+     *
+     * @param endpoint
+     *         The URL the request is sent to
+     * @param soapAction
+     *         The value of the "SOAPAction" header
+     * @param requestBody
+     *         The request body
+     * @return The request key
+     * @throws IOException
+     *         If the body couldn't be read
+     */
+    static Key key(String endpoint, String soapAction, RequestBody requestBody) throws IOException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        requestBody.writeTo(new OutputStream() {
+            @Override
+            public void write(int b) {
+                messageDigest.update((byte) b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                messageDigest.update(b, off, len);
+            }
+        });
+        return new Key(endpoint, soapAction, messageDigest.digest());
+    }
+
+    /**
+     * Sends a request whose response is not cached.
+     */
+    @FunctionalInterface
+    interface Loader {
+
+        String load() throws SimpleSoapClientException;
+    }
+
+    /**
+     * The identity of a request: its endpoint, SOAP action and body hash.
+     */
+    static final class Key {
+
+        private final String endpoint;
+        private final String soapAction;
+        private final byte[] bodyHash;
+        private final int hashCode;
+
+        Key(String endpoint, String soapAction, byte[] bodyHash) {
+            this.endpoint = endpoint;
+            this.soapAction = soapAction;
+            this.bodyHash = bodyHash;
+            this.hashCode = 31 * (31 * endpoint.hashCode() + soapAction.hashCode()) + Arrays.hashCode(bodyHash);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return endpoint.equals(key.endpoint) && soapAction.equals(key.soapAction)
+                    && Arrays.equals(bodyHash, key.bodyHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class Entry {
+
+        private final String response;
+        private final long expiresAtNanos;
+
+        Entry(String response, long expiresAtNanos) {
+            this.response = response;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.yevgenyk.simplesoapclient;
+
+/**
+ * {@code ResponseCacheStatistics} is an immutable snapshot of a {@code ResponseCache}'s usage.
+ */
+public final class ResponseCacheStatistics {
+
+    private final int size;
+    private final long hits;
+    private final long misses;
+    private final long coalescedRequests;
+    private final long evictions;
+    private final long expirations;
+
+    ResponseCacheStatistics(int size, long hits, long misses, long coalescedRequests, long evictions,
+                            long expirations) {
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.coalescedRequests = coalescedRequests;
+        this.evictions = evictions;
+        this.expirations = expirations;
+    }
+
+    /**
+     * @return The number of cached responses
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return The number of requests that were answered from the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of requests that were sent to the service
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return The number of requests that waited for an identical request already in flight, instead of being sent
+     */
+    public long getCoalescedRequests() {
+        return coalescedRequests;
+    }
+
+    /**
+     * @return The number of responses evicted because the cache was full
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return The number of responses removed because their time-to-live passed
+     */
+    public long getExpirations() {
+        return expirations;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResponseCacheStatistics{size=%d, hits=%d, misses=%d, coalescedRequests=%d, " +
+                "evictions=%d, expirations=%d}", size, hits, misses, coalescedRequests, evictions, expirations);
+    }
+}
@@ -0,0 +1,213 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * {@code RetryPolicy} decides whether and when a failed SOAP request is sent again.
+ * <p>
+ * Requests are retried when they fail at the connection level (the connection was refused, timed out while
+ * connecting, or was reset or closed by the server) or when the server answers with a retryable HTTP status, which is
+ * any 5xx status by default. Responses that carry a SOAP Fault are not retried by default, whatever their status,
+ * since a fault is usually the service's answer to the request itself. Read timeouts are never retried, since the
+ * server may still be processing the request.
+ * Requests from streams and channels are retried only if they failed before the first byte of the body was read.
+ * <p>
+ * The delay before each retry grows exponentially up to a maximum, and is picked at random between zero and that
+ * delay ("full jitter"), so clients that failed together don't retry together.
+ * <p>
+ * Policies are immutable and can be shared by any number of clients.
+ */
+public final class RetryPolicy {
+
+    private static final RetryPolicy NONE = builder().maxAttempts(1).build();
+
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final double backoffMultiplier;
+    private final IntPredicate retryableStatus;
+    private final boolean retryingSoapFaults;
+
+    private RetryPolicy(Builder builder) {
+        if (builder.maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts must be positive");
+        }
+        if (builder.initialBackoff == null || builder.initialBackoff.isNegative()) {
+            throw new IllegalArgumentException("Initial backoff must not be negative");
+        }
+        if (builder.maxBackoff == null || builder.maxBackoff.compareTo(builder.initialBackoff) < 0) {
+            throw new IllegalArgumentException("Max backoff must not be shorter than the initial backoff");
+        }
+        if (!(builder.backoffMultiplier >= 1)) {
+            throw new IllegalArgumentException("Backoff multiplier must be at least 1");
+        }
+        if (builder.retryableStatus == null) {
+            throw new IllegalArgumentException("Retryable status predicate is required");
+        }
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffNanos = builder.initialBackoff.toNanos();
+        this.maxBackoffNanos = builder.maxBackoff.toNanos();
+        this.backoffMultiplier = builder.backoffMultiplier;
+        this.retryableStatus = builder.retryableStatus;
+        this.retryingSoapFaults = builder.retryingSoapFaults;
+    }
+
+    /**
+     * Gets a policy that never retries, which is the default of {@code SimpleSoapClientImpl}.
+     *
+     * @return A policy of a single attempt
+     */
+    public static RetryPolicy none() {
+        return NONE;
+    }
+
+    /**
+     * Creates a {@code Builder} for a {@code RetryPolicy}.
+     *
+     * @return A new {@code Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The maximal number of times a request is sent, including the first attempt
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    boolean isRetryableStatus(int httpStatus) {
+        return retryableStatus.test(httpStatus);
+    }
+
+    boolean isRetryingSoapFaults() {
+        return retryingSoapFaults;
+    }
+
+    /**
+     * Gets the delay before the retry that follows {@code attempt}.
+     *
+     * @param attempt
+     *         The number of the attempt that failed, starting from 1
+     * @return A random delay between zero and the exponential backoff of the attempt, in nanoseconds
+     */
+    long backoffNanos(int attempt) {
+        double backoffNanos = initialBackoffNanos * Math.pow(backoffMultiplier, attempt - 1);
+        long cappedBackoffNanos = (long) Math.min(backoffNanos, maxBackoffNanos);
+        return cappedBackoffNanos == 0 ? 0 : ThreadLocalRandom.current().nextLong(cappedBackoffNanos + 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RetryPolicy{maxAttempts=%d, initialBackoff=%s, maxBackoff=%s, backoffMultiplier=%s}",
+                maxAttempts, Duration.ofNanos(initialBackoffNanos), Duration.ofNanos(maxBackoffNanos),
+                backoffMultiplier);
+    }
+
+    /**
+     * {@code Builder} configures and creates {@code RetryPolicy} instances.
+     */
+    public static final class Builder {
+
+        private int maxAttempts = 3;
+        private Duration initialBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(5);
+        private double backoffMultiplier = 2;
+        private IntPredicate retryableStatus = httpStatus -> httpStatus >= 500 && httpStatus < 600;
+        private boolean retryingSoapFaults;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximal number of times a request is sent, including the first attempt. 3 by default.
+         *
+         * @param maxAttempts
+         *         The maximal number of attempts
+         * @return This builder
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets the backoff before the first retry. 100 milliseconds by default.
+         *
+         * @param initialBackoff
+         *         The backoff before the first retry
+         * @return This builder
+         */
+        public Builder initialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+            return this;
+        }
+
+        /**
+         * Sets the maximal backoff before a retry. 5 seconds by default.
+         *
+         * @param maxBackoff
+         *         The maximal backoff
+         * @return This builder
+         */
+        public Builder maxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * Sets the factor the backoff grows by after each retry. 2 by default.
+         *
+         * @param backoffMultiplier
+         *         The backoff multiplier, at least 1
+         * @return This builder
+         */
+        public Builder backoffMultiplier(double backoffMultiplier) {
+            this.backoffMultiplier = backoffMultiplier;
+            return this;
+        }
+
+        /**
+         * Sets the HTTP statuses that are retried. Any 5xx status by default.
+         * <p>
+         * SOAP 1.1 services report faults with status 500, but responses with a SOAP Fault are only retried if
+         * {@link #retrySoapFaults(boolean)} is set.
+         *
+         * @param retryableStatus
+         *         Returns <b>true</b> for the statuses to retry
+         * @return This builder
+         */
+        public Builder retryOnStatus(IntPredicate retryableStatus) {
+            this.retryableStatus = retryableStatus;
+            return this;
+        }
+
+        /**
+         * Sets whether responses that carry a SOAP Fault are retried, if their status is retryable. Disabled by
+         * default, since requests are not idempotent in general, and a fault like a validation error fails the same
+         * way again.
+         *
+         * @param retrySoapFaults
+         *         if <b>true</b> - SOAP Faults are retried like any other response with their status
+         * @return This builder
+         */
+        public Builder retrySoapFaults(boolean retrySoapFaults) {
+            this.retryingSoapFaults = retrySoapFaults;
+            return this;
+        }
+
+        /**
+         * Creates the configured {@code RetryPolicy}.
+         *
+         * @return A new {@code RetryPolicy}
+         * @throws IllegalArgumentException
+         *         If one of the settings is invalid
+         */
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -1,10 +1,27 @@
 package com.yevgenyk.simplesoapclient;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The {@code SimpleSoapClient} interface represents a bare-minimum SOAP client object. The client must be able to send
  * an XML request to a SOAP endpoint and read the response.
+ * <p>
+ * {@link #sendSoapRequest(File)} is the only method an implementation must provide. The other methods have default
+ * implementations built on it, which write streamed requests to a temporary file first, read responses as a whole,
+ * and run asynchronous requests on the common fork-join pool. {@code SimpleSoapClientImpl} overrides them to stream
+ * requests and responses, and to abort timed out requests.
  */
 public interface SimpleSoapClient {
 
@@ -19,4 +36,271 @@ public interface SimpleSoapClient {
      *         SOAP response HTTP code is not "OK"
      */
     String sendSoapRequest(File requestXml) throws SimpleSoapClientException;
+
+    /**
+     * Send a SOAP request in XML format from an .xml file, get the full response XML as string.
+     * <p>
+     * The file is streamed to the connection with a fixed content length, without loading it into memory.
+     *
+     * @param requestXml
+     *         The path of the .xml file that contains the SOAP request in XML format.
+     * @return The .xml response as string
+     * @throws SimpleSoapClientException
+     *         If one or more of the HTTP connection required arguments are missing, if the connection failed or If the
+     *         SOAP response HTTP code is not "OK"
+     */
+    default String sendSoapRequest(Path requestXml) throws SimpleSoapClientException {
+        return sendSoapRequest(requestXml.toFile());
+    }
+
+    /**
+     * Send a SOAP request in XML format from a stream, get the full response XML as string.
+     * <p>
+     * The stream is read to its end and sent in chunks, without loading it into memory. It is not closed.
+     *
+     * @param requestXml
+     *         The stream that contains the SOAP request in XML format.
+     * @return The .xml response as string
+     * @throws SimpleSoapClientException
+     *         If one or more of the HTTP connection required arguments are missing, if the connection failed or If the
+     *         SOAP response HTTP code is not "OK"
+     */
+    default String sendSoapRequest(InputStream requestXml) throws SimpleSoapClientException {
+        return SoapClientDefaults.sendSpooled(this, outputStream -> {
+            byte[] buffer = new byte[RequestBody.BUFFER_SIZE];
+            int read;
+            while ((read = requestXml.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+        });
+    }
+
+    /**
+     * Send a SOAP request in XML format from a channel, get the full response XML as string.
+     * <p>
+     * The channel is read to its end and sent in chunks, without loading it into memory. It is not closed.
+     *
+     * @param requestXml
+     *         The channel that contains the SOAP request in XML format.
+     * @return The .xml response as string
+     * @throws SimpleSoapClientException
+     *         If one or more of the HTTP connection required arguments are missing, if the connection failed or If the
+     *         SOAP response HTTP code is not "OK"
+     */
+    default String sendSoapRequest(ReadableByteChannel requestXml) throws SimpleSoapClientException {
+        return sendSoapRequest(Channels.newInputStream(requestXml));
+    }
+
+    /**
+     * Send a SOAP request rendered from a template, get the full response XML as string.
+     * <p>
+     * The request is rendered straight into the connection with a fixed content length, without creating a string or
+     * a file.
+     *
+     * @param template
+     *         The compiled SOAP request template
+     * @param values
+     *         The value of each of the template's placeholders
+     * @return The .xml response as string
+     * @throws SimpleSoapClientException
+     *         If a placeholder has no value, if one or more of the HTTP connection required arguments are missing, if
+     *         the connection failed or If the SOAP response HTTP code is not "OK"
+     */
+    default String sendSoapRequest(SoapEnvelopeTemplate template, Map<String, ?> values)
+            throws SimpleSoapClientException {
+        return SoapClientDefaults.sendSpooled(this, outputStream -> {
+            try {
+                template.writeTo(outputStream, values);
+            } catch (IllegalArgumentException e) {
+                throw new SimpleSoapClientException(e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Send a SOAP request in XML format from an .xml file, and open the response for streaming.
+     * <p>
+     * The returned {@code SoapResponse} holds the HTTP connection and must be closed by the caller.
+     *
+     * @param requestXml
+     *         The path of the .xml file that contains the SOAP request in XML format.
+     * @return The open SOAP response
+     * @throws SimpleSoapClientException
+     *         If one or more of the HTTP connection required arguments are missing, if the connection failed or If the
+     *         SOAP response HTTP code is not "OK"
+     */
+    default SoapResponse sendSoapRequestForResponse(Path requestXml) throws SimpleSoapClientException {
+        return SoapClientDefaults.response(sendSoapRequest(requestXml));
+    }
+
+    /**
+     * Send a SOAP request in XML format from a stream, and open the response for streaming.
+     * <p>
+     * The returned {@code SoapResponse} holds the HTTP connection and must be closed by the caller.
+     *
+     * @param requestXml
+     *         The stream that contains the SOAP request in XML format.
+     * @return The open SOAP response
+     * @throws SimpleSoapClientException
+     *         If one or more of the HTTP connection required arguments are missing, if the connection failed or If the
+     *         SOAP response HTTP code is not "OK"
+     */
+    default SoapResponse sendSoapRequestForResponse(InputStream requestXml) throws SimpleSoapClientException {
+        return SoapClientDefaults.response(sendSoapRequest(requestXml));
+    }
+
+    /**
+     * Send a SOAP request in XML format from an .xml file, and process the response while it's being received.
+     *
+     * @param requestXml
+     *         The path of the .xml file that contains the SOAP request in XML format.
+     * @param responseHandler
+     *         The handler that processes the response
+     * @param <T>
+     *         The type of the handler's result
+     * @return The result of {@code responseHandler}
+     * @throws SimpleSoapClientException
+     *         If one or more of the HTTP connection required arguments are missing, if the connection failed, If the
+     *         SOAP response HTTP code is not "OK" or if the handler failed to read the response
+     */
+    default <T> T sendSoapRequest(Path requestXml, SoapResponseHandler<T> responseHandler)
+            throws SimpleSoapClientException {
+        try (SoapResponse response = sendSoapRequestForResponse(requestXml)) {
+            return responseHandler.handleResponse(response);
+        } catch (IOException | XMLStreamException e) {
+            throw new SimpleSoapClientException("Couldn't read SOAP response", e);
+        }
+    }
+
+    /**
+     * Send a typed SOAP request, marshalled into a SOAP envelope while it's sent, and read the typed response while
+     * it's being received.
+     * <p>
+     * The request and response classes must be annotated with {@link SoapMessage}, so their marshallers are generated
+     * at compile time (see {@link SoapMarshallerProcessor}).
+     *
+     * @param request
+     *         The request object
+     * @param responseType
+     *         The class of the response object
+     * @param <R>
+     *         The type of the response
+     * @return The response object
+     * @throws SimpleSoapClientException
+     *         If no marshaller was generated for the request or response class, if the connection failed, If the SOAP
+     *         response HTTP code is not "OK" or if the response body is not the expected message
+     */
+    @SuppressWarnings("unchecked")
+    default <R> R sendMessage(Object request, Class<R> responseType) throws SimpleSoapClientException {
+        SoapMarshaller<Object> requestMarshaller;
+        SoapMarshaller<R> responseMarshaller;
+        try {
+            requestMarshaller = (SoapMarshaller<Object>) SoapMarshallers.forType(request.getClass());
+            responseMarshaller = SoapMarshallers.forType(responseType);
+        } catch (IllegalArgumentException e) {
+            throw new SimpleSoapClientException(e.getMessage(), e);
+        }
+        return sendMessage(request, requestMarshaller, responseMarshaller);
+    }
+
+    /**
+     * Send a typed SOAP request with the given marshallers, see {@link #sendMessage(Object, Class)}.
+     *
+     * @param request
+     *         The request object
+     * @param requestMarshaller
+     *         The marshaller of the request
+     * @param responseMarshaller
+     *         The marshaller of the response
+     * @param <Q>
+     *         The type of the request
+     * @param <R>
+     *         The type of the response
+     * @return The response object
+     * @throws SimpleSoapClientException
+     *         If the connection failed, If the SOAP response HTTP code is not "OK" or if the response body is not the
+     *         expected message
+     */
+    default <Q, R> R sendMessage(Q request, SoapMarshaller<Q> requestMarshaller,
+                                 SoapMarshaller<R> responseMarshaller) throws SimpleSoapClientException {
+        String responseXml = SoapClientDefaults.sendSpooled(this, outputStream -> {
+            try {
+                SoapMarshallers.writeEnvelope(request, requestMarshaller, outputStream);
+            } catch (XMLStreamException e) {
+                throw new SimpleSoapClientException("Couldn't write SOAP request", e);
+            }
+        });
+        try (SoapResponse response = SoapClientDefaults.response(responseXml)) {
+            return SoapMarshallers.readEnvelope(response.getXmlStreamReader(), responseMarshaller);
+        } catch (IOException | XMLStreamException e) {
+            throw new SimpleSoapClientException("Couldn't read SOAP response", e);
+        }
+    }
+
+    /**
+     * Send a SOAP request in XML format from an .xml file without blocking the calling thread.
+     *
+     * @param requestXml
+     *         The .xml file that contains the SOAP request in XML format.
+     * @return A future that completes with the .xml response as string, or exceptionally with a
+     * {@code SimpleSoapClientException} for the same reasons {@link #sendSoapRequest(File)} throws one
+     */
+    default CompletableFuture<String> sendSoapRequestAsync(File requestXml) {
+        return sendSoapRequestAsync(requestXml, null);
+    }
+
+    /**
+     * Send a SOAP request in XML format from an .xml file without blocking the calling thread, and give up after
+     * {@code timeout}.
+     * <p>
+     * Cancelling the returned future, or letting it time out, aborts the HTTP exchange, unless the default
+     * implementation is used, which can only stop waiting for it.
+     *
+     * @param requestXml
+     *         The .xml file that contains the SOAP request in XML format.
+     * @param timeout
+     *         The maximal time to wait for the response, or <b>null</b> to wait without a limit
+     * @return A future that completes with the .xml response as string, or exceptionally with a
+     * {@code SimpleSoapClientException} if the request failed or timed out
+     */
+    default CompletableFuture<String> sendSoapRequestAsync(File requestXml, Duration timeout) {
+        return SoapClientDefaults.sendAsync(() -> sendSoapRequest(requestXml), timeout);
+    }
+
+    /**
+     * Send a SOAP request rendered from a template without blocking the calling thread, and give up after
+     * {@code timeout}. The request is rendered by the thread that sends it, so {@code values} must not be modified
+     * until the returned future completes.
+     *
+     * @param template
+     *         The compiled SOAP request template
+     * @param values
+     *         The value of each of the template's placeholders
+     * @param timeout
+     *         The maximal time to wait for the response, or <b>null</b> to wait without a limit
+     * @return A future that completes with the .xml response as string, or exceptionally with a
+     * {@code SimpleSoapClientException} if the request failed or timed out
+     */
+    default CompletableFuture<String> sendSoapRequestAsync(SoapEnvelopeTemplate template, Map<String, ?> values,
+                                                           Duration timeout) {
+        return SoapClientDefaults.sendAsync(() -> sendSoapRequest(template, values), timeout);
+    }
+
+    /**
+     * Send several SOAP requests concurrently and wait for all of their responses. The default implementation sends
+     * them one after the other.
+     *
+     * @param requestXmls
+     *         The .xml files that contain the SOAP requests in XML format.
+     * @return The .xml responses as strings, in the same order as {@code requestXmls}
+     * @throws SimpleSoapClientException
+     *         If one of the requests failed, in which case the remaining requests are cancelled
+     */
+    default List<String> sendAll(Collection<File> requestXmls) throws SimpleSoapClientException {
+        List<String> responses = new ArrayList<>(requestXmls.size());
+        for (File requestXml : requestXmls) {
+            responses.add(sendSoapRequest(requestXml));
+        }
+        return responses;
+    }
 }
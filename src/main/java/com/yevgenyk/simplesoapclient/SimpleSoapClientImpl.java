@@ -1,30 +1,92 @@
 package com.yevgenyk.simplesoapclient;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.*;
 import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URL;
-import java.nio.file.Files;
-import java.util.Scanner;
-import java.util.stream.Collectors;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * {@code SimpleSoapClientImpl} is an implementation of {@code SimpleSoapClient}.
  * <p>
  * A client sends each SOAP request by:
  * <ol>
- * <li>Opening an HTTP connection to the provided URL</li>
+ * <li>Leasing a connection from its {@code ConnectionPool} and opening an HTTP exchange with the provided URL, over its
+ * {@link SoapTransport} ({@code HttpURLConnection} by default)</li>
  * <li>Setting the relevant headers (HTTP POST and SOAP headers)</li>
- * <li>Sending the request</li>
- * <li>Closing the HTTP connection</li>
+ * <li>Streaming the request body - files and rendered templates with a fixed length, streams, channels and compressed
+ * bodies in chunks</li>
+ * <li>Reading the whole response, decompressed according to its "Content-Encoding" and decoded with the charset of its
+ * "Content-Type", and returning the connection to the transport - the JDK's keep-alive cache by default (or closing
+ * it, if keep-alive is disabled)</li>
  * </ol>
+ * Failed requests can be retried with a {@link RetryPolicy}, and fail fast while the service is unhealthy with a
+ * {@link CircuitBreaker}. Each attempt is a separate HTTP exchange, and is reported to the request listener as such.
+ * A client created with a {@link LoadBalancer} sends each attempt to one of several replicas of the service.
+ * <p>
+ * Asynchronous and bulk requests run the same steps on the client's {@code Executor}, which can be a virtual thread
+ * per request on Java 21 or newer (see {@link ExecutionMode}). No monitors are held around blocking I/O, so virtual
+ * threads are not pinned to their carrier threads while waiting for the server.
+ * <p>
+ * Use {@link #builder(String, String, String)} to configure connection handling, timeouts, retries and response
+ * caching, or {@link #builder(LoadBalancer, String, String)} to spread requests over several endpoints.
+ * <p>
+ * Clients are immutable and all per-request state is kept on the calling thread, so a single client can be shared by
+ * any number of concurrent threads.
  */
 public class SimpleSoapClientImpl implements SimpleSoapClient {
 
+    /**
+     * Default maximal number of error body bytes that are read into a {@code SoapHttpException}.
+     */
+    public static final int DEFAULT_MAX_ERROR_BODY_SIZE = 64 * 1024;
+
+    /**
+     * Number of threads of the default executor of asynchronous requests, shared by all clients.
+     */
+    public static final int DEFAULT_ASYNC_THREADS = 64;
+
+    /**
+     * Number of asynchronous requests the default executor queues while all of its threads are busy. Requests beyond
+     * that fail with a {@code SimpleSoapClientException}.
+     */
+    public static final int DEFAULT_ASYNC_QUEUE_SIZE = 10_000;
+
+    private static final String CONTENT_TYPE = "text/xml; charset=utf-8";
+
     private final String urlString;
     private final String namespaceUri;
     private final String wsOperation;
-    private HttpURLConnection connection;
+    private final SoapTransport transport;
+    private final ConnectionPool connectionPool;
+    private final Executor executor;
+    private final String endpoint;
+    private final LoadBalancer loadBalancer;
+    private final Target[] targets;
+    private final String soapAction;
+    private final ResponseCache responseCache;
+    private final Duration responseCacheTimeToLive;
+    private final SoapRequestListener requestListener;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final Duration requestTimeout;
+    private final RetryPolicy retryPolicy;
+    private final boolean acceptCompressedResponses;
+    private final ContentEncoding requestCompression;
+    private final long requestCompressionThreshold;
+    private final int maxErrorBodySize;
 
     /**
      * Creates an instance of {@code SimpleSoapClientImpl}. Each client holds an SOAP URL and a namespace URI to send
@@ -41,65 +103,1155 @@ public class SimpleSoapClientImpl implements SimpleSoapClient {
      */
     public SimpleSoapClientImpl(String serviceUrl, String namespaceUri, String wsOperation)
             throws SimpleSoapClientException {
-        this.urlString = serviceUrl;
-        this.namespaceUri = namespaceUri;
-        this.wsOperation = wsOperation;
-        checkConnectionParameters();
+        this(builder(serviceUrl, namespaceUri, wsOperation));
+    }
+
+    private SimpleSoapClientImpl(Builder builder) throws SimpleSoapClientException {
+        builder.checkSettings();
+        if (builder.wsOperation == null || builder.wsOperation.isEmpty()) {
+            throw new SimpleSoapClientException("WS operation is required to open an HTTP connection");
+        }
+        this.urlString = builder.serviceUrl;
+        this.namespaceUri = builder.namespaceUri;
+        this.wsOperation = builder.wsOperation;
+        this.transport = builder.transport != null ? builder.transport
+                : new HttpUrlConnectionTransport(builder.keepAlive);
+        this.connectionPool = builder.connectionPool != null ? builder.connectionPool
+                : new ConnectionPool(builder.maxConnectionsPerHost, builder.connectionAcquireTimeout);
+        if (builder.executor != null) {
+            this.executor = builder.executor;
+        } else if (builder.executionMode == ExecutionMode.VIRTUAL_THREADS) {
+            this.executor = VirtualThreads.executor();
+        } else {
+            this.executor = AsyncResources.EXECUTOR;
+        }
+        this.responseCache = builder.responseCache;
+        this.responseCacheTimeToLive = builder.responseCacheTimeToLive;
+        this.requestListener = builder.requestListener;
+        this.connectTimeoutMillis = timeoutMillis(builder.connectTimeout);
+        this.readTimeoutMillis = timeoutMillis(builder.readTimeout);
+        this.requestTimeout = builder.requestTimeout;
+        this.retryPolicy = builder.retryPolicy;
+        this.acceptCompressedResponses = builder.acceptCompressedResponses;
+        this.requestCompression = builder.requestCompression;
+        this.requestCompressionThreshold = builder.requestCompressionThreshold;
+        this.maxErrorBodySize = builder.maxErrorBodySize;
+        // Everything that identifies the request is fixed, so it is resolved once instead of on every request
+        this.endpoint = String.format("%s.asmx?op=%s", urlString, wsOperation);
+        this.soapAction = String.format("%s/%s", namespaceUri, wsOperation);
+        this.loadBalancer = builder.loadBalancer != null ? builder.loadBalancer : LoadBalancer.single(urlString);
+        List<LoadBalancer.Endpoint> endpoints = loadBalancer.getEndpoints();
+        this.targets = new Target[endpoints.size()];
+        for (LoadBalancer.Endpoint loadBalancerEndpoint : endpoints) {
+            targets[loadBalancerEndpoint.index()] = new Target(loadBalancerEndpoint, wsOperation,
+                    builder.circuitBreaker);
+        }
+    }
+
+    /**
+     * Converts a socket timeout to the milliseconds a {@code SoapTransport} takes, rounding up so a short timeout
+     * doesn't turn into 0, which is no timeout at all.
+     */
+    private static int timeoutMillis(Duration timeout) {
+        if (timeout == null) {
+            return 0;
+        }
+        long millis = timeout.toMillis() + (timeout.getNano() % 1_000_000 == 0 ? 0 : 1);
+        return (int) Math.min(millis, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a {@code Builder} for a {@code SimpleSoapClientImpl}.
+     *
+     * @param serviceUrl
+     *         URL to a WS service - "http://www.dneonline.com/calculator" for example
+     * @param namespaceUri
+     *         Namespace URI for XML mapping as represented in WSDL - "http://tempuri.org" for example
+     * @param wsOperation
+     *         WS operation as represented in WSDL - "Add" for example
+     * @return A new {@code Builder}
+     */
+    public static Builder builder(String serviceUrl, String namespaceUri, String wsOperation) {
+        return new Builder(serviceUrl, null, namespaceUri, wsOperation);
+    }
+
+    /**
+     * Creates a {@code Builder} for a {@code SimpleSoapClientImpl} that spreads its requests over the endpoints of a
+     * {@code LoadBalancer}. The first endpoint identifies the service, in cached responses for example.
+     *
+     * @param loadBalancer
+     *         The load balancer, which may be shared with other clients of the same service
+     * @param namespaceUri
+     *         Namespace URI for XML mapping as represented in WSDL - "http://tempuri.org" for example
+     * @param wsOperation
+     *         WS operation as represented in WSDL - "Add" for example
+     * @return A new {@code Builder}
+     */
+    public static Builder builder(LoadBalancer loadBalancer, String namespaceUri, String wsOperation) {
+        String serviceUrl = loadBalancer == null ? null : loadBalancer.getEndpoints().get(0).getServiceUrl();
+        return new Builder(serviceUrl, loadBalancer, namespaceUri, wsOperation);
     }
 
     @Override
     public String sendSoapRequest(File requestXml) throws SimpleSoapClientException {
+        return send(RequestBody.of(requestXml.toPath()), null);
+    }
+
+    @Override
+    public String sendSoapRequest(Path requestXml) throws SimpleSoapClientException {
+        return send(RequestBody.of(requestXml), null);
+    }
+
+    @Override
+    public String sendSoapRequest(InputStream requestXml) throws SimpleSoapClientException {
+        return send(RequestBody.of(requestXml), null);
+    }
+
+    @Override
+    public String sendSoapRequest(ReadableByteChannel requestXml) throws SimpleSoapClientException {
+        return send(RequestBody.of(requestXml), null);
+    }
+
+    @Override
+    public String sendSoapRequest(SoapEnvelopeTemplate template, Map<String, ?> values)
+            throws SimpleSoapClientException {
+        return send(templateBody(template, values), null);
+    }
+
+    @Override
+    public SoapResponse sendSoapRequestForResponse(Path requestXml) throws SimpleSoapClientException {
+        return exchange(RequestBody.of(requestXml), null);
+    }
+
+    @Override
+    public SoapResponse sendSoapRequestForResponse(InputStream requestXml) throws SimpleSoapClientException {
+        return exchange(RequestBody.of(requestXml), null);
+    }
+
+    /**
+     * Send a SOAP request with binary attachments as an MTOM/XOP multipart body, and open the response for streaming.
+     * Attachments in the response can be read with {@link SoapResponse#readMtom()}.
+     * <p>
+     * The returned {@code SoapResponse} holds the HTTP connection and must be closed by the caller.
+     *
+     * @param request
+     *         The envelope and attachments of the request
+     * @return The open SOAP response
+     * @throws SimpleSoapClientException
+     *         If one or more of the HTTP connection required arguments are missing, if the connection failed or If the
+     *         SOAP response HTTP code is not "OK"
+     */
+    public SoapResponse sendSoapRequestForResponse(MtomRequest request) throws SimpleSoapClientException {
+        return exchange(request.body(), null);
+    }
+
+    @Override
+    public <T> T sendSoapRequest(Path requestXml, SoapResponseHandler<T> responseHandler)
+            throws SimpleSoapClientException {
+        return sendAndHandle(RequestBody.of(requestXml), responseHandler);
+    }
+
+    @Override
+    public <Q, R> R sendMessage(Q request, SoapMarshaller<Q> requestMarshaller, SoapMarshaller<R> responseMarshaller)
+            throws SimpleSoapClientException {
+        return sendAndHandle(RequestBody.of(request, requestMarshaller),
+                response -> SoapMarshallers.readEnvelope(response.getXmlStreamReader(), responseMarshaller));
+    }
+
+    @Override
+    public CompletableFuture<String> sendSoapRequestAsync(File requestXml, Duration timeout) {
+        return sendAsync(RequestBody.of(requestXml.toPath()), timeout);
+    }
+
+    @Override
+    public CompletableFuture<String> sendSoapRequestAsync(SoapEnvelopeTemplate template, Map<String, ?> values,
+                                                          Duration timeout) {
+        RequestBody requestBody;
         try {
-            openConnection();
-            try (OutputStream requestStream = connection.getOutputStream()) {
-                requestStream.write(Files.readAllBytes(requestXml.toPath()));
-                requestStream.flush();
-                String responseMessage = connection.getResponseMessage();
-                if (!responseMessage.equals("OK")) {
-                    String errorString = String.format("HTTP response was \"%s\"", responseMessage);
-                    InputStream errorStream = connection.getErrorStream();
-                    try (Scanner errorStreamScanner = new Scanner(errorStream).useDelimiter("\\A")) {
-                        errorString += String.format(". Server returned:\n\"%s\"",
-                                errorStreamScanner.hasNext() ? errorStreamScanner.next() : "");
-                    }
-                    throw new SimpleSoapClientException(errorString);
+            requestBody = templateBody(template, values);
+        } catch (SimpleSoapClientException e) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return sendAsync(requestBody, timeout);
+    }
+
+    private CompletableFuture<String> sendAsync(RequestBody requestBody, Duration timeout) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        InFlightRequest inFlightRequest = new InFlightRequest(timeout);
+        if (timeout != null) {
+            ScheduledFuture<?> timeoutTask = AsyncResources.SCHEDULER.schedule(() -> {
+                if (future.completeExceptionally(timeoutException(timeout))) {
+                    inFlightRequest.abort();
                 }
+            }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+            future.whenComplete((response, throwable) -> timeoutTask.cancel(false));
+        }
+        future.whenComplete((response, throwable) -> {
+            if (future.isCancelled()) {
+                inFlightRequest.abort();
             }
-            try (InputStream responseStream = connection.getInputStream()) {
-                return new BufferedReader(new InputStreamReader(responseStream)).lines()
-                        .collect(Collectors.joining(System.lineSeparator()));
+        });
+        try {
+            executor.execute(() -> {
+                if (!inFlightRequest.start()) {
+                    return;
+                }
+                try {
+                    future.complete(send(requestBody, inFlightRequest));
+                } catch (SimpleSoapClientException | RuntimeException e) {
+                    future.completeExceptionally(inFlightRequest.isExpired() ? timeoutException(timeout) : e);
+                } finally {
+                    inFlightRequest.finish();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new SimpleSoapClientException("Couldn't schedule SOAP request", e));
+        }
+        return future;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Requests are sent in a window of as many requests as this client may have connections, so a large collection
+     * doesn't occupy a thread and a socket per request. If the connection pool is unbounded, the window is
+     * {@value #DEFAULT_ASYNC_THREADS} requests on the shared pool of platform threads, whose threads would be the limit
+     * anyway, and unlimited on virtual threads or a custom executor.
+     */
+    @Override
+    public List<String> sendAll(Collection<File> requestXmls) throws SimpleSoapClientException {
+        Semaphore window = new Semaphore(sendAllWindow());
+        CompletableFuture<Void> failure = new CompletableFuture<>();
+        List<CompletableFuture<String>> futures = new ArrayList<>(requestXmls.size());
+        List<String> responses = new ArrayList<>(requestXmls.size());
+        try {
+            for (File requestXml : requestXmls) {
+                window.acquire();
+                if (failure.isDone()) {
+                    // The failed request is already in the list, and is thrown below
+                    break;
+                }
+                CompletableFuture<String> future = sendSoapRequestAsync(requestXml);
+                future.whenComplete((response, throwable) -> {
+                    window.release();
+                    if (throwable != null) {
+                        failure.complete(null);
+                    }
+                });
+                futures.add(future);
+            }
+            for (CompletableFuture<String> future : futures) {
+                responses.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof SimpleSoapClientException) {
+                throw (SimpleSoapClientException) e.getCause();
+            }
+            throw new SimpleSoapClientException("Couldn't send SOAP request", e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new SimpleSoapClientException("Interrupted while waiting for SOAP responses", e);
+        }
+        return responses;
+    }
+
+    private int sendAllWindow() {
+        int maxConnectionsPerHost = connectionPool.getMaxConnectionsPerHost();
+        if (maxConnectionsPerHost == ConnectionPool.UNBOUNDED) {
+            return executor == AsyncResources.EXECUTOR ? DEFAULT_ASYNC_THREADS : Integer.MAX_VALUE;
+        }
+        return (int) Math.min((long) maxConnectionsPerHost * targets.length, Integer.MAX_VALUE);
+    }
+
+    private static RequestBody templateBody(SoapEnvelopeTemplate template, Map<String, ?> values)
+            throws SimpleSoapClientException {
+        try {
+            return RequestBody.of(template, values);
+        } catch (IllegalArgumentException e) {
+            throw new SimpleSoapClientException(e.getMessage(), e);
+        }
+    }
+
+    private static SimpleSoapClientException timeoutException(Duration timeout) {
+        return new SimpleSoapClientException(String.format("SOAP request timed out after %d ms", timeout.toMillis()),
+                new TimeoutException());
+    }
+
+    private String send(RequestBody requestBody, InFlightRequest inFlightRequest) throws SimpleSoapClientException {
+        if (responseCache == null) {
+            return fetch(requestBody, inFlightRequest);
+        }
+        RequestBody replayableBody;
+        ResponseCache.Key key;
+        try {
+            // Streams and channels can be read only once, so they are buffered to be hashed and then sent
+            if (requestBody.contentLength() >= 0) {
+                replayableBody = requestBody;
+            } else {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                requestBody.writeTo(buffer);
+                replayableBody = RequestBody.of(buffer.toByteArray());
             }
+            key = ResponseCache.key(endpoint, soapAction, replayableBody);
         } catch (IOException e) {
             throw new SimpleSoapClientException("Couldn't send SOAP request", e);
+        }
+        return responseCache.get(key, responseCacheTimeToLive, () -> fetch(replayableBody, inFlightRequest));
+    }
+
+    private String fetch(RequestBody requestBody, InFlightRequest inFlightRequest) throws SimpleSoapClientException {
+        try (SoapResponse response = exchange(requestBody, inFlightRequest)) {
+            return response.readString();
+        } catch (IOException e) {
+            throw new SimpleSoapClientException("Couldn't read SOAP response", e);
+        }
+    }
+
+    private <T> T sendAndHandle(RequestBody requestBody, SoapResponseHandler<T> responseHandler)
+            throws SimpleSoapClientException {
+        try (SoapResponse response = exchange(requestBody, null)) {
+            return responseHandler.handleResponse(response);
+        } catch (IOException | XMLStreamException e) {
+            throw new SimpleSoapClientException("Couldn't read SOAP response", e);
+        }
+    }
+
+    /**
+     * Sends the request, retrying it according to the retry policy, and opens the response body. The request timeout
+     * bounds all attempts and the backoffs between them.
+     */
+    private SoapResponse exchange(RequestBody requestBody, InFlightRequest inFlightRequest)
+            throws SimpleSoapClientException {
+        long deadlineNanos = requestTimeout == null ? 0 : System.nanoTime() + requestTimeout.toNanos();
+        SimpleSoapClientException lastFailure = null;
+        Target target = null;
+        for (int attempt = 1; ; attempt++) {
+            target = select(target);
+            if (target == null) {
+                if (lastFailure != null) {
+                    throw lastFailure;
+                }
+                throw new SimpleSoapClientException(String.format(targets.length == 1
+                        ? "Circuit breaker is open for \"%s\"" : "Circuit breaker is open for all endpoints of \"%s\"",
+                        urlString));
+            }
+            long startNanos = System.nanoTime();
+            AttemptFailure attemptFailure;
+            try {
+                SoapResponse response = exchangeOnce(requestBody, inFlightRequest, deadlineNanos, target);
+                target.onResponse(System.nanoTime() - startNanos);
+                return response;
+            } catch (AttemptFailure e) {
+                attemptFailure = e;
+            } catch (SimpleSoapClientException | RuntimeException e) {
+                target.onIgnored();
+                throw e;
+            }
+            if (attemptFailure.isEndpointFailure()) {
+                target.onFailure();
+            } else if (attemptFailure.httpStatus > 0) {
+                target.onResponse(System.nanoTime() - startNanos);
+            } else {
+                target.onIgnored();
+            }
+            lastFailure = attemptFailure.failure;
+            if (isExpired(deadlineNanos)) {
+                SimpleSoapClientException timeoutException = timeoutException(requestTimeout);
+                timeoutException.addSuppressed(lastFailure);
+                throw timeoutException;
+            }
+            if (attempt >= retryPolicy.getMaxAttempts() || !attemptFailure.isRetryable(retryPolicy)) {
+                throw lastFailure;
+            }
+            long backoffNanos = retryPolicy.backoffNanos(attempt);
+            if (deadlineNanos != 0 && deadlineNanos - System.nanoTime() <= backoffNanos) {
+                throw lastFailure;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(backoffNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SimpleSoapClientException("Interrupted while waiting to retry SOAP request", e);
+            }
+        }
+    }
+
+    /**
+     * Picks the endpoint of the next attempt, avoiding the endpoint of the previous one, and lets its circuit breaker
+     * decide whether the attempt may be sent. If the circuit of the picked endpoint is open, any other endpoint whose
+     * circuit lets the attempt through is used instead.
+     *
+     * @return The target of the attempt, or <b>null</b> if it must fail fast
+     */
+    private Target select(Target previous) {
+        Target target = targets.length == 1 ? targets[0]
+                : targets[loadBalancer.select(previous == null ? null : previous.endpoint).index()];
+        if (target.circuit == null || target.circuit.tryAcquire()) {
+            return target;
+        }
+        for (Target otherTarget : targets) {
+            if (otherTarget != target && otherTarget.circuit.tryAcquire()) {
+                return otherTarget;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isExpired(long deadlineNanos) {
+        return deadlineNanos != 0 && deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Sends the request once and opens the response body. On success, the connection lease is handed over to the
+     * returned {@code SoapResponse}, which releases it when closed. Failures of the HTTP exchange itself are thrown as
+     * an {@code AttemptFailure}, to be classified for retries and the circuit breaker.
+     */
+    private SoapResponse exchangeOnce(RequestBody requestBody, InFlightRequest inFlightRequest, long deadlineNanos,
+                                      Target target) throws SimpleSoapClientException, AttemptFailure {
+        SoapRequestRecorder recorder = requestListener == null ? null
+                : SoapRequestRecorder.start(requestListener, wsOperation);
+        try {
+            connectionPool.acquire(target.hostKey);
+        } catch (SimpleSoapClientException e) {
+            if (recorder != null) {
+                recorder.finish(e);
+            }
+            throw e;
+        }
+        target.endpoint.start();
+        SoapTransport.Exchange exchange = null;
+        SoapResponse response = null;
+        Exception failure = null;
+        boolean connecting = false;
+        boolean writing = false;
+        try {
+            if (recorder != null) {
+                recorder.acquired();
+            }
+            int remainingMillis = limitTimeout(0, deadlineNanos);
+            if (inFlightRequest != null) {
+                remainingMillis = limitTimeout(remainingMillis, inFlightRequest.deadlineNanos);
+            }
+            exchange = openExchange(target.url, remainingMillis);
+            String contentType = requestBody.contentType();
+            if (contentType != null) {
+                exchange.setRequestHeader("Content-Type", contentType);
+            }
+            if (inFlightRequest != null) {
+                inFlightRequest.attach(exchange);
+            }
+            long contentLength = requestBody.contentLength();
+            // Bodies of unknown length are assumed to be large enough to be worth compressing
+            boolean compressed = requestCompression != null
+                    && (contentLength < 0 || contentLength >= requestCompressionThreshold);
+            if (compressed) {
+                exchange.setRequestHeader("Content-Encoding", requestCompression.getToken());
+            }
+            connecting = true;
+            exchange.connect(compressed ? -1 : contentLength);
+            connecting = false;
+            if (recorder != null) {
+                recorder.connected();
+            }
+            writing = true;
+            // Payload sizes are counted before compression, so they don't depend on what the server negotiates
+            try (OutputStream requestStream = exchange.getRequestStream();
+                 OutputStream compressedStream = compressed ? requestCompression.compress(requestStream)
+                         : requestStream) {
+                requestBody.writeTo(recorder == null ? compressedStream : recorder.count(compressedStream));
+            }
+            if (recorder != null) {
+                recorder.written();
+            }
+            int statusCode = exchange.getStatusCode();
+            if (recorder != null) {
+                recorder.responseStarted(statusCode);
+            }
+            if (statusCode < HttpURLConnection.HTTP_OK || statusCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
+                failure = errorResponse(exchange, statusCode);
+                throw new AttemptFailure((SimpleSoapClientException) failure, statusCode, false, false,
+                        requestBody.isReplayable());
+            }
+            SoapTransport.Exchange openedExchange = exchange;
+            InputStream responseStream = exchange.getResponseStream();
+            if (responseStream == null) {
+                responseStream = new ByteArrayInputStream(new byte[0]);
+            }
+            InputStream bodyStream;
+            try {
+                bodyStream = ContentEncoding.decompress(exchange.getResponseHeader("Content-Encoding"), responseStream);
+            } catch (IOException e) {
+                responseStream.close();
+                throw e;
+            }
+            // The length of a compressed body is not the length of the decompressed one
+            long responseLength = bodyStream == responseStream ? exchange.getResponseContentLength() : -1;
+            response = new SoapResponse(recorder == null ? bodyStream : recorder.count(bodyStream),
+                    exchange.getResponseHeader("Content-Type"), responseLength, () -> {
+                openedExchange.close();
+                connectionPool.release(target.hostKey);
+                target.endpoint.finish();
+                if (recorder != null) {
+                    recorder.finish(null);
+                }
+            });
+            return response;
+        } catch (IOException e) {
+            failure = new SimpleSoapClientException("Couldn't send SOAP request", e);
+            // Resets and closed connections are reported as a SocketException in any phase, and timeouts are only
+            // retried while connecting, since a read timeout means the server may still be processing the request
+            boolean connectionFailure = connecting || e instanceof SocketException;
+            throw new AttemptFailure((SimpleSoapClientException) failure, -1, connectionFailure,
+                    e instanceof SocketTimeoutException, !writing || requestBody.isReplayable());
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
         } finally {
-            closeConnection();
+            if (response == null) {
+                if (exchange != null) {
+                    exchange.close();
+                }
+                connectionPool.release(target.hostKey);
+                target.endpoint.finish();
+                if (recorder != null) {
+                    recorder.finish(failure);
+                }
+            }
         }
     }
 
-    private void openConnection() throws IOException {
-        URL url = URI.create(String.format("%s.asmx?op=%s", urlString, wsOperation)).toURL();
-        connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "text/xml; charset=utf-8");
-        connection.setRequestProperty("SOAPAction", String.format("%s/%s", namespaceUri, wsOperation));
-        connection.setDoOutput(true);
+    /**
+     * Creates the exception of an unsuccessful response. Only the start of the error body, up to the configured limit,
+     * is read, and the rest is left to the transport.
+     */
+    private SoapHttpException errorResponse(SoapTransport.Exchange exchange, int statusCode) throws IOException {
+        InputStream errorStream = exchange.getResponseStream();
+        if (errorStream == null) {
+            return SoapHttpException.of(statusCode, exchange.getStatusMessage(), null, null, 0);
+        }
+        try (InputStream bodyStream = ContentEncoding.decompress(exchange.getResponseHeader("Content-Encoding"),
+                errorStream)) {
+            return SoapHttpException.of(statusCode, exchange.getStatusMessage(),
+                    exchange.getResponseHeader("Content-Type"), bodyStream, maxErrorBodySize);
+        }
     }
 
-    private void closeConnection() {
-        if (connection != null) {
-            connection.disconnect();
+    /**
+     * Lowers a timeout to the time left until {@code deadlineNanos}, so no single exchange can outlive it.
+     *
+     * @return The lowered timeout, or {@code timeoutMillis} if there is no deadline
+     */
+    private static int limitTimeout(int timeoutMillis, long deadlineNanos) throws IOException {
+        if (deadlineNanos == 0) {
+            return timeoutMillis;
+        }
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            throw new IOException("SOAP request deadline exceeded");
         }
+        int remainingMillis = (int) Math.min(TimeUnit.NANOSECONDS.toMillis(remainingNanos) + 1, Integer.MAX_VALUE);
+        return timeoutMillis == 0 || timeoutMillis > remainingMillis ? remainingMillis : timeoutMillis;
     }
 
-    private void checkConnectionParameters() throws SimpleSoapClientException {
-        if (urlString == null || urlString.isEmpty()) {
-            throw new SimpleSoapClientException("URL is required to open an HTTP connection");
+    /**
+     * Gets a snapshot of the usage statistics of this client's {@code ConnectionPool}.
+     *
+     * @return The current {@code ConnectionPoolStatistics}
+     */
+    public ConnectionPoolStatistics getConnectionPoolStatistics() {
+        return connectionPool.getStatistics();
+    }
+
+    /**
+     * Opens an exchange with the service with the request headers set. Only precomputed values are used, so the
+     * exchange itself is the only per-request allocation.
+     */
+    SoapTransport.Exchange openExchange(URL url, int remainingMillis) throws IOException {
+        SoapTransport.Exchange exchange = transport.newExchange(url, connectTimeoutMillis, readTimeoutMillis,
+                remainingMillis);
+        exchange.setRequestHeader("Content-Type", CONTENT_TYPE);
+        exchange.setRequestHeader("SOAPAction", soapAction);
+        if (acceptCompressedResponses) {
+            exchange.setRequestHeader("Accept-Encoding", ContentEncoding.ACCEPT_ENCODING);
+        }
+        return exchange;
+    }
+
+    /**
+     * {@code Builder} configures and creates {@code SimpleSoapClientImpl} instances.
+     */
+    public static final class Builder {
+
+        private final String serviceUrl;
+        private final LoadBalancer loadBalancer;
+        private final String namespaceUri;
+        private final String wsOperation;
+        private boolean keepAlive = true;
+        private SoapTransport transport;
+        private int maxConnectionsPerHost = ConnectionPool.DEFAULT_MAX_CONNECTIONS_PER_HOST;
+        private Duration connectionAcquireTimeout = ConnectionPool.DEFAULT_ACQUIRE_TIMEOUT;
+        private ConnectionPool connectionPool;
+        private Executor executor;
+        private ExecutionMode executionMode = ExecutionMode.PLATFORM_THREADS;
+        private ResponseCache responseCache;
+        private Duration responseCacheTimeToLive;
+        private SoapRequestListener requestListener;
+        private Duration connectTimeout;
+        private Duration readTimeout;
+        private Duration requestTimeout;
+        private RetryPolicy retryPolicy = RetryPolicy.none();
+        private CircuitBreaker circuitBreaker;
+        private boolean acceptCompressedResponses = true;
+        private ContentEncoding requestCompression;
+        private long requestCompressionThreshold;
+        private int maxErrorBodySize = DEFAULT_MAX_ERROR_BODY_SIZE;
+
+        private Builder(String serviceUrl, LoadBalancer loadBalancer, String namespaceUri, String wsOperation) {
+            this.serviceUrl = serviceUrl;
+            this.loadBalancer = loadBalancer;
+            this.namespaceUri = namespaceUri;
+            this.wsOperation = wsOperation;
         }
-        if (namespaceUri == null || namespaceUri.isEmpty()) {
-            throw new SimpleSoapClientException("Namespace URI is required to send SOAP requests");
+
+        private Builder(Builder template, String wsOperation) {
+            this(template.serviceUrl, template.loadBalancer, template.namespaceUri, wsOperation);
+            this.keepAlive = template.keepAlive;
+            this.transport = template.transport;
+            this.maxConnectionsPerHost = template.maxConnectionsPerHost;
+            this.connectionAcquireTimeout = template.connectionAcquireTimeout;
+            this.connectionPool = template.connectionPool;
+            this.executor = template.executor;
+            this.executionMode = template.executionMode;
+            this.responseCache = template.responseCache;
+            this.responseCacheTimeToLive = template.responseCacheTimeToLive;
+            this.requestListener = template.requestListener;
+            this.connectTimeout = template.connectTimeout;
+            this.readTimeout = template.readTimeout;
+            this.requestTimeout = template.requestTimeout;
+            this.retryPolicy = template.retryPolicy;
+            this.circuitBreaker = template.circuitBreaker;
+            this.acceptCompressedResponses = template.acceptCompressedResponses;
+            this.requestCompression = template.requestCompression;
+            this.requestCompressionThreshold = template.requestCompressionThreshold;
+            this.maxErrorBodySize = template.maxErrorBodySize;
         }
-        if (wsOperation == null || wsOperation.isEmpty()) {
-            throw new SimpleSoapClientException("WS operation is required to open an HTTP connection");
+
+        /**
+         * Sets whether connections are kept alive and reused between requests. Enabled by default.
+         * <p>
+         * Ignored if a transport is set with {@link #transport(SoapTransport)}.
+         *
+         * @param keepAlive
+         *         if <b>false</b> - each connection is closed after its response is read
+         * @return This builder
+         */
+        public Builder keepAlive(boolean keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * Sets the {@code SoapTransport} that sends the HTTP exchanges, which may be shared with other clients. By
+         * default, each request is sent over an {@code HttpURLConnection}.
+         * <p>
+         * With {@link SoapTransport#http2()}, concurrent requests share a few connections, and the per-host limit of
+         * the connection pool bounds the number of requests in flight instead.
+         *
+         * @param transport
+         *         The transport, like {@link SoapTransport#http2()}
+         * @return This builder
+         */
+        public Builder transport(SoapTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Sets the maximal number of concurrent connections to the service host.
+         * {@link ConnectionPool#DEFAULT_MAX_CONNECTIONS_PER_HOST} by default, which is the number of idle sockets the
+         * JDK keeps alive per host. A higher limit should go with a higher {@code http.maxConnections} system property
+         * (see {@link ConnectionPool}).
+         * <p>
+         * Ignored if a shared pool is set with {@link #connectionPool(ConnectionPool)}.
+         *
+         * @param maxConnectionsPerHost
+         *         The maximal number of concurrent connections, or {@link ConnectionPool#UNBOUNDED}
+         * @return This builder
+         */
+        public Builder maxConnectionsPerHost(int maxConnectionsPerHost) {
+            this.maxConnectionsPerHost = maxConnectionsPerHost;
+            return this;
+        }
+
+        /**
+         * Sets how long a request waits for a free connection when the per-host limit is reached. 30 seconds by
+         * default.
+         * <p>
+         * Ignored if a shared pool is set with {@link #connectionPool(ConnectionPool)}.
+         *
+         * @param connectionAcquireTimeout
+         *         The maximal time to wait for a free connection
+         * @return This builder
+         */
+        public Builder connectionAcquireTimeout(Duration connectionAcquireTimeout) {
+            this.connectionAcquireTimeout = connectionAcquireTimeout;
+            return this;
+        }
+
+        /**
+         * Sets a {@code ConnectionPool} that may be shared with other clients.
+         *
+         * @param connectionPool
+         *         The pool to lease connections from
+         * @return This builder
+         */
+        public Builder connectionPool(ConnectionPool connectionPool) {
+            this.connectionPool = connectionPool;
+            return this;
+        }
+
+        /**
+         * Sets the {@code Executor} that runs asynchronous requests. By default, a shared pool of
+         * {@value #DEFAULT_ASYNC_THREADS} daemon threads is used, which queues up to {@value #DEFAULT_ASYNC_QUEUE_SIZE}
+         * requests and rejects the rest. Each request occupies a thread while it's sent, so more concurrent requests
+         * need an executor of their own, or {@link ExecutionMode#VIRTUAL_THREADS}.
+         *
+         * @param executor
+         *         The executor for {@link SimpleSoapClient#sendSoapRequestAsync(File)}
+         * @return This builder
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Sets the kind of threads that run asynchronous and bulk requests. {@link ExecutionMode#PLATFORM_THREADS} by
+         * default.
+         * <p>
+         * Ignored if an executor is set with {@link #executor(Executor)}.
+         *
+         * @param executionMode
+         *         The execution mode
+         * @return This builder
+         */
+        public Builder executionMode(ExecutionMode executionMode) {
+            this.executionMode = executionMode;
+            return this;
+        }
+
+        /**
+         * Caches the responses of this client's operation in {@code responseCache}, which may be shared with other
+         * clients. Disabled by default.
+         * <p>
+         * Use it only for idempotent operations. The cache is used by the methods that return the response as a
+         * string, including asynchronous and bulk requests; streamed responses are never cached. Requests from
+         * streams and channels are buffered in memory, to be hashed before they are sent.
+         *
+         * @param responseCache
+         *         The cache to keep responses in
+         * @param timeToLive
+         *         How long a response of this operation stays cached
+         * @return This builder
+         */
+        public Builder responseCache(ResponseCache responseCache, Duration timeToLive) {
+            this.responseCache = responseCache;
+            this.responseCacheTimeToLive = timeToLive;
+            return this;
+        }
+
+        /**
+         * Sets a {@code SoapRequestListener} that is notified when requests start and end, to record metrics or traces.
+         * Not set by default, in which case requests are not measured at all.
+         *
+         * @param requestListener
+         *         The listener, like a {@link MicrometerSoapRequestListener}
+         * @return This builder
+         */
+        public Builder requestListener(SoapRequestListener requestListener) {
+            this.requestListener = requestListener;
+            return this;
+        }
+
+        /**
+         * Sets how long connecting to the service may take. Not set by default, in which case the JDK's default (no
+         * timeout, unless set with the "sun.net.client.defaultConnectTimeout" system property) is used.
+         *
+         * @param connectTimeout
+         *         The maximal time to connect
+         * @return This builder
+         */
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Sets how long a single read from the connection may block, while waiting for the response or reading it.
+         * Not set by default, in which case the JDK's default (no timeout, unless set with the
+         * "sun.net.client.defaultReadTimeout" system property) is used.
+         *
+         * @param readTimeout
+         *         The maximal time to wait for response data
+         * @return This builder
+         */
+        public Builder readTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * Sets a deadline for the whole request, including all of its attempts and the backoffs between them. Not set
+         * by default.
+         * <p>
+         * The socket timeouts of each attempt are lowered to the time that is left, so a request fails with a timeout
+         * soon after its deadline even if the server stops answering. When a request times out, its last failure is
+         * added to the timeout exception as a suppressed exception. Asynchronous requests with their own timeout end
+         * at the earlier of the two deadlines.
+         *
+         * @param requestTimeout
+         *         The maximal time a request may take
+         * @return This builder
+         */
+        public Builder requestTimeout(Duration requestTimeout) {
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the {@code RetryPolicy} that decides whether failed requests are sent again. {@link RetryPolicy#none()}
+         * by default.
+         *
+         * @param retryPolicy
+         *         The retry policy
+         * @return This builder
+         */
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Sets a {@code CircuitBreaker} that fails requests fast while the service is unhealthy, which may be shared
+         * with other clients. Not set by default. With a {@code LoadBalancer}, each endpoint has its own circuit.
+         *
+         * @param circuitBreaker
+         *         The circuit breaker
+         * @return This builder
+         */
+        public Builder circuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        /**
+         * Sets whether the service may compress responses. Enabled by default, in which case requests are sent with
+         * "Accept-Encoding: gzip, deflate", and compressed responses are decompressed while they are read.
+         * <p>
+         * The response sizes reported to a {@code SoapRequestListener} are the sizes after decompression.
+         *
+         * @param acceptCompressedResponses
+         *         if <b>false</b> - no "Accept-Encoding" header is sent, and responses are expected uncompressed
+         * @return This builder
+         */
+        public Builder acceptCompressedResponses(boolean acceptCompressedResponses) {
+            this.acceptCompressedResponses = acceptCompressedResponses;
+            return this;
+        }
+
+        /**
+         * Compresses request bodies of at least {@code thresholdBytes} bytes, and bodies of unknown length (from
+         * streams and channels). Disabled by default, since not every SOAP service accepts compressed requests.
+         * <p>
+         * Compressed bodies are compressed while they are sent, and are sent in chunks with a "Content-Encoding"
+         * header. Smaller bodies are sent as they are, since compressing them costs more CPU than it saves in transfer
+         * time. The request sizes reported to a {@code SoapRequestListener} are the sizes before compression.
+         *
+         * @param encoding
+         *         The coding to compress with, or <b>null</b> to send bodies uncompressed
+         * @param thresholdBytes
+         *         The minimal size of a body that is compressed
+         * @return This builder
+         */
+        public Builder requestCompression(ContentEncoding encoding, long thresholdBytes) {
+            this.requestCompression = encoding;
+            this.requestCompressionThreshold = thresholdBytes;
+            return this;
+        }
+
+        /**
+         * Sets the maximal number of bytes read from the body of an unsuccessful response, into the
+         * {@code SoapHttpException} (or {@code SoapFaultException}) that is thrown. 64 KB by default.
+         *
+         * @param maxErrorBodySize
+         *         The maximal number of error body bytes, or 0 to not read error bodies at all
+         * @return This builder
+         */
+        public Builder maxErrorBodySize(int maxErrorBodySize) {
+            this.maxErrorBodySize = maxErrorBodySize;
+            return this;
+        }
+
+        /**
+         * Creates the configured {@code SimpleSoapClientImpl}.
+         *
+         * @return A new {@code SimpleSoapClientImpl}
+         * @throws SimpleSoapClientException
+         *         If one of the connection parameters is empty or null, or the service URL is malformed
+         * @throws IllegalArgumentException
+         *         If the connection pool, timeout, retry, compression, error body or response cache settings are
+         *         invalid
+         * @throws UnsupportedOperationException
+         *         If {@link ExecutionMode#VIRTUAL_THREADS} is set on a JVM older than Java 21
+         */
+        public SimpleSoapClientImpl build() throws SimpleSoapClientException {
+            return new SimpleSoapClientImpl(this);
+        }
+
+        /**
+         * Copies this builder's settings into a builder for another operation. {@code SimpleSoapServiceClient} keeps a
+         * builder without an operation as the template of its operation clients.
+         */
+        Builder forOperation(String wsOperation) {
+            return new Builder(this, wsOperation);
+        }
+
+        /**
+         * Creates the connection pool, and the virtual thread executor if needed, unless they were set, so every
+         * client built from this builder shares them.
+         *
+         * @return The shared connection pool
+         */
+        ConnectionPool shareResources() {
+            if (connectionPool == null) {
+                connectionPool = new ConnectionPool(maxConnectionsPerHost, connectionAcquireTimeout);
+            }
+            if (executor == null && executionMode == ExecutionMode.VIRTUAL_THREADS) {
+                executor = VirtualThreads.executor();
+            }
+            return connectionPool;
+        }
+
+        /**
+         * Checks every setting but the operation, which {@code SimpleSoapServiceClient} picks per call.
+         */
+        void checkSettings() throws SimpleSoapClientException {
+            if (connectTimeout != null && connectTimeout.isNegative()) {
+                throw new IllegalArgumentException("Connect timeout must not be negative");
+            }
+            if (readTimeout != null && readTimeout.isNegative()) {
+                throw new IllegalArgumentException("Read timeout must not be negative");
+            }
+            if (requestTimeout != null && (requestTimeout.isNegative() || requestTimeout.isZero())) {
+                throw new IllegalArgumentException("Request timeout must be positive");
+            }
+            if (retryPolicy == null) {
+                throw new IllegalArgumentException(
+                        "Retry policy is required, use RetryPolicy.none() to disable retries");
+            }
+            if (requestCompression != null && requestCompressionThreshold < 0) {
+                throw new IllegalArgumentException("Request compression threshold must not be negative");
+            }
+            if (maxErrorBodySize < 0) {
+                throw new IllegalArgumentException("Max error body size must not be negative");
+            }
+            if (responseCache != null && (responseCacheTimeToLive == null || responseCacheTimeToLive.isNegative()
+                    || responseCacheTimeToLive.isZero())) {
+                throw new IllegalArgumentException("Response cache time-to-live must be positive");
+            }
+            if (serviceUrl == null || serviceUrl.isEmpty()) {
+                throw new SimpleSoapClientException("URL is required to open an HTTP connection");
+            }
+            if (namespaceUri == null || namespaceUri.isEmpty()) {
+                throw new SimpleSoapClientException("Namespace URI is required to send SOAP requests");
+            }
+        }
+    }
+
+    /**
+     * {@code Target} is an endpoint of the service, with the URL, connection pool key and circuit of this client's
+     * operation on it resolved once.
+     */
+    private static final class Target {
+
+        private final LoadBalancer.Endpoint endpoint;
+        private final URL url;
+        private final String hostKey;
+        private final CircuitBreaker.Circuit circuit;
+
+        Target(LoadBalancer.Endpoint endpoint, String wsOperation, CircuitBreaker circuitBreaker)
+                throws SimpleSoapClientException {
+            this.endpoint = endpoint;
+            String serviceUrl = endpoint.getServiceUrl();
+            try {
+                this.url = URI.create(String.format("%s.asmx?op=%s", serviceUrl, wsOperation)).toURL();
+            } catch (IllegalArgumentException | MalformedURLException e) {
+                throw new SimpleSoapClientException(String.format("Couldn't parse service URL \"%s\"", serviceUrl), e);
+            }
+            this.hostKey = ConnectionPool.hostKey(url);
+            this.circuit = circuitBreaker == null ? null : circuitBreaker.circuit(serviceUrl);
+        }
+
+        /**
+         * Records an attempt that got a response, successful or not, since the endpoint is up and answering.
+         */
+        void onResponse(long latencyNanos) {
+            if (circuit != null) {
+                circuit.onSuccess();
+            }
+            endpoint.onResponse(latencyNanos);
+        }
+
+        void onFailure() {
+            if (circuit != null) {
+                circuit.onFailure();
+            }
+            endpoint.onFailure();
+        }
+
+        /**
+         * Ends an attempt that failed for a reason that says nothing about the endpoint's health.
+         */
+        void onIgnored() {
+            if (circuit != null) {
+                circuit.onIgnored();
+            }
+        }
+    }
+
+    /**
+     * {@code AttemptFailure} carries the failure of a single HTTP exchange, with what is needed to decide whether it's
+     * retried and how the circuit breaker counts it. It never leaves the client, so it has no stack trace.
+     * <p>
+     * A SOAP Fault is an answer of a healthy service, usually to a bad request, even when SOAP 1.1 sends it with status
+     * 500, so it doesn't count against the endpoint, and is only retried if the retry policy asks for it.
+     * <p>
+     * A read timeout, including one lowered to the request's deadline, is not retried, since the server may still be
+     * processing the request, but it counts against the endpoint, so a hung service opens the circuit and is ejected
+     * instead of holding every caller for the whole timeout.
+     */
+    private static final class AttemptFailure extends Exception {
+
+        private final SimpleSoapClientException failure;
+        private final int httpStatus;
+        private final boolean connectionFailure;
+        private final boolean timedOut;
+        private final boolean replayable;
+
+        AttemptFailure(SimpleSoapClientException failure, int httpStatus, boolean connectionFailure, boolean timedOut,
+                       boolean replayable) {
+            super(null, null, false, false);
+            this.failure = failure;
+            this.httpStatus = httpStatus;
+            this.connectionFailure = connectionFailure;
+            this.timedOut = timedOut;
+            this.replayable = replayable;
+        }
+
+        boolean isEndpointFailure() {
+            return connectionFailure || timedOut || (httpStatus >= 500 && !isSoapFault());
+        }
+
+        boolean isRetryable(RetryPolicy retryPolicy) {
+            return replayable && (connectionFailure || (httpStatus > 0 && retryPolicy.isRetryableStatus(httpStatus)
+                    && (!isSoapFault() || retryPolicy.isRetryingSoapFaults())));
+        }
+
+        private boolean isSoapFault() {
+            return failure instanceof SoapFaultException;
+        }
+    }
+
+    /**
+     * {@code InFlightRequest} lets a cancelled or timed out asynchronous request abort its HTTP exchange from another
+     * thread.
+     * <p>
+     * Aborting interrupts the worker thread, which stops a wait for a pooled connection and, on a virtual thread, any
+     * blocking socket operation, and aborts the exchange. Since aborting doesn't interrupt a blocked read on every
+     * JDK, the remaining time until the deadline is also applied as the exchange's socket timeouts.
+     */
+    private static final class InFlightRequest {
+
+        private final long deadlineNanos;
+        private Thread worker;
+        private SoapTransport.Exchange exchange;
+        private boolean aborted;
+
+        InFlightRequest(Duration timeout) {
+            this.deadlineNanos = timeout == null ? 0 : System.nanoTime() + timeout.toNanos();
+        }
+
+        synchronized boolean start() {
+            worker = Thread.currentThread();
+            return !aborted;
+        }
+
+        synchronized void attach(SoapTransport.Exchange exchange) throws IOException {
+            if (aborted) {
+                throw new IOException("SOAP request was aborted");
+            }
+            this.exchange = exchange;
+        }
+
+        boolean isExpired() {
+            return deadlineNanos != 0 && deadlineNanos - System.nanoTime() <= 0;
+        }
+
+        synchronized void finish() {
+            worker = null;
+            if (aborted) {
+                // Clear an interrupt that arrived after the exchange ended, so it doesn't leak into the next task
+                Thread.interrupted();
+            }
+        }
+
+        void abort() {
+            SoapTransport.Exchange inFlightExchange;
+            synchronized (this) {
+                aborted = true;
+                if (worker != null) {
+                    worker.interrupt();
+                }
+                inFlightExchange = exchange;
+            }
+            if (inFlightExchange != null) {
+                inFlightExchange.abort();
+            }
+        }
+    }
+
+    /**
+     * Default asynchronous resources, shared by all clients and created on first use.
+     * <p>
+     * Each asynchronous request occupies a thread while it's sent, so the executor has a fixed number of threads that
+     * time out when idle, and queues a bounded number of requests behind them. Requests beyond that fail instead of
+     * starting a thread each.
+     */
+    private static final class AsyncResources {
+
+        static final ExecutorService EXECUTOR = boundedExecutor(DEFAULT_ASYNC_THREADS, DEFAULT_ASYNC_QUEUE_SIZE);
+        static final ScheduledExecutorService SCHEDULER =
+                Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("timeout"));
+
+        private static ExecutorService boundedExecutor(int threads, int queueSize) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(queueSize), daemonThreadFactory("async"));
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+
+        private static ThreadFactory daemonThreadFactory(String name) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            return runnable -> {
+                Thread thread = new Thread(runnable,
+                        String.format("simple-soap-client-%s-%d", name, threadNumber.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            };
         }
     }
 }
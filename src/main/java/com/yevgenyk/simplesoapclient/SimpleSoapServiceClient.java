@@ -0,0 +1,507 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+/**
+ * {@code SimpleSoapServiceClient} sends requests to any operation of a single SOAP service.
+ * <p>
+ * The service URL and namespace URI are set once, and the operation is picked per call. The builder holds a
+ * {@code SimpleSoapClientImpl.Builder} without an operation, and a {@code SimpleSoapClientImpl} is created from a copy
+ * of it for each operation on first use and kept for later calls. All of them share the same
+ * {@code ConnectionPool}, {@code Executor}, {@code ResponseCache}, {@code SoapRequestListener}, timeouts,
+ * {@code RetryPolicy}, {@code CircuitBreaker} and {@code LoadBalancer}, so the connection limit, statistics, metrics,
+ * circuit and endpoint ejections apply to the service as a whole.
+ * <p>
+ * Use {@link #builder(String, String)} to configure connection handling, timeouts, retries and response caching, or
+ * {@link #builder(LoadBalancer, String)} to spread requests over several endpoints of the service. Like
+ * {@code SimpleSoapClientImpl}, a service client can be shared by any number of concurrent threads.
+ */
+public class SimpleSoapServiceClient {
+
+    private final SimpleSoapClientImpl.Builder template;
+    private final ConnectionPool connectionPool;
+    private final ResponseCache responseCache;
+    private final Map<String, Duration> cachedOperations;
+    private final ConcurrentMap<String, SimpleSoapClientImpl> operationClients = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an instance of {@code SimpleSoapServiceClient} with the default connection handling.
+     *
+     * @param serviceUrl
+     *         URL to a WS service - "http://www.dneonline.com/calculator" for example
+     * @param namespaceUri
+     *         Namespace URI for XML mapping as represented in WSDL - "http://tempuri.org" for example
+     * @throws SimpleSoapClientException
+     *         If one of the parameters is empty or null
+     */
+    public SimpleSoapServiceClient(String serviceUrl, String namespaceUri) throws SimpleSoapClientException {
+        this(builder(serviceUrl, namespaceUri));
+    }
+
+    private SimpleSoapServiceClient(Builder builder) throws SimpleSoapClientException {
+        // A copy, so the pool created here isn't shared with other service clients built by the same builder
+        this.template = builder.template.forOperation(null);
+        template.checkSettings();
+        this.connectionPool = template.shareResources();
+        this.responseCache = builder.responseCache;
+        this.cachedOperations = Collections.unmodifiableMap(new HashMap<>(builder.cachedOperations));
+        if (!cachedOperations.isEmpty() && responseCache == null) {
+            throw new IllegalArgumentException("A response cache is required to cache operations");
+        }
+        for (Duration timeToLive : cachedOperations.values()) {
+            if (timeToLive == null || timeToLive.isNegative() || timeToLive.isZero()) {
+                throw new IllegalArgumentException("Response cache time-to-live must be positive");
+            }
+        }
+    }
+
+    /**
+     * Creates a {@code Builder} for a {@code SimpleSoapServiceClient}.
+     *
+     * @param serviceUrl
+     *         URL to a WS service - "http://www.dneonline.com/calculator" for example
+     * @param namespaceUri
+     *         Namespace URI for XML mapping as represented in WSDL - "http://tempuri.org" for example
+     * @return A new {@code Builder}
+     */
+    public static Builder builder(String serviceUrl, String namespaceUri) {
+        return new Builder(SimpleSoapClientImpl.builder(serviceUrl, namespaceUri, null));
+    }
+
+    /**
+     * Creates a {@code Builder} for a {@code SimpleSoapServiceClient} that spreads its requests over the endpoints of
+     * a {@code LoadBalancer}.
+     *
+     * @param loadBalancer
+     *         The load balancer of the service's endpoints
+     * @param namespaceUri
+     *         Namespace URI for XML mapping as represented in WSDL - "http://tempuri.org" for example
+     * @return A new {@code Builder}
+     */
+    public static Builder builder(LoadBalancer loadBalancer, String namespaceUri) {
+        return new Builder(SimpleSoapClientImpl.builder(loadBalancer, namespaceUri, null));
+    }
+
+    /**
+     * Gets the client of a single operation of this service. The client is created on first use, and shares this
+     * service client's settings, connection pool, executor, response cache, request listener, circuit breaker and load
+     * balancer.
+     *
+     * @param wsOperation
+     *         WS operation as represented in WSDL - "Add" for example
+     * @return The operation's client
+     * @throws SimpleSoapClientException
+     *         If {@code wsOperation} is empty or null
+     */
+    public SimpleSoapClientImpl operation(String wsOperation) throws SimpleSoapClientException {
+        SimpleSoapClientImpl client = wsOperation == null ? null : operationClients.get(wsOperation);
+        if (client == null) {
+            SimpleSoapClientImpl.Builder builder = template.forOperation(wsOperation);
+            Duration timeToLive = cachedOperations.get(wsOperation);
+            if (timeToLive != null) {
+                builder.responseCache(responseCache, timeToLive);
+            }
+            SimpleSoapClientImpl newClient = builder.build();
+            client = operationClients.putIfAbsent(wsOperation, newClient);
+            if (client == null) {
+                client = newClient;
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Send a SOAP request to {@code wsOperation} from an .xml file, get the full response XML as string.
+     *
+     * @param wsOperation
+     *         WS operation as represented in WSDL - "Add" for example
+     * @param requestXml
+     *         The .xml file that contains the SOAP request in XML format.
+     * @return The .xml response as string
+     * @throws SimpleSoapClientException
+     *         If {@code wsOperation} is empty or null, if the connection failed or If the SOAP response HTTP code is
+     *         not "OK"
+     * @see SimpleSoapClient#sendSoapRequest(File)
+     */
+    public String send(String wsOperation, File requestXml) throws SimpleSoapClientException {
+        return operation(wsOperation).sendSoapRequest(requestXml);
+    }
+
+    /**
+     * Send a SOAP request to {@code wsOperation} from an .xml file, get the full response XML as string.
+     *
+     * @param wsOperation
+     *         WS operation as represented in WSDL - "Add" for example
+     * @param requestXml
+     *         The path of the .xml file that contains the SOAP request in XML format.
+     * @return The .xml response as string
+     * @throws SimpleSoapClientException
+     *         If {@code wsOperation} is empty or null, if the connection failed or If the SOAP response HTTP code is
+     *         not "OK"
+     * @see SimpleSoapClient#sendSoapRequest(Path)
+     */
+    public String send(String wsOperation, Path requestXml) throws SimpleSoapClientException {
+        return operation(wsOperation).sendSoapRequest(requestXml);
+    }
+
+    /**
+     * Send a SOAP request to {@code wsOperation} from a stream, get the full response XML as string. The stream is not
+     * closed.
+     *
+     * @param wsOperation
+     *         WS operation as represented in WSDL - "Add" for example
+     * @param requestXml
+     *         The stream that contains the SOAP request in XML format.
+     * @return The .xml response as string
+     * @throws SimpleSoapClientException
+     *         If {@code wsOperation} is empty or null, if the connection failed or If the SOAP response HTTP code is
+     *         not "OK"
+     * @see SimpleSoapClient#sendSoapRequest(InputStream)
+     */
+    public String send(String wsOperation, InputStream requestXml) throws SimpleSoapClientException {
+        return operation(wsOperation).sendSoapRequest(requestXml);
+    }
+
+    /**
+     * Send a SOAP request rendered from a template to {@code wsOperation}, get the full response XML as string.
+     *
+     * @param wsOperation
+     *         WS operation as represented in WSDL - "Add" for example
+     * @param template
+     *         The compiled SOAP request template
+     * @param values
+     *         The value of each of the template's placeholders
+     * @return The .xml response as string
+     * @throws SimpleSoapClientException
+     *         If {@code wsOperation} is empty or null, if a placeholder has no value, if the connection failed or If
+     *         the SOAP response HTTP code is not "OK"
+     * @see SimpleSoapClient#sendSoapRequest(SoapEnvelopeTemplate, Map)
+     */
+    public String send(String wsOperation, SoapEnvelopeTemplate template, Map<String, ?> values)
+            throws SimpleSoapClientException {
+        return operation(wsOperation).sendSoapRequest(template, values);
+    }
+
+    /**
+     * Send a SOAP request to {@code wsOperation} asynchronously.
+     *
+     * @param wsOperation
+     *         WS operation as represented in WSDL - "Add" for example
+     * @param requestXml
+     *         The .xml file that contains the SOAP request in XML format.
+     * @return A future of the .xml response as string, completed exceptionally with a {@code SimpleSoapClientException}
+     *         if the request failed
+     * @see SimpleSoapClient#sendSoapRequestAsync(File)
+     */
+    public CompletableFuture<String> sendAsync(String wsOperation, File requestXml) {
+        try {
+            return operation(wsOperation).sendSoapRequestAsync(requestXml);
+        } catch (SimpleSoapClientException e) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * Gets a snapshot of the usage statistics of the {@code ConnectionPool} shared by all operations.
+     *
+     * @return The current {@code ConnectionPoolStatistics}
+     */
+    public ConnectionPoolStatistics getConnectionPoolStatistics() {
+        return connectionPool.getStatistics();
+    }
+
+    /**
+     * Gets a snapshot of the usage statistics of the {@code ResponseCache} shared by all cached operations.
+     *
+     * @return The current {@code ResponseCacheStatistics}, or <b>null</b> if no response cache was set
+     */
+    public ResponseCacheStatistics getResponseCacheStatistics() {
+        return responseCache == null ? null : responseCache.getStatistics();
+    }
+
+    /**
+     * {@code Builder} configures and creates {@code SimpleSoapServiceClient} instances.
+     */
+    public static final class Builder {
+
+        private final SimpleSoapClientImpl.Builder template;
+        private final Map<String, Duration> cachedOperations = new HashMap<>();
+        private ResponseCache responseCache;
+
+        private Builder(SimpleSoapClientImpl.Builder template) {
+            this.template = template;
+        }
+
+        /**
+         * Sets whether connections are kept alive and reused between requests. Enabled by default.
+         * <p>
+         * Ignored if a transport is set with {@link #transport(SoapTransport)}.
+         *
+         * @param keepAlive
+         *         if <b>false</b> - each connection is closed after its response is read
+         * @return This builder
+         */
+        public Builder keepAlive(boolean keepAlive) {
+            template.keepAlive(keepAlive);
+            return this;
+        }
+
+        /**
+         * Sets the {@code SoapTransport} that sends the HTTP exchanges of all operations. By default, each request is
+         * sent over an {@code HttpURLConnection}.
+         *
+         * @param transport
+         *         The transport, like {@link SoapTransport#http2()}
+         * @return This builder
+         * @see SimpleSoapClientImpl.Builder#transport(SoapTransport)
+         */
+        public Builder transport(SoapTransport transport) {
+            template.transport(transport);
+            return this;
+        }
+
+        /**
+         * Sets the maximal number of concurrent connections to the service host, across all operations.
+         * {@link ConnectionPool#DEFAULT_MAX_CONNECTIONS_PER_HOST} by default, which is the number of idle sockets the
+         * JDK keeps alive per host. A higher limit should go with a higher {@code http.maxConnections} system property
+         * (see {@link ConnectionPool}).
+         * <p>
+         * Ignored if a shared pool is set with {@link #connectionPool(ConnectionPool)}.
+         *
+         * @param maxConnectionsPerHost
+         *         The maximal number of concurrent connections, or {@link ConnectionPool#UNBOUNDED}
+         * @return This builder
+         */
+        public Builder maxConnectionsPerHost(int maxConnectionsPerHost) {
+            template.maxConnectionsPerHost(maxConnectionsPerHost);
+            return this;
+        }
+
+        /**
+         * Sets how long a request waits for a free connection when the per-host limit is reached. 30 seconds by
+         * default.
+         * <p>
+         * Ignored if a shared pool is set with {@link #connectionPool(ConnectionPool)}.
+         *
+         * @param connectionAcquireTimeout
+         *         The maximal time to wait for a free connection
+         * @return This builder
+         */
+        public Builder connectionAcquireTimeout(Duration connectionAcquireTimeout) {
+            template.connectionAcquireTimeout(connectionAcquireTimeout);
+            return this;
+        }
+
+        /**
+         * Sets a {@code ConnectionPool} that may be shared with other clients.
+         *
+         * @param connectionPool
+         *         The pool to lease connections from
+         * @return This builder
+         */
+        public Builder connectionPool(ConnectionPool connectionPool) {
+            template.connectionPool(connectionPool);
+            return this;
+        }
+
+        /**
+         * Sets the {@code Executor} that runs asynchronous requests of all operations. By default, the shared pool
+         * of {@code SimpleSoapClientImpl} is used.
+         *
+         * @param executor
+         *         The executor for asynchronous requests
+         * @return This builder
+         */
+        public Builder executor(Executor executor) {
+            template.executor(executor);
+            return this;
+        }
+
+        /**
+         * Sets the kind of threads that run asynchronous and bulk requests. {@link ExecutionMode#PLATFORM_THREADS} by
+         * default.
+         * <p>
+         * Ignored if an executor is set with {@link #executor(Executor)}.
+         *
+         * @param executionMode
+         *         The execution mode
+         * @return This builder
+         */
+        public Builder executionMode(ExecutionMode executionMode) {
+            template.executionMode(executionMode);
+            return this;
+        }
+
+        /**
+         * Sets the {@code ResponseCache} for the operations added with {@link #cacheOperation(String, Duration)}.
+         *
+         * @param responseCache
+         *         The cache to keep responses in
+         * @return This builder
+         */
+        public Builder responseCache(ResponseCache responseCache) {
+            this.responseCache = responseCache;
+            return this;
+        }
+
+        /**
+         * Caches the responses of an idempotent operation. Operations that weren't added are never cached.
+         *
+         * @param wsOperation
+         *         WS operation as represented in WSDL - "Add" for example
+         * @param timeToLive
+         *         How long a response of this operation stays cached
+         * @return This builder
+         */
+        public Builder cacheOperation(String wsOperation, Duration timeToLive) {
+            this.cachedOperations.put(wsOperation, timeToLive);
+            return this;
+        }
+
+        /**
+         * Sets a {@code SoapRequestListener} that is notified when requests to any operation start and end. Not set by
+         * default.
+         *
+         * @param requestListener
+         *         The listener, like a {@link MicrometerSoapRequestListener}
+         * @return This builder
+         */
+        public Builder requestListener(SoapRequestListener requestListener) {
+            template.requestListener(requestListener);
+            return this;
+        }
+
+        /**
+         * Sets how long connecting to the service may take. Not set by default.
+         *
+         * @param connectTimeout
+         *         The maximal time to connect
+         * @return This builder
+         * @see SimpleSoapClientImpl.Builder#connectTimeout(Duration)
+         */
+        public Builder connectTimeout(Duration connectTimeout) {
+            template.connectTimeout(connectTimeout);
+            return this;
+        }
+
+        /**
+         * Sets how long a single read from the connection may block. Not set by default.
+         *
+         * @param readTimeout
+         *         The maximal time to wait for response data
+         * @return This builder
+         * @see SimpleSoapClientImpl.Builder#readTimeout(Duration)
+         */
+        public Builder readTimeout(Duration readTimeout) {
+            template.readTimeout(readTimeout);
+            return this;
+        }
+
+        /**
+         * Sets a deadline for each whole request, including all of its attempts. Not set by default.
+         *
+         * @param requestTimeout
+         *         The maximal time a request may take
+         * @return This builder
+         * @see SimpleSoapClientImpl.Builder#requestTimeout(Duration)
+         */
+        public Builder requestTimeout(Duration requestTimeout) {
+            template.requestTimeout(requestTimeout);
+            return this;
+        }
+
+        /**
+         * Sets the {@code RetryPolicy} of all operations. {@link RetryPolicy#none()} by default.
+         *
+         * @param retryPolicy
+         *         The retry policy
+         * @return This builder
+         */
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+            template.retryPolicy(retryPolicy);
+            return this;
+        }
+
+        /**
+         * Sets a {@code CircuitBreaker} for the service. All operations share the service's circuit, so failures of
+         * one operation fail the others fast too. Not set by default.
+         *
+         * @param circuitBreaker
+         *         The circuit breaker
+         * @return This builder
+         */
+        public Builder circuitBreaker(CircuitBreaker circuitBreaker) {
+            template.circuitBreaker(circuitBreaker);
+            return this;
+        }
+
+        /**
+         * Sets whether the service may compress responses. Enabled by default.
+         *
+         * @param acceptCompressedResponses
+         *         if <b>false</b> - no "Accept-Encoding" header is sent
+         * @return This builder
+         * @see SimpleSoapClientImpl.Builder#acceptCompressedResponses(boolean)
+         */
+        public Builder acceptCompressedResponses(boolean acceptCompressedResponses) {
+            template.acceptCompressedResponses(acceptCompressedResponses);
+            return this;
+        }
+
+        /**
+         * Compresses request bodies of at least {@code thresholdBytes} bytes, to all operations. Disabled by default.
+         *
+         * @param encoding
+         *         The coding to compress with, or <b>null</b> to send bodies uncompressed
+         * @param thresholdBytes
+         *         The minimal size of a body that is compressed
+         * @return This builder
+         * @see SimpleSoapClientImpl.Builder#requestCompression(ContentEncoding, long)
+         */
+        public Builder requestCompression(ContentEncoding encoding, long thresholdBytes) {
+            template.requestCompression(encoding, thresholdBytes);
+            return this;
+        }
+
+        /**
+         * Sets the maximal number of bytes read from the body of an unsuccessful response. 64 KB by default.
+         *
+         * @param maxErrorBodySize
+         *         The maximal number of error body bytes, or 0 to not read error bodies at all
+         * @return This builder
+         * @see SimpleSoapClientImpl.Builder#maxErrorBodySize(int)
+         */
+        public Builder maxErrorBodySize(int maxErrorBodySize) {
+            template.maxErrorBodySize(maxErrorBodySize);
+            return this;
+        }
+
+        /**
+         * Creates the configured {@code SimpleSoapServiceClient}.
+         *
+         * @return A new {@code SimpleSoapServiceClient}
+         * @throws SimpleSoapClientException
+         *         If the service URL or namespace URI is empty or null
+         * @throws IllegalArgumentException
+         *         If the connection pool, timeout, retry, compression or error body settings are invalid, or operations
+         *         are cached without a response cache
+         * @throws UnsupportedOperationException
+         *         If {@link ExecutionMode#VIRTUAL_THREADS} is set on a JVM older than Java 21
+         */
+        public SimpleSoapServiceClient build() throws SimpleSoapClientException {
+            return new SimpleSoapServiceClient(this);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.yevgenyk.simplesoapclient;
+
+/**
+ * {@code SoapBatchError} is the failure of a single request of a batch run by {@code SoapBatchExecutor}.
+ *
+ * @param <I>
+ *         The type of the batch's items
+ */
+public final class SoapBatchError<I> {
+
+    private final long index;
+    private final I item;
+    private final Exception exception;
+
+    SoapBatchError(long index, I item, Exception exception) {
+        this.index = index;
+        this.item = item;
+        this.exception = exception;
+    }
+
+    /**
+     * @return The position of the item in the batch, starting at 0
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The item the request was sent for
+     */
+    public I getItem() {
+        return item;
+    }
+
+    /**
+     * @return The exception the request failed with
+     */
+    public Exception getException() {
+        return exception;
+    }
+}
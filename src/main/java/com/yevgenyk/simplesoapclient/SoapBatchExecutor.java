@@ -0,0 +1,364 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * {@code SoapBatchExecutor} sends a large batch of requests through a {@code SimpleSoapClient}, with bounded
+ * concurrency and an optional rate limit.
+ * <p>
+ * Items are pulled from the batch's iterator (or stream) only when a request slot is free, so a batch of any size is
+ * never loaded up front. Results are delivered in the order of the items, or as they complete (see
+ * {@link Builder#ordered(boolean)}), and failed requests are delivered to a separate error consumer instead of
+ * stopping the batch. Both consumers are called by the thread that runs the batch, one at a time, so they don't have
+ * to be thread-safe. In ordered mode, results that completed early are held until the results before them are
+ * delivered, and they take up request slots until then, which bounds the memory used.
+ * <p>
+ * A {@code SoapBatchExecutor} is immutable and can run several batches, one after the other or concurrently.
+ */
+public class SoapBatchExecutor {
+
+    private final SimpleSoapClient client;
+    private final int maxConcurrency;
+    private final long intervalNanos;
+    private final boolean ordered;
+    private final Executor executor;
+
+    private SoapBatchExecutor(Builder builder) {
+        if (builder.client == null) {
+            throw new IllegalArgumentException("Client is required to run a batch");
+        }
+        if (builder.maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Max concurrency must be positive");
+        }
+        if (builder.requestsPerSecond < 0 || Double.isNaN(builder.requestsPerSecond)) {
+            throw new IllegalArgumentException("Rate limit must not be negative");
+        }
+        this.client = builder.client;
+        this.maxConcurrency = builder.maxConcurrency;
+        this.intervalNanos = builder.requestsPerSecond == 0 ? 0 : (long) (1e9 / builder.requestsPerSecond);
+        this.ordered = builder.ordered;
+        this.executor = builder.executor;
+    }
+
+    /**
+     * Creates a {@code Builder} for a {@code SoapBatchExecutor}.
+     *
+     * @param client
+     *         The client that sends the requests
+     * @return A new {@code Builder}
+     */
+    public static Builder builder(SimpleSoapClient client) {
+        return new Builder(client);
+    }
+
+    /**
+     * Runs a batch, and blocks until all of its requests completed and their results were delivered.
+     *
+     * @param items
+     *         The items to send, pulled only when a request slot is free
+     * @param sender
+     *         Sends the request of an item, for example {@code (client, file) -> client.sendSoapRequest(file)}
+     * @param results
+     *         Receives the response of each successful request
+     * @param errors
+     *         Receives the exception of each failed request. An {@code Error} thrown by {@code sender} is delivered
+     *         as the cause of a {@code SimpleSoapClientException}, and rethrown on the thread that sent the request
+     * @param <I>
+     *         The type of the batch's items
+     * @return The batch's throughput and latency summary
+     * @throws SimpleSoapClientException
+     *         If the calling thread was interrupted, in which case no more items are sent and the results of requests
+     *         in flight are dropped
+     */
+    public <I> SoapBatchReport execute(Iterator<? extends I> items, RequestSender<I> sender,
+                                       Consumer<? super SoapBatchResult<I>> results,
+                                       Consumer<? super SoapBatchError<I>> errors) throws SimpleSoapClientException {
+        ExecutorService ownExecutor = executor == null
+                ? Executors.newFixedThreadPool(maxConcurrency, batchThreadFactory()) : null;
+        try {
+            return new Run<>(ownExecutor != null ? ownExecutor : executor, items, sender, results, errors).run();
+        } finally {
+            if (ownExecutor != null) {
+                ownExecutor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Runs a batch from a stream, and blocks until all of its requests completed and their results were delivered.
+     * The stream is consumed lazily and closed at the end.
+     *
+     * @param items
+     *         The items to send
+     * @param sender
+     *         Sends the request of an item, for example {@code (client, file) -> client.sendSoapRequest(file)}
+     * @param results
+     *         Receives the response of each successful request
+     * @param errors
+     *         Receives the exception of each failed request
+     * @param <I>
+     *         The type of the batch's items
+     * @return The batch's throughput and latency summary
+     * @throws SimpleSoapClientException
+     *         If the calling thread was interrupted
+     * @see #execute(Iterator, RequestSender, Consumer, Consumer)
+     */
+    public <I> SoapBatchReport execute(Stream<? extends I> items, RequestSender<I> sender,
+                                       Consumer<? super SoapBatchResult<I>> results,
+                                       Consumer<? super SoapBatchError<I>> errors) throws SimpleSoapClientException {
+        try (Stream<? extends I> stream = items) {
+            return execute(stream.iterator(), sender, results, errors);
+        }
+    }
+
+    private static ThreadFactory batchThreadFactory() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable,
+                    String.format("simple-soap-client-batch-%d", threadNumber.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Sends the request of a single batch item.
+     *
+     * @param <I>
+     *         The type of the batch's items
+     */
+    @FunctionalInterface
+    public interface RequestSender<I> {
+
+        /**
+         * Sends the request of {@code item}.
+         *
+         * @param client
+         *         The batch's client
+         * @param item
+         *         The item to send
+         * @return The .xml response as string
+         * @throws SimpleSoapClientException
+         *         If the request failed
+         */
+        String send(SimpleSoapClient client, I item) throws SimpleSoapClientException;
+    }
+
+    /**
+     * The state of a single batch, confined to the thread that runs it except for the completion queue.
+     */
+    private final class Run<I> {
+
+        private final Executor runExecutor;
+        private final Iterator<? extends I> items;
+        private final RequestSender<I> sender;
+        private final Consumer<? super SoapBatchResult<I>> results;
+        private final Consumer<? super SoapBatchError<I>> errors;
+        private final BlockingQueue<Completion<I>> completions = new LinkedBlockingQueue<>();
+        private final Map<Long, Completion<I>> heldCompletions = new HashMap<>();
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private long nextIndex;
+        private long nextIndexToDeliver;
+        private int usedSlots;
+        private long nextPermitNanos;
+        private long succeeded;
+        private long failed;
+
+        Run(Executor runExecutor, Iterator<? extends I> items, RequestSender<I> sender,
+            Consumer<? super SoapBatchResult<I>> results, Consumer<? super SoapBatchError<I>> errors) {
+            this.runExecutor = runExecutor;
+            this.items = items;
+            this.sender = sender;
+            this.results = results;
+            this.errors = errors;
+        }
+
+        SoapBatchReport run() throws SimpleSoapClientException {
+            long startNanos = System.nanoTime();
+            nextPermitNanos = startNanos;
+            try {
+                while (true) {
+                    while (usedSlots < maxConcurrency && items.hasNext()) {
+                        awaitPermit();
+                        submit(nextIndex++, items.next());
+                    }
+                    if (usedSlots == 0) {
+                        break;
+                    }
+                    Completion<I> completion = completions.take();
+                    if (ordered) {
+                        heldCompletions.put(completion.index, completion);
+                        while ((completion = heldCompletions.remove(nextIndexToDeliver)) != null) {
+                            nextIndexToDeliver++;
+                            deliver(completion);
+                        }
+                    } else {
+                        deliver(completion);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SimpleSoapClientException("Interrupted while running SOAP request batch", e);
+            }
+            return new SoapBatchReport(succeeded, failed, System.nanoTime() - startNanos, latencies);
+        }
+
+        private void awaitPermit() throws InterruptedException {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long waitNanos = nextPermitNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+            nextPermitNanos = Math.max(nextPermitNanos, System.nanoTime()) + intervalNanos;
+        }
+
+        private void submit(long index, I item) {
+            usedSlots++;
+            try {
+                runExecutor.execute(() -> {
+                    long startNanos = System.nanoTime();
+                    try {
+                        String response = sender.send(client, item);
+                        completions.add(new Completion<>(index, item, response, null,
+                                System.nanoTime() - startNanos));
+                    } catch (Exception e) {
+                        completions.add(new Completion<>(index, item, null, e, System.nanoTime() - startNanos));
+                    } catch (Error e) {
+                        // Without a completion the slot would never be freed, and run() would wait for it forever
+                        completions.add(new Completion<>(index, item, null,
+                                new SimpleSoapClientException("SOAP request failed with an error", e),
+                                System.nanoTime() - startNanos));
+                        throw e;
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                completions.add(new Completion<>(index, item, null,
+                        new SimpleSoapClientException("Couldn't schedule SOAP request", e), 0));
+            }
+        }
+
+        private void deliver(Completion<I> completion) {
+            usedSlots--;
+            latencies.record(completion.latencyNanos);
+            if (completion.exception == null) {
+                succeeded++;
+                results.accept(new SoapBatchResult<>(completion.index, completion.item, completion.response,
+                        completion.latencyNanos));
+            } else {
+                failed++;
+                errors.accept(new SoapBatchError<>(completion.index, completion.item, completion.exception));
+            }
+        }
+    }
+
+    private static final class Completion<I> {
+
+        private final long index;
+        private final I item;
+        private final String response;
+        private final Exception exception;
+        private final long latencyNanos;
+
+        Completion(long index, I item, String response, Exception exception, long latencyNanos) {
+            this.index = index;
+            this.item = item;
+            this.response = response;
+            this.exception = exception;
+            this.latencyNanos = latencyNanos;
+        }
+    }
+
+    /**
+     * {@code Builder} configures and creates {@code SoapBatchExecutor} instances.
+     */
+    public static final class Builder {
+
+        private final SimpleSoapClient client;
+        private int maxConcurrency = 16;
+        private double requestsPerSecond;
+        private boolean ordered = true;
+        private Executor executor;
+
+        private Builder(SimpleSoapClient client) {
+            this.client = client;
+        }
+
+        /**
+         * Sets the maximal number of requests in flight (and, in ordered mode, results held for delivery). 16 by
+         * default.
+         *
+         * @param maxConcurrency
+         *         The maximal number of concurrent requests
+         * @return This builder
+         */
+        public Builder maxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * Sets the maximal rate at which requests are started. Unlimited by default.
+         *
+         * @param requestsPerSecond
+         *         The maximal number of requests started per second, or 0 for no limit
+         * @return This builder
+         */
+        public Builder rateLimit(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+            return this;
+        }
+
+        /**
+         * Sets whether results are delivered in the order of the items, or as soon as they complete. Ordered by
+         * default.
+         *
+         * @param ordered
+         *         if <b>false</b> - results are delivered in completion order
+         * @return This builder
+         */
+        public Builder ordered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        /**
+         * Sets the {@code Executor} that sends the requests. By default, each batch creates a pool of
+         * {@code maxConcurrency} daemon threads, and shuts it down when it ends. Batches that run often can share a
+         * pool instead (or, on Java 21 or newer, use a virtual thread per request).
+         *
+         * @param executor
+         *         The executor that sends the requests
+         * @return This builder
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Creates the configured {@code SoapBatchExecutor}.
+         *
+         * @return A new {@code SoapBatchExecutor}
+         * @throws IllegalArgumentException
+         *         If the client is missing, the max concurrency is not positive or the rate limit is negative
+         */
+        public SoapBatchExecutor build() {
+            return new SoapBatchExecutor(this);
+        }
+    }
+}
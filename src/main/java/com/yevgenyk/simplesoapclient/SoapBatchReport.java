@@ -0,0 +1,119 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.time.Duration;
+
+/**
+ * {@code SoapBatchReport} is an immutable summary of a batch run by {@code SoapBatchExecutor}.
+ * <p>
+ * Latencies cover both successful and failed requests. Percentiles are approximate, to within about 6%.
+ */
+public final class SoapBatchReport {
+
+    private final long succeeded;
+    private final long failed;
+    private final long elapsedNanos;
+    private final long minLatencyNanos;
+    private final long meanLatencyNanos;
+    private final long p50LatencyNanos;
+    private final long p90LatencyNanos;
+    private final long p99LatencyNanos;
+    private final long maxLatencyNanos;
+
+    SoapBatchReport(long succeeded, long failed, long elapsedNanos, LatencyHistogram latencies) {
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.elapsedNanos = elapsedNanos;
+        this.minLatencyNanos = latencies.getMin();
+        this.meanLatencyNanos = latencies.getMean();
+        this.p50LatencyNanos = latencies.getPercentile(50);
+        this.p90LatencyNanos = latencies.getPercentile(90);
+        this.p99LatencyNanos = latencies.getPercentile(99);
+        this.maxLatencyNanos = latencies.getMax();
+    }
+
+    /**
+     * @return The number of requests that were sent
+     */
+    public long getTotal() {
+        return succeeded + failed;
+    }
+
+    /**
+     * @return The number of requests that succeeded
+     */
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * @return The number of requests that failed
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return The time from the start of the batch until its last result was delivered
+     */
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    /**
+     * @return The number of requests completed per second
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : getTotal() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return The shortest request latency
+     */
+    public Duration getMinLatency() {
+        return Duration.ofNanos(minLatencyNanos);
+    }
+
+    /**
+     * @return The mean request latency
+     */
+    public Duration getMeanLatency() {
+        return Duration.ofNanos(meanLatencyNanos);
+    }
+
+    /**
+     * @return The median request latency
+     */
+    public Duration getP50Latency() {
+        return Duration.ofNanos(p50LatencyNanos);
+    }
+
+    /**
+     * @return The 90th percentile of request latency
+     */
+    public Duration getP90Latency() {
+        return Duration.ofNanos(p90LatencyNanos);
+    }
+
+    /**
+     * @return The 99th percentile of request latency
+     */
+    public Duration getP99Latency() {
+        return Duration.ofNanos(p99LatencyNanos);
+    }
+
+    /**
+     * @return The longest request latency
+     */
+    public Duration getMaxLatency() {
+        return Duration.ofNanos(maxLatencyNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SoapBatchReport{total=%d, succeeded=%d, failed=%d, elapsed=%d ms, " +
+                        "throughput=%.1f/s, latency min=%.3f ms, mean=%.3f ms, p50=%.3f ms, p90=%.3f ms, " +
+                        "p99=%.3f ms, max=%.3f ms}", getTotal(), succeeded, failed, elapsedNanos / 1_000_000,
+                getThroughput(), minLatencyNanos / 1e6, meanLatencyNanos / 1e6, p50LatencyNanos / 1e6,
+                p90LatencyNanos / 1e6, p99LatencyNanos / 1e6, maxLatencyNanos / 1e6);
+    }
+}
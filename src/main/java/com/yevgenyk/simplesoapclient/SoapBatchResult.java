@@ -0,0 +1,50 @@
+package com.yevgenyk.simplesoapclient;
+
+/**
+ * {@code SoapBatchResult} is the response to a single request of a batch run by {@code SoapBatchExecutor}.
+ *
+ * @param <I>
+ *         The type of the batch's items
+ */
+public final class SoapBatchResult<I> {
+
+    private final long index;
+    private final I item;
+    private final String response;
+    private final long latencyNanos;
+
+    SoapBatchResult(long index, I item, String response, long latencyNanos) {
+        this.index = index;
+        this.item = item;
+        this.response = response;
+        this.latencyNanos = latencyNanos;
+    }
+
+    /**
+     * @return The position of the item in the batch, starting at 0
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The item the request was sent for
+     */
+    public I getItem() {
+        return item;
+    }
+
+    /**
+     * @return The .xml response as string
+     */
+    public String getResponse() {
+        return response;
+    }
+
+    /**
+     * @return The time it took to send the request and read its response, in nanoseconds
+     */
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+}
@@ -0,0 +1,120 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@code SoapClientDefaults} holds the building blocks of the default methods of {@code SimpleSoapClient}, which are
+ * all built on {@link SimpleSoapClient#sendSoapRequest(File)}.
+ */
+final class SoapClientDefaults {
+
+    private static final String CONTENT_TYPE = "text/xml; charset=utf-8";
+
+    private SoapClientDefaults() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Writes a request into a temporary file, sends it, and deletes the file.
+     */
+    static String sendSpooled(SimpleSoapClient client, RequestWriter requestWriter) throws SimpleSoapClientException {
+        Path requestXml;
+        try {
+            requestXml = Files.createTempFile("simple-soap-client-", ".xml");
+        } catch (IOException e) {
+            throw new SimpleSoapClientException("Couldn't create a temporary file for SOAP request", e);
+        }
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(requestXml)) {
+                requestWriter.writeTo(outputStream);
+            } catch (IOException e) {
+                throw new SimpleSoapClientException("Couldn't write SOAP request to a temporary file", e);
+            }
+            return client.sendSoapRequest(requestXml.toFile());
+        } finally {
+            try {
+                Files.deleteIfExists(requestXml);
+            } catch (IOException e) {
+                // The file is left in the temporary directory
+            }
+        }
+    }
+
+    /**
+     * Wraps a response that was already read as a string into a {@code SoapResponse}.
+     */
+    static SoapResponse response(String responseXml) {
+        byte[] body = responseXml.getBytes(StandardCharsets.UTF_8);
+        return new SoapResponse(new ByteArrayInputStream(body), CONTENT_TYPE, body.length, () -> {
+        });
+    }
+
+    /**
+     * Sends a request on the common fork-join pool. The timeout completes the future, but can't abort the request,
+     * which keeps its thread until it returns.
+     */
+    static CompletableFuture<String> sendAsync(Request request, Duration timeout) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        if (timeout != null) {
+            ScheduledFuture<?> timeoutTask = Timeouts.SCHEDULER.schedule(() -> future.completeExceptionally(
+                    new SimpleSoapClientException(String.format("SOAP request timed out after %d ms",
+                            timeout.toMillis()), new TimeoutException())), timeout.toNanos(), TimeUnit.NANOSECONDS);
+            future.whenComplete((response, throwable) -> timeoutTask.cancel(false));
+        }
+        ForkJoinPool.commonPool().execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(request.send());
+            } catch (SimpleSoapClientException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * {@code RequestWriter} writes a request body.
+     */
+    @FunctionalInterface
+    interface RequestWriter {
+
+        void writeTo(OutputStream outputStream) throws IOException, SimpleSoapClientException;
+    }
+
+    /**
+     * {@code Request} sends a request and returns its response.
+     */
+    @FunctionalInterface
+    interface Request {
+
+        String send() throws SimpleSoapClientException;
+    }
+
+    /**
+     * The thread that times out asynchronous requests of the default methods, created on first use.
+     */
+    private static final class Timeouts {
+
+        static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "simple-soap-client-default-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@code SoapElement} sets the element name of a field of a {@link SoapMessage} class, when it's not the field name.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface SoapElement {
+
+    /**
+     * @return The local name of the field's element
+     */
+    String name();
+}
@@ -0,0 +1,250 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code SoapEnvelopeTemplate} is a compiled SOAP request with placeholders, that is rendered straight into the
+ * request stream.
+ * <p>
+ * A template is a request XML (like one generated from the service's WSDL) with "${name}" placeholders where values
+ * go, for example {@code <intA>${a}</intA>}. It's compiled once into UTF-8 encoded fragments, and each request writes
+ * the fragments and the XML-escaped values to the connection, without building a string, a DOM or a file. The length
+ * of a rendered request is computed beforehand, so it's sent with a fixed content length.
+ * <p>
+ * Templates are immutable and can be shared by any number of concurrent threads.
+ */
+public final class SoapEnvelopeTemplate {
+
+    private static final String PLACEHOLDER_START = "${";
+    private static final String PLACEHOLDER_END = "}";
+    private static final int BUFFER_SIZE = 512;
+
+    private final byte[][] fragments;
+    private final String[] placeholders;
+    private final long fragmentsLength;
+    private final Set<String> placeholderNames;
+
+    private SoapEnvelopeTemplate(List<byte[]> fragments, List<String> placeholders) {
+        this.fragments = fragments.toArray(new byte[0][]);
+        this.placeholders = placeholders.toArray(new String[0]);
+        long length = 0;
+        for (byte[] fragment : fragments) {
+            length += fragment.length;
+        }
+        this.fragmentsLength = length;
+        this.placeholderNames = Collections.unmodifiableSet(new LinkedHashSet<>(placeholders));
+    }
+
+    /**
+     * Compiles a template.
+     *
+     * @param template
+     *         The request XML, with "${name}" placeholders
+     * @return The compiled template
+     * @throws IllegalArgumentException
+     *         If a placeholder is not closed or has no name
+     */
+    public static SoapEnvelopeTemplate compile(String template) {
+        List<byte[]> fragments = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int position = 0;
+        int placeholderStart;
+        while ((placeholderStart = template.indexOf(PLACEHOLDER_START, position)) != -1) {
+            int placeholderEnd = template.indexOf(PLACEHOLDER_END, placeholderStart + PLACEHOLDER_START.length());
+            if (placeholderEnd == -1) {
+                throw new IllegalArgumentException(
+                        String.format("Unclosed placeholder at index %d of template", placeholderStart));
+            }
+            String name = template.substring(placeholderStart + PLACEHOLDER_START.length(), placeholderEnd).trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException(
+                        String.format("Placeholder at index %d of template has no name", placeholderStart));
+            }
+            fragments.add(template.substring(position, placeholderStart).getBytes(StandardCharsets.UTF_8));
+            placeholders.add(name);
+            position = placeholderEnd + PLACEHOLDER_END.length();
+        }
+        fragments.add(template.substring(position).getBytes(StandardCharsets.UTF_8));
+        return new SoapEnvelopeTemplate(fragments, placeholders);
+    }
+
+    /**
+     * Compiles a template from a UTF-8 encoded file.
+     *
+     * @param template
+     *         The request XML file, with "${name}" placeholders
+     * @return The compiled template
+     * @throws IOException
+     *         If the file couldn't be read
+     * @throws IllegalArgumentException
+     *         If a placeholder is not closed or has no name
+     */
+    public static SoapEnvelopeTemplate compile(Path template) throws IOException {
+        return compile(new String(Files.readAllBytes(template), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return The names of this template's placeholders, in order of first appearance
+     */
+    public Set<String> getPlaceholders() {
+        return placeholderNames;
+    }
+
+    /**
+     * Computes the length of the rendered request, without rendering it.
+     *
+     * @param values
+     *         The value of each placeholder
+     * @return The number of bytes {@link #writeTo(OutputStream, Map)} writes with the same values
+     * @throws IllegalArgumentException
+     *         If a placeholder has no value
+     */
+    public long contentLength(Map<String, ?> values) {
+        long length = fragmentsLength;
+        for (String placeholder : placeholders) {
+            CharSequence value = value(values, placeholder);
+            for (int i = 0; i < value.length(); i++) {
+                length += encodedLength(value, i);
+                if (Character.isHighSurrogate(value.charAt(i)) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    i++;
+                }
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Renders the request into {@code outputStream}, with the values XML-escaped and UTF-8 encoded. The stream is not
+     * closed.
+     *
+     * @param outputStream
+     *         The stream to write the request to
+     * @param values
+     *         The value of each placeholder. Values that are not a {@code CharSequence} are converted with
+     *         {@code toString()}
+     * @throws IOException
+     *         If an I/O error occurs
+     * @throws IllegalArgumentException
+     *         If a placeholder has no value
+     */
+    public void writeTo(OutputStream outputStream, Map<String, ?> values) throws IOException {
+        byte[] buffer = null;
+        for (int i = 0; i < placeholders.length; i++) {
+            outputStream.write(fragments[i]);
+            CharSequence value = value(values, placeholders[i]);
+            if (value.length() > 0) {
+                if (buffer == null) {
+                    buffer = new byte[BUFFER_SIZE];
+                }
+                writeEscaped(outputStream, value, buffer);
+            }
+        }
+        outputStream.write(fragments[placeholders.length]);
+    }
+
+    private static CharSequence value(Map<String, ?> values, String placeholder) {
+        Object value = values.get(placeholder);
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("No value for placeholder \"%s\"", placeholder));
+        }
+        return value instanceof CharSequence ? (CharSequence) value : value.toString();
+    }
+
+    /**
+     * Gets the number of bytes the character at {@code index} takes once escaped and encoded. A surrogate pair is
+     * counted at its high surrogate.
+     */
+    private static int encodedLength(CharSequence value, int index) {
+        char c = value.charAt(index);
+        switch (c) {
+            case '&':
+                return 5; // &amp;
+            case '<':
+            case '>':
+                return 4; // &lt; &gt;
+            case '"':
+            case '\'':
+                return 6; // &quot; &apos;
+            default:
+                if (c < 0x80) {
+                    return 1;
+                } else if (c < 0x800) {
+                    return 2;
+                } else if (Character.isHighSurrogate(c) && index + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(index + 1))) {
+                    return 4;
+                } else if (Character.isSurrogate(c)) {
+                    return 1; // Encoded as '?', like String.getBytes does
+                }
+                return 3;
+        }
+    }
+
+    private static void writeEscaped(OutputStream outputStream, CharSequence value, byte[] buffer)
+            throws IOException {
+        int position = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (position > buffer.length - 6) {
+                outputStream.write(buffer, 0, position);
+                position = 0;
+            }
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    position = put(buffer, position, "&amp;");
+                    break;
+                case '<':
+                    position = put(buffer, position, "&lt;");
+                    break;
+                case '>':
+                    position = put(buffer, position, "&gt;");
+                    break;
+                case '"':
+                    position = put(buffer, position, "&quot;");
+                    break;
+                case '\'':
+                    position = put(buffer, position, "&apos;");
+                    break;
+                default:
+                    if (c < 0x80) {
+                        buffer[position++] = (byte) c;
+                    } else if (c < 0x800) {
+                        buffer[position++] = (byte) (0xC0 | (c >> 6));
+                        buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                    } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                            && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                        buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                        buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                        buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                        buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                    } else if (Character.isSurrogate(c)) {
+                        buffer[position++] = '?';
+                    } else {
+                        buffer[position++] = (byte) (0xE0 | (c >> 12));
+                        buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                        buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                    }
+            }
+        }
+        outputStream.write(buffer, 0, position);
+    }
+
+    private static int put(byte[] buffer, int position, String entity) {
+        for (int i = 0; i < entity.length(); i++) {
+            buffer[position++] = (byte) entity.charAt(i);
+        }
+        return position;
+    }
+}
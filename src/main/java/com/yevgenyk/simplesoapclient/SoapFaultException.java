@@ -0,0 +1,132 @@
+package com.yevgenyk.simplesoapclient;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+
+/**
+ * {@code SoapFaultException} is thrown when the service answers a SOAP request with a SOAP Fault.
+ * <p>
+ * Both SOAP 1.1 ("faultcode", "faultstring" and "faultactor") and SOAP 1.2 ("Code/Value", "Reason/Text" and "Role")
+ * faults are supported. The fault is parsed with a streaming parser that stops at the end of the Fault element, so a
+ * fault is recognized even if the error body was truncated after it.
+ */
+public class SoapFaultException extends SoapHttpException {
+
+    private static final String SOAP_11_ENVELOPE_NAMESPACE = "http://schemas.xmlsoap.org/soap/envelope/";
+    private static final String SOAP_12_ENVELOPE_NAMESPACE = "http://www.w3.org/2003/05/soap-envelope";
+
+    private final String faultCode;
+    private final String faultString;
+    private final String faultActor;
+
+    SoapFaultException(int statusCode, String statusMessage, String errorBody, boolean errorBodyTruncated,
+                       String faultCode, String faultString, String faultActor) {
+        super(statusCode, statusMessage, errorBody, errorBodyTruncated);
+        this.faultCode = faultCode;
+        this.faultString = faultString;
+        this.faultActor = faultActor;
+    }
+
+    /**
+     * Parses an error body for a SOAP Fault.
+     *
+     * @return The fault's exception, or <b>null</b> if the body has no SOAP Fault (like an HTML error page)
+     */
+    static SoapFaultException parse(int statusCode, String statusMessage, String errorBody, boolean errorBodyTruncated,
+                                    byte[] bytes, int length, Charset charset) {
+        String faultCode = null;
+        String faultString = null;
+        String faultActor = null;
+        boolean inFault = false;
+        try {
+            XMLStreamReader reader = XmlUtilities.newXmlStreamReader(new ByteArrayInputStream(bytes, 0, length),
+                    charset.name());
+            try {
+                int depth = 0;
+                int faultDepth = 0;
+                String faultChild = null;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        String name = reader.getLocalName();
+                        if (!inFault) {
+                            if (name.equals("Fault") && isEnvelopeNamespace(reader.getNamespaceURI())) {
+                                inFault = true;
+                                faultDepth = depth;
+                            }
+                        } else if (depth == faultDepth + 1) {
+                            faultChild = name;
+                            if (name.equals("faultcode")) {
+                                faultCode = elementText(reader);
+                                depth--;
+                            } else if (name.equals("faultstring")) {
+                                faultString = elementText(reader);
+                                depth--;
+                            } else if (name.equals("faultactor") || name.equals("Role")) {
+                                faultActor = elementText(reader);
+                                depth--;
+                            }
+                        } else if (depth == faultDepth + 2 && faultCode == null && "Code".equals(faultChild)
+                                && name.equals("Value")) {
+                            faultCode = elementText(reader);
+                            depth--;
+                        } else if (depth == faultDepth + 2 && faultString == null && "Reason".equals(faultChild)
+                                && name.equals("Text")) {
+                            faultString = elementText(reader);
+                            depth--;
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (inFault && depth == faultDepth) {
+                            break;
+                        }
+                        depth--;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            // A truncated or malformed body, which may still have had a complete fault code or string
+        }
+        if (!inFault || (faultCode == null && faultString == null)) {
+            return null;
+        }
+        return new SoapFaultException(statusCode, statusMessage, errorBody, errorBodyTruncated, faultCode, faultString,
+                faultActor);
+    }
+
+    private static boolean isEnvelopeNamespace(String namespaceUri) {
+        return SOAP_11_ENVELOPE_NAMESPACE.equals(namespaceUri) || SOAP_12_ENVELOPE_NAMESPACE.equals(namespaceUri);
+    }
+
+    private static String elementText(XMLStreamReader reader) throws XMLStreamException {
+        return reader.getElementText().trim();
+    }
+
+    /**
+     * @return The fault code, like "soap:Client" ("Code/Value" in SOAP 1.2), or <b>null</b> if the fault has none
+     */
+    public String getFaultCode() {
+        return faultCode;
+    }
+
+    /**
+     * @return The fault string, a human-readable explanation ("Reason/Text" in SOAP 1.2), or <b>null</b> if the fault
+     *         has none
+     */
+    public String getFaultString() {
+        return faultString;
+    }
+
+    /**
+     * @return The fault actor, the URI of the node that caused the fault ("Role" in SOAP 1.2), or <b>null</b> if the
+     *         fault has none
+     */
+    public String getFaultActor() {
+        return faultActor;
+    }
+}
@@ -0,0 +1,112 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * {@code SoapHttpException} is thrown when the service answers a SOAP request with an unsuccessful (non-2xx) HTTP
+ * status.
+ * <p>
+ * The error body is read incrementally and only up to a limit (see
+ * {@link SimpleSoapClientImpl.Builder#maxErrorBodySize(int)}), so a server that returns a huge error page can't
+ * inflate the heap or the logs. The rest of the body is never read. If the body is a SOAP Fault, a
+ * {@link SoapFaultException} is thrown instead.
+ */
+public class SoapHttpException extends SimpleSoapClientException {
+
+    private final int statusCode;
+    private final String statusMessage;
+    private final String errorBody;
+    private final boolean errorBodyTruncated;
+
+    SoapHttpException(int statusCode, String statusMessage, String errorBody, boolean errorBodyTruncated) {
+        super(message(statusCode, statusMessage, errorBody, errorBodyTruncated));
+        this.statusCode = statusCode;
+        this.statusMessage = statusMessage;
+        this.errorBody = errorBody;
+        this.errorBodyTruncated = errorBodyTruncated;
+    }
+
+    /**
+     * Creates the exception of an unsuccessful response, reading at most {@code maxErrorBodySize} bytes of its body
+     * and parsing it for a SOAP Fault.
+     *
+     * @param statusCode
+     *         The HTTP status code of the response
+     * @param statusMessage
+     *         The HTTP status message of the response, or <b>null</b> if there is none
+     * @param contentType
+     *         The value of the response "Content-Type" header, or <b>null</b> if it's missing
+     * @param errorStream
+     *         The decompressed error body, or <b>null</b> if there is none. It's not closed
+     * @param maxErrorBodySize
+     *         The maximal number of bytes to read from {@code errorStream}
+     * @return A {@code SoapFaultException} if the body is a SOAP Fault, or a {@code SoapHttpException} otherwise
+     * @throws IOException
+     *         If the error body couldn't be read
+     */
+    static SoapHttpException of(int statusCode, String statusMessage, String contentType, InputStream errorStream,
+                                int maxErrorBodySize) throws IOException {
+        if (errorStream == null || maxErrorBodySize == 0) {
+            return new SoapHttpException(statusCode, statusMessage, null, false);
+        }
+        // One byte more than the limit is read, to tell a body of exactly the limit from a truncated one
+        long limit = (long) maxErrorBodySize + 1;
+        ByteArrayOutputStream body = new ByteArrayOutputStream((int) Math.min(limit, RequestBody.BUFFER_SIZE));
+        byte[] buffer = new byte[(int) Math.min(limit, RequestBody.BUFFER_SIZE)];
+        int read;
+        while (body.size() < limit
+                && (read = errorStream.read(buffer, 0, (int) Math.min(buffer.length, limit - body.size()))) != -1) {
+            body.write(buffer, 0, read);
+        }
+        boolean truncated = body.size() > maxErrorBodySize;
+        byte[] bytes = body.toByteArray();
+        int length = truncated ? maxErrorBodySize : bytes.length;
+        Charset charset = SoapResponse.charsetOf(contentType);
+        String errorBody = new String(bytes, 0, length, charset);
+        SoapFaultException faultException = SoapFaultException.parse(statusCode, statusMessage, errorBody,
+                truncated, bytes, length, charset);
+        return faultException != null ? faultException
+                : new SoapHttpException(statusCode, statusMessage, errorBody, truncated);
+    }
+
+    private static String message(int statusCode, String statusMessage, String errorBody, boolean truncated) {
+        String message = String.format("HTTP response was \"%s\"",
+                statusMessage == null || statusMessage.isEmpty() ? String.valueOf(statusCode) : statusMessage);
+        if (errorBody != null) {
+            message += String.format(". Server returned:\n\"%s\"%s", errorBody, truncated ? " (truncated)" : "");
+        }
+        return message;
+    }
+
+    /**
+     * @return The HTTP status code of the response, like 500
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return The HTTP status message of the response, like "Server Error", or <b>null</b> if there is none
+     */
+    public String getStatusMessage() {
+        return statusMessage;
+    }
+
+    /**
+     * @return The start of the error body, up to the limit, or <b>null</b> if the response had no body or the body
+     *         wasn't read
+     */
+    public String getErrorBody() {
+        return errorBody;
+    }
+
+    /**
+     * @return <b>true</b> if the error body was longer than the limit, so {@link #getErrorBody()} is only its start
+     */
+    public boolean isErrorBodyTruncated() {
+        return errorBodyTruncated;
+    }
+}
@@ -0,0 +1,75 @@
+package com.yevgenyk.simplesoapclient;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * {@code SoapMarshaller} writes objects of a type as XML elements and reads them back, while streaming.
+ * <p>
+ * Marshallers are generated for {@link SoapMessage} classes by the {@link SoapMarshallerProcessor}, and registered as
+ * services so {@link SoapMarshallers#forType(Class)} finds them. Generated marshallers are stateless and can be shared
+ * by any number of threads.
+ *
+ * @param <T>
+ *         The type of the marshalled objects
+ */
+public interface SoapMarshaller<T> {
+
+    /**
+     * @return The type of the marshalled objects
+     */
+    Class<T> getType();
+
+    /**
+     * @return The local name of the message element
+     */
+    String getElementName();
+
+    /**
+     * @return The namespace of the message element, or an empty string if it has none
+     */
+    String getNamespace();
+
+    /**
+     * Writes the child elements of {@code value}, inside an element that was already started.
+     *
+     * @param value
+     *         The object to write
+     * @param writer
+     *         The writer, positioned inside the object's element
+     * @throws XMLStreamException
+     *         If writing failed
+     */
+    void writeContent(T value, XMLStreamWriter writer) throws XMLStreamException;
+
+    /**
+     * Reads an object from the child elements of the current element. Unknown child elements are skipped.
+     *
+     * @param reader
+     *         The reader, positioned on the start of the object's element. It's left on its end
+     * @return The read object
+     * @throws XMLStreamException
+     *         If reading failed, or an element has an invalid value
+     */
+    T readContent(XMLStreamReader reader) throws XMLStreamException;
+
+    /**
+     * Writes {@code value} as a message element, declaring its namespace as the default namespace.
+     *
+     * @param value
+     *         The object to write
+     * @param writer
+     *         The writer
+     * @throws XMLStreamException
+     *         If writing failed
+     */
+    default void write(T value, XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeStartElement(getElementName());
+        if (!getNamespace().isEmpty()) {
+            writer.writeDefaultNamespace(getNamespace());
+        }
+        writeContent(value, writer);
+        writer.writeEndElement();
+    }
+}
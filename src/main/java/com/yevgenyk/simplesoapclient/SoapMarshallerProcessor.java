@@ -0,0 +1,520 @@
+package com.yevgenyk.simplesoapclient;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * {@code SoapMarshallerProcessor} is an annotation processor that generates a {@link SoapMarshaller} for each
+ * {@link SoapMessage} class.
+ * <p>
+ * The marshaller of a class {@code AddRequest} is generated as {@code AddRequestSoapMarshaller} in the same package
+ * (nested classes are joined with '_', like {@code Calculator_AddRequestSoapMarshaller}), and has a shared
+ * {@code INSTANCE}. The generated code accesses fields directly or through their accessors, so marshalling involves
+ * no reflection, no {@code Document} and no startup cost beyond loading the class. All generated marshallers are
+ * listed in "META-INF/services/com.yevgenyk.simplesoapclient.SoapMarshaller".
+ * <p>
+ * The processor is registered as a service, so it runs whenever this library is on the compile class path (or the
+ * annotation processor path).
+ */
+@SupportedAnnotationTypes("com.yevgenyk.simplesoapclient.SoapMessage")
+public class SoapMarshallerProcessor extends AbstractProcessor {
+
+    private static final String SERVICE_FILE = "META-INF/services/" + SoapMarshaller.class.getName();
+    private static final String MARSHALLER_SUFFIX = "SoapMarshaller";
+
+    private final Set<String> marshallers = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+        for (Element element : roundEnvironment.getElementsAnnotatedWith(SoapMessage.class)) {
+            try {
+                if (element.getKind() != ElementKind.CLASS) {
+                    throw new InvalidMessageException("@SoapMessage must annotate a class", element);
+                }
+                TypeElement type = (TypeElement) element;
+                List<Property> properties = properties(type);
+                marshallers.add(writeMarshaller(type, properties));
+            } catch (InvalidMessageException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Couldn't write SOAP marshaller: " + e.getMessage(), element);
+            }
+        }
+        if (roundEnvironment.processingOver() && !marshallers.isEmpty()) {
+            writeServiceFile();
+        }
+        return true;
+    }
+
+    /**
+     * Collects the properties of a message class, the fields of its superclasses first.
+     */
+    private List<Property> properties(TypeElement type) throws InvalidMessageException {
+        checkInstantiable(type);
+        List<TypeElement> hierarchy = new ArrayList<>();
+        for (TypeElement current = type; current != null; current = superclass(current)) {
+            hierarchy.add(0, current);
+        }
+        List<Property> properties = new ArrayList<>();
+        Set<String> elementNames = new HashSet<>();
+        for (TypeElement current : hierarchy) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                    continue;
+                }
+                Property property = property(type, field);
+                if (!elementNames.add(property.elementName)) {
+                    throw new InvalidMessageException(
+                            String.format("Duplicate element \"%s\" in %s", property.elementName, type), field);
+                }
+                properties.add(property);
+            }
+        }
+        return properties;
+    }
+
+    private TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement superElement = (TypeElement) processingEnv.getTypeUtils().asElement(superclass);
+        return superElement.getQualifiedName().contentEquals(Object.class.getName()) ? null : superElement;
+    }
+
+    private void checkInstantiable(TypeElement type) throws InvalidMessageException {
+        if (!type.getTypeParameters().isEmpty()) {
+            throw new InvalidMessageException(String.format("@SoapMessage class %s must not be generic", type), type);
+        }
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new InvalidMessageException(String.format("@SoapMessage class %s must not be abstract", type), type);
+        }
+        for (Element current = type; current.getKind() != ElementKind.PACKAGE;
+             current = current.getEnclosingElement()) {
+            if (current.getModifiers().contains(Modifier.PRIVATE)) {
+                throw new InvalidMessageException(String.format("@SoapMessage class %s must not be private", type),
+                        type);
+            }
+            if (current != type && current.getKind().isClass() && !type.getModifiers().contains(Modifier.STATIC)) {
+                throw new InvalidMessageException(
+                        String.format("Nested @SoapMessage class %s must be static", type), type);
+            }
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return;
+            }
+        }
+        throw new InvalidMessageException(
+                String.format("@SoapMessage class %s must have a non-private constructor without parameters", type),
+                type);
+    }
+
+    private Property property(TypeElement type, VariableElement field) throws InvalidMessageException {
+        SoapElement soapElement = field.getAnnotation(SoapElement.class);
+        String elementName = soapElement != null ? soapElement.name() : field.getSimpleName().toString();
+        if (elementName.isEmpty()) {
+            throw new InvalidMessageException("@SoapElement name must not be empty", field);
+        }
+        TypeMirror fieldType = field.asType();
+        boolean list = isList(fieldType);
+        TypeMirror valueType = list ? ((DeclaredType) fieldType).getTypeArguments().get(0) : fieldType;
+        ValueKind kind = valueKind(valueType);
+        if (kind == null) {
+            throw new InvalidMessageException(
+                    String.format("Unsupported type %s of field \"%s\" in %s", fieldType, field.getSimpleName(), type),
+                    field);
+        }
+        String fieldName = field.getSimpleName().toString();
+        String getter;
+        String setter;
+        if (isAccessible(field, type)) {
+            getter = "value." + fieldName;
+            setter = "value." + fieldName + " = %s";
+        } else {
+            String capitalized = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+            String getterName = (fieldType.getKind() == TypeKind.BOOLEAN ? "is" : "get") + capitalized;
+            String setterName = "set" + capitalized;
+            if (!hasAccessor(type, getterName, 0) || !hasAccessor(type, setterName, 1)) {
+                throw new InvalidMessageException(String.format(
+                        "Field \"%s\" in %s is not accessible and has no accessible %s() and %s()",
+                        fieldName, type, getterName, setterName), field);
+            }
+            getter = "value." + getterName + "()";
+            setter = "value." + setterName + "(%s)";
+        }
+        return new Property(elementName, getter, setter, list, kind, typeName(valueType));
+    }
+
+    private boolean isList(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED || ((DeclaredType) type).getTypeArguments().size() != 1) {
+            return false;
+        }
+        TypeElement element = (TypeElement) processingEnv.getTypeUtils().asElement(type);
+        return element.getQualifiedName().contentEquals(List.class.getName());
+    }
+
+    private ValueKind valueKind(TypeMirror type) {
+        switch (type.getKind()) {
+            case INT:
+                return ValueKind.INT;
+            case LONG:
+                return ValueKind.LONG;
+            case SHORT:
+                return ValueKind.SHORT;
+            case BYTE:
+                return ValueKind.BYTE;
+            case DOUBLE:
+                return ValueKind.DOUBLE;
+            case FLOAT:
+                return ValueKind.FLOAT;
+            case BOOLEAN:
+                return ValueKind.BOOLEAN;
+            case DECLARED:
+                break;
+            default:
+                return null;
+        }
+        TypeElement element = (TypeElement) processingEnv.getTypeUtils().asElement(type);
+        if (element.getKind() == ElementKind.ENUM) {
+            return ValueKind.ENUM;
+        }
+        if (element.getAnnotation(SoapMessage.class) != null) {
+            return ValueKind.MESSAGE;
+        }
+        for (ValueKind kind : ValueKind.values()) {
+            if (kind.boxedType != null && element.getQualifiedName().contentEquals(kind.boxedType)) {
+                return kind;
+            }
+        }
+        return null;
+    }
+
+    private boolean isAccessible(Element member, TypeElement type) {
+        if (member.getModifiers().contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        return !member.getModifiers().contains(Modifier.PRIVATE) && packageOf(member).equals(packageOf(type));
+    }
+
+    private boolean hasAccessor(TypeElement type, String name, int parameters) {
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == parameters
+                    && !method.getModifiers().contains(Modifier.STATIC) && isAccessible(method, type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String packageOf(Element element) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(element);
+        return packageElement.getQualifiedName().toString();
+    }
+
+    private String typeName(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return type.toString();
+        }
+        return ((TypeElement) processingEnv.getTypeUtils().asElement(type)).getQualifiedName().toString();
+    }
+
+    /**
+     * Gets the simple name of the marshaller of a message class, which is in the same package.
+     */
+    private String marshallerName(TypeElement type) {
+        String packageName = packageOf(type);
+        String qualifiedName = type.getQualifiedName().toString();
+        String nestedName = packageName.isEmpty() ? qualifiedName : qualifiedName.substring(packageName.length() + 1);
+        return nestedName.replace('.', '_') + MARSHALLER_SUFFIX;
+    }
+
+    private String marshallerReference(String messageTypeName) {
+        TypeElement type = processingEnv.getElementUtils().getTypeElement(messageTypeName);
+        String packageName = packageOf(type);
+        return (packageName.isEmpty() ? "" : packageName + ".") + marshallerName(type) + ".INSTANCE";
+    }
+
+    /**
+     * Writes the source of the marshaller of a message class.
+     *
+     * @return The binary name of the marshaller
+     */
+    private String writeMarshaller(TypeElement type, List<Property> properties) throws IOException {
+        SoapMessage soapMessage = type.getAnnotation(SoapMessage.class);
+        String packageName = packageOf(type);
+        String marshallerName = marshallerName(type);
+        String typeName = type.getQualifiedName().toString();
+        String elementName = soapMessage.name().isEmpty() ? type.getSimpleName().toString() : soapMessage.name();
+        String qualifiedMarshallerName = packageName.isEmpty() ? marshallerName : packageName + "." + marshallerName;
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import com.yevgenyk.simplesoapclient.SoapMarshaller;\n")
+                .append("import com.yevgenyk.simplesoapclient.SoapMarshallers;\n\n")
+                .append("import javax.xml.stream.XMLStreamException;\n")
+                .append("import javax.xml.stream.XMLStreamReader;\n")
+                .append("import javax.xml.stream.XMLStreamWriter;\n\n")
+                .append("/**\n * Generated by {@code ").append(SoapMarshallerProcessor.class.getName())
+                .append("}, do not edit.\n */\n")
+                .append("public final class ").append(marshallerName).append(" implements SoapMarshaller<")
+                .append(typeName).append("> {\n\n")
+                .append("    public static final ").append(marshallerName).append(" INSTANCE = new ")
+                .append(marshallerName).append("();\n\n")
+                .append("    @Override\n    public Class<").append(typeName).append("> getType() {\n")
+                .append("        return ").append(typeName).append(".class;\n    }\n\n")
+                .append("    @Override\n    public String getElementName() {\n")
+                .append("        return ").append(literal(elementName)).append(";\n    }\n\n")
+                .append("    @Override\n    public String getNamespace() {\n")
+                .append("        return ").append(literal(soapMessage.namespace())).append(";\n    }\n\n");
+
+        source.append("    @Override\n    public void writeContent(").append(typeName)
+                .append(" value, XMLStreamWriter writer) throws XMLStreamException {\n");
+        for (Property property : properties) {
+            appendWrite(source, property);
+        }
+        source.append("    }\n\n");
+
+        source.append("    @Override\n    public ").append(typeName)
+                .append(" readContent(XMLStreamReader reader) throws XMLStreamException {\n")
+                .append("        ").append(typeName).append(" value = new ").append(typeName).append("();\n");
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            if (property.list) {
+                source.append("        java.util.List<").append(property.typeName).append("> list").append(i)
+                        .append(" = new java.util.ArrayList<>();\n");
+            }
+        }
+        source.append("        String element = null;\n")
+                .append("        try {\n")
+                .append("            while (SoapMarshallers.nextChild(reader)) {\n")
+                .append("                element = reader.getLocalName();\n")
+                .append("                switch (element) {\n");
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            String read = property.kind == ValueKind.MESSAGE
+                    ? marshallerReference(property.typeName) + ".readContent(reader)"
+                    : property.kind.fromText(property.typeName, "SoapMarshallers.readText(reader)");
+            source.append("                    case ").append(literal(property.elementName)).append(":\n")
+                    .append("                        ")
+                    .append(property.list ? "list" + i + ".add(" + read + ")" : String.format(property.setter, read))
+                    .append(";\n                        break;\n");
+        }
+        source.append("                    default:\n")
+                .append("                        SoapMarshallers.skipElement(reader);\n")
+                .append("                        break;\n")
+                .append("                }\n")
+                .append("            }\n")
+                .append("        } catch (IllegalArgumentException | java.time.DateTimeException e) {\n")
+                .append("            throw new XMLStreamException(String.format(\"Invalid value of \\\"%s\\\": %s\", ")
+                .append("element, e.getMessage()),\n                    reader.getLocation(), e);\n")
+                .append("        }\n");
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            if (property.list) {
+                source.append("        ").append(String.format(property.setter, "list" + i)).append(";\n");
+            }
+        }
+        source.append("        return value;\n    }\n}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedMarshallerName, type).openWriter()) {
+            writer.write(source.toString());
+        }
+        return qualifiedMarshallerName;
+    }
+
+    private void appendWrite(StringBuilder source, Property property) {
+        String indent = "        ";
+        String value = property.getter;
+        if (property.list) {
+            source.append(indent).append("if (").append(property.getter).append(" != null) {\n")
+                    .append(indent).append("    for (").append(property.typeName).append(" item : ")
+                    .append(property.getter).append(") {\n");
+            indent += "        ";
+            value = "item";
+        }
+        boolean nullable = property.list || !property.kind.isPrimitive(property.typeName);
+        if (nullable) {
+            source.append(indent).append("if (").append(value).append(" != null) {\n");
+            indent += "    ";
+        }
+        source.append(indent).append("writer.writeStartElement(").append(literal(property.elementName)).append(");\n");
+        if (property.kind == ValueKind.MESSAGE) {
+            source.append(indent).append(marshallerReference(property.typeName)).append(".writeContent(")
+                    .append(value).append(", writer);\n");
+        } else {
+            source.append(indent).append("writer.writeCharacters(")
+                    .append(property.kind.toText(value)).append(");\n");
+        }
+        source.append(indent).append("writer.writeEndElement();\n");
+        if (nullable) {
+            indent = indent.substring(4);
+            source.append(indent).append("}\n");
+        }
+        if (property.list) {
+            source.append("            }\n        }\n");
+        }
+    }
+
+    /**
+     * Lists the generated marshallers as services, keeping the ones of an earlier, incremental compilation.
+     */
+    private void writeServiceFile() {
+        Filer filer = processingEnv.getFiler();
+        try {
+            FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            try (BufferedReader reader = new BufferedReader(existing.openReader(true))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.trim().isEmpty() && processingEnv.getElementUtils().getTypeElement(line.trim()) != null) {
+                        marshallers.add(line.trim());
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // There is no earlier service file
+        }
+        try (Writer writer = new OutputStreamWriter(
+                filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE).openOutputStream(),
+                StandardCharsets.UTF_8)) {
+            for (String marshaller : marshallers) {
+                writer.write(marshaller);
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Couldn't write " + SERVICE_FILE + ": " + e.getMessage());
+        }
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < ' ' || c > '~') {
+                literal.append(String.format("\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    /**
+     * The kinds of values of an element, and how they are converted to and from text.
+     */
+    private enum ValueKind {
+        STRING("java.lang.String", "%s", "%s"),
+        INT("java.lang.Integer", "String.valueOf(%s)", "Integer.parseInt(%s)"),
+        LONG("java.lang.Long", "String.valueOf(%s)", "Long.parseLong(%s)"),
+        SHORT("java.lang.Short", "String.valueOf(%s)", "Short.parseShort(%s)"),
+        BYTE("java.lang.Byte", "String.valueOf(%s)", "Byte.parseByte(%s)"),
+        DOUBLE("java.lang.Double", "String.valueOf(%s)", "Double.parseDouble(%s)"),
+        FLOAT("java.lang.Float", "String.valueOf(%s)", "Float.parseFloat(%s)"),
+        BOOLEAN("java.lang.Boolean", "String.valueOf(%s)", "SoapMarshallers.parseBoolean(%s)"),
+        BIG_DECIMAL("java.math.BigDecimal", "%s.toPlainString()", "new java.math.BigDecimal(%s)"),
+        BIG_INTEGER("java.math.BigInteger", "%s.toString()", "new java.math.BigInteger(%s)"),
+        LOCAL_DATE("java.time.LocalDate", "%s.toString()", "java.time.LocalDate.parse(%s)"),
+        LOCAL_DATE_TIME("java.time.LocalDateTime", "%s.toString()", "java.time.LocalDateTime.parse(%s)"),
+        OFFSET_DATE_TIME("java.time.OffsetDateTime", "%s.toString()", "java.time.OffsetDateTime.parse(%s)"),
+        INSTANT("java.time.Instant", "%s.toString()", "java.time.Instant.parse(%s)"),
+        ENUM(null, "%s.name()", null),
+        MESSAGE(null, null, null);
+
+        private final String boxedType;
+        private final String toTextFormat;
+        private final String fromTextFormat;
+
+        ValueKind(String boxedType, String toTextFormat, String fromTextFormat) {
+            this.boxedType = boxedType;
+            this.toTextFormat = toTextFormat;
+            this.fromTextFormat = fromTextFormat;
+        }
+
+        boolean isPrimitive(String typeName) {
+            return boxedType != null && !typeName.equals(boxedType);
+        }
+
+        String toText(String value) {
+            return String.format(toTextFormat, value);
+        }
+
+        String fromText(String typeName, String text) {
+            return this == ENUM ? typeName + ".valueOf(" + text + ")" : String.format(fromTextFormat, text);
+        }
+    }
+
+    /**
+     * A field of a message class, and how the generated code accesses it.
+     */
+    private static final class Property {
+
+        private final String elementName;
+        private final String getter;
+        private final String setter;
+        private final boolean list;
+        private final ValueKind kind;
+        private final String typeName;
+
+        private Property(String elementName, String getter, String setter, boolean list, ValueKind kind,
+                         String typeName) {
+            this.elementName = elementName;
+            this.getter = getter;
+            this.setter = setter;
+            this.list = list;
+            this.kind = kind;
+            this.typeName = typeName;
+        }
+    }
+
+    /**
+     * Reports a message class that marshallers can't be generated for.
+     */
+    private static final class InvalidMessageException extends Exception {
+
+        private final transient Element element;
+
+        private InvalidMessageException(String message, Element element) {
+            super(message);
+            this.element = element;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.yevgenyk.simplesoapclient;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.OutputStream;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@code SoapMarshallers} finds the generated {@link SoapMarshaller} of a {@link SoapMessage} class, and provides the
+ * helpers that generated marshallers and the client share.
+ * <p>
+ * Marshallers are loaded with a {@code ServiceLoader} from the class loader of their type, once per type.
+ */
+public final class SoapMarshallers {
+
+    private static final String SOAP_11_ENVELOPE_NAMESPACE = "http://schemas.xmlsoap.org/soap/envelope/";
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final ConcurrentMap<Class<?>, SoapMarshaller<?>> MARSHALLERS = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the generated marshaller of a {@code SoapMessage} class.
+     *
+     * @param type
+     *         The {@code SoapMessage} class
+     * @param <T>
+     *         The type of the marshalled objects
+     * @return The marshaller of {@code type}
+     * @throws IllegalArgumentException
+     *         If no marshaller was generated for {@code type}
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> SoapMarshaller<T> forType(Class<T> type) {
+        SoapMarshaller<?> marshaller = MARSHALLERS.get(type);
+        if (marshaller == null) {
+            ClassLoader classLoader = type.getClassLoader() != null ? type.getClassLoader()
+                    : ClassLoader.getSystemClassLoader();
+            for (SoapMarshaller<?> loadedMarshaller : ServiceLoader.load(SoapMarshaller.class, classLoader)) {
+                MARSHALLERS.putIfAbsent(loadedMarshaller.getType(), loadedMarshaller);
+            }
+            marshaller = MARSHALLERS.get(type);
+            if (marshaller == null) {
+                throw new IllegalArgumentException(String.format(
+                        "No SOAP marshaller was generated for \"%s\", is it annotated with @SoapMessage?",
+                        type.getName()));
+            }
+        }
+        return (SoapMarshaller<T>) marshaller;
+    }
+
+    /**
+     * Moves to the next child element of the current element.
+     *
+     * @param reader
+     *         The reader, positioned on the start of the parent element or the end of a previous child element
+     * @return <b>true</b> if the reader is on the start of a child element, or <b>false</b> if it's on the end of the
+     *         parent element
+     * @throws XMLStreamException
+     *         If parsing failed
+     */
+    public static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+            if (event == XMLStreamConstants.END_DOCUMENT) {
+                throw new XMLStreamException("Unexpected end of document", reader.getLocation());
+            }
+        }
+    }
+
+    /**
+     * Reads the text of a simple element.
+     *
+     * @param reader
+     *         The reader, positioned on the start of the element. It's left on its end
+     * @return The text of the element, trimmed
+     * @throws XMLStreamException
+     *         If parsing failed, or the element has child elements
+     */
+    public static String readText(XMLStreamReader reader) throws XMLStreamException {
+        return reader.getElementText().trim();
+    }
+
+    /**
+     * Skips an element with all its content.
+     *
+     * @param reader
+     *         The reader, positioned on the start of the element. It's left on its end
+     * @throws XMLStreamException
+     *         If parsing failed
+     */
+    public static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Parses an {@code xsd:boolean}, which may be "true", "false", "1" or "0".
+     *
+     * @param text
+     *         The text to parse
+     * @return The parsed value
+     * @throws IllegalArgumentException
+     *         If {@code text} is not a boolean
+     */
+    public static boolean parseBoolean(String text) {
+        if (text.equals("true") || text.equals("1")) {
+            return true;
+        }
+        if (text.equals("false") || text.equals("0")) {
+            return false;
+        }
+        throw new IllegalArgumentException(String.format("Invalid boolean \"%s\"", text));
+    }
+
+    /**
+     * Writes a SOAP 1.1 envelope whose body is {@code value}, in UTF-8. The stream is not closed.
+     */
+    static <T> void writeEnvelope(T value, SoapMarshaller<T> marshaller, OutputStream outputStream)
+            throws XMLStreamException {
+        XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(outputStream, "UTF-8");
+        try {
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeStartElement("soap", "Envelope", SOAP_11_ENVELOPE_NAMESPACE);
+            writer.writeNamespace("soap", SOAP_11_ENVELOPE_NAMESPACE);
+            writer.writeStartElement("soap", "Body", SOAP_11_ENVELOPE_NAMESPACE);
+            marshaller.write(value, writer);
+            writer.writeEndElement();
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.flush();
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Reads the first element in the body of a SOAP envelope (of any SOAP version). The reader is closed.
+     */
+    static <T> T readEnvelope(XMLStreamReader reader, SoapMarshaller<T> marshaller) throws XMLStreamException {
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("Body")) {
+                    if (!nextChild(reader)) {
+                        throw new XMLStreamException("SOAP body is empty", reader.getLocation());
+                    }
+                    if (!reader.getLocalName().equals(marshaller.getElementName())) {
+                        throw new XMLStreamException(String.format("Expected \"%s\" in SOAP body, found \"%s\"",
+                                marshaller.getElementName(), reader.getLocalName()), reader.getLocation());
+                    }
+                    return marshaller.readContent(reader);
+                }
+            }
+            throw new XMLStreamException("Response has no SOAP body");
+        } finally {
+            reader.close();
+        }
+    }
+
+    private SoapMarshallers() {
+        throw new AssertionError();
+    }
+}
@@ -0,0 +1,41 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@code SoapMessage} marks a class whose instances are sent or received as the content of a SOAP body, like the
+ * request or the response of a WS operation.
+ * <p>
+ * The {@link SoapMarshallerProcessor} generates a {@link SoapMarshaller} for each marked class at compile time, which
+ * writes and reads its instances with a StAX writer and reader, without reflection. Each non-static, non-transient
+ * field is an element, named after the field unless it's marked with {@link SoapElement}, in the order the fields are
+ * declared. Fields are accessed directly, or through their getters and setters if they are private.
+ * <p>
+ * Supported field types are {@code String}, primitives (except {@code char}) and their wrappers,
+ * {@code BigDecimal}, {@code BigInteger}, {@code LocalDate}, {@code LocalDateTime}, {@code OffsetDateTime},
+ * {@code Instant}, enums (by constant name), other {@code SoapMessage} classes (as nested elements) and {@code List}s
+ * of any of them (as repeated elements). Fields that are <b>null</b> are not written, and elements that are missing
+ * are not read.
+ * <p>
+ * A marked class must not be private, must have a non-private constructor without parameters, and if it's nested it
+ * must be static.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface SoapMessage {
+
+    /**
+     * @return The local name of the message element, the simple name of the class by default
+     */
+    String name() default "";
+
+    /**
+     * @return The namespace of the message element and its child elements, no namespace by default
+     */
+    String namespace() default "";
+}
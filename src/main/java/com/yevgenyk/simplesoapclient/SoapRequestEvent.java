@@ -0,0 +1,123 @@
+package com.yevgenyk.simplesoapclient;
+
+/**
+ * {@code SoapRequestEvent} is an immutable record of a single SOAP request, passed to
+ * {@link SoapRequestListener#onRequestEnd(SoapRequestEvent)}.
+ * <p>
+ * A request goes through four phases: connecting (or reusing a kept-alive connection), writing the request body,
+ * waiting for the server to send the response headers, and reading the response body until it's closed. The duration
+ * of a phase that wasn't reached, because the request failed earlier, is -1. The total duration also includes waiting
+ * for a pooled connection.
+ */
+public final class SoapRequestEvent {
+
+    private final String wsOperation;
+    private final int httpStatus;
+    private final long connectNanos;
+    private final long writeNanos;
+    private final long serverNanos;
+    private final long readNanos;
+    private final long totalNanos;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final Throwable error;
+
+    SoapRequestEvent(String wsOperation, int httpStatus, long connectNanos, long writeNanos, long serverNanos,
+                     long readNanos, long totalNanos, long requestBytes, long responseBytes, Throwable error) {
+        this.wsOperation = wsOperation;
+        this.httpStatus = httpStatus;
+        this.connectNanos = connectNanos;
+        this.writeNanos = writeNanos;
+        this.serverNanos = serverNanos;
+        this.readNanos = readNanos;
+        this.totalNanos = totalNanos;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        this.error = error;
+    }
+
+    /**
+     * @return The WS operation the request was sent to
+     */
+    public String getWsOperation() {
+        return wsOperation;
+    }
+
+    /**
+     * @return The HTTP status code of the response, or -1 if no response was received
+     */
+    public int getHttpStatus() {
+        return httpStatus;
+    }
+
+    /**
+     * @return The time it took to connect, in nanoseconds
+     */
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    /**
+     * @return The time it took to write the request body, in nanoseconds
+     */
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+
+    /**
+     * @return The time from the end of the request body to the response headers (time to first byte), in nanoseconds
+     */
+    public long getServerNanos() {
+        return serverNanos;
+    }
+
+    /**
+     * @return The time from the response headers until the response was closed, in nanoseconds
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    /**
+     * @return The time from the start of the request until it ended, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return The number of request body bytes written
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * @return The number of response body bytes read
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * @return The error the request failed with, or <b>null</b> if it succeeded
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return <b>true</b> if the request failed
+     */
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SoapRequestEvent{wsOperation=%s, httpStatus=%d, connectNanos=%d, writeNanos=%d, " +
+                        "serverNanos=%d, readNanos=%d, totalNanos=%d, requestBytes=%d, responseBytes=%d, error=%s}",
+                wsOperation, httpStatus, connectNanos, writeNanos, serverNanos, readNanos, totalNanos, requestBytes,
+                responseBytes, error);
+    }
+}
@@ -0,0 +1,34 @@
+package com.yevgenyk.simplesoapclient;
+
+/**
+ * {@code SoapRequestListener} is notified when SOAP requests start and end, to record metrics or traces.
+ * <p>
+ * {@link #onRequestStart(String)} is called by the thread that sends the request, before a connection is leased.
+ * {@link #onRequestEnd(SoapRequestEvent)} is called once the request failed or its response was closed, by the thread
+ * that closed it. Listeners are called by concurrent requests at the same time, so they must be thread-safe, and they
+ * run on the request path, so they should return quickly.
+ * <p>
+ * A client without a listener doesn't measure or count anything.
+ *
+ * @see MicrometerSoapRequestListener
+ */
+public interface SoapRequestListener {
+
+    /**
+     * Called when a request starts.
+     *
+     * @param wsOperation
+     *         The WS operation the request is sent to
+     */
+    default void onRequestStart(String wsOperation) {
+    }
+
+    /**
+     * Called when a request ends, successfully or not.
+     *
+     * @param event
+     *         The timings, sizes and outcome of the request
+     */
+    default void onRequestEnd(SoapRequestEvent event) {
+    }
+}
@@ -0,0 +1,136 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * {@code SoapRequestRecorder} measures the phases of a single request for a {@code SoapRequestListener}. It's only
+ * created when a listener is set, so requests of clients without a listener aren't timed at all.
+ */
+final class SoapRequestRecorder {
+
+    private final SoapRequestListener listener;
+    private final String wsOperation;
+    private final long startNanos;
+    private long acquiredNanos;
+    private long connectedNanos;
+    private long writtenNanos;
+    private long responseStartedNanos;
+    private int httpStatus = -1;
+    private long requestBytes;
+    private long responseBytes;
+    private boolean finished;
+
+    private SoapRequestRecorder(SoapRequestListener listener, String wsOperation) {
+        this.listener = listener;
+        this.wsOperation = wsOperation;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Notifies {@code listener} that a request started, and creates its recorder.
+     *
+     * @param listener
+     *         The listener to notify
+     * @param wsOperation
+     *         The WS operation the request is sent to
+     * @return The request's recorder
+     */
+    static SoapRequestRecorder start(SoapRequestListener listener, String wsOperation) {
+        listener.onRequestStart(wsOperation);
+        return new SoapRequestRecorder(listener, wsOperation);
+    }
+
+    void acquired() {
+        acquiredNanos = System.nanoTime();
+    }
+
+    void connected() {
+        connectedNanos = System.nanoTime();
+    }
+
+    void written() {
+        writtenNanos = System.nanoTime();
+    }
+
+    void responseStarted(int httpStatus) {
+        this.responseStartedNanos = System.nanoTime();
+        this.httpStatus = httpStatus;
+    }
+
+    /**
+     * Wraps the request stream to count the bytes written to it.
+     */
+    OutputStream count(OutputStream requestStream) {
+        return new FilterOutputStream(requestStream) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                requestBytes++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                requestBytes += len;
+            }
+        };
+    }
+
+    /**
+     * Wraps the response stream to count the bytes read from it.
+     */
+    InputStream count(InputStream responseStream) {
+        return new FilterInputStream(responseStream) {
+            @Override
+            public int read() throws IOException {
+                int b = in.read();
+                if (b != -1) {
+                    responseBytes++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = in.read(b, off, len);
+                if (read > 0) {
+                    responseBytes += read;
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = in.skip(n);
+                responseBytes += skipped;
+                return skipped;
+            }
+        };
+    }
+
+    /**
+     * Ends the request and notifies the listener. Only the first call has an effect.
+     *
+     * @param error
+     *         The error the request failed with, or <b>null</b> if it succeeded
+     */
+    void finish(Throwable error) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        long endNanos = System.nanoTime();
+        listener.onRequestEnd(new SoapRequestEvent(wsOperation, httpStatus,
+                phase(acquiredNanos, connectedNanos), phase(connectedNanos, writtenNanos),
+                phase(writtenNanos, responseStartedNanos), phase(responseStartedNanos, endNanos),
+                endNanos - startNanos, requestBytes, responseBytes, error));
+    }
+
+    private static long phase(long fromNanos, long toNanos) {
+        return fromNanos == 0 || toNanos == 0 ? -1 : toNanos - fromNanos;
+    }
+}
@@ -0,0 +1,281 @@
+package com.yevgenyk.simplesoapclient;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@code SoapResponse} gives streaming access to the body of a successful SOAP response, so large responses can be
+ * processed incrementally instead of being copied into a string.
+ * <p>
+ * Callers that only forward or store the payload can get its bytes without decoding them, either in a
+ * {@code ByteBuffer} ({@link #readByteBuffer()}) or written straight to a channel or file ({@link #transferTo}) through
+ * pooled direct buffers.
+ * <p>
+ * A {@code SoapResponse} holds a pooled connection and must be closed, preferably with try-with-resources. Closing it
+ * before the body is fully read may close the underlying socket instead of keeping it alive for reuse.
+ */
+public final class SoapResponse implements Closeable {
+
+    private static final OpenOption[] DEFAULT_FILE_OPTIONS =
+            {StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE};
+
+    private final InputStream inputStream;
+    private final String contentType;
+    private final Charset charset;
+    private final long contentLength;
+    private final Runnable releaseAction;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    SoapResponse(InputStream inputStream, String contentType, Runnable releaseAction) {
+        this(inputStream, contentType, -1, releaseAction);
+    }
+
+    SoapResponse(InputStream inputStream, String contentType, long contentLength, Runnable releaseAction) {
+        this.inputStream = inputStream;
+        this.contentType = contentType;
+        this.charset = charsetOf(contentType);
+        this.contentLength = contentLength;
+        this.releaseAction = releaseAction;
+    }
+
+    /**
+     * @return The response body, already decompressed if it was sent with a "Content-Encoding"
+     */
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * @return The response body, decoded with the charset of the response "Content-Type" header
+     */
+    public Reader getReader() {
+        return new InputStreamReader(inputStream, charset);
+    }
+
+    /**
+     * Creates a StAX pull parser over the response body. DTDs and external entities are not supported.
+     *
+     * @return A new {@code XMLStreamReader} over the response body
+     * @throws XMLStreamException
+     *         If the parser couldn't be created
+     */
+    public XMLStreamReader getXmlStreamReader() throws XMLStreamException {
+        return XmlUtilities.newXmlStreamReader(inputStream, charset.name());
+    }
+
+    /**
+     * Reads the rest of the response body into a string, keeping its line endings.
+     *
+     * @return The response body as string
+     * @throws IOException
+     *         If an I/O error occurs
+     */
+    public String readString() throws IOException {
+        Reader reader = getReader();
+        StringBuilder stringBuilder = new StringBuilder();
+        char[] buffer = new char[RequestBody.BUFFER_SIZE];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            stringBuilder.append(buffer, 0, read);
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Reads the rest of the response body into a buffer, without decoding it.
+     * <p>
+     * If the length of the body is known, the buffer is allocated once with that size, so the body is copied only once.
+     *
+     * @return A heap buffer whose remaining bytes are the rest of the response body
+     * @throws IOException
+     *         If an I/O error occurs
+     */
+    public ByteBuffer readByteBuffer() throws IOException {
+        byte[] bytes = new byte[contentLength >= 0 && contentLength < Integer.MAX_VALUE - 8
+                ? (int) contentLength : RequestBody.BUFFER_SIZE];
+        int size = 0;
+        while (true) {
+            if (size == bytes.length) {
+                // The expected length may be exact, so check for the end of the body before growing
+                int next = inputStream.read();
+                if (next == -1) {
+                    break;
+                }
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, RequestBody.BUFFER_SIZE));
+                bytes[size++] = (byte) next;
+            }
+            int read = inputStream.read(bytes, size, bytes.length - size);
+            if (read == -1) {
+                break;
+            }
+            size += read;
+        }
+        return ByteBuffer.wrap(bytes, 0, size);
+    }
+
+    /**
+     * Writes the rest of the response body to a channel, without decoding it.
+     * <p>
+     * The body is moved through a pooled direct buffer, so no buffer is allocated per response and the JDK doesn't
+     * copy the bytes into a temporary direct buffer of its own. The channel is not closed.
+     *
+     * @param target
+     *         The channel to write the body to, like a {@code SocketChannel} of a proxy
+     * @return The number of bytes written
+     * @throws IOException
+     *         If an I/O error occurs
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        ReadableByteChannel source = Channels.newChannel(inputStream);
+        ByteBuffer buffer = ByteBufferPool.SHARED.acquire();
+        try {
+            long transferred = 0;
+            boolean endOfBody = false;
+            while (!endOfBody) {
+                // Fill the whole buffer before writing it, since the source returns at most 8 KB per read
+                while (buffer.hasRemaining()) {
+                    if (source.read(buffer) == -1) {
+                        endOfBody = true;
+                        break;
+                    }
+                }
+                // Casts for Java 8, where ByteBuffer doesn't override flip() and clear()
+                ((Buffer) buffer).flip();
+                while (buffer.hasRemaining()) {
+                    transferred += target.write(buffer);
+                }
+                ((Buffer) buffer).clear();
+            }
+            return transferred;
+        } finally {
+            ByteBufferPool.SHARED.release(buffer);
+        }
+    }
+
+    /**
+     * Writes the rest of the response body to a file, without decoding it.
+     *
+     * @param file
+     *         The file to write the body to
+     * @param options
+     *         How the file is opened. By default, it's created or truncated
+     * @return The number of bytes written
+     * @throws IOException
+     *         If the file couldn't be opened or written, or another I/O error occurs
+     * @see #transferTo(WritableByteChannel)
+     */
+    public long transferTo(Path file, OpenOption... options) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(file, options.length == 0 ? DEFAULT_FILE_OPTIONS : options)) {
+            return transferTo(fileChannel);
+        }
+    }
+
+    /**
+     * Reads the rest of the response body as an MTOM/XOP multipart body, keeping attachments of up to
+     * {@link MtomResponse#DEFAULT_MAX_IN_MEMORY_SIZE} bytes in memory and spilling larger ones to the default
+     * temporary-file directory.
+     *
+     * @return The XML part and attachments of the response, which must be closed by the caller
+     * @throws IOException
+     *         If an I/O error occurs, or the body is not a valid multipart body
+     * @see #readMtom(Path, int)
+     */
+    public MtomResponse readMtom() throws IOException {
+        return readMtom(null, MtomResponse.DEFAULT_MAX_IN_MEMORY_SIZE);
+    }
+
+    /**
+     * Reads the rest of the response body as an MTOM/XOP multipart body. Parts are parsed while they're received, and
+     * attachments larger than {@code maxInMemorySize} are written to temporary files instead of the heap. A body that
+     * is not multipart is read as the XML part, with no attachments.
+     *
+     * @param spillDirectory
+     *         The directory of temporary files, or <b>null</b> for the default temporary-file directory
+     * @param maxInMemorySize
+     *         The maximal size of an attachment that is kept in memory, 0 to spill all attachments
+     * @return The XML part and attachments of the response, which must be closed by the caller
+     * @throws IOException
+     *         If an I/O error occurs, or the body is not a valid multipart body
+     * @throws IllegalArgumentException
+     *         If {@code maxInMemorySize} is negative
+     */
+    public MtomResponse readMtom(Path spillDirectory, int maxInMemorySize) throws IOException {
+        return MtomResponse.read(inputStream, contentType, spillDirectory, maxInMemorySize);
+    }
+
+    /**
+     * @return The length of the response body in bytes, or -1 if it's unknown (like for a chunked or compressed
+     *         response)
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * @return The value of the response "Content-Type" header, or <b>null</b> if it's missing
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return The charset of the response "Content-Type" header, or UTF-8 if none is specified
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Closes the response body and returns the connection to the pool.
+     *
+     * @throws IOException
+     *         If an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            try {
+                inputStream.close();
+            } finally {
+                releaseAction.run();
+            }
+        }
+    }
+
+    static Charset charsetOf(String contentType) {
+        if (contentType != null) {
+            for (String parameter : contentType.split(";")) {
+                String[] nameAndValue = parameter.trim().split("=", 2);
+                if (nameAndValue.length == 2 && nameAndValue[0].trim().equalsIgnoreCase("charset")) {
+                    String charsetName = nameAndValue[1].trim().replace("\"", "");
+                    try {
+                        return Charset.forName(charsetName);
+                    } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                        return StandardCharsets.UTF_8;
+                    }
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+}
@@ -0,0 +1,27 @@
+package com.yevgenyk.simplesoapclient;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+
+/**
+ * {@code SoapResponseHandler} processes the body of a successful SOAP response while it's being received.
+ *
+ * @param <T>
+ *         The type of the result
+ */
+@FunctionalInterface
+public interface SoapResponseHandler<T> {
+
+    /**
+     * Processes a SOAP response. The response is closed by the client once this method returns.
+     *
+     * @param response
+     *         The SOAP response
+     * @return The result of processing the response
+     * @throws IOException
+     *         If reading the response failed
+     * @throws XMLStreamException
+     *         If parsing the response failed
+     */
+    T handleResponse(SoapResponse response) throws IOException, XMLStreamException;
+}
@@ -0,0 +1,184 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+
+/**
+ * {@code SoapTransport} sends the HTTP exchanges of {@code SimpleSoapClientImpl}. The client decides what is sent and
+ * how the response is handled - headers, compression, retries, error bodies - and the transport only moves the bytes.
+ * <p>
+ * The default transport is {@link #httpUrlConnection()}, which sends HTTP/1.1 with one request in flight per
+ * connection. On Java 11 or newer, {@link #http2()} multiplexes concurrent requests over a single HTTP/2 connection per
+ * host instead.
+ * <p>
+ * Transports must be thread-safe, and may be shared by any number of clients, which then share their connections.
+ */
+public interface SoapTransport {
+
+    /**
+     * Creates an exchange for a single POST request. No I/O is done until {@link Exchange#connect(long)}.
+     *
+     * @param url
+     *         The URL to POST to
+     * @param connectTimeoutMillis
+     *         The connect timeout, or 0 for none
+     * @param readTimeoutMillis
+     *         The read timeout, or 0 for none
+     * @return A new {@code Exchange}
+     * @throws IOException
+     *         If the exchange couldn't be created
+     */
+    Exchange newExchange(URL url, int connectTimeoutMillis, int readTimeoutMillis) throws IOException;
+
+    /**
+     * Creates an exchange for a single POST request that must end within {@code remainingMillis}, the time left until
+     * the request's deadline. The timeouts are the client's configured ones, so a transport that keeps state per
+     * timeout, like an HTTP client per connect timeout, doesn't see a new value on every request.
+     * <p>
+     * The default implementation lowers both timeouts to the time left, and calls
+     * {@link #newExchange(URL, int, int)}.
+     *
+     * @param url
+     *         The URL to POST to
+     * @param connectTimeoutMillis
+     *         The configured connect timeout, or 0 for none
+     * @param readTimeoutMillis
+     *         The configured read timeout, or 0 for none
+     * @param remainingMillis
+     *         The time left until the request's deadline, or 0 if it has none
+     * @return A new {@code Exchange}
+     * @throws IOException
+     *         If the exchange couldn't be created
+     */
+    default Exchange newExchange(URL url, int connectTimeoutMillis, int readTimeoutMillis, int remainingMillis)
+            throws IOException {
+        if (remainingMillis == 0) {
+            return newExchange(url, connectTimeoutMillis, readTimeoutMillis);
+        }
+        return newExchange(url, connectTimeoutMillis == 0 ? remainingMillis
+                        : Math.min(connectTimeoutMillis, remainingMillis),
+                readTimeoutMillis == 0 ? remainingMillis : Math.min(readTimeoutMillis, remainingMillis));
+    }
+
+    /**
+     * Creates a transport over {@code HttpURLConnection}, with connections kept alive in the JDK's keep-alive cache.
+     * This is the default transport.
+     *
+     * @return A new HTTP/1.1 {@code SoapTransport}
+     */
+    static SoapTransport httpUrlConnection() {
+        return new HttpUrlConnectionTransport(true);
+    }
+
+    /**
+     * Creates an HTTP/2 transport over the JDK's {@code HttpClient}, which multiplexes concurrent requests over a
+     * single connection per host. HTTPS services negotiate HTTP/2 with ALPN, and plain HTTP services are upgraded to
+     * h2c with a bodiless OPTIONS request before the first SOAP request. Services that don't support HTTP/2 are sent
+     * HTTP/1.1.
+     * <p>
+     * The connect and read timeouts bound the time until the response headers arrive. Reads of the response body
+     * have no timeout of their own.
+     *
+     * @return A new HTTP/2 {@code SoapTransport}, with its own connections
+     * @throws UnsupportedOperationException
+     *         On a JVM older than Java 11
+     */
+    static SoapTransport http2() {
+        return Http2Transport.create();
+    }
+
+    /**
+     * Checks whether {@link #http2()} is available on the running JVM.
+     *
+     * @return <b>true</b> if HTTP/2 can be used
+     */
+    static boolean isHttp2Supported() {
+        return Http2Transport.isSupported();
+    }
+
+    /**
+     * {@code Exchange} is a single request and its response. Its methods are called in order, by one thread, except
+     * for {@link #abort()}.
+     */
+    interface Exchange {
+
+        /**
+         * Sets a request header, replacing a previous value.
+         *
+         * @param name
+         *         The name of the header
+         * @param value
+         *         The value of the header
+         */
+        void setRequestHeader(String name, String value);
+
+        /**
+         * Connects to the service, or lets {@link #getRequestStream()} and {@link #getStatusCode()} connect if the
+         * transport connects lazily. Connection failures should be thrown as a {@code SocketException}, so the client
+         * counts them against the service's health.
+         *
+         * @param contentLength
+         *         The length of the request body, or -1 if it's sent in chunks
+         * @throws IOException
+         *         If the connection failed
+         */
+        void connect(long contentLength) throws IOException;
+
+        /**
+         * @return The stream to write the request body to, which completes the request when closed
+         * @throws IOException
+         *         If the request couldn't be sent
+         */
+        OutputStream getRequestStream() throws IOException;
+
+        /**
+         * Waits for the response headers.
+         *
+         * @return The HTTP status code of the response
+         * @throws IOException
+         *         If no response was received
+         */
+        int getStatusCode() throws IOException;
+
+        /**
+         * @return The HTTP status message of the response, or <b>null</b> if there is none, like with HTTP/2
+         * @throws IOException
+         *         If no response was received
+         */
+        String getStatusMessage() throws IOException;
+
+        /**
+         * @param name
+         *         The name of the header, in any case
+         * @return The first value of a response header, or <b>null</b> if it's missing
+         */
+        String getResponseHeader(String name);
+
+        /**
+         * @return The "Content-Length" of the response, or -1 if it's unknown
+         */
+        long getResponseContentLength();
+
+        /**
+         * Opens the response body, of successful and unsuccessful responses alike.
+         *
+         * @return The response body, or <b>null</b> if the response has none
+         * @throws IOException
+         *         If the body couldn't be opened
+         */
+        InputStream getResponseStream() throws IOException;
+
+        /**
+         * Ends the exchange, after the response body was closed or the exchange failed, and returns or closes the
+         * connection.
+         */
+        void close();
+
+        /**
+         * Aborts the exchange from another thread, so that blocked calls fail.
+         */
+        void abort();
+    }
+}
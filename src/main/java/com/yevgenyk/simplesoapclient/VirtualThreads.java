@@ -0,0 +1,23 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.util.concurrent.Executor;
+
+/**
+ * {@code VirtualThreads} provides virtual thread support where the running JVM has it.
+ * <p>
+ * This is the Java 8 variant, a Java 21 variant is packaged in the multi-release JAR.
+ */
+final class VirtualThreads {
+
+    static boolean isSupported() {
+        return false;
+    }
+
+    static Executor executor() {
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+    }
+
+    private VirtualThreads() {
+        throw new AssertionError();
+    }
+}
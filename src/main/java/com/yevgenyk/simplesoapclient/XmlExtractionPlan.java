@@ -0,0 +1,406 @@
+package com.yevgenyk.simplesoapclient;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code XmlExtractionPlan} extracts any number of named values from an XML document in a single pass, whether it's a
+ * {@code Document} or a stream.
+ * <p>
+ * Each field has a name and a path, in the forms supported by
+ * {@link XmlUtilities#extractTextContent(String, Collection)}. A field added with {@link Builder#field(String, String)}
+ * takes the text content of the first element it matches, and a field added with {@link Builder#list(String, String)}
+ * takes the text content of every element it matches. The paths are compiled once into a single matcher, indexed by
+ * the innermost element name, so each element of the document is checked only against the fields that may select it.
+ * When a plan has no list fields, a stream is read only as far as needed to find all values.
+ * <p>
+ * Plans are immutable and can be shared by any number of threads. For example:
+ * <pre>{@code
+ * XmlExtractionPlan plan = XmlExtractionPlan.builder()
+ *         .field("result", "//AddResponse/AddResult")
+ *         .list("items", "//Items/Item")
+ *         .build();
+ * XmlExtractionResult result = plan.extract(response);
+ * }</pre>
+ */
+public final class XmlExtractionPlan {
+
+    private final int fieldCount;
+    private final int singleFieldCount;
+    private final Map<String, List<Field>> fieldsByLastStep;
+
+    private XmlExtractionPlan(Builder builder) throws XmlParsingException {
+        this.fieldCount = builder.fields.size();
+        int singleFields = 0;
+        Map<String, List<Field>> fieldsByLastStep = new HashMap<>();
+        int index = 0;
+        for (Map.Entry<String, FieldDefinition> entry : builder.fields.entrySet()) {
+            FieldDefinition definition = entry.getValue();
+            Field field = new Field(entry.getKey(), XmlPath.parse(definition.path), definition.list, index++);
+            fieldsByLastStep.computeIfAbsent(field.path.getLastStep(), step -> new ArrayList<>(1)).add(field);
+            if (!field.list) {
+                singleFields++;
+            }
+        }
+        this.singleFieldCount = singleFields;
+        this.fieldsByLastStep = fieldsByLastStep;
+    }
+
+    /**
+     * Creates a {@code Builder} for an {@code XmlExtractionPlan}.
+     *
+     * @return A new {@code Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Extracts the values of this plan from an XML string, streaming through it with a StAX parser instead of
+     * building a {@code Document}.
+     *
+     * @param xmlString
+     *         The string that represent an XML message
+     * @return The extracted values
+     * @throws XMLStreamException
+     *         If XML parsing failed
+     */
+    public XmlExtractionResult extract(String xmlString) throws XMLStreamException {
+        return extract(XmlUtilities.newXmlStreamReader(new StringReader(xmlString)));
+    }
+
+    /**
+     * Extracts the values of this plan from an XML stream, streaming through it with a StAX parser instead of
+     * building a {@code Document}. The stream is not closed.
+     *
+     * @param xmlStream
+     *         The stream that contains an XML message, its encoding is detected from its XML declaration
+     * @return The extracted values
+     * @throws XMLStreamException
+     *         If XML parsing failed
+     */
+    public XmlExtractionResult extract(InputStream xmlStream) throws XMLStreamException {
+        return extract(XmlUtilities.newXmlStreamReader(xmlStream));
+    }
+
+    /**
+     * Extracts the values of this plan while a SOAP response is being received. The response is not closed.
+     *
+     * @param response
+     *         An open SOAP response
+     * @return The extracted values
+     * @throws XMLStreamException
+     *         If XML parsing failed
+     */
+    public XmlExtractionResult extract(SoapResponse response) throws XMLStreamException {
+        return extract(response.getXmlStreamReader());
+    }
+
+    /**
+     * Extracts the values of this plan from a {@code Document}, in a single walk over its elements. Absolute paths
+     * start at the document element.
+     *
+     * @param document
+     *         The document to extract the values from
+     * @return The extracted values
+     */
+    public XmlExtractionResult extract(Document document) {
+        Extraction extraction = new Extraction();
+        List<String> localNames = new ArrayList<>();
+        List<String> qualifiedNames = new ArrayList<>();
+        List<Field> matchedFields = new ArrayList<>();
+        Node root = document.getDocumentElement();
+        Node node = root;
+        while (node != null && extraction.isPending()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                String qualifiedName = node.getNodeName();
+                localNames.add(node.getLocalName() != null ? node.getLocalName()
+                        : qualifiedName.substring(qualifiedName.indexOf(':') + 1));
+                qualifiedNames.add(qualifiedName);
+                match(localNames, qualifiedNames, matchedFields);
+                if (!matchedFields.isEmpty()) {
+                    String text = node.getTextContent();
+                    for (Field field : matchedFields) {
+                        int slot = extraction.start(field);
+                        if (slot != -1) {
+                            extraction.set(field, slot, text);
+                        }
+                    }
+                }
+                if (node.getFirstChild() != null) {
+                    node = node.getFirstChild();
+                    continue;
+                }
+                localNames.remove(localNames.size() - 1);
+                qualifiedNames.remove(qualifiedNames.size() - 1);
+            }
+            // Climb up to the first ancestor with a next sibling, leaving each element on the way
+            while (node != root && node.getNextSibling() == null) {
+                node = node.getParentNode();
+                localNames.remove(localNames.size() - 1);
+                qualifiedNames.remove(qualifiedNames.size() - 1);
+            }
+            node = node == root ? null : node.getNextSibling();
+        }
+        return extraction.result();
+    }
+
+    /**
+     * Streams through the XML and collects the text content of the elements the fields match, including the text of
+     * nested elements (like {@code Node.getTextContent()}).
+     */
+    private XmlExtractionResult extract(XMLStreamReader reader) throws XMLStreamException {
+        Extraction extraction = new Extraction();
+        List<String> localNames = new ArrayList<>();
+        List<String> qualifiedNames = new ArrayList<>();
+        List<Field> matchedFields = new ArrayList<>();
+        List<TextCollector> collectors = new ArrayList<>();
+        try {
+            while ((extraction.isPending() || !collectors.isEmpty()) && reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        localNames.add(reader.getLocalName());
+                        qualifiedNames.add(reader.getPrefix() == null || reader.getPrefix().isEmpty()
+                                ? reader.getLocalName() : reader.getPrefix() + ":" + reader.getLocalName());
+                        match(localNames, qualifiedNames, matchedFields);
+                        TextCollector collector = null;
+                        for (Field field : matchedFields) {
+                            int slot = extraction.start(field);
+                            if (slot != -1) {
+                                if (collector == null) {
+                                    collector = new TextCollector(localNames.size());
+                                    collectors.add(collector);
+                                }
+                                collector.fields.add(field);
+                                collector.slots.add(slot);
+                            }
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        for (TextCollector textCollector : collectors) {
+                            textCollector.text.append(reader.getTextCharacters(), reader.getTextStart(),
+                                    reader.getTextLength());
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        for (Iterator<TextCollector> iterator = collectors.iterator(); iterator.hasNext(); ) {
+                            TextCollector textCollector = iterator.next();
+                            if (textCollector.depth == localNames.size()) {
+                                String text = textCollector.text.toString();
+                                for (int i = 0; i < textCollector.fields.size(); i++) {
+                                    extraction.set(textCollector.fields.get(i), textCollector.slots.get(i), text);
+                                }
+                                iterator.remove();
+                            }
+                        }
+                        localNames.remove(localNames.size() - 1);
+                        qualifiedNames.remove(qualifiedNames.size() - 1);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return extraction.result();
+    }
+
+    /**
+     * Collects the fields that select the innermost open element, in the order they were added to the plan.
+     */
+    private void match(List<String> localNames, List<String> qualifiedNames, List<Field> matchedFields) {
+        matchedFields.clear();
+        String localName = localNames.get(localNames.size() - 1);
+        String qualifiedName = qualifiedNames.get(qualifiedNames.size() - 1);
+        addMatches(fieldsByLastStep.get(localName), localNames, qualifiedNames, matchedFields);
+        if (!qualifiedName.equals(localName)) {
+            addMatches(fieldsByLastStep.get(qualifiedName), localNames, qualifiedNames, matchedFields);
+            if (matchedFields.size() > 1) {
+                matchedFields.sort((first, second) -> Integer.compare(first.index, second.index));
+            }
+        }
+    }
+
+    private static void addMatches(List<Field> candidates, List<String> localNames, List<String> qualifiedNames,
+                                   List<Field> matchedFields) {
+        if (candidates != null) {
+            for (Field field : candidates) {
+                if (field.path.matches(localNames, qualifiedNames)) {
+                    matchedFields.add(field);
+                }
+            }
+        }
+    }
+
+    /**
+     * A compiled field of the plan.
+     */
+    private static final class Field {
+
+        private final String name;
+        private final XmlPath path;
+        private final boolean list;
+        private final int index;
+
+        private Field(String name, XmlPath path, boolean list, int index) {
+            this.name = name;
+            this.path = path;
+            this.list = list;
+            this.index = index;
+        }
+    }
+
+    /**
+     * The values found so far in a single document. A value gets its slot when its element starts, so the values of
+     * a list field stay in document order even if its elements are nested.
+     */
+    private final class Extraction {
+
+        private final List<List<String>> values = new ArrayList<>(Collections.nCopies(fieldCount, null));
+        private final List<Field> matchedFields = new ArrayList<>();
+        private int pendingSingleFields = singleFieldCount;
+
+        boolean isPending() {
+            return pendingSingleFields > 0 || singleFieldCount < fieldCount;
+        }
+
+        /**
+         * @return The slot of the new value, or -1 if the field already has its only value
+         */
+        int start(Field field) {
+            List<String> fieldValues = values.get(field.index);
+            if (fieldValues == null) {
+                fieldValues = new ArrayList<>(1);
+                values.set(field.index, fieldValues);
+                matchedFields.add(field);
+                if (!field.list) {
+                    pendingSingleFields--;
+                }
+            } else if (!field.list) {
+                return -1;
+            }
+            fieldValues.add(null);
+            return fieldValues.size() - 1;
+        }
+
+        void set(Field field, int slot, String value) {
+            values.get(field.index).set(slot, value);
+        }
+
+        XmlExtractionResult result() {
+            Map<String, List<String>> result = new LinkedHashMap<>();
+            for (Field field : matchedFields) {
+                result.put(field.name, Collections.unmodifiableList(values.get(field.index)));
+            }
+            return new XmlExtractionResult(result);
+        }
+    }
+
+    /**
+     * The text collected so far for an element that matched one or more fields.
+     */
+    private static final class TextCollector {
+
+        private final int depth;
+        private final List<Field> fields = new ArrayList<>(1);
+        private final List<Integer> slots = new ArrayList<>(1);
+        private final StringBuilder text = new StringBuilder();
+
+        private TextCollector(int depth) {
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * The definition of a field, compiled when the plan is built.
+     */
+    private static final class FieldDefinition {
+
+        private final String path;
+        private final boolean list;
+
+        private FieldDefinition(String path, boolean list) {
+            this.path = path;
+            this.list = list;
+        }
+    }
+
+    /**
+     * {@code Builder} configures and creates {@code XmlExtractionPlan} instances.
+     */
+    public static final class Builder {
+
+        private final Map<String, FieldDefinition> fields = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a field that takes the text content of the first element at {@code path}.
+         *
+         * @param name
+         *         The name of the field in the result
+         * @param path
+         *         The path of the wanted element, see {@link XmlUtilities#extractTextContent(String, Collection)}
+         * @return This builder
+         * @throws IllegalArgumentException
+         *         If {@code name} is empty or was already added
+         */
+        public Builder field(String name, String path) {
+            return add(name, new FieldDefinition(path, false));
+        }
+
+        /**
+         * Adds a field that takes the text content of every element at {@code path}, in document order.
+         *
+         * @param name
+         *         The name of the field in the result
+         * @param path
+         *         The path of the wanted elements, see {@link XmlUtilities#extractTextContent(String, Collection)}
+         * @return This builder
+         * @throws IllegalArgumentException
+         *         If {@code name} is empty or was already added
+         */
+        public Builder list(String name, String path) {
+            return add(name, new FieldDefinition(path, true));
+        }
+
+        private Builder add(String name, FieldDefinition definition) {
+            if (name == null || name.isEmpty()) {
+                throw new IllegalArgumentException("Field name is required");
+            }
+            if (fields.putIfAbsent(name, definition) != null) {
+                throw new IllegalArgumentException(String.format("Field \"%s\" was already added", name));
+            }
+            return this;
+        }
+
+        /**
+         * Compiles the fields into an {@code XmlExtractionPlan}.
+         *
+         * @return A new {@code XmlExtractionPlan}
+         * @throws XmlParsingException
+         *         If one of the paths is empty or uses unsupported syntax
+         */
+        public XmlExtractionPlan build() throws XmlParsingException {
+            return new XmlExtractionPlan(this);
+        }
+    }
+}
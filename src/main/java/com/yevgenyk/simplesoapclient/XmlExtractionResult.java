@@ -0,0 +1,65 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code XmlExtractionResult} holds the values extracted from an XML document by an {@link XmlExtractionPlan}, keyed
+ * by the names of the plan's fields. Results are immutable.
+ */
+public final class XmlExtractionResult {
+
+    private final Map<String, List<String>> values;
+
+    XmlExtractionResult(Map<String, List<String>> values) {
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Gets the first value of a field.
+     *
+     * @param name
+     *         The name of the field
+     * @return The text content of the first element the field matched, or <b>null</b> if it matched none
+     */
+    public String getValue(String name) {
+        List<String> fieldValues = values.get(name);
+        return fieldValues == null ? null : fieldValues.get(0);
+    }
+
+    /**
+     * Gets all the values of a field, in document order. A field added with
+     * {@link XmlExtractionPlan.Builder#field(String, String)} has at most one value.
+     *
+     * @param name
+     *         The name of the field
+     * @return The text content of each element the field matched, or an empty list if it matched none
+     */
+    public List<String> getValues(String name) {
+        List<String> fieldValues = values.get(name);
+        return fieldValues == null ? Collections.emptyList() : fieldValues;
+    }
+
+    /**
+     * @param name
+     *         The name of the field
+     * @return <b>true</b> if the field matched at least one element
+     */
+    public boolean contains(String name) {
+        return values.containsKey(name);
+    }
+
+    /**
+     * @return The values of each field that matched at least one element, keyed by its name, in the order the fields
+     *         were first matched
+     */
+    public Map<String, List<String>> asMap() {
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return "XmlExtractionResult" + values;
+    }
+}
@@ -0,0 +1,98 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.util.List;
+
+/**
+ * {@code XmlPath} is a simple element path that can be matched while streaming through an XML document.
+ * <p>
+ * Supported forms are an element name ("age", matched anywhere in the document), an absolute path ("/zoo/duck/age")
+ * and a relative path ("//duck/age", matched anywhere in the document). Each step is matched against the local name
+ * of an element, or against its qualified name if the step has a prefix ("soap:Body").
+ */
+final class XmlPath {
+
+    private final String expression;
+    private final String[] steps;
+    private final boolean anywhere;
+
+    private XmlPath(String expression, String[] steps, boolean anywhere) {
+        this.expression = expression;
+        this.steps = steps;
+        this.anywhere = anywhere;
+    }
+
+    /**
+     * Parses a path expression.
+     *
+     * @param expression
+     *         The path expression
+     * @return The parsed {@code XmlPath}
+     * @throws XmlParsingException
+     *         If the expression is empty or uses unsupported syntax
+     */
+    static XmlPath parse(String expression) throws XmlParsingException {
+        if (null == expression || expression.trim().isEmpty()) {
+            throw new XmlParsingException("Path to field parameter was not set correctly");
+        }
+        String trimmed = expression.trim();
+        boolean anywhere = !trimmed.startsWith("/") || trimmed.startsWith("//");
+        String[] steps = trimmed.substring(trimmed.startsWith("//") ? 2 : trimmed.startsWith("/") ? 1 : 0).split("/");
+        for (String step : steps) {
+            if (!isName(step)) {
+                throw new XmlParsingException(String.format("Unsupported streaming path: \"%s\"", expression));
+            }
+        }
+        return new XmlPath(expression, steps, anywhere);
+    }
+
+    /**
+     * Checks whether the innermost currently open element is selected by this path.
+     *
+     * @param localNames
+     *         The local names of the currently open elements, outermost first
+     * @param qualifiedNames
+     *         The qualified names of the currently open elements, outermost first
+     * @return <b>true</b> if the innermost element matches
+     */
+    boolean matches(List<String> localNames, List<String> qualifiedNames) {
+        int depth = localNames.size();
+        if (depth < steps.length || (!anywhere && depth != steps.length)) {
+            return false;
+        }
+        for (int i = 1; i <= steps.length; i++) {
+            String step = steps[steps.length - i];
+            List<String> names = step.indexOf(':') == -1 ? localNames : qualifiedNames;
+            if (!step.equals(names.get(depth - i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The step the innermost element is matched against, so paths can be indexed by it
+     */
+    String getLastStep() {
+        return steps[steps.length - 1];
+    }
+
+    /**
+     * @return The expression this path was parsed from
+     */
+    String getExpression() {
+        return expression;
+    }
+
+    private static boolean isName(String step) {
+        if (step.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < step.length(); i++) {
+            char c = step.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.' && c != ':') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,290 @@
+package com.yevgenyk.simplesoapclient;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code XmlProcessor} is a reusable, thread-safe engine behind the {@code XmlUtilities} DOM and XPath functions.
+ * <p>
+ * The JAXP factories are looked up only once per thread, and the document builder, transformer and XPath objects they
+ * create are reused by later calls on the same thread. Compiled XPath expressions are kept in a per-thread LRU cache
+ * keyed by path, since {@code XPathExpression} objects are not thread-safe either.
+ * <p>
+ * Threads that are created per task (like virtual threads) don't benefit from the caches, so prefer running XML
+ * processing on pooled threads.
+ * <p>
+ * Each processor keeps its own per-thread caches, which live as long as both the processor and the thread do. Create
+ * processors once and keep them (or use {@link #getDefault()}) rather than creating one per call.
+ */
+public final class XmlProcessor {
+
+    /**
+     * The default number of compiled XPath expressions cached per thread.
+     */
+    public static final int DEFAULT_XPATH_CACHE_SIZE = 256;
+
+    private static final XmlProcessor DEFAULT = new XmlProcessor();
+
+    private final ThreadLocal<ThreadResources> threadResources;
+
+    /**
+     * Creates an {@code XmlProcessor} that caches up to {@link #DEFAULT_XPATH_CACHE_SIZE} XPath expressions per
+     * thread.
+     */
+    public XmlProcessor() {
+        this(DEFAULT_XPATH_CACHE_SIZE);
+    }
+
+    /**
+     * Creates an {@code XmlProcessor}.
+     *
+     * @param xpathCacheSize
+     *         The maximal number of compiled XPath expressions cached per thread
+     * @throws IllegalArgumentException
+     *         If {@code xpathCacheSize} is not positive
+     */
+    public XmlProcessor(int xpathCacheSize) {
+        if (xpathCacheSize <= 0) {
+            throw new IllegalArgumentException("XPath cache size must be positive");
+        }
+        this.threadResources = ThreadLocal.withInitial(() -> new ThreadResources(xpathCacheSize));
+    }
+
+    /**
+     * Gets the shared {@code XmlProcessor} used by {@code XmlUtilities}.
+     *
+     * @return The default {@code XmlProcessor}
+     */
+    public static XmlProcessor getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Convert XML string to XML {@code Document}.
+     *
+     * @param xmlString
+     *         The string that represent an XML message
+     * @return The XML response as XML {@code Document}
+     * @throws ParserConfigurationException
+     *         If XML parser instantiation failed
+     * @throws IOException
+     *         If an I/O error occurs
+     * @throws SAXException
+     *         If XML parsing failed
+     */
+    public Document xmlStringToDocument(String xmlString) throws ParserConfigurationException, IOException,
+            SAXException {
+        Document doc = threadResources.get().documentBuilder().parse(new InputSource(new StringReader(xmlString)));
+        doc.setXmlStandalone(true);
+        return doc;
+    }
+
+    /**
+     * Convert an XML {@code Document} to string.
+     *
+     * @param doc
+     *         An XML {@code Document}
+     * @param omitXmlDeclaration
+     *         if <b>true</b> - "xml version= ..." declaration will be omitted
+     * @return The string representing the XML {@code Document}
+     * @throws TransformerException
+     *         If {@code Document} transformation to string fails
+     */
+    public String xmlDocumentToString(Document doc, boolean omitXmlDeclaration) throws TransformerException {
+        Transformer transformer = threadResources.get().transformer();
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, omitXmlDeclaration ? "yes" : "no");
+        transformer.setOutputProperty(OutputKeys.DOCTYPE_PUBLIC, "yes");
+        transformer.setOutputProperty(OutputKeys.METHOD, "xml");
+        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
+        StringWriter stringWriter = new StringWriter();
+        transformer.transform(new DOMSource(doc), new StreamResult(stringWriter));
+        return stringWriter.toString();
+    }
+
+    /**
+     * Gets the value of an XML field.
+     *
+     * @param path
+     *         A {@code path} ({@code XPath} format) to the required XML field, or the field name if path is unknown
+     * @param document
+     *         The document to traverse to find the relevant XML field
+     * @return The value of an XML field
+     * @throws XPathExpressionException
+     *         If the provided {@code path} couldn't compile to an {@code XPath}
+     * @throws XmlParsingException
+     *         If the provided {@code path} doesn't point to an XML field
+     */
+    public String getTextContentOfXmlElement(Document document, final String path) throws
+            XPathExpressionException, XmlParsingException {
+        if (null == path || path.isEmpty()) {
+            throw new XmlParsingException("Path to field parameter was not set correctly");
+        }
+        Node validationNode;
+        if (path.contains("/")) {
+            validationNode = findXmlNodeByXPath(document, path.trim());
+        } else {
+            try {
+                validationNode = findXmlNodeByXPath(document, "//" + path.trim());
+            } catch (Exception e) { // XPath evaluation failed, try to find the node by manually traversing the document
+                validationNode = findXmlNodeByName(document, path.trim());
+            }
+        }
+        String textContent = validationNode.getTextContent();
+        if (null == textContent || textContent.isEmpty()) {
+            throw new XmlParsingException(String.format("No text content was found at \"%s\"", path));
+        }
+        return textContent;
+    }
+
+    /**
+     * Finds the first XML node in the given {@code path} ({@code XPath} format) and returns it.
+     *
+     * @param document
+     *         The document to traverse
+     * @param path
+     *         The path of the wanted node, "//zoo/duck/age" for example
+     * @return The <b>first</b> node named {@code nodeName}
+     * @throws XPathExpressionException
+     *         If path couldn't compile
+     * @throws XmlParsingException
+     *         If no node found in given {@code path}
+     */
+    public Node findXmlNodeByXPath(Document document, String path) throws XPathExpressionException,
+            XmlParsingException {
+        Node node = (Node) threadResources.get().xpathExpression(path)
+                .evaluate(document.getDocumentElement(), XPathConstants.NODE);
+        if (null == node) {
+            throw new XmlParsingException(String.format("Couldn't find node in the following path: \"%s\"", path));
+        }
+        return node;
+    }
+
+    /**
+     * Finds the <b>first</b> XML node that's named {@code nodeName} and returns it.
+     *
+     * @param document
+     *         The document to traverse
+     * @param nodeName
+     *         The node name to find
+     * @return The <b>first</b> node named {@code nodeName}
+     * @throws XmlParsingException
+     *         If no node found in with given {@code nodeName}
+     */
+    public Node findXmlNodeByName(Document document, String nodeName) throws XmlParsingException {
+        Node node = findChildNode(document.getChildNodes(), nodeName);
+        if (null == node) {
+            throw new XmlParsingException(String.format("Couldn't find node named \"%s\"", nodeName));
+        }
+        return node;
+    }
+
+    /**
+     * @return The number of compiled XPath expressions cached for the current thread
+     */
+    int cachedXPathExpressions() {
+        return threadResources.get().xpathExpressions.size();
+    }
+
+    /**
+     * Traverses recursively over a {@code NodeList} to find a node named {@code nodeName}.
+     *
+     * @param nodeList
+     *         The nodes to traverse
+     * @param nodeName
+     *         The node name to find
+     * @return The <b>first</b> node named {@code nodeName} or <b>null</b> if none found
+     */
+    private static Node findChildNode(NodeList nodeList, String nodeName) {
+        for (int i = 0; i < nodeList.getLength(); i++) {
+            Node node = nodeList.item(i);
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                if (node.getNodeName().equalsIgnoreCase(nodeName)) {
+                    return node;
+                }
+
+                Node xmlNodeByName = findChildNode(node.getChildNodes(), nodeName);
+                if (null != xmlNodeByName) {
+                    return xmlNodeByName;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The JAXP objects of a single thread, created on first use.
+     * <p>
+     * Static, so that a pooled thread's value doesn't keep its {@code XmlProcessor} (and with it the thread local key)
+     * reachable after the processor is discarded.
+     */
+    private static final class ThreadResources {
+
+        private final Map<String, XPathExpression> xpathExpressions;
+        private DocumentBuilder documentBuilder;
+        private Transformer transformer;
+        private XPath xpath;
+
+        ThreadResources(int xpathCacheSize) {
+            xpathExpressions = new LinkedHashMap<String, XPathExpression>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+                    return size() > xpathCacheSize;
+                }
+            };
+        }
+
+        DocumentBuilder documentBuilder() throws ParserConfigurationException {
+            if (documentBuilder == null) {
+                documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            } else {
+                documentBuilder.reset();
+            }
+            return documentBuilder;
+        }
+
+        Transformer transformer() throws TransformerException {
+            if (transformer == null) {
+                transformer = TransformerFactory.newInstance().newTransformer();
+            } else {
+                transformer.reset();
+            }
+            return transformer;
+        }
+
+        XPathExpression xpathExpression(String path) throws XPathExpressionException {
+            XPathExpression xpathExpression = xpathExpressions.get(path);
+            if (xpathExpression == null) {
+                if (xpath == null) {
+                    xpath = XPathFactory.newInstance().newXPath();
+                }
+                xpathExpression = xpath.compile(path);
+                xpathExpressions.put(path, xpathExpression);
+            }
+            return xpathExpression;
+        }
+    }
+}
@@ -2,32 +2,30 @@ package com.yevgenyk.simplesoapclient;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import java.io.IOException;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.*;
 
 /**
  * {@code XmlUtilities} provides basic XML parsing utility functions to print and parse XML {@code Document} or string.
+ * <p>
+ * The {@code Document} and {@code XPath} functions run on the shared {@link XmlProcessor#getDefault()}, which reuses
+ * parsers and compiled XPath expressions between calls.
  */
 public final class XmlUtilities {
 
+    private static final XMLInputFactory XML_INPUT_FACTORY = newXmlInputFactory();
+
     /**
      * Convert XML string to XML {@code Document}.
      *
@@ -43,11 +41,7 @@ public final class XmlUtilities {
      */
     public static Document xmlStringToDocument(String xmlString) throws ParserConfigurationException, IOException,
             SAXException {
-        DocumentBuilderFactory documentFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = documentFactory.newDocumentBuilder();
-        Document doc = builder.parse(new InputSource(new StringReader(xmlString)));
-        doc.setXmlStandalone(true);
-        return doc;
+        return XmlProcessor.getDefault().xmlStringToDocument(xmlString);
     }
 
     /**
@@ -62,16 +56,7 @@ public final class XmlUtilities {
      *         If {@code Document} transformation to string fails
      */
     public static String xmlDocumentToString(Document doc, boolean omitXmlDeclaration) throws TransformerException {
-        TransformerFactory tf = TransformerFactory.newInstance();
-        Transformer transformer = tf.newTransformer();
-        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, omitXmlDeclaration ? "yes" : "no");
-        transformer.setOutputProperty(OutputKeys.DOCTYPE_PUBLIC, "yes");
-        transformer.setOutputProperty(OutputKeys.METHOD, "xml");
-        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
-        StringWriter stringWriter = new StringWriter();
-        transformer.transform(new DOMSource(doc), new StreamResult(stringWriter));
-        return stringWriter.toString();
+        return XmlProcessor.getDefault().xmlDocumentToString(doc, omitXmlDeclaration);
     }
 
     /**
@@ -89,24 +74,7 @@ public final class XmlUtilities {
      */
     public static String getTextContentOfXmlElement(Document document, final String path) throws
             XPathExpressionException, XmlParsingException {
-        if (null == path || path.isEmpty()) {
-            throw new XmlParsingException("Path to field parameter was not set correctly");
-        }
-        Node validationNode;
-        if (path.contains("/")) {
-            validationNode = findXmlNodeByXPath(document, path.trim());
-        } else {
-            try {
-                validationNode = findXmlNodeByXPath(document, "//" + path.trim());
-            } catch (Exception e) { // XPath evaluation failed, try to find the node by manually traversing the document
-                validationNode = findXmlNodeByName(document, path.trim());
-            }
-        }
-        String textContent = validationNode.getTextContent();
-        if (null == textContent || textContent.isEmpty()) {
-            throw new XmlParsingException(String.format("No text content was found at \"%s\"", path));
-        }
-        return textContent;
+        return XmlProcessor.getDefault().getTextContentOfXmlElement(document, path);
     }
 
     /**
@@ -124,13 +92,7 @@ public final class XmlUtilities {
      */
     public static Node findXmlNodeByXPath(Document document, String path) throws XPathExpressionException,
             XmlParsingException {
-        XPath xpath = XPathFactory.newInstance().newXPath();
-        Node node;
-        node = (Node) xpath.compile(path).evaluate(document.getDocumentElement(), XPathConstants.NODE);
-        if (null == node) {
-            throw new XmlParsingException(String.format("Couldn't find node in the following path: \"%s\"", path));
-        }
-        return node;
+        return XmlProcessor.getDefault().findXmlNodeByXPath(document, path);
     }
 
     /**
@@ -145,37 +107,115 @@ public final class XmlUtilities {
      *         If no node found in with given {@code nodeName}
      */
     public static Node findXmlNodeByName(Document document, String nodeName) throws XmlParsingException {
-        Node node = findChildNode(document.getChildNodes(), nodeName);
-        if (null == node) {
-            throw new XmlParsingException(String.format("Couldn't find node named \"%s\"", nodeName));
-        }
-        return node;
+        return XmlProcessor.getDefault().findXmlNodeByName(document, nodeName);
     }
 
     /**
-     * Traverses recursively over a {@code NodeList} to find a node named {@code nodeName}.
+     * Extracts the text content of the <b>first</b> element at each of the given {@code paths}, streaming through the
+     * XML string with a StAX parser instead of building a {@code Document}.
+     * <p>
+     * Supported paths are an element name ("age"), an absolute path ("/zoo/duck/age") or a relative path
+     * ("//duck/age"). Parsing stops as soon as all values were found.
      *
-     * @param nodeList
-     *         The nodes to traverse
-     * @param nodeName
-     *         The node name to find
-     * @return The <b>first</b> node named {@code nodeName} or <b>null</b> if none found
+     * @param xmlString
+     *         The string that represent an XML message
+     * @param paths
+     *         The paths of the wanted elements
+     * @return The text content of each found element, keyed by its path. Paths that weren't found are missing
+     * @throws XMLStreamException
+     *         If XML parsing failed
+     * @throws XmlParsingException
+     *         If one of the paths is empty or uses unsupported syntax
      */
-    private static Node findChildNode(NodeList nodeList, String nodeName) {
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Node node = nodeList.item(i);
-            if (node.getNodeType() == Node.ELEMENT_NODE) {
-                if (node.getNodeName().equalsIgnoreCase(nodeName)) {
-                    return node;
-                }
-
-                Node xmlNodeByName = findChildNode(node.getChildNodes(), nodeName);
-                if (null != xmlNodeByName) {
-                    return xmlNodeByName;
-                }
+    public static Map<String, String> extractTextContent(String xmlString, Collection<String> paths)
+            throws XMLStreamException, XmlParsingException {
+        return extractTextContent(paths, plan -> plan.extract(xmlString));
+    }
+
+    /**
+     * Extracts the text content of the <b>first</b> element at each of the given {@code paths}, streaming through the
+     * XML stream with a StAX parser instead of building a {@code Document}. The stream is not closed, and is read
+     * only as far as needed to find all values.
+     *
+     * @param xmlStream
+     *         The stream that contains an XML message, its encoding is detected from its XML declaration
+     * @param paths
+     *         The paths of the wanted elements, see {@link #extractTextContent(String, Collection)}
+     * @return The text content of each found element, keyed by its path. Paths that weren't found are missing
+     * @throws XMLStreamException
+     *         If XML parsing failed
+     * @throws XmlParsingException
+     *         If one of the paths is empty or uses unsupported syntax
+     */
+    public static Map<String, String> extractTextContent(InputStream xmlStream, Collection<String> paths)
+            throws XMLStreamException, XmlParsingException {
+        return extractTextContent(paths, plan -> plan.extract(xmlStream));
+    }
+
+    /**
+     * Extracts the text content of the <b>first</b> element at each of the given {@code paths} while a SOAP response
+     * is being received. The response is read only as far as needed to find all values, and is not closed.
+     *
+     * @param response
+     *         An open SOAP response
+     * @param paths
+     *         The paths of the wanted elements, see {@link #extractTextContent(String, Collection)}
+     * @return The text content of each found element, keyed by its path. Paths that weren't found are missing
+     * @throws XMLStreamException
+     *         If XML parsing failed
+     * @throws XmlParsingException
+     *         If one of the paths is empty or uses unsupported syntax
+     */
+    public static Map<String, String> extractTextContent(SoapResponse response, Collection<String> paths)
+            throws XMLStreamException, XmlParsingException {
+        return extractTextContent(paths, plan -> plan.extract(response));
+    }
+
+    static XMLStreamReader newXmlStreamReader(InputStream inputStream, String encoding) throws XMLStreamException {
+        return XML_INPUT_FACTORY.createXMLStreamReader(inputStream, encoding);
+    }
+
+    static XMLStreamReader newXmlStreamReader(InputStream inputStream) throws XMLStreamException {
+        return XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+    }
+
+    static XMLStreamReader newXmlStreamReader(Reader reader) throws XMLStreamException {
+        return XML_INPUT_FACTORY.createXMLStreamReader(reader);
+    }
+
+    /**
+     * Extracts the first element at each path with an {@code XmlExtractionPlan} whose fields are named after their
+     * paths.
+     */
+    private static Map<String, String> extractTextContent(Collection<String> paths, PlanExtraction extraction)
+            throws XMLStreamException, XmlParsingException {
+        XmlExtractionPlan.Builder builder = XmlExtractionPlan.builder();
+        for (String path : new LinkedHashSet<>(paths)) {
+            if (null == path || path.isEmpty()) {
+                throw new XmlParsingException("Path to field parameter was not set correctly");
             }
+            builder.field(path, path);
         }
-        return null;
+        Map<String, String> values = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : extraction.extract(builder.build()).asMap().entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get(0));
+        }
+        return values;
+    }
+
+    private static XMLInputFactory newXmlInputFactory() {
+        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return xmlInputFactory;
+    }
+
+    /**
+     * Runs an extraction plan over an XML source.
+     */
+    private interface PlanExtraction {
+
+        XmlExtractionResult extract(XmlExtractionPlan plan) throws XMLStreamException;
     }
 
     private XmlUtilities() {
@@ -0,0 +1,320 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@code Http2Transport} provides the HTTP/2 {@code SoapTransport} where the running JVM has an HTTP/2 client.
+ * <p>
+ * This is the Java 11 variant, which sends exchanges with the JDK's {@code HttpClient}. Concurrent exchanges with a
+ * host are multiplexed as streams of a single connection. Since the {@code HttpClient} only offers plain HTTP hosts an
+ * upgrade to h2c on requests without a body, the first exchange with such a host sends a bodiless OPTIONS request
+ * first, and the exchanges that start meanwhile wait for it, so they all share the upgraded connection.
+ * <p>
+ * The connect timeout is a setting of the {@code HttpClient}, so an {@code HttpClient} is kept for each configured
+ * connect timeout the transport is used with. Clients that share a transport usually share their timeouts too, and
+ * with them a single {@code HttpClient} and its connections. A request's deadline is enforced per exchange instead,
+ * with the timeout of its {@code HttpRequest} and of its waits for the h2c upgrade and the response headers.
+ */
+final class Http2Transport implements SoapTransport {
+
+    private final ConcurrentMap<Integer, Connections> connectionsByConnectTimeout = new ConcurrentHashMap<>();
+
+    static boolean isSupported() {
+        return true;
+    }
+
+    static SoapTransport create() {
+        return new Http2Transport();
+    }
+
+    private Http2Transport() {
+    }
+
+    @Override
+    public Exchange newExchange(URL url, int connectTimeoutMillis, int readTimeoutMillis) throws IOException {
+        return newExchange(url, connectTimeoutMillis, readTimeoutMillis, 0);
+    }
+
+    @Override
+    public Exchange newExchange(URL url, int connectTimeoutMillis, int readTimeoutMillis, int remainingMillis)
+            throws IOException {
+        URI uri;
+        try {
+            uri = url.toURI();
+        } catch (URISyntaxException e) {
+            throw new IOException(String.format("Couldn't convert \"%s\" to a URI", url), e);
+        }
+        // The HttpClient bounds connecting on its own, and since connections are shared, connecting also counts
+        // against the time until the response headers
+        int timeoutMillis = readTimeoutMillis == 0 ? 0 : Math.max(connectTimeoutMillis, readTimeoutMillis);
+        if (remainingMillis != 0 && (timeoutMillis == 0 || timeoutMillis > remainingMillis)) {
+            timeoutMillis = remainingMillis;
+        }
+        Connections connections = connectionsByConnectTimeout.computeIfAbsent(connectTimeoutMillis,
+                Connections::new);
+        return new Http2Exchange(connections, uri, timeoutMillis);
+    }
+
+    /**
+     * Waits for a future until {@code deadlineNanos}, or without a limit if it's 0.
+     */
+    private static <T> T await(CompletableFuture<T> future, long deadlineNanos) throws IOException {
+        try {
+            if (deadlineNanos == 0) {
+                return future.get();
+            }
+            return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            SocketTimeoutException timeoutException = new SocketTimeoutException("HTTP/2 response timed out");
+            timeoutException.initCause(e);
+            throw timeoutException;
+        } catch (ExecutionException e) {
+            throw ioException(e.getCause());
+        } catch (CancellationException e) {
+            throw new IOException("SOAP request was aborted", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the HTTP/2 response");
+        }
+    }
+
+    /**
+     * Converts a failure of the {@code HttpClient} into the exceptions {@code HttpURLConnection} would throw, so
+     * connection failures are told apart from timeouts the same way.
+     */
+    private static IOException ioException(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause()
+                : failure;
+        IOException ioException;
+        if (cause instanceof HttpConnectTimeoutException) {
+            ioException = new ConnectException(cause.getMessage());
+        } else if (cause instanceof HttpTimeoutException) {
+            ioException = new SocketTimeoutException(cause.getMessage());
+        } else if (cause instanceof IOException) {
+            return (IOException) cause;
+        } else {
+            return new IOException(cause);
+        }
+        ioException.initCause(cause);
+        return ioException;
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            // The stream is only closed to release the HTTP/2 stream
+        }
+    }
+
+    /**
+     * {@code Connections} is an {@code HttpClient} with a single connect timeout, and the h2c upgrades of its
+     * connections.
+     */
+    private static final class Connections {
+
+        private final HttpClient httpClient;
+        private final ConcurrentMap<String, CompletableFuture<Boolean>> cleartextUpgrades = new ConcurrentHashMap<>();
+
+        Connections(int connectTimeoutMillis) {
+            HttpClient.Builder builder = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .followRedirects(HttpClient.Redirect.NEVER);
+            if (connectTimeoutMillis != 0) {
+                builder.connectTimeout(Duration.ofMillis(connectTimeoutMillis));
+            }
+            this.httpClient = builder.build();
+        }
+
+        /**
+         * Offers a plain HTTP host an upgrade to h2c, unless it was already offered one over a connection that's
+         * still open.
+         *
+         * @return A future of whether the host upgraded the connection, shared by concurrent exchanges
+         */
+        CompletableFuture<Boolean> upgrade(URI uri, int timeoutMillis) {
+            String authority = uri.getRawAuthority();
+            CompletableFuture<Boolean> upgrade = cleartextUpgrades.get(authority);
+            if (upgrade != null) {
+                return upgrade;
+            }
+            CompletableFuture<Boolean> newUpgrade = new CompletableFuture<>();
+            upgrade = cleartextUpgrades.putIfAbsent(authority, newUpgrade);
+            if (upgrade != null) {
+                return upgrade;
+            }
+            HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                    .method("OPTIONS", HttpRequest.BodyPublishers.noBody());
+            if (timeoutMillis != 0) {
+                request.timeout(Duration.ofMillis(timeoutMillis));
+            }
+            httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, e) -> {
+                        if (e != null) {
+                            // Nothing was learned about the host, so the next exchange offers the upgrade again
+                            cleartextUpgrades.remove(authority, newUpgrade);
+                            newUpgrade.completeExceptionally(e);
+                        } else {
+                            newUpgrade.complete(response.version() == HttpClient.Version.HTTP_2);
+                        }
+                    });
+            return newUpgrade;
+        }
+    }
+
+    /**
+     * {@code Http2Exchange} sends its request with the body streamed from the calling thread, and hands over the
+     * response body as it's received.
+     */
+    private static final class Http2Exchange implements Exchange {
+
+        private final Connections connections;
+        private final URI uri;
+        private final int timeoutMillis;
+        private long deadlineNanos;
+        private final HttpRequest.Builder requestBuilder;
+        private CompletableFuture<Boolean> upgrade;
+        private HttpResponse<InputStream> response;
+        private volatile StreamingBodyPublisher body;
+        private volatile CompletableFuture<HttpResponse<InputStream>> responseFuture;
+        private volatile boolean aborted;
+
+        Http2Exchange(Connections connections, URI uri, int timeoutMillis) {
+            this.connections = connections;
+            this.uri = uri;
+            this.timeoutMillis = timeoutMillis;
+            this.requestBuilder = HttpRequest.newBuilder(uri);
+        }
+
+        @Override
+        public void setRequestHeader(String name, String value) {
+            requestBuilder.setHeader(name, value);
+        }
+
+        @Override
+        public void connect(long contentLength) throws IOException {
+            if (timeoutMillis != 0) {
+                deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            }
+            if ("http".equalsIgnoreCase(uri.getScheme())) {
+                // The upgrade may have been started by an exchange with a later deadline, so the wait is bounded too
+                upgrade = connections.upgrade(uri, timeoutMillis);
+                await(upgrade, deadlineNanos);
+            }
+            if (deadlineNanos != 0) {
+                long remainingNanos = deadlineNanos - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    throw new SocketTimeoutException("HTTP/2 response timed out");
+                }
+                requestBuilder.timeout(Duration.ofNanos(remainingNanos));
+            }
+            StreamingBodyPublisher newBody = new StreamingBodyPublisher(contentLength);
+            body = newBody;
+            CompletableFuture<HttpResponse<InputStream>> newResponseFuture = connections.httpClient.sendAsync(
+                    requestBuilder.POST(newBody).build(), HttpResponse.BodyHandlers.ofInputStream());
+            responseFuture = newResponseFuture;
+            newResponseFuture.whenComplete((newResponse, e) -> {
+                if (e != null) {
+                    newBody.fail(ioException(e));
+                }
+            });
+            if (aborted) {
+                abort();
+                throw new IOException("SOAP request was aborted");
+            }
+        }
+
+        @Override
+        public OutputStream getRequestStream() {
+            return body;
+        }
+
+        @Override
+        public int getStatusCode() throws IOException {
+            return response().statusCode();
+        }
+
+        @Override
+        public String getStatusMessage() throws IOException {
+            // HTTP/2 has no reason phrase
+            response();
+            return null;
+        }
+
+        @Override
+        public String getResponseHeader(String name) {
+            return response == null ? null : response.headers().firstValue(name).orElse(null);
+        }
+
+        @Override
+        public long getResponseContentLength() {
+            return response == null ? -1 : response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        }
+
+        @Override
+        public InputStream getResponseStream() throws IOException {
+            return response().body();
+        }
+
+        private HttpResponse<InputStream> response() throws IOException {
+            if (response == null) {
+                response = await(responseFuture, deadlineNanos);
+                if (upgrade != null && response.version() == HttpClient.Version.HTTP_1_1
+                        && Boolean.TRUE.equals(upgrade.getNow(false))) {
+                    // The upgraded connection was closed, so the next exchange offers the upgrade again
+                    connections.cleartextUpgrades.remove(uri.getRawAuthority(), upgrade);
+                }
+            }
+            return response;
+        }
+
+        /**
+         * Closes the response body, which resets its stream if it wasn't read to its end, or discards the response
+         * when it arrives, if the exchange failed before that.
+         */
+        @Override
+        public void close() {
+            if (response != null) {
+                closeQuietly(response.body());
+            } else if (responseFuture != null) {
+                responseFuture.thenAccept(lateResponse -> closeQuietly(lateResponse.body()));
+            }
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+            StreamingBodyPublisher abortedBody = body;
+            if (abortedBody != null) {
+                abortedBody.fail(new IOException("SOAP request was aborted"));
+            }
+            CompletableFuture<HttpResponse<InputStream>> abortedResponseFuture = responseFuture;
+            if (abortedResponseFuture != null) {
+                abortedResponseFuture.thenAccept(lateResponse -> closeQuietly(lateResponse.body()));
+                abortedResponseFuture.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * {@code StreamingBodyPublisher} is a request body that the sending thread writes as an {@code OutputStream}, while
+ * the {@code HttpClient} pulls it as a {@code Flow.Publisher}.
+ * <p>
+ * Writes block until the {@code HttpClient} asks for more, so only a buffer of the body is held in memory at a time.
+ * Waits use a lock instead of a monitor, so virtual threads are not pinned while the body is sent.
+ */
+final class StreamingBodyPublisher extends OutputStream implements HttpRequest.BodyPublisher {
+
+    private final long contentLength;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private Flow.Subscriber<? super ByteBuffer> subscriber;
+    private boolean subscribed;
+    private long demand;
+    private IOException failure;
+    private ByteBuffer buffer;
+    private boolean closed;
+
+    /**
+     * @param contentLength
+     *         The length of the body, or -1 if it's unknown
+     */
+    StreamingBodyPublisher(long contentLength) {
+        this.contentLength = contentLength;
+    }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> newSubscriber) {
+        boolean first;
+        lock.lock();
+        try {
+            first = subscriber == null;
+            if (first) {
+                subscriber = newSubscriber;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!first) {
+            // The body is written only once, so it can't be sent again, like after a redirect
+            newSubscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long count) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            newSubscriber.onError(new IOException("Streamed request body can't be sent again"));
+            return;
+        }
+        newSubscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long count) {
+                lock.lock();
+                try {
+                    if (count <= 0) {
+                        failure = new IOException("HTTP client requested a non-positive number of buffers");
+                    } else {
+                        demand = demand + count < 0 ? Long.MAX_VALUE : demand + count;
+                    }
+                    changed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            @Override
+            public void cancel() {
+                fail(new IOException("HTTP client stopped reading the request body"));
+            }
+        });
+        lock.lock();
+        try {
+            subscribed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fails the body, so that blocked and later writes throw.
+     *
+     * @param cause
+     *         Why the request can't be sent
+     */
+    void fail(IOException cause) {
+        lock.lock();
+        try {
+            if (failure == null) {
+                failure = cause;
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (closed) {
+            throw new IOException("Request body was already closed");
+        }
+        while (length > 0) {
+            if (buffer == null) {
+                buffer = ByteBuffer.allocate(RequestBody.BUFFER_SIZE);
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, count);
+            offset += count;
+            length -= count;
+            if (!buffer.hasRemaining()) {
+                publish();
+            }
+        }
+    }
+
+    /**
+     * Completes the body, after the last buffer was taken.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (buffer != null && buffer.position() > 0) {
+            publish();
+        }
+        Flow.Subscriber<? super ByteBuffer> target;
+        lock.lock();
+        try {
+            awaitWhile(() -> !subscribed);
+            target = subscriber;
+        } finally {
+            lock.unlock();
+        }
+        target.onComplete();
+    }
+
+    /**
+     * Hands the buffer over to the subscriber once it asks for one. Buffers are not reused, since the
+     * {@code HttpClient} may still hold them after taking the next one.
+     */
+    private void publish() throws IOException {
+        ByteBuffer full = buffer;
+        buffer = null;
+        full.flip();
+        Flow.Subscriber<? super ByteBuffer> target;
+        lock.lock();
+        try {
+            awaitWhile(() -> demand == 0);
+            demand--;
+            target = subscriber;
+        } finally {
+            lock.unlock();
+        }
+        target.onNext(full);
+    }
+
+    /**
+     * Waits while {@code condition} holds and the body hasn't failed. Must be called with the lock held.
+     */
+    private void awaitWhile(BooleanSupplier condition) throws IOException {
+        try {
+            while (failure == null && condition.getAsBoolean()) {
+                changed.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while sending the request body");
+        }
+        if (failure != null) {
+            throw new IOException("Couldn't send the request body", failure);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.yevgenyk.simplesoapclient;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@code VirtualThreads} provides virtual thread support where the running JVM has it.
+ * <p>
+ * This is the Java 21 variant, which starts a new virtual thread for each task.
+ */
+final class VirtualThreads {
+
+    private static final ExecutorService EXECUTOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("simple-soap-client-virtual-", 1).factory());
+
+    static boolean isSupported() {
+        return true;
+    }
+
+    static Executor executor() {
+        return EXECUTOR;
+    }
+
+    private VirtualThreads() {
+        throw new AssertionError();
+    }
+}
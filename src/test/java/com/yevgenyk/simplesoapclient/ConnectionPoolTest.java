@@ -0,0 +1,68 @@
+package com.yevgenyk.simplesoapclient;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+
+    @Test
+    void acquireAndRelease() throws MalformedURLException, SimpleSoapClientException {
+        ConnectionPool connectionPool = new ConnectionPool(2, Duration.ZERO);
+        URL url = new URL("http://localhost:8080/calculator.asmx?op=Add");
+        connectionPool.acquire(url);
+        connectionPool.acquire(url);
+        ConnectionPoolStatistics statistics = connectionPool.getStatistics();
+        assertEquals(2, statistics.getLeasedConnections());
+        connectionPool.release(url);
+        connectionPool.release(url);
+        statistics = connectionPool.getStatistics();
+        assertEquals(0, statistics.getLeasedConnections());
+        assertEquals(2, statistics.getPeakLeasedConnections());
+        assertEquals(2, statistics.getTotalLeases());
+    }
+
+    @Test
+    void acquireLimitIsPerHost() throws MalformedURLException, SimpleSoapClientException {
+        ConnectionPool connectionPool = new ConnectionPool(1, Duration.ZERO);
+        connectionPool.acquire(new URL("http://localhost:8080/calculator.asmx?op=Add"));
+        connectionPool.acquire(new URL("http://localhost:8081/calculator.asmx?op=Add"));
+        assertEquals(2, connectionPool.getStatistics().getLeasedConnections());
+    }
+
+    @Test
+    void acquireNegativeTimeout() throws MalformedURLException, SimpleSoapClientException {
+        ConnectionPool connectionPool = new ConnectionPool(1, Duration.ofMillis(10));
+        URL url = new URL("http://localhost:8080/calculator.asmx?op=Add");
+        connectionPool.acquire(url);
+        SimpleSoapClientException simpleSoapClientException = assertThrows(SimpleSoapClientException.class,
+                () -> connectionPool.acquire(url));
+        assertEquals("Timed out waiting for a free connection to \"localhost:8080\"",
+                simpleSoapClientException.getMessage());
+        assertEquals(1, connectionPool.getStatistics().getTimedOutLeases());
+    }
+
+    @Test
+    void defaultLimitMatchesKeepAliveCache() throws MalformedURLException, SimpleSoapClientException {
+        assertEquals(Integer.getInteger("http.maxConnections", 5), ConnectionPool.DEFAULT_MAX_CONNECTIONS_PER_HOST);
+        ConnectionPool connectionPool = new ConnectionPool();
+        assertEquals(ConnectionPool.DEFAULT_MAX_CONNECTIONS_PER_HOST, connectionPool.getMaxConnectionsPerHost());
+        URL url = new URL("http://localhost:8080/calculator.asmx?op=Add");
+        for (int i = 0; i < ConnectionPool.DEFAULT_MAX_CONNECTIONS_PER_HOST; i++) {
+            connectionPool.acquire(url);
+        }
+        assertEquals(ConnectionPool.DEFAULT_MAX_CONNECTIONS_PER_HOST,
+                connectionPool.getStatistics().getLeasedConnections());
+    }
+
+    @Test
+    void connectionPoolNegativeInvalidMaxConnections() {
+        IllegalArgumentException illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> new ConnectionPool(0, Duration.ZERO));
+        assertEquals("Max connections per host must be positive", illegalArgumentException.getMessage());
+    }
+}
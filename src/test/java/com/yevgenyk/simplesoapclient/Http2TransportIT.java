@@ -0,0 +1,276 @@
+package com.yevgenyk.simplesoapclient;
+
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * These tests run against the multi-release JAR on Java 11 or newer, with a local HTTP/2 (h2c) server.
+ */
+class Http2TransportIT {
+
+    private static final Path REQUEST_XML = Paths.get("src/test/resources/requestExample.xml");
+
+    private final Set<String> protocols = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> remotePorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private Server server;
+    private String serviceUrl;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    /**
+     * Starts a stub that answers "/calculator.asmx" with the number of request bytes it received, after
+     * {@code delayMillis}, and "/failing.asmx" with a 500 response.
+     */
+    private void startServer(boolean h2c, long delayMillis) throws Exception {
+        server = new Server();
+        HttpConfiguration configuration = new HttpConfiguration();
+        ServerConnector connector = h2c
+                ? new ServerConnector(server, new HttpConnectionFactory(configuration),
+                new HTTP2CServerConnectionFactory(configuration))
+                : new ServerConnector(server, new HttpConnectionFactory(configuration));
+        connector.setHost("localhost");
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+                baseRequest.setHandled(true);
+                if (!"POST".equals(request.getMethod())) {
+                    return;
+                }
+                protocols.add(request.getProtocol());
+                remotePorts.add(request.getRemotePort());
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    long received = drain(request.getInputStream());
+                    Thread.sleep(delayMillis);
+                    response.setContentType("text/xml; charset=utf-8");
+                    if (target.equals("/failing.asmx")) {
+                        response.setStatus(500);
+                        response.getWriter().write("<faultstring>Server was unable to process request</faultstring>");
+                    } else {
+                        response.getWriter().write(String.format("<AddResponse><AddResult>4</AddResult>" +
+                                "<Received>%d</Received><SOAPAction>%s</SOAPAction></AddResponse>", received,
+                                request.getHeader("SOAPAction")));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        });
+        server.start();
+        serviceUrl = String.format("http://localhost:%d/calculator", connector.getLocalPort());
+    }
+
+    private static byte[] envelope(int size) {
+        StringBuilder envelope = new StringBuilder("<soap:Envelope xmlns:soap=\"" +
+                "http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body><Add xmlns=\"http://tempuri.org/\">");
+        while (envelope.length() < size) {
+            envelope.append("<intA>2</intA>");
+        }
+        return envelope.append("</Add></soap:Body></soap:Envelope>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            total += read;
+        }
+        return total;
+    }
+
+    @Test
+    void sendSoapRequestOverHttp2() throws Exception {
+        assertTrue(SoapTransport.isHttp2Supported());
+        startServer(true, 0);
+        SimpleSoapClientImpl client = SimpleSoapClientImpl.builder(serviceUrl, "http://tempuri.org", "Add")
+                .transport(SoapTransport.http2())
+                .build();
+        String response = client.sendSoapRequest(REQUEST_XML);
+        assertTrue(response.contains("<AddResult>4</AddResult>"), response);
+        assertTrue(response.contains("<SOAPAction>http://tempuri.org/Add</SOAPAction>"), response);
+        assertEquals(Collections.singleton("HTTP/2.0"), protocols);
+        SimpleSoapClientImplTest.assertConnectionReleased(client);
+    }
+
+    @Test
+    void concurrentRequestsShareOneConnection() throws Exception {
+        startServer(true, 200);
+        SoapTransport transport = SoapTransport.http2();
+        SimpleSoapServiceClient serviceClient = SimpleSoapServiceClient.builder(serviceUrl, "http://tempuri.org")
+                .transport(transport)
+                .build();
+        List<File> requestXmls = new ArrayList<>(Collections.nCopies(32, REQUEST_XML.toFile()));
+        List<String> responses = serviceClient.operation("Add").sendAll(requestXmls);
+        assertEquals(32, responses.size());
+        responses.forEach(response -> assertTrue(response.contains("<AddResult>4</AddResult>"), response));
+        assertEquals(Collections.singleton("HTTP/2.0"), protocols);
+        assertEquals(1, remotePorts.size(), remotePorts.toString());
+        assertTrue(maxInFlight.get() > 1, String.valueOf(maxInFlight.get()));
+    }
+
+    @Test
+    void requestsWithDeadlineShareOneHttpClient() throws Exception {
+        startServer(true, 5);
+        Set<String> selectorThreadsBefore = httpClientSelectorThreads();
+        SimpleSoapClientImpl client = SimpleSoapClientImpl.builder(serviceUrl, "http://tempuri.org", "Add")
+                .transport(SoapTransport.http2())
+                .requestTimeout(Duration.ofSeconds(5))
+                .build();
+        for (int i = 0; i < 50; i++) {
+            assertTrue(client.sendSoapRequest(REQUEST_XML).contains("<AddResult>4</AddResult>"));
+            assertTrue(client.sendSoapRequestAsync(REQUEST_XML.toFile(), Duration.ofSeconds(5)).get()
+                    .contains("<AddResult>4</AddResult>"));
+        }
+        Set<String> selectorThreads = httpClientSelectorThreads();
+        selectorThreads.removeAll(selectorThreadsBefore);
+        assertEquals(1, selectorThreads.size(), selectorThreads.toString());
+        assertEquals(1, remotePorts.size(), remotePorts.toString());
+    }
+
+    /**
+     * Each {@code HttpClient} has a selector thread of its own.
+     */
+    private static Set<String> httpClientSelectorThreads() {
+        Set<String> names = new HashSet<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().matches("HttpClient-\\d+-SelectorManager")) {
+                names.add(thread.getName());
+            }
+        }
+        return names;
+    }
+
+    @Test
+    void sendStreamedAndCompressedRequestOverHttp2() throws Exception {
+        startServer(true, 0);
+        byte[] envelope = envelope(200_000);
+        SimpleSoapClientImpl client = SimpleSoapClientImpl.builder(serviceUrl, "http://tempuri.org", "Add")
+                .transport(SoapTransport.http2())
+                .build();
+        String response = client.sendSoapRequest(new ByteArrayInputStream(envelope));
+        assertTrue(response.contains(String.format("<Received>%d</Received>", envelope.length)), response);
+
+        SimpleSoapClientImpl compressingClient = SimpleSoapClientImpl.builder(serviceUrl, "http://tempuri.org", "Add")
+                .transport(SoapTransport.http2())
+                .requestCompression(ContentEncoding.GZIP, 1024)
+                .build();
+        response = compressingClient.sendSoapRequest(new ByteArrayInputStream(envelope));
+        assertTrue(response.contains("<AddResult>4</AddResult>"), response);
+        assertFalse(response.contains(String.format("<Received>%d</Received>", envelope.length)), response);
+        assertEquals(Collections.singleton("HTTP/2.0"), protocols);
+    }
+
+    @Test
+    void sendSoapRequestNegativeServerErrorOverHttp2() throws Exception {
+        startServer(true, 0);
+        SimpleSoapClientImpl client = SimpleSoapClientImpl.builder(serviceUrl.replace("calculator", "failing"),
+                "http://tempuri.org", "Add").transport(SoapTransport.http2()).build();
+        SoapHttpException soapHttpException = assertThrows(SoapHttpException.class,
+                () -> client.sendSoapRequest(REQUEST_XML));
+        assertEquals(500, soapHttpException.getStatusCode());
+        assertNull(soapHttpException.getStatusMessage());
+        assertEquals("HTTP response was \"500\". Server returned:\n" +
+                "\"<faultstring>Server was unable to process request</faultstring>\"", soapHttpException.getMessage());
+        SimpleSoapClientImplTest.assertConnectionReleased(client);
+    }
+
+    @Test
+    void sendSoapRequestFallsBackToHttp11() throws Exception {
+        startServer(false, 0);
+        SimpleSoapClientImpl client = SimpleSoapClientImpl.builder(serviceUrl, "http://tempuri.org", "Add")
+                .transport(SoapTransport.http2())
+                .build();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(client.sendSoapRequest(REQUEST_XML).contains("<AddResult>4</AddResult>"));
+        }
+        assertEquals(Collections.singleton("HTTP/1.1"), protocols);
+    }
+
+    @Test
+    void sendSoapRequestNegativeConnectionRefusedOverHttp2() throws Exception {
+        startServer(true, 0);
+        server.stop();
+        SimpleSoapClientImpl client = SimpleSoapClientImpl.builder(serviceUrl, "http://tempuri.org", "Add")
+                .transport(SoapTransport.http2())
+                .build();
+        SimpleSoapClientException simpleSoapClientException = assertThrows(SimpleSoapClientException.class,
+                () -> client.sendSoapRequest(REQUEST_XML));
+        assertEquals("Couldn't send SOAP request", simpleSoapClientException.getMessage());
+        assertInstanceOf(ConnectException.class, simpleSoapClientException.getCause());
+        SimpleSoapClientImplTest.assertConnectionReleased(client);
+    }
+
+    @Test
+    void sendSoapRequestNegativeConnectTimeoutWithoutReadTimeoutOverHttp2() throws Exception {
+        // A listener that never accepts, with its backlog filled, drops further SYNs like a black-holed host
+        try (ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            List<SocketChannel> backlog = new ArrayList<>();
+            try {
+                for (int i = 0; i < 8; i++) {
+                    SocketChannel channel = SocketChannel.open();
+                    channel.configureBlocking(false);
+                    channel.connect(new InetSocketAddress(listener.getInetAddress(), listener.getLocalPort()));
+                    backlog.add(channel);
+                }
+                SimpleSoapClientImpl client = SimpleSoapClientImpl.builder(
+                        String.format("http://localhost:%d/calculator", listener.getLocalPort()),
+                        "http://tempuri.org", "Add")
+                        .transport(SoapTransport.http2())
+                        .connectTimeout(Duration.ofMillis(500))
+                        .build();
+                SimpleSoapClientException simpleSoapClientException = assertTimeoutPreemptively(
+                        Duration.ofSeconds(10), () -> assertThrows(SimpleSoapClientException.class,
+                                () -> client.sendSoapRequest(REQUEST_XML)));
+                assertInstanceOf(ConnectException.class, simpleSoapClientException.getCause());
+            } finally {
+                for (SocketChannel channel : backlog) {
+                    channel.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.yevgenyk.simplesoapclient;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadBalancerTest {
+
+    private static final File REQUEST_XML = new File("src/test/resources/requestExample.xml");
+
+    private final List<WireMockServer> wireMockServers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (WireMockServer wireMockServer : wireMockServers) {
+            wireMockServer.stop();
+        }
+    }
+
+    /**
+     * Starts a server per node on ports 8081, 8082 and so on, answering "Add" requests with the node's number.
+     */
+    private List<String> startNodes(int nodes) {
+        List<String> serviceUrls = new ArrayList<>();
+        for (int node = 1; node <= nodes; node++) {
+            WireMockServer wireMockServer = new WireMockServer(8080 + node);
+            wireMockServer.start();
+            wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                    .willReturn(okTextXml(String.format("<AddResult>%d</AddResult>", node))));
+            wireMockServers.add(wireMockServer);
+            serviceUrls.add(String.format("http://localhost:%d/calculator", 8080 + node));
+        }
+        return serviceUrls;
+    }
+
+    private int requestsTo(int node) {
+        return wireMockServers.get(node - 1).countRequestsMatching(
+                postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")).build()).getCount();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadlineNanos, "Timed out waiting for the load balancer");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void roundRobinSpreadsLoad() throws SimpleSoapClientException {
+        LoadBalancer loadBalancer = LoadBalancer.builder(startNodes(3)).build();
+        SimpleSoapClient client = SimpleSoapClientImpl.builder(loadBalancer, "http://tempuri.org", "Add").build();
+        List<String> responses = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            responses.add(client.sendSoapRequest(REQUEST_XML));
+        }
+        assertEquals(Arrays.asList("<AddResult>1</AddResult>", "<AddResult>2</AddResult>", "<AddResult>3</AddResult>",
+                "<AddResult>1</AddResult>", "<AddResult>2</AddResult>", "<AddResult>3</AddResult>"), responses);
+        for (LoadBalancer.Endpoint endpoint : loadBalancer.getEndpoints()) {
+            assertEquals(0, endpoint.getOutstandingRequests());
+            assertTrue(endpoint.getLatencyEwmaNanos() > 0);
+        }
+    }
+
+    @Test
+    void leastOutstandingRequestsAvoidsBusyEndpoint() throws Exception {
+        List<String> serviceUrls = startNodes(2);
+        wireMockServers.get(0).stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>1</AddResult>").withFixedDelay(1000)));
+        LoadBalancer loadBalancer = LoadBalancer.builder(serviceUrls)
+                .strategy(LoadBalancingStrategy.leastOutstandingRequests())
+                .build();
+        SimpleSoapClient client = SimpleSoapClientImpl.builder(loadBalancer, "http://tempuri.org", "Add").build();
+        CompletableFuture<String> slowResponse = client.sendSoapRequestAsync(REQUEST_XML);
+        awaitUntil(() -> loadBalancer.getEndpoints().get(0).getOutstandingRequests() == 1);
+        for (int i = 0; i < 4; i++) {
+            assertEquals("<AddResult>2</AddResult>", client.sendSoapRequest(REQUEST_XML));
+        }
+        assertEquals("<AddResult>1</AddResult>", slowResponse.get(10, TimeUnit.SECONDS));
+        assertEquals(1, requestsTo(1));
+        assertEquals(4, requestsTo(2));
+    }
+
+    @Test
+    void latencyEwmaPrefersFastEndpoint() throws SimpleSoapClientException {
+        List<String> serviceUrls = startNodes(2);
+        wireMockServers.get(0).stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>1</AddResult>").withFixedDelay(200)));
+        LoadBalancer loadBalancer = LoadBalancer.builder(serviceUrls)
+                .strategy(LoadBalancingStrategy.latencyEwma())
+                .build();
+        SimpleSoapClient client = SimpleSoapClientImpl.builder(loadBalancer, "http://tempuri.org", "Add").build();
+        for (int i = 0; i < 10; i++) {
+            client.sendSoapRequest(REQUEST_XML);
+        }
+        // Each endpoint is tried once before their latencies are compared
+        assertEquals(1, requestsTo(1));
+        assertEquals(9, requestsTo(2));
+        assertTrue(loadBalancer.getEndpoints().get(0).getLatencyEwmaNanos()
+                > loadBalancer.getEndpoints().get(1).getLatencyEwmaNanos());
+    }
+
+    @Test
+    void latencyEwmaRetriesEndpointAfterSlowResponse() throws Exception {
+        List<String> serviceUrls = startNodes(2);
+        wireMockServers.get(0).stubFor(post("/calculator.asmx?op=Add").inScenario("cold").whenScenarioStateIs(STARTED)
+                .willReturn(okTextXml("<AddResult>1</AddResult>").withFixedDelay(500)).willSetStateTo("warm"));
+        wireMockServers.get(0).stubFor(post("/calculator.asmx?op=Add").inScenario("cold").whenScenarioStateIs("warm")
+                .willReturn(okTextXml("<AddResult>1</AddResult>")));
+        LoadBalancer loadBalancer = LoadBalancer.builder(serviceUrls)
+                .strategy(LoadBalancingStrategy.latencyEwma())
+                .latencyHalfLife(Duration.ofMillis(50))
+                .build();
+        SimpleSoapClient client = SimpleSoapClientImpl.builder(loadBalancer, "http://tempuri.org", "Add").build();
+        client.sendSoapRequest(REQUEST_XML);
+        client.sendSoapRequest(REQUEST_XML);
+        // Only one request is in flight at a time, so the slow endpoint is picked again only once its average decayed
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (requestsTo(1) < 2) {
+            assertTrue(System.nanoTime() < deadlineNanos, "Slow endpoint was never picked again");
+            client.sendSoapRequest(REQUEST_XML);
+            Thread.sleep(10);
+        }
+        // After a fast response, it shares the load again
+        int fastRequestsBefore = requestsTo(1);
+        for (int i = 0; i < 20; i++) {
+            client.sendSoapRequest(REQUEST_XML);
+        }
+        assertTrue(requestsTo(1) - fastRequestsBefore >= 5, String.valueOf(requestsTo(1) - fastRequestsBefore));
+    }
+
+    @Test
+    void failingEndpointIsEjectedAndRecoveredByProbes() throws Exception {
+        List<String> serviceUrls = startNodes(3);
+        WireMockServer failingServer = wireMockServers.get(1);
+        failingServer.stubFor(any(urlPathEqualTo("/calculator.asmx")).willReturn(serviceUnavailable()));
+        LoadBalancer loadBalancer = LoadBalancer.builder(serviceUrls)
+                .ejectionThreshold(2)
+                .probeInterval(Duration.ofMillis(50))
+                .build();
+        SimpleSoapClient client = SimpleSoapClientImpl.builder(loadBalancer, "http://tempuri.org", "Add")
+                .retryPolicy(RetryPolicy.builder().maxAttempts(2).initialBackoff(Duration.ZERO).build())
+                .build();
+        for (int i = 0; i < 12; i++) {
+            assertNotEquals("<AddResult>2</AddResult>", client.sendSoapRequest(REQUEST_XML));
+        }
+        LoadBalancer.Endpoint failingEndpoint = loadBalancer.getEndpoints().get(1);
+        assertTrue(failingEndpoint.isEjected());
+        assertEquals(1, loadBalancer.getEjections());
+        assertEquals(2, requestsTo(2));
+        awaitUntil(() -> failingServer.countRequestsMatching(
+                getRequestedFor(urlEqualTo("/calculator.asmx?WSDL")).build()).getCount() >= 2);
+        assertTrue(failingEndpoint.isEjected());
+
+        failingServer.resetAll();
+        failingServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml("<AddResult>2</AddResult>")));
+        awaitUntil(() -> !failingEndpoint.isEjected());
+        List<String> responses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            responses.add(client.sendSoapRequest(REQUEST_XML));
+        }
+        assertTrue(responses.contains("<AddResult>2</AddResult>"));
+    }
+
+    @Test
+    void stoppedEndpointFailsOver() throws SimpleSoapClientException {
+        LoadBalancer loadBalancer = LoadBalancer.builder(startNodes(2)).ejectionThreshold(1).build();
+        wireMockServers.get(0).stop();
+        SimpleSoapClient client = SimpleSoapClientImpl.builder(loadBalancer, "http://tempuri.org", "Add")
+                .retryPolicy(RetryPolicy.builder().maxAttempts(2).initialBackoff(Duration.ZERO).build())
+                .build();
+        for (int i = 0; i < 4; i++) {
+            assertEquals("<AddResult>2</AddResult>", client.sendSoapRequest(REQUEST_XML));
+        }
+        assertTrue(loadBalancer.getEndpoints().get(0).isEjected());
+        assertEquals(4, requestsTo(2));
+    }
+
+    @Test
+    void allEndpointsEjectedStillGetRequests() throws SimpleSoapClientException {
+        List<String> serviceUrls = startNodes(2);
+        for (WireMockServer wireMockServer : wireMockServers) {
+            wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(serverError()));
+        }
+        LoadBalancer loadBalancer = LoadBalancer.builder(serviceUrls)
+                .ejectionThreshold(1)
+                .probeInterval(Duration.ofMinutes(1))
+                .build();
+        SimpleSoapClient client = SimpleSoapClientImpl.builder(loadBalancer, "http://tempuri.org", "Add").build();
+        assertThrows(SoapHttpException.class, () -> client.sendSoapRequest(REQUEST_XML));
+        assertThrows(SoapHttpException.class, () -> client.sendSoapRequest(REQUEST_XML));
+        assertTrue(loadBalancer.getEndpoints().get(0).isEjected());
+        assertTrue(loadBalancer.getEndpoints().get(1).isEjected());
+        wireMockServers.get(0).stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>1</AddResult>")));
+        wireMockServers.get(1).stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>2</AddResult>")));
+        // The first endpoint to answer is brought back, and gets the requests until the other one is probed
+        String response = client.sendSoapRequest(REQUEST_XML);
+        assertEquals(1, loadBalancer.getEndpoints().stream().filter(LoadBalancer.Endpoint::isEjected).count());
+        assertEquals(response, client.sendSoapRequest(REQUEST_XML));
+    }
+
+    @Test
+    void builderNegativeInvalidSettings() {
+        IllegalArgumentException illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> LoadBalancer.builder(Collections.emptyList()).build());
+        assertEquals("At least one service URL is required", illegalArgumentException.getMessage());
+        illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> LoadBalancer.builder(Arrays.asList("http://node1/calculator", "")).build());
+        assertEquals("Service URL must not be empty", illegalArgumentException.getMessage());
+        List<String> repeatedUrls = Arrays.asList("http://node1/calculator", "http://node1/calculator");
+        illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> LoadBalancer.builder(repeatedUrls).build());
+        assertEquals("Service URL \"http://node1/calculator\" was already added",
+                illegalArgumentException.getMessage());
+        illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> LoadBalancer.builder(Collections.singletonList("http://node1/calculator"))
+                        .probeInterval(Duration.ZERO).build());
+        assertEquals("Probe interval must be positive", illegalArgumentException.getMessage());
+        illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> LoadBalancer.builder(Collections.singletonList("http://node1/calculator"))
+                        .ejectionThreshold(-1).build());
+        assertEquals("Ejection threshold must not be negative", illegalArgumentException.getMessage());
+        illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> LoadBalancer.builder(Collections.singletonList("http://node1/calculator"))
+                        .latencyHalfLife(Duration.ZERO).build());
+        assertEquals("Latency half-life must be positive", illegalArgumentException.getMessage());
+    }
+
+    @Test
+    void clientNegativeMalformedEndpoint() {
+        LoadBalancer loadBalancer = LoadBalancer.builder(Arrays.asList("http://localhost:8081/calculator",
+                "calculator")).build();
+        SimpleSoapClientException simpleSoapClientException = assertThrows(SimpleSoapClientException.class,
+                () -> SimpleSoapClientImpl.builder(loadBalancer, "http://tempuri.org", "Add").build());
+        assertEquals("Couldn't parse service URL \"calculator\"", simpleSoapClientException.getMessage());
+    }
+}
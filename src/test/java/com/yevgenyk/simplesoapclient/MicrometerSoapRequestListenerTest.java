@@ -0,0 +1,88 @@
+package com.yevgenyk.simplesoapclient;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicrometerSoapRequestListenerTest {
+
+    private WireMockServer wireMockServer;
+
+    @AfterEach
+    void tearDown() {
+        if (wireMockServer != null) {
+            wireMockServer.stop();
+        }
+    }
+
+    @Test
+    void recordsRequestMetrics() throws IOException, SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml("<AddResult>4</AddResult>")));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").requestListener(new MicrometerSoapRequestListener(meterRegistry)).build();
+        Path requestXml = Paths.get("src/test/resources/requestExample.xml");
+        client.sendSoapRequest(requestXml);
+        client.sendSoapRequest(requestXml);
+        assertEquals(2, meterRegistry.get(MicrometerSoapRequestListener.REQUESTS)
+                .tags("operation", "Add", "status", "200", "outcome", "success").timer().count());
+        for (String phase : new String[]{"connect", "write", "server", "read"}) {
+            assertEquals(2, meterRegistry.get(MicrometerSoapRequestListener.PHASES)
+                    .tags("operation", "Add", "phase", phase).timer().count());
+        }
+        assertEquals(2 * Files.size(requestXml), meterRegistry.get(MicrometerSoapRequestListener.REQUEST_SIZE)
+                .tags("operation", "Add").summary().totalAmount());
+        assertEquals(2 * "<AddResult>4</AddResult>".length(), meterRegistry
+                .get(MicrometerSoapRequestListener.RESPONSE_SIZE).tags("operation", "Add").summary().totalAmount());
+        assertEquals(0, meterRegistry.get(MicrometerSoapRequestListener.ACTIVE_REQUESTS)
+                .tags("operation", "Add").gauge().value());
+        assertTrue(meterRegistry.get(MicrometerSoapRequestListener.PHASES)
+                .tags("operation", "Add", "phase", "server").timer().totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    void recordsErrorsByStatus() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(serverError()));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").requestListener(new MicrometerSoapRequestListener(meterRegistry)).build();
+        for (int i = 0; i < 2; i++) {
+            assertThrows(SimpleSoapClientException.class,
+                    () -> client.sendSoapRequest(Paths.get("src/test/resources/requestExample.xml")));
+        }
+        assertEquals(2, meterRegistry.get(MicrometerSoapRequestListener.ERRORS)
+                .tags("operation", "Add", "status", "500").counter().count());
+        assertEquals(2, meterRegistry.get(MicrometerSoapRequestListener.REQUESTS)
+                .tags("operation", "Add", "status", "500", "outcome", "error").timer().count());
+        assertEquals(1, meterRegistry.find(MicrometerSoapRequestListener.REQUESTS).timers().size());
+        assertEquals(0, meterRegistry.get(MicrometerSoapRequestListener.ACTIVE_REQUESTS)
+                .tags("operation", "Add").gauge().value());
+    }
+
+    @Test
+    void recordsConnectionFailures() throws SimpleSoapClientException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").requestListener(new MicrometerSoapRequestListener(meterRegistry)).build();
+        assertThrows(SimpleSoapClientException.class,
+                () -> client.sendSoapRequest(Paths.get("src/test/resources/requestExample.xml")));
+        assertEquals(1, meterRegistry.get(MicrometerSoapRequestListener.ERRORS)
+                .tags("operation", "Add", "status", "none").counter().count());
+        assertEquals(0, meterRegistry.get(MicrometerSoapRequestListener.PHASES)
+                .tags("operation", "Add", "phase", "server").timer().count());
+    }
+}
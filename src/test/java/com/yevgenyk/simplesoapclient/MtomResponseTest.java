@@ -0,0 +1,256 @@
+package com.yevgenyk.simplesoapclient;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MtomResponseTest {
+
+    private static final String CONTENT_TYPE = "multipart/related; type=\"application/xop+xml\"; " +
+            "boundary=\"uuid:a;b\"; start=\"<root@example.org>\"; start-info=\"text/xml\"";
+
+    private static final String XML = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+            "<soap:Body><GetScanResponse><Name>Dépôt</Name><Scan><xop:Include " +
+            "xmlns:xop=\"http://www.w3.org/2004/08/xop/include\" href=\"cid:scan%40example.org\"/></Scan>" +
+            "</GetScanResponse></soap:Body></soap:Envelope>";
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] part(String headers, byte[] body) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] boundaryAndHeaders = ("\r\n--uuid:a;b\r\n" + headers + "\r\n\r\n").getBytes(ISO_8859_1);
+        outputStream.write(boundaryAndHeaders, 0, boundaryAndHeaders.length);
+        outputStream.write(body, 0, body.length);
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] multipart(byte[]... parts) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] preamble = "This is a multipart message".getBytes(ISO_8859_1);
+        outputStream.write(preamble, 0, preamble.length);
+        for (byte[] part : parts) {
+            outputStream.write(part, 0, part.length);
+        }
+        byte[] closingBoundary = "\r\n--uuid:a;b--\r\n".getBytes(ISO_8859_1);
+        outputStream.write(closingBoundary, 0, closingBoundary.length);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Returns at most a single byte per read, so every boundary spans several reads.
+     */
+    private static InputStream trickle(byte[] bytes) {
+        return new FilterInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 1));
+            }
+        };
+    }
+
+    private static MtomResponse read(InputStream body, String contentType, Path spillDirectory) throws IOException {
+        return new SoapResponse(body, contentType, () -> {
+        }).readMtom(spillDirectory, 1024);
+    }
+
+    private static byte[] readAll(MtomAttachment attachment) throws IOException {
+        try (InputStream inputStream = attachment.getInputStream()) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        }
+    }
+
+    private static long filesIn(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void readMtomSpillsLargeAttachments(@TempDir Path spillDirectory) throws IOException, XmlParsingException,
+            XMLStreamException {
+        byte[] scan = randomBytes(200_000);
+        // Looks like the start of a boundary, but isn't one
+        byte[] signature = "%PDF\r\n--uuid:a;\r\n--uuid:a;".getBytes(ISO_8859_1);
+        byte[] body = multipart(
+                part("Content-Type: application/xop+xml; charset=UTF-8; type=\"text/xml\"\r\n" +
+                        "Content-ID: <root@example.org>", XML.getBytes(UTF_8)),
+                part("content-type: application/pdf\r\nContent-Transfer-Encoding: binary\r\n" +
+                        "Content-ID: <scan@example.org>", scan),
+                part("Content-Type: application/octet-stream\r\nContent-ID: <signature>", signature));
+        try (MtomResponse response = read(trickle(body), CONTENT_TYPE, spillDirectory)) {
+            assertEquals(XML, response.getXml());
+            XmlExtractionResult result = XmlExtractionPlan.builder()
+                    .field("name", "//GetScanResponse/Name")
+                    .build()
+                    .extract(response.getXml());
+            assertEquals("Dépôt", result.getValue("name"));
+            assertEquals(2, response.getAttachments().size());
+            MtomAttachment scanAttachment = response.getAttachment("cid:scan%40example.org");
+            assertEquals("scan@example.org", scanAttachment.getContentId());
+            assertEquals("application/pdf", scanAttachment.getContentType());
+            assertEquals(scan.length, scanAttachment.getSize());
+            assertFalse(scanAttachment.isInMemory());
+            assertArrayEquals(scan, readAll(scanAttachment));
+            MtomAttachment signatureAttachment = response.getAttachment("signature");
+            assertTrue(signatureAttachment.isInMemory());
+            assertArrayEquals(signature, readAll(signatureAttachment));
+            assertNull(response.getAttachment("cid:missing"));
+            assertEquals(1, filesIn(spillDirectory));
+        }
+        assertEquals(0, filesIn(spillDirectory));
+    }
+
+    @Test
+    void readMtomFindsRootPartByContentId() throws IOException {
+        byte[] body = multipart(
+                part("Content-Type: image/png\r\nContent-ID: <thumbnail>", new byte[]{1, 2, 3}),
+                part("Content-Type: application/xop+xml; type=\"text/xml\"\r\nContent-ID: <root@example.org>",
+                        XML.getBytes(UTF_8)));
+        try (MtomResponse response = read(new ByteArrayInputStream(body), CONTENT_TYPE, null)) {
+            assertEquals(XML, response.getXml());
+            assertArrayEquals(new byte[]{1, 2, 3}, readAll(response.getAttachment("thumbnail")));
+        }
+    }
+
+    @Test
+    void readMtomOfPlainResponse() throws IOException {
+        try (MtomResponse response = read(new ByteArrayInputStream(XML.getBytes(UTF_8)), "text/xml; charset=utf-8",
+                null)) {
+            assertEquals(XML, response.getXml());
+            assertEquals(Collections.emptyList(), response.getAttachments());
+        }
+    }
+
+    @Test
+    void transferToMovesSpilledAttachment(@TempDir Path directory) throws IOException {
+        Path spillDirectory = Files.createDirectory(directory.resolve("spill"));
+        byte[] scan = randomBytes(5000);
+        byte[] body = multipart(part("Content-ID: <root@example.org>", XML.getBytes(UTF_8)),
+                part("Content-ID: <scan@example.org>", scan));
+        Path target = directory.resolve("scan.pdf");
+        try (MtomResponse response = read(new ByteArrayInputStream(body), CONTENT_TYPE, spillDirectory)) {
+            MtomAttachment attachment = response.getAttachment("scan@example.org");
+            assertEquals("application/octet-stream", attachment.getContentType());
+            attachment.transferTo(target);
+            assertEquals(0, filesIn(spillDirectory));
+        }
+        assertArrayEquals(scan, Files.readAllBytes(target));
+    }
+
+    @Test
+    void mtomRequestRoundTrip(@TempDir Path directory) throws IOException {
+        Path envelope = Files.write(directory.resolve("request.xml"), XML.getBytes(UTF_8));
+        byte[] scan = randomBytes(100_000);
+        Path scanFile = Files.write(directory.resolve("scan.pdf"), scan);
+        MtomRequest request = MtomRequest.builder(envelope)
+                .attachment("scan@example.org", "application/pdf", scanFile)
+                .attachment("thumbnail", "image/png", Channels.newChannel(new ByteArrayInputStream(new byte[]{7})))
+                .build();
+        RequestBody body = request.body();
+        assertEquals(request.getContentType(), body.contentType());
+        assertEquals(-1, body.contentLength());
+        assertFalse(body.isReplayable());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        body.writeTo(outputStream);
+        try (MtomResponse response = read(new ByteArrayInputStream(outputStream.toByteArray()),
+                request.getContentType(), directory)) {
+            assertEquals(XML, response.getXml());
+            assertArrayEquals(scan, readAll(response.getAttachment("cid:scan%40example.org")));
+            assertEquals("application/pdf", response.getAttachment("scan@example.org").getContentType());
+            assertArrayEquals(new byte[]{7}, readAll(response.getAttachment("thumbnail")));
+        }
+
+        RequestBody fileBody = MtomRequest.builder(envelope)
+                .attachment("scan@example.org", "application/pdf", scanFile)
+                .build()
+                .body();
+        outputStream.reset();
+        fileBody.writeTo(outputStream);
+        assertTrue(fileBody.isReplayable());
+        assertEquals(outputStream.size(), fileBody.contentLength());
+    }
+
+    @Test
+    void closeDeletesAttachmentsWithoutContentId(@TempDir Path spillDirectory) throws IOException {
+        byte[] body = multipart(part("Content-ID: <root@example.org>", XML.getBytes(UTF_8)),
+                part("Content-Type: application/pdf", randomBytes(5000)),
+                part("Content-Type: application/pdf", randomBytes(6000)));
+        try (MtomResponse response = read(new ByteArrayInputStream(body), CONTENT_TYPE, spillDirectory)) {
+            assertEquals(2, response.getAttachments().size());
+            assertNull(response.getAttachment(""));
+            assertEquals(2, filesIn(spillDirectory));
+        }
+        assertEquals(0, filesIn(spillDirectory));
+    }
+
+    @Test
+    void readMtomNegativeDuplicateContentId(@TempDir Path spillDirectory) throws IOException {
+        byte[] body = multipart(part("Content-ID: <root@example.org>", XML.getBytes(UTF_8)),
+                part("Content-ID: <scan@example.org>", randomBytes(5000)),
+                part("Content-ID: <scan@example.org>", randomBytes(6000)));
+        IOException ioException = assertThrows(IOException.class,
+                () -> read(new ByteArrayInputStream(body), CONTENT_TYPE, spillDirectory));
+        assertEquals("Multipart response has more than one part with Content-ID \"scan@example.org\"",
+                ioException.getMessage());
+        assertEquals(0, filesIn(spillDirectory));
+    }
+
+    @Test
+    void readMtomNegativeTruncatedBody(@TempDir Path spillDirectory) throws IOException {
+        byte[] body = multipart(part("Content-ID: <root@example.org>", XML.getBytes(UTF_8)),
+                part("Content-ID: <scan@example.org>", randomBytes(5000)));
+        IOException ioException = assertThrows(IOException.class, () -> read(
+                new ByteArrayInputStream(Arrays.copyOf(body, body.length - 10)), CONTENT_TYPE, spillDirectory));
+        assertEquals("Multipart body ended before its closing boundary", ioException.getMessage());
+        assertEquals(0, filesIn(spillDirectory));
+        ioException = assertThrows(IOException.class,
+                () -> read(new ByteArrayInputStream(body), "multipart/related; type=\"application/xop+xml\"", null));
+        assertEquals("Multipart response has no boundary", ioException.getMessage());
+        ioException = assertThrows(IOException.class, () -> read(new ByteArrayInputStream(body),
+                "multipart/related; boundary=\"uuid:a;b\"; start=\"<other>\"", spillDirectory));
+        assertEquals("Multipart response has no root part", ioException.getMessage());
+        assertEquals(0, filesIn(spillDirectory));
+    }
+
+    @Test
+    void mtomRequestNegativeInvalidAttachments(@TempDir Path directory) {
+        MtomRequest.Builder builder = MtomRequest.builder(directory.resolve("request.xml"))
+                .attachment("scan", "application/pdf", directory.resolve("scan.pdf"));
+        IllegalArgumentException illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> builder.attachment("scan", "application/pdf", directory.resolve("other.pdf")));
+        assertEquals("Attachment \"scan\" was already added", illegalArgumentException.getMessage());
+        illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> builder.attachment("other", "", directory.resolve("other.pdf")));
+        assertEquals("Content type is required", illegalArgumentException.getMessage());
+        illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> MtomRequest.builder((Path) null).build());
+        assertEquals("Request envelope is required", illegalArgumentException.getMessage());
+    }
+}
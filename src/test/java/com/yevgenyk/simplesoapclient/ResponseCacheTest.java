@@ -0,0 +1,200 @@
+package com.yevgenyk.simplesoapclient;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private static final String ENDPOINT = "http://localhost:8080/calculator.asmx?op=Add";
+    private static final String SOAP_ACTION = "http://tempuri.org/Add";
+
+    @Test
+    void getCachesResponse() throws IOException, SimpleSoapClientException {
+        ResponseCache responseCache = new ResponseCache(16);
+        AtomicInteger loads = new AtomicInteger();
+        ResponseCache.Key key = key(ENDPOINT, SOAP_ACTION, "<intA>2</intA>");
+        assertEquals("4", responseCache.get(key, Duration.ofMinutes(1), () -> "" + (4 + loads.getAndIncrement())));
+        assertEquals("4", responseCache.get(key(ENDPOINT, SOAP_ACTION, "<intA>2</intA>"), Duration.ofMinutes(1),
+                () -> "" + (4 + loads.getAndIncrement())));
+        assertEquals(1, loads.get());
+        ResponseCacheStatistics statistics = responseCache.getStatistics();
+        assertEquals(1, statistics.getHits());
+        assertEquals(1, statistics.getMisses());
+    }
+
+    @Test
+    void keyDependsOnEndpointSoapActionAndBody() throws IOException {
+        ResponseCache.Key key = key(ENDPOINT, SOAP_ACTION, "<intA>2</intA>");
+        assertEquals(key, key(ENDPOINT, SOAP_ACTION, "<intA>2</intA>"));
+        assertNotEquals(key, key("http://localhost:8081/calculator.asmx?op=Add", SOAP_ACTION, "<intA>2</intA>"));
+        assertNotEquals(key, key(ENDPOINT, "http://tempuri.org/Subtract", "<intA>2</intA>"));
+        assertNotEquals(key, key(ENDPOINT, SOAP_ACTION, "<intA>3</intA>"));
+    }
+
+    @Test
+    void getEvictsLeastRecentlyUsed() throws IOException, SimpleSoapClientException {
+        ResponseCache responseCache = new ResponseCache(2);
+        ResponseCache.Key first = key(ENDPOINT, SOAP_ACTION, "1");
+        ResponseCache.Key second = key(ENDPOINT, SOAP_ACTION, "2");
+        ResponseCache.Key third = key(ENDPOINT, SOAP_ACTION, "3");
+        responseCache.get(first, Duration.ofMinutes(1), () -> "1");
+        responseCache.get(second, Duration.ofMinutes(1), () -> "2");
+        responseCache.get(first, Duration.ofMinutes(1), () -> "reloaded");
+        responseCache.get(third, Duration.ofMinutes(1), () -> "3");
+        assertEquals("1", responseCache.get(first, Duration.ofMinutes(1), () -> "reloaded"));
+        assertEquals("reloaded", responseCache.get(second, Duration.ofMinutes(1), () -> "reloaded"));
+        assertEquals(2, responseCache.getStatistics().getEvictions());
+        assertEquals(2, responseCache.size());
+    }
+
+    @Test
+    void getExpiresAfterTimeToLive() throws IOException, SimpleSoapClientException, InterruptedException {
+        ResponseCache responseCache = new ResponseCache(16);
+        ResponseCache.Key key = key(ENDPOINT, SOAP_ACTION, "<intA>2</intA>");
+        responseCache.get(key, Duration.ofMillis(50), () -> "4");
+        Thread.sleep(100);
+        assertEquals("5", responseCache.get(key, Duration.ofMillis(50), () -> "5"));
+        ResponseCacheStatistics statistics = responseCache.getStatistics();
+        assertEquals(1, statistics.getExpirations());
+        assertEquals(2, statistics.getMisses());
+    }
+
+    @Test
+    void getCoalescesConcurrentLoads() throws Exception {
+        ResponseCache responseCache = new ResponseCache(16);
+        ResponseCache.Key key = key(ENDPOINT, SOAP_ACTION, "<intA>2</intA>");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> leader = executorService.submit(() -> responseCache.get(key, Duration.ofMinutes(1), () -> {
+                loads.incrementAndGet();
+                loadStarted.countDown();
+                try {
+                    assertTrue(releaseLoad.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new SimpleSoapClientException("Interrupted", e);
+                }
+                return "4";
+            }));
+            assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+            Future<String> follower = executorService.submit(() -> responseCache.get(key, Duration.ofMinutes(1),
+                    () -> "" + loads.incrementAndGet()));
+            while (responseCache.getStatistics().getCoalescedRequests() == 0) {
+                Thread.sleep(10);
+            }
+            releaseLoad.countDown();
+            assertEquals("4", leader.get(10, TimeUnit.SECONDS));
+            assertEquals("4", follower.get(10, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void getReloadsWhenCoalescedLoadIsAborted() throws Exception {
+        ResponseCache responseCache = new ResponseCache(16);
+        ResponseCache.Key key = key(ENDPOINT, SOAP_ACTION, "<intA>2</intA>");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> leader = executorService.submit(() -> responseCache.get(key, Duration.ofMinutes(1), () -> {
+                loads.incrementAndGet();
+                loadStarted.countDown();
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+                } catch (InterruptedException e) {
+                    throw new SimpleSoapClientException("Interrupted", e);
+                }
+                return "leader";
+            }));
+            assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+            Future<String> follower = executorService.submit(() -> responseCache.get(key, Duration.ofMinutes(1),
+                    () -> "" + (3 + loads.incrementAndGet())));
+            while (responseCache.getStatistics().getCoalescedRequests() == 0) {
+                Thread.sleep(10);
+            }
+            leader.cancel(true);
+            assertEquals("5", follower.get(10, TimeUnit.SECONDS));
+            assertEquals(2, loads.get());
+            assertEquals("5", responseCache.get(key, Duration.ofMinutes(1), () -> "reloaded"));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void getNegativeCoalescedLoadFailureShared() throws Exception {
+        ResponseCache responseCache = new ResponseCache(16);
+        ResponseCache.Key key = key(ENDPOINT, SOAP_ACTION, "<intA>2</intA>");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> leader = executorService.submit(() -> responseCache.get(key, Duration.ofMinutes(1), () -> {
+                loads.incrementAndGet();
+                loadStarted.countDown();
+                try {
+                    assertTrue(releaseLoad.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new SimpleSoapClientException("Interrupted", e);
+                }
+                throw new SimpleSoapClientException("HTTP response was \"Server Error\"");
+            }));
+            assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+            Future<String> follower = executorService.submit(() -> responseCache.get(key, Duration.ofMinutes(1),
+                    () -> "" + loads.incrementAndGet()));
+            while (responseCache.getStatistics().getCoalescedRequests() == 0) {
+                Thread.sleep(10);
+            }
+            releaseLoad.countDown();
+            ExecutionException executionException = assertThrows(ExecutionException.class,
+                    () -> follower.get(10, TimeUnit.SECONDS));
+            assertEquals("HTTP response was \"Server Error\"", executionException.getCause().getMessage());
+            assertThrows(ExecutionException.class, () -> leader.get(10, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void getNegativeFailedLoadNotCached() throws IOException, SimpleSoapClientException {
+        ResponseCache responseCache = new ResponseCache(16);
+        ResponseCache.Key key = key(ENDPOINT, SOAP_ACTION, "<intA>2</intA>");
+        SimpleSoapClientException simpleSoapClientException = assertThrows(SimpleSoapClientException.class,
+                () -> responseCache.get(key, Duration.ofMinutes(1), () -> {
+                    throw new SimpleSoapClientException("HTTP response was \"Server Error\"");
+                }));
+        assertEquals("HTTP response was \"Server Error\"", simpleSoapClientException.getMessage());
+        assertEquals("4", responseCache.get(key, Duration.ofMinutes(1), () -> "4"));
+        assertEquals(2, responseCache.getStatistics().getMisses());
+    }
+
+    @Test
+    void responseCacheNegativeInvalidMaximumSize() {
+        IllegalArgumentException illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> new ResponseCache(0));
+        assertEquals("Maximum cache size must be positive", illegalArgumentException.getMessage());
+    }
+
+    private static ResponseCache.Key key(String endpoint, String soapAction, String body) throws IOException {
+        return ResponseCache.key(endpoint, soapAction, RequestBody.of(body.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -1,18 +1,59 @@
 package com.yevgenyk.simplesoapclient;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.github.tomakehurst.wiremock.http.trafficlistener.WiremockNetworkTrafficListener;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.xpath.XPathExpressionException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
 import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * These tests mock a free SOAP service found @http://www.dneonline.com/calculator.asmx.
@@ -53,6 +94,647 @@ class SimpleSoapClientImplTest {
         assertEquals("4", actual);
     }
 
+    @Test
+    void sendSoapRequestReusesConnection() throws IOException, SimpleSoapClientException {
+        SocketCounter socketCounter = new SocketCounter();
+        wireMockServer = new WireMockServer(options().networkTrafficListener(socketCounter));
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml("<AddResult>4</AddResult>")));
+        SimpleSoapClientImpl client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").build();
+        for (int i = 0; i < 5; i++) {
+            assertEquals("<AddResult>4</AddResult>",
+                    client.sendSoapRequest(new File("src/test/resources/requestExample.xml")));
+        }
+        assertEquals(1, socketCounter.opened.get());
+        ConnectionPoolStatistics statistics = client.getConnectionPoolStatistics();
+        assertEquals(5, statistics.getTotalLeases());
+        assertEquals(0, statistics.getLeasedConnections());
+        assertEquals(1, statistics.getPeakLeasedConnections());
+    }
+
+    @Test
+    void sendSoapRequestWithoutKeepAliveOpensConnectionPerRequest() throws IOException, SimpleSoapClientException {
+        SocketCounter socketCounter = new SocketCounter();
+        wireMockServer = new WireMockServer(options().networkTrafficListener(socketCounter));
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml("<AddResult>4</AddResult>")));
+        SimpleSoapClientImpl client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").keepAlive(false).build();
+        for (int i = 0; i < 3; i++) {
+            client.sendSoapRequest(new File("src/test/resources/requestExample.xml"));
+        }
+        assertEquals(3, socketCounter.opened.get());
+    }
+
+    @Test
+    void sendSoapRequestWithCustomTransport() throws IOException, SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml("<AddResult>4</AddResult>")));
+        AtomicInteger exchanges = new AtomicInteger();
+        SoapTransport defaultTransport = SoapTransport.httpUrlConnection();
+        SoapTransport transport = (url, connectTimeoutMillis, readTimeoutMillis) -> {
+            exchanges.incrementAndGet();
+            SoapTransport.Exchange exchange = defaultTransport.newExchange(url, connectTimeoutMillis,
+                    readTimeoutMillis);
+            exchange.setRequestHeader("X-Transport", "custom");
+            return exchange;
+        };
+        SimpleSoapClientImpl client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").transport(transport).build();
+        for (int i = 0; i < 3; i++) {
+            assertEquals("<AddResult>4</AddResult>",
+                    client.sendSoapRequest(new File("src/test/resources/requestExample.xml")));
+        }
+        assertEquals(3, exchanges.get());
+        wireMockServer.verify(3, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add"))
+                .withHeader("X-Transport", equalTo("custom"))
+                .withHeader("SOAPAction", equalTo("http://tempuri.org/Add")));
+        assertConnectionReleased(client);
+    }
+
+    @Test
+    void sendSoapRequestConcurrentlyWithSharedClient(@TempDir Path tempDir) throws Exception {
+        int threads = 32;
+        int requestsPerThread = 25;
+        wireMockServer = new WireMockServer(options().extensions(new ResponseTemplateTransformer(false)));
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>{{xPath request.body '//intA/text()'}}</AddResult>")
+                        .withTransformers("response-template")));
+        SimpleSoapClientImpl client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").maxConnectionsPerHost(8).build();
+        String template = new String(Files.readAllBytes(new File("src/test/resources/requestExample.xml").toPath()),
+                StandardCharsets.UTF_8);
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executorService.submit(() -> {
+                    startLatch.await();
+                    for (int i = 0; i < requestsPerThread; i++) {
+                        String value = String.valueOf(thread * requestsPerThread + i);
+                        Path requestXml = tempDir.resolve(value + ".xml");
+                        Files.write(requestXml, template.replace("<intA>2</intA>", "<intA>" + value + "</intA>")
+                                .getBytes(StandardCharsets.UTF_8));
+                        assertEquals("<AddResult>" + value + "</AddResult>",
+                                client.sendSoapRequest(requestXml.toFile()));
+                    }
+                    return null;
+                }));
+            }
+            startLatch.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        int totalRequests = threads * requestsPerThread;
+        assertEquals(totalRequests, wireMockServer.countRequestsMatching(
+                postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")).build()).getCount());
+        ConnectionPoolStatistics statistics = client.getConnectionPoolStatistics();
+        assertEquals(totalRequests, statistics.getTotalLeases());
+        assertEquals(0, statistics.getLeasedConnections());
+        assertTrue(statistics.getPeakLeasedConnections() <= 8);
+    }
+
+    @Test
+    void sendSoapRequestAsync() throws Exception {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml("<AddResult>4</AddResult>")));
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                    "http://tempuri.org", "Add").executor(executorService).build();
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(client.sendSoapRequestAsync(new File("src/test/resources/requestExample.xml")));
+            }
+            for (CompletableFuture<String> future : futures) {
+                assertEquals("<AddResult>4</AddResult>", future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void sendSoapRequestAsyncNegativeTimeout() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>4</AddResult>").withFixedDelay(5000)));
+        SimpleSoapClientImpl client = new SimpleSoapClientImpl("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add");
+        CompletableFuture<String> future = client.sendSoapRequestAsync(
+                new File("src/test/resources/requestExample.xml"), Duration.ofMillis(200));
+        ExecutionException executionException = assertThrows(ExecutionException.class,
+                () -> future.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(SimpleSoapClientException.class, executionException.getCause());
+        assertEquals("SOAP request timed out after 200 ms", executionException.getCause().getMessage());
+        assertConnectionReleased(client);
+    }
+
+    @Test
+    void sendSoapRequestAsyncCancel() throws Exception {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>4</AddResult>").withFixedDelay(5000)));
+        SimpleSoapClientImpl client = new SimpleSoapClientImpl("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add");
+        CompletableFuture<String> future =
+                client.sendSoapRequestAsync(new File("src/test/resources/requestExample.xml"));
+        while (client.getConnectionPoolStatistics().getLeasedConnections() == 0) {
+            Thread.sleep(10);
+        }
+        assertTrue(future.cancel(true));
+        assertThrows(CancellationException.class, future::join);
+    }
+
+    @Test
+    void sendSoapRequestAsyncUsesBoundedThreads() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer(options().containerThreads(200));
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>4</AddResult>").withFixedDelay(200)));
+        SimpleSoapClientImpl client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").maxConnectionsPerHost(ConnectionPool.UNBOUNDED).build();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 2 * SimpleSoapClientImpl.DEFAULT_ASYNC_THREADS; i++) {
+            futures.add(client.sendSoapRequestAsync(new File("src/test/resources/requestExample.xml")));
+        }
+        futures.forEach(future -> assertEquals("<AddResult>4</AddResult>", future.join()));
+        long asyncThreads = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("simple-soap-client-async-"))
+                .count();
+        assertTrue(asyncThreads <= SimpleSoapClientImpl.DEFAULT_ASYNC_THREADS, String.valueOf(asyncThreads));
+        assertEquals(SimpleSoapClientImpl.DEFAULT_ASYNC_THREADS, client.getConnectionPoolStatistics()
+                .getPeakLeasedConnections());
+    }
+
+    @Test
+    void sendAll(@TempDir Path tempDir) throws IOException, SimpleSoapClientException {
+        wireMockServer = new WireMockServer(options().extensions(new ResponseTemplateTransformer(false)));
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>{{xPath request.body '//intA/text()'}}</AddResult>")
+                        .withTransformers("response-template")));
+        SimpleSoapClient client = new SimpleSoapClientImpl("http://localhost:8080/calculator", "http://tempuri.org",
+                "Add");
+        String template = new String(Files.readAllBytes(new File("src/test/resources/requestExample.xml").toPath()),
+                StandardCharsets.UTF_8);
+        List<File> requestXmls = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Path requestXml = tempDir.resolve(i + ".xml");
+            Files.write(requestXml, template.replace("<intA>2</intA>", "<intA>" + i + "</intA>")
+                    .getBytes(StandardCharsets.UTF_8));
+            requestXmls.add(requestXml.toFile());
+            expected.add("<AddResult>" + i + "</AddResult>");
+        }
+        assertEquals(expected, client.sendAll(requestXmls));
+    }
+
+    @Test
+    void sendAllSendsInWindowOfConnections() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>4</AddResult>").withFixedDelay(20)));
+        AtomicInteger runningTasks = new AtomicInteger();
+        AtomicInteger peakRunningTasks = new AtomicInteger();
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        Executor countingExecutor = task -> executorService.execute(() -> {
+            peakRunningTasks.accumulateAndGet(runningTasks.incrementAndGet(), Math::max);
+            try {
+                task.run();
+            } finally {
+                runningTasks.decrementAndGet();
+            }
+        });
+        try {
+            SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                    "http://tempuri.org", "Add").maxConnectionsPerHost(3).executor(countingExecutor).build();
+            List<File> requestXmls = new ArrayList<>(Collections.nCopies(30,
+                    new File("src/test/resources/requestExample.xml")));
+            assertEquals(Collections.nCopies(30, "<AddResult>4</AddResult>"), client.sendAll(requestXmls));
+            // A task may still be returning after its response released its place in the window
+            assertTrue(peakRunningTasks.get() <= 2 * 3, String.valueOf(peakRunningTasks.get()));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void sendAllWithUnboundedPoolAndOwnExecutorHasNoWindow() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml("<AddResult>4</AddResult>")));
+        int requests = 2 * SimpleSoapClientImpl.DEFAULT_ASYNC_THREADS;
+        CountDownLatch allSubmitted = new CountDownLatch(requests);
+        AtomicInteger heldBack = new AtomicInteger();
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        // Every task waits until all of them were submitted, which a window would never let happen
+        Executor waitingExecutor = task -> {
+            allSubmitted.countDown();
+            executorService.execute(() -> {
+                try {
+                    if (!allSubmitted.await(3, TimeUnit.SECONDS)) {
+                        heldBack.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                task.run();
+            });
+        };
+        try {
+            SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                    "http://tempuri.org", "Add").maxConnectionsPerHost(ConnectionPool.UNBOUNDED)
+                    .executor(waitingExecutor).build();
+            List<File> requestXmls = new ArrayList<>(Collections.nCopies(requests,
+                    new File("src/test/resources/requestExample.xml")));
+            assertEquals(Collections.nCopies(requests, "<AddResult>4</AddResult>"), client.sendAll(requestXmls));
+            assertEquals(0, heldBack.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void sendAllNegativeFailedRequest() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(serverError()));
+        SimpleSoapClient client = new SimpleSoapClientImpl("http://localhost:8080/calculator", "http://tempuri.org",
+                "Add");
+        List<File> requestXmls = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            requestXmls.add(new File("src/test/resources/requestExample.xml"));
+        }
+        SimpleSoapClientException simpleSoapClientException = assertThrows(SimpleSoapClientException.class,
+                () -> client.sendAll(requestXmls));
+        assertTrue(simpleSoapClientException.getMessage().startsWith("HTTP response was \"Server Error\""));
+    }
+
+    @Test
+    void sendSoapRequestWithResponseCache() throws IOException, SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml("<AddResult>4</AddResult>")));
+        ResponseCache responseCache = new ResponseCache(16);
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").responseCache(responseCache, Duration.ofMinutes(1)).build();
+        Path requestXml = Paths.get("src/test/resources/requestExample.xml");
+        assertEquals("<AddResult>4</AddResult>", client.sendSoapRequest(requestXml));
+        assertEquals("<AddResult>4</AddResult>", client.sendSoapRequest(requestXml.toFile()));
+        try (InputStream inputStream = Files.newInputStream(requestXml)) {
+            assertEquals("<AddResult>4</AddResult>", client.sendSoapRequest(inputStream));
+        }
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+        ResponseCacheStatistics statistics = responseCache.getStatistics();
+        assertEquals(1, statistics.getMisses());
+        assertEquals(2, statistics.getHits());
+        assertEquals(1, statistics.getSize());
+    }
+
+    @Test
+    void sendSoapRequestWithResponseCacheCoalescesConcurrentRequests() throws Exception {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>4</AddResult>").withFixedDelay(500)));
+        ResponseCache responseCache = new ResponseCache(16);
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").responseCache(responseCache, Duration.ofMinutes(1)).build();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(client.sendSoapRequestAsync(new File("src/test/resources/requestExample.xml")));
+        }
+        for (CompletableFuture<String> future : futures) {
+            assertEquals("<AddResult>4</AddResult>", future.get(10, TimeUnit.SECONDS));
+        }
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+        ResponseCacheStatistics statistics = responseCache.getStatistics();
+        assertEquals(1, statistics.getMisses());
+        assertEquals(9, statistics.getHits() + statistics.getCoalescedRequests());
+    }
+
+    @Test
+    void sendSoapRequestWithResponseCacheCoalescedRequestOutlivesCancelledOne() throws Exception {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>4</AddResult>").withFixedDelay(500)));
+        ResponseCache responseCache = new ResponseCache(16);
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").responseCache(responseCache, Duration.ofMinutes(1)).build();
+        File requestXml = new File("src/test/resources/requestExample.xml");
+        CompletableFuture<String> cancelled = client.sendSoapRequestAsync(requestXml);
+        while (responseCache.getStatistics().getMisses() == 0) {
+            Thread.sleep(10);
+        }
+        CompletableFuture<String> coalesced = client.sendSoapRequestAsync(requestXml);
+        while (responseCache.getStatistics().getCoalescedRequests() == 0) {
+            Thread.sleep(10);
+        }
+        cancelled.cancel(true);
+        assertEquals("<AddResult>4</AddResult>", coalesced.get(10, TimeUnit.SECONDS));
+        wireMockServer.verify(2, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+        assertEquals(1, responseCache.getStatistics().getSize());
+    }
+
+    @Test
+    void sendSoapRequestWithResponseCacheNegativeErrorNotCached() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(serverError()));
+        ResponseCache responseCache = new ResponseCache(16);
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").responseCache(responseCache, Duration.ofMinutes(1)).build();
+        File requestXml = new File("src/test/resources/requestExample.xml");
+        assertThrows(SimpleSoapClientException.class, () -> client.sendSoapRequest(requestXml));
+        assertThrows(SimpleSoapClientException.class, () -> client.sendSoapRequest(requestXml));
+        wireMockServer.verify(2, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+        assertEquals(0, responseCache.getStatistics().getSize());
+    }
+
+    @Test
+    void responseCacheNegativeInvalidTimeToLive() {
+        IllegalArgumentException illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> SimpleSoapClientImpl.builder("http://localhost:8080/calculator", "http://tempuri.org", "Add")
+                        .responseCache(new ResponseCache(16), Duration.ZERO).build());
+        assertEquals("Response cache time-to-live must be positive", illegalArgumentException.getMessage());
+    }
+
+    @Test
+    void sendSoapRequestWithRequestListener() throws IOException, SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml("<AddResult>4</AddResult>")));
+        List<String> startedOperations = new ArrayList<>();
+        List<SoapRequestEvent> events = new ArrayList<>();
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").requestListener(new SoapRequestListener() {
+            @Override
+            public void onRequestStart(String wsOperation) {
+                startedOperations.add(wsOperation);
+            }
+
+            @Override
+            public void onRequestEnd(SoapRequestEvent event) {
+                events.add(event);
+            }
+        }).build();
+        Path requestXml = Paths.get("src/test/resources/requestExample.xml");
+        try (InputStream inputStream = Files.newInputStream(requestXml)) {
+            client.sendSoapRequest(inputStream);
+        }
+        assertEquals(Collections.singletonList("Add"), startedOperations);
+        assertEquals(1, events.size());
+        SoapRequestEvent event = events.get(0);
+        assertFalse(event.isFailed());
+        assertEquals(200, event.getHttpStatus());
+        assertEquals(Files.size(requestXml), event.getRequestBytes());
+        assertEquals("<AddResult>4</AddResult>".length(), event.getResponseBytes());
+        assertTrue(event.getConnectNanos() >= 0 && event.getWriteNanos() >= 0 && event.getServerNanos() >= 0
+                && event.getReadNanos() >= 0);
+        assertTrue(event.getTotalNanos() >= event.getConnectNanos() + event.getWriteNanos() + event.getServerNanos()
+                + event.getReadNanos());
+    }
+
+    @Test
+    void sendSoapRequestFromPathWithFixedLength() throws IOException, SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml("<AddResult>4</AddResult>")));
+        SimpleSoapClient client = new SimpleSoapClientImpl("http://localhost:8080/calculator", "http://tempuri.org",
+                "Add");
+        Path requestXml = Paths.get("src/test/resources/requestExample.xml");
+        assertEquals("<AddResult>4</AddResult>", client.sendSoapRequest(requestXml));
+        wireMockServer.verify(postRequestedFor(urlEqualTo("/calculator.asmx?op=Add"))
+                .withHeader("Content-Length", equalTo(String.valueOf(Files.size(requestXml))))
+                .withRequestBody(equalTo(new String(Files.readAllBytes(requestXml), StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void sendSoapRequestFromInputStreamChunked() throws IOException, SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml("<AddResult>4</AddResult>")));
+        SimpleSoapClient client = new SimpleSoapClientImpl("http://localhost:8080/calculator", "http://tempuri.org",
+                "Add");
+        Path requestXml = Paths.get("src/test/resources/requestExample.xml");
+        try (InputStream inputStream = Files.newInputStream(requestXml)) {
+            assertEquals("<AddResult>4</AddResult>", client.sendSoapRequest(inputStream));
+        }
+        wireMockServer.verify(postRequestedFor(urlEqualTo("/calculator.asmx?op=Add"))
+                .withHeader("Transfer-Encoding", equalTo("chunked"))
+                .withRequestBody(equalTo(new String(Files.readAllBytes(requestXml), StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void sendSoapRequestFromChannelChunked() throws IOException, SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml("<AddResult>4</AddResult>")));
+        SimpleSoapClient client = new SimpleSoapClientImpl("http://localhost:8080/calculator", "http://tempuri.org",
+                "Add");
+        Path requestXml = Paths.get("src/test/resources/requestExample.xml");
+        try (ReadableByteChannel channel = FileChannel.open(requestXml, StandardOpenOption.READ)) {
+            assertEquals("<AddResult>4</AddResult>", client.sendSoapRequest(channel));
+        }
+        wireMockServer.verify(postRequestedFor(urlEqualTo("/calculator.asmx?op=Add"))
+                .withHeader("Transfer-Encoding", equalTo("chunked"))
+                .withRequestBody(equalTo(new String(Files.readAllBytes(requestXml), StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void sendSoapRequestFromTemplate() throws Exception {
+        wireMockServer = new WireMockServer(options().extensions(new ResponseTemplateTransformer(false)));
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>{{xPath request.body '//intA/text()'}}</AddResult>")
+                        .withTransformers("response-template")));
+        SimpleSoapClient client = new SimpleSoapClientImpl("http://localhost:8080/calculator", "http://tempuri.org",
+                "Add");
+        SoapEnvelopeTemplate template =
+                SoapEnvelopeTemplate.compile(Paths.get("src/test/resources/requestTemplate.xml"));
+        Map<String, Object> values = new HashMap<>();
+        values.put("a", 2);
+        values.put("b", 2);
+        assertEquals("<AddResult>2</AddResult>", client.sendSoapRequest(template, values));
+        values.put("a", 3);
+        assertEquals("<AddResult>3</AddResult>",
+                client.sendSoapRequestAsync(template, values, Duration.ofSeconds(10)).get(10, TimeUnit.SECONDS));
+        Path requestXml = Paths.get("src/test/resources/requestExample.xml");
+        wireMockServer.verify(postRequestedFor(urlEqualTo("/calculator.asmx?op=Add"))
+                .withHeader("Content-Length", equalTo(String.valueOf(Files.size(requestXml))))
+                .withRequestBody(equalTo(new String(Files.readAllBytes(requestXml), StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void sendSoapRequestFromTemplateNegativeMissingValue() throws SimpleSoapClientException {
+        SimpleSoapClient client = new SimpleSoapClientImpl("http://localhost:8080/calculator", "http://tempuri.org",
+                "Add");
+        SoapEnvelopeTemplate template = SoapEnvelopeTemplate.compile("<intA>${a}</intA>");
+        SimpleSoapClientException simpleSoapClientException = assertThrows(SimpleSoapClientException.class,
+                () -> client.sendSoapRequest(template, new HashMap<>()));
+        assertEquals("No value for placeholder \"a\"", simpleSoapClientException.getMessage());
+    }
+
+    @Test
+    void sendSoapRequestForResponse() throws IOException, SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(aResponse()
+                .withHeader("Content-Type", "text/xml; charset=ISO-8859-1")
+                .withBody("<AddResult>\r\n4 \u00e9\r\n</AddResult>".getBytes(StandardCharsets.ISO_8859_1))));
+        SimpleSoapClientImpl client = new SimpleSoapClientImpl("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add");
+        try (SoapResponse response =
+                     client.sendSoapRequestForResponse(Paths.get("src/test/resources/requestExample.xml"))) {
+            assertEquals(StandardCharsets.ISO_8859_1, response.getCharset());
+            assertEquals(1, client.getConnectionPoolStatistics().getLeasedConnections());
+            assertEquals("<AddResult>\r\n4 \u00e9\r\n</AddResult>", response.readString());
+        }
+        assertEquals(0, client.getConnectionPoolStatistics().getLeasedConnections());
+        assertEquals("<AddResult>\r\n4 \u00e9\r\n</AddResult>",
+                client.sendSoapRequest(Paths.get("src/test/resources/requestExample.xml")));
+    }
+
+    @Test
+    void sendSoapRequestForResponseBytes(@TempDir Path tempDir) throws SimpleSoapClientException, IOException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        byte[] body = "<AddResult>4 \u00e9</AddResult>".getBytes(StandardCharsets.ISO_8859_1);
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(aResponse()
+                .withHeader("Content-Type", "text/xml; charset=ISO-8859-1")
+                .withHeader("Content-Length", String.valueOf(body.length))
+                .withBody(body)));
+        SimpleSoapClientImpl client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").acceptCompressedResponses(false).build();
+        try (SoapResponse response =
+                     client.sendSoapRequestForResponse(Paths.get("src/test/resources/requestExample.xml"))) {
+            assertEquals(body.length, response.getContentLength());
+            ByteBuffer buffer = response.readByteBuffer();
+            assertArrayEquals(body, Arrays.copyOfRange(buffer.array(), buffer.position(), buffer.limit()));
+        }
+        SimpleSoapClientImpl compressingClient = new SimpleSoapClientImpl("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add");
+        Path file = tempDir.resolve("response.xml");
+        try (SoapResponse response =
+                     compressingClient.sendSoapRequestForResponse(Paths.get("src/test/resources/requestExample.xml"))) {
+            assertEquals(body.length, response.transferTo(file));
+        }
+        assertArrayEquals(body, Files.readAllBytes(file));
+        assertEquals(0, compressingClient.getConnectionPoolStatistics().getLeasedConnections());
+    }
+
+    @Test
+    void sendSoapRequestWithMtomAttachments(@TempDir Path tempDir) throws SimpleSoapClientException, IOException,
+            XMLStreamException, XmlParsingException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        byte[] scan = new byte[100_000];
+        Arrays.fill(scan, (byte) 0xab);
+        ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+        responseBody.write(("--boundary\r\nContent-Type: application/xop+xml; charset=UTF-8; type=\"text/xml\"\r\n" +
+                "Content-ID: <root>\r\n\r\n<StoreResult><Scan><xop:Include href=\"cid:copy\" " +
+                "xmlns:xop=\"http://www.w3.org/2004/08/xop/include\"/></Scan></StoreResult>\r\n--boundary\r\n" +
+                "Content-Type: application/pdf\r\nContent-ID: <copy>\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        responseBody.write(scan);
+        responseBody.write("\r\n--boundary--\r\n".getBytes(StandardCharsets.UTF_8));
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .withHeader("Content-Type", matching("multipart/related; type=\"application/xop\\+xml\"; .*"))
+                .withHeader("SOAPAction", equalTo("http://tempuri.org/Add"))
+                .withRequestBody(containing("Content-ID: <scan@example.org>"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "multipart/related; boundary=boundary; start=\"<root>\"")
+                        .withBody(responseBody.toByteArray())));
+        Path scanFile = Files.write(tempDir.resolve("scan.pdf"), scan);
+        MtomRequest request = MtomRequest.builder(Paths.get("src/test/resources/requestExample.xml"))
+                .attachment("scan@example.org", "application/pdf", scanFile)
+                .build();
+        SimpleSoapClientImpl client = new SimpleSoapClientImpl("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add");
+        Path copy = tempDir.resolve("copy.pdf");
+        try (SoapResponse response = client.sendSoapRequestForResponse(request);
+             MtomResponse mtomResponse = response.readMtom(tempDir, 1024)) {
+            assertEquals("", XmlUtilities.extractTextContent(mtomResponse.getXml(),
+                    Collections.singletonList("Scan")).get("Scan"));
+            MtomAttachment attachment = mtomResponse.getAttachment("cid:copy");
+            assertFalse(attachment.isInMemory());
+            attachment.transferTo(copy);
+        }
+        assertArrayEquals(scan, Files.readAllBytes(copy));
+        byte[] requestBody = wireMockServer.getAllServeEvents().get(0).getRequest().getBody();
+        assertEquals(request.body().contentLength(), requestBody.length);
+    }
+
+    @Test
+    void sendMessage() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .withHeader("SOAPAction", equalTo("http://tempuri.org/Add"))
+                .withRequestBody(containing("<soap:Body><Add xmlns=\"http://tempuri.org/\"><intA>2</intA>" +
+                        "<intB>3</intB></Add></soap:Body>"))
+                .willReturn(okTextXml("<?xml version=\"1.0\" encoding=\"utf-8\"?>" +
+                        "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>" +
+                        "<AddResponse xmlns=\"http://tempuri.org/\"><AddResult>5</AddResult></AddResponse>" +
+                        "</soap:Body></soap:Envelope>")));
+        SimpleSoapClient client = new SimpleSoapClientImpl("http://localhost:8080/calculator", "http://tempuri.org",
+                "Add");
+        SoapMarshallerTest.AddResponse addResponse =
+                client.sendMessage(new SoapMarshallerTest.Add(2, 3), SoapMarshallerTest.AddResponse.class);
+        assertEquals(5, addResponse.result);
+        addResponse = client.sendMessage(new SoapMarshallerTest.Add(2, 3),
+                SoapMarshallers.forType(SoapMarshallerTest.Add.class),
+                SoapMarshallers.forType(SoapMarshallerTest.AddResponse.class));
+        assertEquals(5, addResponse.result);
+    }
+
+    @Test
+    void sendMessageNegativeNotGenerated() throws SimpleSoapClientException {
+        SimpleSoapClient client = new SimpleSoapClientImpl("http://localhost:8080/calculator", "http://tempuri.org",
+                "Add");
+        SimpleSoapClientException simpleSoapClientException = assertThrows(SimpleSoapClientException.class,
+                () -> client.sendMessage("<Add/>", SoapMarshallerTest.AddResponse.class));
+        assertEquals("No SOAP marshaller was generated for \"java.lang.String\", is it annotated with @SoapMessage?",
+                simpleSoapClientException.getMessage());
+    }
+
+    @Test
+    void sendSoapRequestWithResponseHandler() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml(
+                "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>" +
+                        "<AddResponse xmlns=\"http://tempuri.org/\"><AddResult>4</AddResult></AddResponse>" +
+                        "</soap:Body></soap:Envelope>")));
+        SimpleSoapClientImpl client = new SimpleSoapClientImpl("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add");
+        String actual = client.sendSoapRequest(Paths.get("src/test/resources/requestExample.xml"), response -> {
+            XMLStreamReader xmlStreamReader = response.getXmlStreamReader();
+            while (xmlStreamReader.hasNext()) {
+                if (xmlStreamReader.next() == XMLStreamConstants.START_ELEMENT
+                        && xmlStreamReader.getLocalName().equals("AddResult")) {
+                    return xmlStreamReader.getElementText();
+                }
+            }
+            return null;
+        });
+        assertEquals("4", actual);
+        assertEquals(0, client.getConnectionPoolStatistics().getLeasedConnections());
+    }
+
     @Test
     void sendSoapRequestNegativeInternalServerError() throws SimpleSoapClientException {
         wireMockServer = new WireMockServer();
@@ -90,6 +772,494 @@ class SimpleSoapClientImplTest {
                 .contains("HTTP response was \"Server Error\". Server returned:"));
     }
 
+    @Test
+    void sendSoapRequestNegativeSoapFault() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(aResponse()
+                .withStatus(HTTP_INTERNAL_ERROR)
+                .withHeader("Content-Type", "text/xml; charset=utf-8")
+                .withBody("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>" +
+                        "<soap:Fault><faultcode>soap:Server</faultcode>" +
+                        "<faultstring> Division by zero </faultstring>" +
+                        "<detail><Error>42</Error></detail></soap:Fault></soap:Body></soap:Envelope>")));
+        SimpleSoapClient client = new SimpleSoapClientImpl("http://localhost:8080/calculator", "http://tempuri.org",
+                "Add");
+        SoapFaultException soapFaultException = assertThrows(SoapFaultException.class,
+                () -> client.sendSoapRequest(new File("src/test/resources/requestExample.xml")));
+        assertEquals(HTTP_INTERNAL_ERROR, soapFaultException.getStatusCode());
+        assertEquals("Server Error", soapFaultException.getStatusMessage());
+        assertEquals("soap:Server", soapFaultException.getFaultCode());
+        assertEquals("Division by zero", soapFaultException.getFaultString());
+        assertNull(soapFaultException.getFaultActor());
+        assertFalse(soapFaultException.isErrorBodyTruncated());
+        assertTrue(soapFaultException.getMessage().startsWith("HTTP response was \"Server Error\". Server returned:"));
+    }
+
+    @Test
+    void sendSoapRequestNegativeSoap12Fault() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(aResponse()
+                .withStatus(HTTP_INTERNAL_ERROR)
+                .withHeader("Content-Type", "application/soap+xml; charset=utf-8")
+                .withBody("<env:Envelope xmlns:env=\"http://www.w3.org/2003/05/soap-envelope\"><env:Body>" +
+                        "<env:Fault><env:Code><env:Value>env:Sender</env:Value>" +
+                        "<env:Subcode><env:Value>m:InvalidNumber</env:Value></env:Subcode></env:Code>" +
+                        "<env:Reason><env:Text xml:lang=\"en\">Not a number</env:Text></env:Reason>" +
+                        "<env:Role>http://tempuri.org/calculator</env:Role>" +
+                        "</env:Fault></env:Body></env:Envelope>")));
+        SimpleSoapClient client = new SimpleSoapClientImpl("http://localhost:8080/calculator", "http://tempuri.org",
+                "Add");
+        SoapFaultException soapFaultException = assertThrows(SoapFaultException.class,
+                () -> client.sendSoapRequest(new File("src/test/resources/requestExample.xml")));
+        assertEquals("env:Sender", soapFaultException.getFaultCode());
+        assertEquals("Not a number", soapFaultException.getFaultString());
+        assertEquals("http://tempuri.org/calculator", soapFaultException.getFaultActor());
+    }
+
+    @Test
+    void sendSoapRequestNegativeErrorBodyTruncated() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        StringBuilder errorPage = new StringBuilder("<html><body>");
+        for (int i = 0; i < 100_000; i++) {
+            errorPage.append("<p>Something went wrong</p>");
+        }
+        errorPage.append("</body></html>");
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(aResponse()
+                .withStatus(502)
+                .withStatusMessage("Bad Gateway")
+                .withHeader("Content-Type", "text/html; charset=utf-8")
+                .withBody(errorPage.toString())));
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").maxErrorBodySize(1024).build();
+        SoapHttpException soapHttpException = assertThrows(SoapHttpException.class,
+                () -> client.sendSoapRequest(new File("src/test/resources/requestExample.xml")));
+        assertFalse(soapHttpException instanceof SoapFaultException);
+        assertEquals(502, soapHttpException.getStatusCode());
+        assertTrue(soapHttpException.isErrorBodyTruncated());
+        assertEquals(errorPage.substring(0, 1024), soapHttpException.getErrorBody());
+        assertTrue(soapHttpException.getMessage().startsWith("HTTP response was \"Bad Gateway\". Server returned:"));
+        assertTrue(soapHttpException.getMessage().endsWith("\" (truncated)"));
+    }
+
+    @Test
+    void sendSoapRequestNegativeTruncatedSoapFault() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        StringBuilder detail = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            detail.append("<Frame>at Calculator.Add()</Frame>");
+        }
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(aResponse()
+                .withStatus(HTTP_INTERNAL_ERROR)
+                .withHeader("Content-Type", "text/xml; charset=utf-8")
+                .withBody("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>" +
+                        "<soap:Fault><faultcode>soap:Server</faultcode><faultstring>Overflow</faultstring>" +
+                        "<detail>" + detail + "</detail></soap:Fault></soap:Body></soap:Envelope>")));
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").maxErrorBodySize(512).build();
+        SoapFaultException soapFaultException = assertThrows(SoapFaultException.class,
+                () -> client.sendSoapRequest(new File("src/test/resources/requestExample.xml")));
+        assertTrue(soapFaultException.isErrorBodyTruncated());
+        assertEquals(512, soapFaultException.getErrorBody().length());
+        assertEquals("soap:Server", soapFaultException.getFaultCode());
+        assertEquals("Overflow", soapFaultException.getFaultString());
+    }
+
+    @Test
+    void sendSoapRequestChecksNumericStatus() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml("<AddResult>4</AddResult>")
+                .withStatusMessage("Fine")));
+        SimpleSoapClient client = new SimpleSoapClientImpl("http://localhost:8080/calculator", "http://tempuri.org",
+                "Add");
+        assertEquals("<AddResult>4</AddResult>",
+                client.sendSoapRequest(new File("src/test/resources/requestExample.xml")));
+    }
+
+    @Test
+    void sendSoapRequestWithRetriesRecoversFromConnectionReset() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").inScenario("reset").whenScenarioStateIs(STARTED)
+                .willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)).willSetStateTo("recovered"));
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").inScenario("reset").whenScenarioStateIs("recovered")
+                .willReturn(okTextXml("<AddResult>4</AddResult>")));
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").retryPolicy(fastRetries(3)).build();
+        assertEquals("<AddResult>4</AddResult>",
+                client.sendSoapRequest(new File("src/test/resources/requestExample.xml")));
+        wireMockServer.verify(2, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+    }
+
+    @Test
+    void sendSoapRequestWithRetriesRecoversFromServiceUnavailable() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").inScenario("unavailable").whenScenarioStateIs(STARTED)
+                .willReturn(serviceUnavailable()).willSetStateTo("available"));
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").inScenario("unavailable")
+                .whenScenarioStateIs("available").willReturn(okTextXml("<AddResult>4</AddResult>")));
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").retryPolicy(fastRetries(3)).build();
+        assertEquals("<AddResult>4</AddResult>",
+                client.sendSoapRequest(new File("src/test/resources/requestExample.xml")));
+        wireMockServer.verify(2, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+    }
+
+    @Test
+    void sendSoapRequestWithRetriesNegativeAttemptsExhausted() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(serviceUnavailable()));
+        List<SoapRequestEvent> events = new CopyOnWriteArrayList<>();
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").retryPolicy(fastRetries(3)).requestListener(new SoapRequestListener() {
+            @Override
+            public void onRequestEnd(SoapRequestEvent event) {
+                events.add(event);
+            }
+        }).build();
+        SimpleSoapClientException simpleSoapClientException = assertThrows(SimpleSoapClientException.class,
+                () -> client.sendSoapRequest(new File("src/test/resources/requestExample.xml")));
+        assertTrue(simpleSoapClientException.getMessage().startsWith("HTTP response was \"Service Unavailable\""));
+        wireMockServer.verify(3, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+        assertEquals(3, events.size());
+        assertEquals(503, events.get(2).getHttpStatus());
+    }
+
+    @Test
+    void sendSoapRequestWithRetriesNegativeClientErrorNotRetried() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(badRequest()));
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").retryPolicy(fastRetries(3)).build();
+        SimpleSoapClientException simpleSoapClientException = assertThrows(SimpleSoapClientException.class,
+                () -> client.sendSoapRequest(new File("src/test/resources/requestExample.xml")));
+        assertTrue(simpleSoapClientException.getMessage().startsWith("HTTP response was \"Bad Request\""));
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+    }
+
+    @Test
+    void sendSoapRequestWithRetriesNegativeStreamNotReplayed() throws IOException, SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(serviceUnavailable()));
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").retryPolicy(fastRetries(3)).build();
+        try (InputStream inputStream = Files.newInputStream(Paths.get("src/test/resources/requestExample.xml"))) {
+            assertThrows(SimpleSoapClientException.class, () -> client.sendSoapRequest(inputStream));
+        }
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+    }
+
+    @Test
+    void sendSoapRequestWithRetriesNegativeConnectionRefused() throws SimpleSoapClientException {
+        AtomicInteger attempts = new AtomicInteger();
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").retryPolicy(fastRetries(3)).requestListener(new SoapRequestListener() {
+            @Override
+            public void onRequestEnd(SoapRequestEvent event) {
+                attempts.incrementAndGet();
+            }
+        }).build();
+        SimpleSoapClientException simpleSoapClientException = assertThrows(SimpleSoapClientException.class,
+                () -> client.sendSoapRequest(new File("src/test/resources/requestExample.xml")));
+        assertEquals("Couldn't send SOAP request", simpleSoapClientException.getMessage());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void sendSoapRequestNegativeReadTimeoutNotRetried() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>4</AddResult>").withFixedDelay(2000)));
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").readTimeout(Duration.ofMillis(200)).retryPolicy(fastRetries(3)).build();
+        SimpleSoapClientException simpleSoapClientException = assertThrows(SimpleSoapClientException.class,
+                () -> client.sendSoapRequest(new File("src/test/resources/requestExample.xml")));
+        assertEquals("Couldn't send SOAP request", simpleSoapClientException.getMessage());
+        assertInstanceOf(SocketTimeoutException.class, simpleSoapClientException.getCause());
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+    }
+
+    @Test
+    void sendSoapRequestNegativeRequestTimeout() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>4</AddResult>").withFixedDelay(3000)));
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").requestTimeout(Duration.ofMillis(300)).build();
+        long startNanos = System.nanoTime();
+        SimpleSoapClientException simpleSoapClientException = assertThrows(SimpleSoapClientException.class,
+                () -> client.sendSoapRequest(new File("src/test/resources/requestExample.xml")));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        assertEquals("SOAP request timed out after 300 ms", simpleSoapClientException.getMessage());
+        assertInstanceOf(TimeoutException.class, simpleSoapClientException.getCause());
+        assertInstanceOf(SimpleSoapClientException.class, simpleSoapClientException.getSuppressed()[0]);
+        assertTrue(elapsedMillis < 2000, String.format("Request took %d ms", elapsedMillis));
+    }
+
+    @Test
+    void sendSoapRequestWithCircuitBreaker() throws Exception {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(aResponse().withFault(Fault.EMPTY_RESPONSE)));
+        CircuitBreaker circuitBreaker = new CircuitBreaker(2, Duration.ofMillis(300));
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").circuitBreaker(circuitBreaker).build();
+        File requestXml = new File("src/test/resources/requestExample.xml");
+        assertEquals("Couldn't send SOAP request",
+                assertThrows(SimpleSoapClientException.class, () -> client.sendSoapRequest(requestXml)).getMessage());
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState("http://localhost:8080/calculator"));
+        assertThrows(SimpleSoapClientException.class, () -> client.sendSoapRequest(requestXml));
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState("http://localhost:8080/calculator"));
+        assertEquals("Circuit breaker is open for \"http://localhost:8080/calculator\"",
+                assertThrows(SimpleSoapClientException.class, () -> client.sendSoapRequest(requestXml)).getMessage());
+        wireMockServer.verify(2, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+        assertEquals(1, circuitBreaker.getRejectedRequests());
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml("<AddResult>4</AddResult>")));
+        Thread.sleep(400);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState("http://localhost:8080/calculator"));
+        assertEquals("<AddResult>4</AddResult>", client.sendSoapRequest(requestXml));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState("http://localhost:8080/calculator"));
+    }
+
+    @Test
+    void sendSoapRequestNegativeTimeoutsOpenCircuit() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>4</AddResult>").withFixedDelay(2000)));
+        CircuitBreaker circuitBreaker = new CircuitBreaker(2, Duration.ofMinutes(1));
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").readTimeout(Duration.ofSeconds(5)).requestTimeout(Duration.ofMillis(200))
+                .circuitBreaker(circuitBreaker).build();
+        File requestXml = new File("src/test/resources/requestExample.xml");
+        // The read timeout is lowered to the request deadline, which cuts the first two requests short
+        for (int i = 0; i < 2; i++) {
+            assertEquals("SOAP request timed out after 200 ms",
+                    assertThrows(SimpleSoapClientException.class, () -> client.sendSoapRequest(requestXml))
+                            .getMessage());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState("http://localhost:8080/calculator"));
+        long startNanos = System.nanoTime();
+        assertEquals("Circuit breaker is open for \"http://localhost:8080/calculator\"",
+                assertThrows(SimpleSoapClientException.class, () -> client.sendSoapRequest(requestXml)).getMessage());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) < 200);
+        wireMockServer.verify(2, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+    }
+
+    @Test
+    void sendSoapRequestNegativeSoapFaultNotRetriedAndKeepsCircuitClosed() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(aResponse()
+                .withStatus(HTTP_INTERNAL_ERROR)
+                .withHeader("Content-Type", "text/xml; charset=utf-8")
+                .withBody("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>" +
+                        "<soap:Fault><faultcode>soap:Client</faultcode><faultstring>Invalid intA</faultstring>" +
+                        "</soap:Fault></soap:Body></soap:Envelope>")));
+        CircuitBreaker circuitBreaker = new CircuitBreaker(2, Duration.ofMinutes(1));
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").retryPolicy(fastRetries(3)).circuitBreaker(circuitBreaker).build();
+        File requestXml = new File("src/test/resources/requestExample.xml");
+        for (int i = 0; i < 3; i++) {
+            assertEquals("soap:Client",
+                    assertThrows(SoapFaultException.class, () -> client.sendSoapRequest(requestXml)).getFaultCode());
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState("http://localhost:8080/calculator"));
+        wireMockServer.verify(3, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+
+        SimpleSoapClient retryingClient = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").retryPolicy(RetryPolicy.builder().maxAttempts(3)
+                .initialBackoff(Duration.ofMillis(10)).maxBackoff(Duration.ofMillis(50)).retrySoapFaults(true).build())
+                .build();
+        assertThrows(SoapFaultException.class, () -> retryingClient.sendSoapRequest(requestXml));
+        wireMockServer.verify(6, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+    }
+
+    @Test
+    void retryPolicyNegativeInvalidSettings() {
+        IllegalArgumentException illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> RetryPolicy.builder().maxAttempts(0).build());
+        assertEquals("Max attempts must be positive", illegalArgumentException.getMessage());
+        illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> RetryPolicy.builder().initialBackoff(Duration.ofSeconds(2)).maxBackoff(Duration.ofSeconds(1))
+                        .build());
+        assertEquals("Max backoff must not be shorter than the initial backoff", illegalArgumentException.getMessage());
+        illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> SimpleSoapClientImpl.builder("http://localhost:8080/calculator", "http://tempuri.org", "Add")
+                        .requestTimeout(Duration.ZERO).build());
+        assertEquals("Request timeout must be positive", illegalArgumentException.getMessage());
+    }
+
+    private static RetryPolicy fastRetries(int maxAttempts) {
+        return RetryPolicy.builder().maxAttempts(maxAttempts).initialBackoff(Duration.ofMillis(10))
+                .maxBackoff(Duration.ofMillis(50)).build();
+    }
+
+    @Test
+    void sendSoapRequestDecompressesGzipResponse() throws IOException, SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        String responseXml = "<AddResponse xmlns=\"http://tempuri.org/\"><AddResult>4</AddResult></AddResponse>";
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(aResponse()
+                .withHeader("Content-Type", "text/xml; charset=utf-8")
+                .withHeader("Content-Encoding", "gzip")
+                .withBody(gzip(responseXml.getBytes(StandardCharsets.UTF_8)))));
+        SimpleSoapClient client = new SimpleSoapClientImpl("http://localhost:8080/calculator", "http://tempuri.org",
+                "Add");
+        assertEquals(responseXml, client.sendSoapRequest(new File("src/test/resources/requestExample.xml")));
+        wireMockServer.verify(postRequestedFor(urlEqualTo("/calculator.asmx?op=Add"))
+                .withHeader("Accept-Encoding", equalTo("gzip, deflate")));
+    }
+
+    @Test
+    void sendSoapRequestDecompressesDeflateResponse() throws IOException, SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        String responseXml = "<AddResponse xmlns=\"http://tempuri.org/\"><AddResult>4</AddResult></AddResponse>";
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "text/xml; charset=utf-8")
+                        .withHeader("Content-Encoding", "deflate")
+                        .withBody(deflate(responseXml.getBytes(StandardCharsets.UTF_8), false))));
+        wireMockServer.stubFor(post("/calculator.asmx?op=Subtract")
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "text/xml; charset=utf-8")
+                        .withHeader("Content-Encoding", "deflate")
+                        .withBody(deflate(responseXml.getBytes(StandardCharsets.UTF_8), true))));
+        File requestXml = new File("src/test/resources/requestExample.xml");
+        SimpleSoapClient zlibClient = new SimpleSoapClientImpl("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add");
+        assertEquals(responseXml, zlibClient.sendSoapRequest(requestXml));
+        // Raw deflate data, without the zlib header
+        SimpleSoapClient rawClient = new SimpleSoapClientImpl("http://localhost:8080/calculator",
+                "http://tempuri.org", "Subtract");
+        assertEquals(responseXml, rawClient.sendSoapRequest(requestXml));
+    }
+
+    @Test
+    void sendSoapRequestWithoutAcceptEncoding() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml("<AddResult>4</AddResult>")));
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").acceptCompressedResponses(false).build();
+        client.sendSoapRequest(new File("src/test/resources/requestExample.xml"));
+        wireMockServer.verify(postRequestedFor(urlEqualTo("/calculator.asmx?op=Add"))
+                .withoutHeader("Accept-Encoding"));
+    }
+
+    @Test
+    void sendSoapRequestWithRequestCompression() throws IOException, SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add").willReturn(okTextXml("<AddResult>4</AddResult>")));
+        Path requestXml = Paths.get("src/test/resources/requestExample.xml");
+        long requestSize = Files.size(requestXml);
+        SimpleSoapClient compressingClient = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").requestCompression(ContentEncoding.GZIP, requestSize).build();
+        assertEquals("<AddResult>4</AddResult>", compressingClient.sendSoapRequest(requestXml));
+        SimpleSoapClient thresholdClient = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").requestCompression(ContentEncoding.GZIP, requestSize + 1).build();
+        assertEquals("<AddResult>4</AddResult>", thresholdClient.sendSoapRequest(requestXml));
+        List<com.github.tomakehurst.wiremock.verification.LoggedRequest> requests =
+                wireMockServer.findAll(postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+        assertEquals(2, requests.size());
+        assertEquals("gzip", requests.get(0).getHeader("Content-Encoding"));
+        assertEquals("chunked", requests.get(0).getHeader("Transfer-Encoding"));
+        assertArrayEquals(Files.readAllBytes(requestXml), gunzipIfNeeded(requests.get(0).getBody()));
+        assertFalse(requests.get(1).containsHeader("Content-Encoding"));
+        assertEquals(String.valueOf(requestSize), requests.get(1).getHeader("Content-Length"));
+        assertArrayEquals(Files.readAllBytes(requestXml), requests.get(1).getBody());
+    }
+
+    @Test
+    void requestCompressionNegativeThreshold() {
+        IllegalArgumentException illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> SimpleSoapClientImpl.builder("http://localhost:8080/calculator", "http://tempuri.org", "Add")
+                        .requestCompression(ContentEncoding.DEFLATE, -1).build());
+        assertEquals("Request compression threshold must not be negative", illegalArgumentException.getMessage());
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream)) {
+            gzipStream.write(bytes);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] bytes, boolean raw) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflaterStream = new DeflaterOutputStream(outputStream,
+                new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+            deflaterStream.write(bytes);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Depending on its version, WireMock may already decompress gzipped request bodies.
+     */
+    private static byte[] gunzipIfNeeded(byte[] bytes) throws IOException {
+        if (bytes.length < 2 || (bytes[0] & 0xFF) != 0x1F || (bytes[1] & 0xFF) != 0x8B) {
+            return bytes;
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (GZIPInputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = gzipStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Test
+    void openExchangeUsesPrecomputedRequestState() throws Exception {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        SimpleSoapClientImpl client = new SimpleSoapClientImpl("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add");
+        // What every request used to do before opening its connection
+        Callable<Object> perRequestResolution = () -> {
+            URL url = URI.create(String.format("%s.asmx?op=%s", "http://localhost:8080/calculator", "Add")).toURL();
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "text/xml; charset=utf-8");
+            connection.setRequestProperty("SOAPAction", String.format("%s/%s", "http://tempuri.org", "Add"));
+            connection.setDoOutput(true);
+            return connection;
+        };
+        long perRequestBytes = allocatedBytesPerCall(allocationBean, perRequestResolution);
+        URL serviceUrl = URI.create("http://localhost:8080/calculator.asmx?op=Add").toURL();
+        long precomputedBytes = allocatedBytesPerCall(allocationBean,
+                () -> client.openExchange(serviceUrl, 0));
+        assertTrue(precomputedBytes < perRequestBytes, String.format(
+                "Expected less than %d bytes per call, but %d were allocated", perRequestBytes, precomputedBytes));
+    }
+
+    @Test
+    void sendSoapRequestNegativeMalformedServiceUrl() {
+        SimpleSoapClientException simpleSoapClientException = assertThrows(SimpleSoapClientException.class,
+                () -> new SimpleSoapClientImpl("calculator", "http://tempuri.org", "Add"));
+        assertEquals("Couldn't parse service URL \"calculator\"", simpleSoapClientException.getMessage());
+    }
+
     @Test
     void sendSoapRequestNegativeNoUrlString() {
         SimpleSoapClientException simpleSoapClientException = assertThrows(SimpleSoapClientException.class,
@@ -119,4 +1289,53 @@ class SimpleSoapClientImplTest {
                 () -> client.sendSoapRequest(new File("src/test/resources/requestExample.xml")));
         assertEquals("Couldn't send SOAP request", simpleSoapClientException.getMessage());
     }
+
+    private static class SocketCounter implements WiremockNetworkTrafficListener {
+
+        private final AtomicInteger opened = new AtomicInteger();
+
+        @Override
+        public void opened(Socket socket) {
+            opened.incrementAndGet();
+        }
+
+        @Override
+        public void incoming(Socket socket, ByteBuffer bytes) {
+        }
+
+        @Override
+        public void outgoing(Socket socket, ByteBuffer bytes) {
+        }
+
+        @Override
+        public void closed(Socket socket) {
+        }
+    }
+
+    /**
+     * Measures the bytes the calling thread allocates per call, once the call was warmed up.
+     */
+    private static long allocatedBytesPerCall(com.sun.management.ThreadMXBean allocationBean,
+                                              Callable<Object> call) throws Exception {
+        for (int i = 0; i < 10_000; i++) {
+            call.call();
+        }
+        long threadId = Thread.currentThread().getId();
+        long allocatedBytes = allocationBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 1000; i++) {
+            call.call();
+        }
+        return (allocationBean.getThreadAllocatedBytes(threadId) - allocatedBytes) / 1000;
+    }
+
+    /**
+     * An exchange that timed out releases its connection long before the 5 seconds delay of the stub.
+     */
+    static void assertConnectionReleased(SimpleSoapClientImpl client) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (client.getConnectionPoolStatistics().getLeasedConnections() != 0 && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        assertEquals(0, client.getConnectionPoolStatistics().getLeasedConnections());
+    }
 }
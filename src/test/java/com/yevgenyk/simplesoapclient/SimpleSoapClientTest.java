@@ -0,0 +1,93 @@
+package com.yevgenyk.simplesoapclient;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimpleSoapClientTest {
+
+    /**
+     * A client that only implements the abstract method, and answers with the request it got.
+     */
+    private final SimpleSoapClient echoClient = requestXml -> {
+        try {
+            return new String(Files.readAllBytes(requestXml.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SimpleSoapClientException("Couldn't read SOAP request", e);
+        }
+    };
+
+    @Test
+    void sendSoapRequestInputStreamSpoolsRequest() throws SimpleSoapClientException {
+        assertEquals("<request/>", echoClient.sendSoapRequest(
+                new ByteArrayInputStream("<request/>".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void sendSoapRequestTemplateRendersRequest() throws SimpleSoapClientException {
+        SoapEnvelopeTemplate template = SoapEnvelopeTemplate.compile("<name>${value}</name>");
+        assertEquals("<name>Tom &amp; Jerry</name>",
+                echoClient.sendSoapRequest(template, Collections.singletonMap("value", "Tom & Jerry")));
+    }
+
+    @Test
+    void sendSoapRequestTemplateNegativeMissingValue() {
+        SoapEnvelopeTemplate template = SoapEnvelopeTemplate.compile("<name>${value}</name>");
+        assertThrows(SimpleSoapClientException.class,
+                () -> echoClient.sendSoapRequest(template, Collections.emptyMap()));
+    }
+
+    @Test
+    void sendSoapRequestForResponseReadsWholeResponse() throws SimpleSoapClientException, IOException {
+        try (SoapResponse response = echoClient.sendSoapRequestForResponse(
+                new ByteArrayInputStream("<request/>".getBytes(StandardCharsets.UTF_8)))) {
+            assertEquals("<request/>", response.readString());
+        }
+    }
+
+    @Test
+    void sendSoapRequestAsyncCompletesWithResponse() throws InterruptedException, ExecutionException {
+        File requestXml = new File("src/test/resources/requestExample.xml");
+        assertTrue(echoClient.sendSoapRequestAsync(requestXml).get().contains("Add"));
+    }
+
+    @Test
+    void sendSoapRequestAsyncNegativeTimeout() {
+        CountDownLatch released = new CountDownLatch(1);
+        SimpleSoapClient blockingClient = requestXml -> {
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "";
+        };
+        try {
+            ExecutionException executionException = assertThrows(ExecutionException.class,
+                    () -> blockingClient.sendSoapRequestAsync(new File("request.xml"), Duration.ofMillis(50)).get());
+            assertInstanceOf(SimpleSoapClientException.class, executionException.getCause());
+            assertInstanceOf(TimeoutException.class, executionException.getCause().getCause());
+        } finally {
+            released.countDown();
+        }
+    }
+
+    @Test
+    void sendAllSendsEveryRequest() throws SimpleSoapClientException {
+        SimpleSoapClient nameClient = File::getName;
+        assertEquals(Arrays.asList("a.xml", "b.xml"),
+                nameClient.sendAll(Arrays.asList(new File("a.xml"), new File("b.xml"))));
+    }
+}
@@ -0,0 +1,147 @@
+package com.yevgenyk.simplesoapclient;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimpleSoapServiceClientTest {
+
+    private WireMockServer wireMockServer;
+
+    @AfterEach
+    void tearDown() {
+        if (wireMockServer != null) {
+            wireMockServer.stop();
+        }
+    }
+
+    @Test
+    void sendRoutesToOperation() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .withHeader("SOAPAction", equalTo("http://tempuri.org/Add"))
+                .willReturn(okTextXml("<AddResult>4</AddResult>")));
+        wireMockServer.stubFor(post("/calculator.asmx?op=Subtract")
+                .withHeader("SOAPAction", equalTo("http://tempuri.org/Subtract"))
+                .willReturn(okTextXml("<SubtractResult>0</SubtractResult>")));
+        SimpleSoapServiceClient serviceClient = new SimpleSoapServiceClient("http://localhost:8080/calculator",
+                "http://tempuri.org");
+        Path requestXml = Paths.get("src/test/resources/requestExample.xml");
+        assertEquals("<AddResult>4</AddResult>", serviceClient.send("Add", requestXml));
+        assertEquals("<SubtractResult>0</SubtractResult>", serviceClient.send("Subtract", requestXml));
+        assertSame(serviceClient.operation("Add"), serviceClient.operation("Add"));
+    }
+
+    @Test
+    void operationsShareLoadBalancer() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post(urlPathEqualTo("/calculator.asmx")).willReturn(okTextXml("<Result>4</Result>")));
+        WireMockServer secondServer = new WireMockServer(8081);
+        secondServer.start();
+        try {
+            secondServer.stubFor(post(urlPathEqualTo("/calculator.asmx")).willReturn(okTextXml("<Result>4</Result>")));
+            LoadBalancer loadBalancer = LoadBalancer.builder(Arrays.asList("http://localhost:8080/calculator",
+                    "http://localhost:8081/calculator")).build();
+            SimpleSoapServiceClient serviceClient = SimpleSoapServiceClient.builder(loadBalancer, "http://tempuri.org")
+                    .build();
+            File requestXml = new File("src/test/resources/requestExample.xml");
+            serviceClient.send("Add", requestXml);
+            serviceClient.send("Subtract", requestXml);
+            serviceClient.send("Add", requestXml);
+            serviceClient.send("Subtract", requestXml);
+            // The operations take turns on a single round-robin
+            wireMockServer.verify(2, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+            wireMockServer.verify(0, postRequestedFor(urlEqualTo("/calculator.asmx?op=Subtract")));
+            secondServer.verify(2, postRequestedFor(urlEqualTo("/calculator.asmx?op=Subtract")));
+        } finally {
+            secondServer.stop();
+        }
+    }
+
+    @Test
+    void operationsShareConnectionPool() throws Exception {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post(urlPathEqualTo("/calculator.asmx")).willReturn(okTextXml("<Result>4</Result>")));
+        SimpleSoapServiceClient serviceClient = SimpleSoapServiceClient.builder("http://localhost:8080/calculator",
+                "http://tempuri.org").maxConnectionsPerHost(2).build();
+        File requestXml = new File("src/test/resources/requestExample.xml");
+        serviceClient.send("Add", requestXml);
+        serviceClient.sendAsync("Subtract", requestXml).get(10, TimeUnit.SECONDS);
+        serviceClient.send("Multiply", requestXml.toPath());
+        ConnectionPoolStatistics statistics = serviceClient.getConnectionPoolStatistics();
+        assertEquals(3, statistics.getTotalLeases());
+        assertEquals(statistics.getTotalLeases(),
+                serviceClient.operation("Add").getConnectionPoolStatistics().getTotalLeases());
+    }
+
+    @Test
+    void cacheOperationCachesOnlyListedOperations() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post(urlPathEqualTo("/calculator.asmx")).willReturn(okTextXml("<Result>4</Result>")));
+        SimpleSoapServiceClient serviceClient = SimpleSoapServiceClient.builder("http://localhost:8080/calculator",
+                "http://tempuri.org").responseCache(new ResponseCache(16))
+                .cacheOperation("Add", Duration.ofMinutes(1)).build();
+        File requestXml = new File("src/test/resources/requestExample.xml");
+        for (int i = 0; i < 3; i++) {
+            serviceClient.send("Add", requestXml);
+            serviceClient.send("Subtract", requestXml);
+        }
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo("/calculator.asmx?op=Add")));
+        wireMockServer.verify(3, postRequestedFor(urlEqualTo("/calculator.asmx?op=Subtract")));
+        assertEquals(2, serviceClient.getResponseCacheStatistics().getHits());
+    }
+
+    @Test
+    void buildCreatesConnectionPoolPerServiceClient() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post(urlPathEqualTo("/calculator.asmx")).willReturn(okTextXml("<Result>4</Result>")));
+        SimpleSoapServiceClient.Builder builder = SimpleSoapServiceClient.builder("http://localhost:8080/calculator",
+                "http://tempuri.org").maxConnectionsPerHost(1);
+        SimpleSoapServiceClient serviceClient = builder.build();
+        SimpleSoapServiceClient otherServiceClient = builder.build();
+        File requestXml = new File("src/test/resources/requestExample.xml");
+        serviceClient.send("Add", requestXml);
+        serviceClient.send("Subtract", requestXml);
+        assertEquals(2, serviceClient.getConnectionPoolStatistics().getTotalLeases());
+        assertEquals(0, otherServiceClient.getConnectionPoolStatistics().getTotalLeases());
+    }
+
+    @Test
+    void sendNegativeNoOperation() throws SimpleSoapClientException {
+        SimpleSoapServiceClient serviceClient = new SimpleSoapServiceClient("http://localhost:8080/calculator",
+                "http://tempuri.org");
+        SimpleSoapClientException simpleSoapClientException = assertThrows(SimpleSoapClientException.class,
+                () -> serviceClient.send(null, new File("src/test/resources/requestExample.xml")));
+        assertEquals("WS operation is required to open an HTTP connection", simpleSoapClientException.getMessage());
+    }
+
+    @Test
+    void cacheOperationNegativeNoResponseCache() {
+        IllegalArgumentException illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> SimpleSoapServiceClient.builder("http://localhost:8080/calculator", "http://tempuri.org")
+                        .cacheOperation("Add", Duration.ofMinutes(1)).build());
+        assertEquals("A response cache is required to cache operations", illegalArgumentException.getMessage());
+    }
+
+    @Test
+    void simpleSoapServiceClientNegativeNoUrlString() {
+        SimpleSoapClientException simpleSoapClientException = assertThrows(SimpleSoapClientException.class,
+                () -> new SimpleSoapServiceClient("", "http://tempuri.org"));
+        assertEquals("URL is required to open an HTTP connection", simpleSoapClientException.getMessage());
+    }
+}
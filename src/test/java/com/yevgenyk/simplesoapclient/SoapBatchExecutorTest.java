@@ -0,0 +1,186 @@
+package com.yevgenyk.simplesoapclient;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SoapBatchExecutorTest {
+
+    private WireMockServer wireMockServer;
+
+    @AfterEach
+    void tearDown() {
+        if (wireMockServer != null) {
+            wireMockServer.stop();
+        }
+    }
+
+    @Test
+    void executeDeliversResultsInOrder() throws SimpleSoapClientException {
+        SoapBatchExecutor batchExecutor = SoapBatchExecutor.builder(client()).maxConcurrency(8).build();
+        List<Long> indexes = new ArrayList<>();
+        List<String> responses = new ArrayList<>();
+        SoapBatchReport report = batchExecutor.execute(IntStream.range(0, 200).boxed(), (client, item) -> {
+            sleepRandomly();
+            return "<Result>" + item + "</Result>";
+        }, result -> {
+            indexes.add(result.getIndex());
+            responses.add(result.getResponse());
+        }, error -> fail(error.getException()));
+        assertEquals(LongStream.range(0, 200).boxed().collect(Collectors.toList()), indexes);
+        assertEquals(IntStream.range(0, 200).mapToObj(i -> "<Result>" + i + "</Result>").collect(Collectors.toList()),
+                responses);
+        assertEquals(200, report.getSucceeded());
+        assertEquals(0, report.getFailed());
+        assertTrue(report.getThroughput() > 0);
+        assertTrue(report.getP99Latency().compareTo(report.getMaxLatency()) <= 0);
+        assertTrue(report.getP50Latency().compareTo(report.getMinLatency()) >= 0);
+    }
+
+    @Test
+    void executeBoundsConcurrencyAndPullsItemsLazily() throws SimpleSoapClientException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicInteger pulled = new AtomicInteger();
+        AtomicInteger maxPulledAhead = new AtomicInteger();
+        AtomicInteger delivered = new AtomicInteger();
+        Iterator<Integer> items = new Iterator<Integer>() {
+            @Override
+            public boolean hasNext() {
+                return pulled.get() < 500;
+            }
+
+            @Override
+            public Integer next() {
+                maxPulledAhead.accumulateAndGet(pulled.get() - delivered.get(), Math::max);
+                return pulled.getAndIncrement();
+            }
+        };
+        SoapBatchExecutor batchExecutor = SoapBatchExecutor.builder(client()).maxConcurrency(4).ordered(false)
+                .build();
+        SoapBatchReport report = batchExecutor.execute(items, (client, item) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            sleepRandomly();
+            inFlight.decrementAndGet();
+            return "";
+        }, result -> delivered.incrementAndGet(), error -> fail(error.getException()));
+        assertEquals(500, report.getTotal());
+        assertTrue(maxInFlight.get() <= 4, "In flight: " + maxInFlight.get());
+        assertTrue(maxPulledAhead.get() <= 4, "Pulled ahead: " + maxPulledAhead.get());
+    }
+
+    @Test
+    void executeDeliversErrorsSeparately() throws SimpleSoapClientException {
+        SoapBatchExecutor batchExecutor = SoapBatchExecutor.builder(client()).maxConcurrency(4).build();
+        List<Long> resultIndexes = new ArrayList<>();
+        Map<Long, String> errorMessages = new HashMap<>();
+        SoapBatchReport report = batchExecutor.execute(IntStream.range(0, 20).boxed(), (client, item) -> {
+            if (item % 5 == 0) {
+                throw new SimpleSoapClientException("HTTP response was \"Server Error\"");
+            }
+            return "";
+        }, result -> resultIndexes.add(result.getIndex()),
+                error -> errorMessages.put(error.getIndex(), error.getException().getMessage()));
+        assertEquals(16, resultIndexes.size());
+        assertEquals(4, errorMessages.size());
+        assertEquals("HTTP response was \"Server Error\"", errorMessages.get(15L));
+        assertEquals(16, report.getSucceeded());
+        assertEquals(4, report.getFailed());
+    }
+
+    @Test
+    void executeDeliversErrorsThrownBySender() {
+        SoapBatchExecutor batchExecutor = SoapBatchExecutor.builder(client()).maxConcurrency(2).build();
+        List<Throwable> causes = new ArrayList<>();
+        SoapBatchReport report = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> batchExecutor.execute(IntStream.range(0, 4).boxed(), (client, item) -> {
+                    if (item == 1) {
+                        throw new NoClassDefFoundError("javax/xml/bind/JAXBContext");
+                    }
+                    return "";
+                }, result -> {
+                }, error -> causes.add(error.getException().getCause())));
+        assertEquals(3, report.getSucceeded());
+        assertEquals(1, report.getFailed());
+        assertInstanceOf(NoClassDefFoundError.class, causes.get(0));
+    }
+
+    @Test
+    void executeLimitsRate() throws SimpleSoapClientException {
+        SoapBatchExecutor batchExecutor = SoapBatchExecutor.builder(client()).maxConcurrency(8).rateLimit(100)
+                .build();
+        SoapBatchReport report = batchExecutor.execute(IntStream.range(0, 21).boxed(), (client, item) -> "",
+                result -> {
+                }, error -> fail(error.getException()));
+        // 21 requests at 100 per second start 10 ms apart
+        assertTrue(report.getElapsed().toMillis() >= 190, "Elapsed: " + report.getElapsed());
+        assertTrue(report.getThroughput() <= 110, "Throughput: " + report.getThroughput());
+    }
+
+    @Test
+    void executeSendsRequests() throws SimpleSoapClientException {
+        wireMockServer = new WireMockServer(options().extensions(new ResponseTemplateTransformer(false)));
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>{{xPath request.body '//intA/text()'}}</AddResult>")
+                        .withTransformers("response-template")));
+        SoapEnvelopeTemplate template = SoapEnvelopeTemplate.compile(
+                "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>" +
+                        "<Add xmlns=\"http://tempuri.org/\"><intA>${a}</intA><intB>2</intB></Add>" +
+                        "</soap:Body></soap:Envelope>");
+        SoapBatchExecutor batchExecutor = SoapBatchExecutor.builder(client()).maxConcurrency(4).build();
+        List<String> responses = new ArrayList<>();
+        SoapBatchReport report = batchExecutor.execute(IntStream.range(0, 50).boxed(),
+                (client, item) -> client.sendSoapRequest(template, singletonValue(item)),
+                result -> responses.add(result.getResponse()), error -> fail(error.getException()));
+        assertEquals(IntStream.range(0, 50).mapToObj(i -> "<AddResult>" + i + "</AddResult>")
+                .collect(Collectors.toList()), responses);
+        assertEquals(50, report.getSucceeded());
+    }
+
+    @Test
+    void soapBatchExecutorNegativeInvalidMaxConcurrency() {
+        IllegalArgumentException illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> SoapBatchExecutor.builder(client()).maxConcurrency(0).build());
+        assertEquals("Max concurrency must be positive", illegalArgumentException.getMessage());
+    }
+
+    private static Map<String, Object> singletonValue(Object value) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("a", value);
+        return values;
+    }
+
+    private static SimpleSoapClient client() {
+        try {
+            return new SimpleSoapClientImpl("http://localhost:8080/calculator", "http://tempuri.org", "Add");
+        } catch (SimpleSoapClientException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleepRandomly() {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.yevgenyk.simplesoapclient;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SoapEnvelopeTemplateTest {
+
+    @Test
+    void writeToRendersTemplate() throws IOException {
+        SoapEnvelopeTemplate template =
+                SoapEnvelopeTemplate.compile(Paths.get("src/test/resources/requestTemplate.xml"));
+        assertEquals(Arrays.asList("a", "b"), Arrays.asList(template.getPlaceholders().toArray()));
+        Map<String, Object> values = new HashMap<>();
+        values.put("a", 2);
+        values.put("b", "2");
+        assertEquals(new String(Files.readAllBytes(Paths.get("src/test/resources/requestExample.xml")),
+                StandardCharsets.UTF_8), render(template, values));
+    }
+
+    @Test
+    void writeToEscapesValues() throws IOException {
+        SoapEnvelopeTemplate template = SoapEnvelopeTemplate.compile("<name attr=\"${value}\">${value}</name>");
+        Map<String, Object> values = new HashMap<>();
+        values.put("value", "<a href='x'>\"Tom & Jerry\"</a>");
+        String expected = "&lt;a href=&apos;x&apos;&gt;&quot;Tom &amp; Jerry&quot;&lt;/a&gt;";
+        assertEquals("<name attr=\"" + expected + "\">" + expected + "</name>", render(template, values));
+    }
+
+    @Test
+    void writeToEncodesUtf8() throws IOException {
+        SoapEnvelopeTemplate template = SoapEnvelopeTemplate.compile("<name>${value}</name>");
+        StringBuilder value = new StringBuilder("café € 😀 ");
+        while (value.length() < 2000) {
+            value.append(value);
+        }
+        Map<String, Object> values = new HashMap<>();
+        values.put("value", value);
+        assertEquals("<name>" + value + "</name>", render(template, values));
+    }
+
+    @Test
+    void contentLengthMatchesRenderedLength() throws IOException {
+        SoapEnvelopeTemplate template = SoapEnvelopeTemplate.compile("<a>${first}</a><b>${second}</b><c>${first}</c>");
+        Map<String, Object> values = new HashMap<>();
+        values.put("first", "x & y é€😀");
+        values.put("second", "");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        template.writeTo(outputStream, values);
+        assertEquals(outputStream.size(), template.contentLength(values));
+    }
+
+    @Test
+    void writeToNegativeMissingValue() {
+        SoapEnvelopeTemplate template = SoapEnvelopeTemplate.compile("<a>${first}</a>");
+        IllegalArgumentException illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> template.writeTo(new ByteArrayOutputStream(), new HashMap<>()));
+        assertEquals("No value for placeholder \"first\"", illegalArgumentException.getMessage());
+    }
+
+    @Test
+    void compileNegativeUnclosedPlaceholder() {
+        IllegalArgumentException illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> SoapEnvelopeTemplate.compile("<a>${first</a>"));
+        assertEquals("Unclosed placeholder at index 3 of template", illegalArgumentException.getMessage());
+    }
+
+    @Test
+    void compileNegativeEmptyPlaceholder() {
+        IllegalArgumentException illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> SoapEnvelopeTemplate.compile("<a>${ }</a>"));
+        assertEquals("Placeholder at index 3 of template has no name", illegalArgumentException.getMessage());
+    }
+
+    private static String render(SoapEnvelopeTemplate template, Map<String, ?> values) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        template.writeTo(outputStream, values);
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,224 @@
+package com.yevgenyk.simplesoapclient;
+
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SoapMarshallerTest {
+
+    enum Status {
+        OPEN, SHIPPED
+    }
+
+    @SoapMessage(namespace = "http://tempuri.org/")
+    static class Add {
+        int intA;
+        int intB;
+
+        Add() {
+        }
+
+        Add(int intA, int intB) {
+            this.intA = intA;
+            this.intB = intB;
+        }
+    }
+
+    @SoapMessage(namespace = "http://tempuri.org/")
+    static class AddResponse {
+        @SoapElement(name = "AddResult")
+        int result;
+    }
+
+    static class Entity {
+        long id;
+    }
+
+    @SoapMessage(name = "Order", namespace = "urn:orders")
+    static class OrderMessage extends Entity {
+        static final String IGNORED_CONSTANT = "ignored";
+        String customer;
+        private boolean paid;
+        BigDecimal total;
+        Status status;
+        LocalDate date;
+        Instant createdAt;
+        Address address;
+        List<Item> items;
+        List<String> tags;
+        Long reference;
+        transient String ignored;
+
+        boolean isPaid() {
+            return paid;
+        }
+
+        void setPaid(boolean paid) {
+            this.paid = paid;
+        }
+    }
+
+    @SoapMessage
+    static class Address {
+        String city;
+    }
+
+    @SoapMessage
+    static class Item {
+        String name;
+        int quantity;
+
+        Item() {
+        }
+
+        Item(String name, int quantity) {
+            this.name = name;
+            this.quantity = quantity;
+        }
+    }
+
+    private static final String ORDER_XML = "<Order xmlns=\"urn:orders\"><id>7</id>" +
+            "<customer>Roger &amp; Co</customer><paid>true</paid><total>1000.50</total><status>SHIPPED</status>" +
+            "<date>2020-02-29</date>" +
+            "<createdAt>2020-02-29T10:15:30Z</createdAt><address><city>Tokyo</city></address>" +
+            "<items><name>Duck</name><quantity>2</quantity></items><items><name>Pond</name><quantity>1</quantity>" +
+            "</items><tags>water</tags><tags>bird</tags></Order>";
+
+    private static OrderMessage order() {
+        OrderMessage order = new OrderMessage();
+        order.id = 7;
+        order.customer = "Roger & Co";
+        order.setPaid(true);
+        order.total = new BigDecimal("1000.50");
+        order.status = Status.SHIPPED;
+        order.date = LocalDate.of(2020, 2, 29);
+        order.createdAt = Instant.parse("2020-02-29T10:15:30Z");
+        order.address = new Address();
+        order.address.city = "Tokyo";
+        order.items = Arrays.asList(new Item("Duck", 2), new Item("Pond", 1));
+        order.tags = new ArrayList<>(Arrays.asList("water", "bird"));
+        order.ignored = "ignored";
+        return order;
+    }
+
+    private static String write(OrderMessage order) throws XMLStreamException {
+        StringWriter output = new StringWriter();
+        XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(output);
+        SoapMarshallerTest_OrderMessageSoapMarshaller.INSTANCE.write(order, writer);
+        writer.close();
+        return output.toString();
+    }
+
+    private static OrderMessage read(String xml) throws XMLStreamException {
+        XMLStreamReader reader = XmlUtilities.newXmlStreamReader(new StringReader(xml));
+        reader.nextTag();
+        return SoapMarshallerTest_OrderMessageSoapMarshaller.INSTANCE.readContent(reader);
+    }
+
+    @Test
+    void writeGeneratedMarshaller() throws XMLStreamException {
+        assertEquals(ORDER_XML, write(order()));
+    }
+
+    @Test
+    void readGeneratedMarshaller() throws XMLStreamException {
+        OrderMessage order = read(ORDER_XML);
+        assertEquals(7, order.id);
+        assertEquals("Roger & Co", order.customer);
+        assertTrue(order.isPaid());
+        assertEquals(new BigDecimal("1000.50"), order.total);
+        assertEquals(Status.SHIPPED, order.status);
+        assertEquals(LocalDate.of(2020, 2, 29), order.date);
+        assertEquals(Instant.parse("2020-02-29T10:15:30Z"), order.createdAt);
+        assertEquals("Tokyo", order.address.city);
+        assertEquals(2, order.items.size());
+        assertEquals("Pond", order.items.get(1).name);
+        assertEquals(1, order.items.get(1).quantity);
+        assertEquals(Arrays.asList("water", "bird"), order.tags);
+        assertNull(order.reference);
+        assertNull(order.ignored);
+    }
+
+    @Test
+    void readSkipsUnknownElementsAndKeepsDefaults() throws XMLStreamException {
+        OrderMessage order = read("<o:Order xmlns:o=\"urn:orders\"><!-- comment -->" +
+                "<o:unknown><o:id>1</o:id></o:unknown><o:paid> 1 </o:paid>\n" +
+                "<o:customer><![CDATA[<Roger>]]></o:customer></o:Order>");
+        assertEquals(0, order.id);
+        assertTrue(order.isPaid());
+        assertEquals("<Roger>", order.customer);
+        assertNull(order.address);
+        assertEquals(0, order.items.size());
+    }
+
+    @Test
+    void readNegativeInvalidValue() {
+        XMLStreamException xmlStreamException = assertThrows(XMLStreamException.class,
+                () -> read("<Order><items><name>Duck</name><quantity>two</quantity></items></Order>"));
+        assertTrue(xmlStreamException.getMessage().contains("Invalid value of \"quantity\""));
+        assertInstanceOf(NumberFormatException.class, xmlStreamException.getNestedException());
+        xmlStreamException = assertThrows(XMLStreamException.class, () -> read("<Order><paid>yes</paid></Order>"));
+        assertTrue(xmlStreamException.getMessage().contains("Invalid value of \"paid\": Invalid boolean \"yes\""));
+    }
+
+    @Test
+    void envelopeRoundTrip() throws XMLStreamException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        SoapMarshallers.writeEnvelope(new Add(2, 3), SoapMarshallerTest_AddSoapMarshaller.INSTANCE, outputStream);
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>" +
+                "<Add xmlns=\"http://tempuri.org/\"><intA>2</intA><intB>3</intB></Add>" +
+                "</soap:Body></soap:Envelope>", new String(outputStream.toByteArray(), UTF_8));
+        Add add = SoapMarshallers.readEnvelope(XmlUtilities.newXmlStreamReader(
+                new ByteArrayInputStream(outputStream.toByteArray())), SoapMarshallers.forType(Add.class));
+        assertEquals(2, add.intA);
+        assertEquals(3, add.intB);
+    }
+
+    @Test
+    void readEnvelopeNegativeUnexpectedMessage() {
+        XMLStreamException xmlStreamException = assertThrows(XMLStreamException.class,
+                () -> SoapMarshallers.readEnvelope(XmlUtilities.newXmlStreamReader(new StringReader(
+                        "<soap:Envelope xmlns:soap=\"http://www.w3.org/2003/05/soap-envelope\"><soap:Body>" +
+                                "<SubtractResponse/></soap:Body></soap:Envelope>")),
+                        SoapMarshallers.forType(AddResponse.class)));
+        assertTrue(xmlStreamException.getMessage()
+                .contains("Expected \"AddResponse\" in SOAP body, found \"SubtractResponse\""));
+    }
+
+    @Test
+    void forTypeFindsGeneratedMarshallers() {
+        SoapMarshaller<OrderMessage> marshaller = SoapMarshallers.forType(OrderMessage.class);
+        assertInstanceOf(SoapMarshallerTest_OrderMessageSoapMarshaller.class, marshaller);
+        assertSame(marshaller, SoapMarshallers.forType(OrderMessage.class));
+        assertEquals("Order", marshaller.getElementName());
+        assertEquals("urn:orders", marshaller.getNamespace());
+        assertEquals("Item", SoapMarshallers.forType(Item.class).getElementName());
+        assertEquals("", SoapMarshallers.forType(Item.class).getNamespace());
+    }
+
+    @Test
+    void forTypeNegativeNotGenerated() {
+        IllegalArgumentException illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> SoapMarshallers.forType(Entity.class));
+        assertEquals("No SOAP marshaller was generated for \"com.yevgenyk.simplesoapclient." +
+                        "SoapMarshallerTest$Entity\", is it annotated with @SoapMessage?",
+                illegalArgumentException.getMessage());
+    }
+}
@@ -0,0 +1,158 @@
+package com.yevgenyk.simplesoapclient;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SoapResponseTest {
+
+    @Test
+    void charsetOf() {
+        assertEquals(StandardCharsets.UTF_8, SoapResponse.charsetOf("text/xml; charset=utf-8"));
+        assertEquals(StandardCharsets.ISO_8859_1, SoapResponse.charsetOf("text/xml;charset=\"ISO-8859-1\""));
+        assertEquals(StandardCharsets.UTF_16, SoapResponse.charsetOf("application/soap+xml; action=x; CHARSET=UTF-16"));
+    }
+
+    @Test
+    void charsetOfDefaultsToUtf8() {
+        assertEquals(StandardCharsets.UTF_8, SoapResponse.charsetOf(null));
+        assertEquals(StandardCharsets.UTF_8, SoapResponse.charsetOf("text/xml"));
+        assertEquals(StandardCharsets.UTF_8, SoapResponse.charsetOf("text/xml; charset=no-such-charset"));
+    }
+
+    @Test
+    void readStringKeepsLineEndingsAndCharset() throws IOException {
+        String body = "<name>Ren\u00e9</name>\r\n<age>3</age>\n";
+        try (SoapResponse response = new SoapResponse(new ByteArrayInputStream(
+                body.getBytes(StandardCharsets.ISO_8859_1)), "text/xml; charset=ISO-8859-1", () -> {
+        })) {
+            assertEquals(body, response.readString());
+        }
+    }
+
+    @Test
+    void getXmlStreamReader() throws IOException, XMLStreamException {
+        String body = "<zoo><duck><age>3</age></duck></zoo>";
+        try (SoapResponse response = new SoapResponse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                "text/xml; charset=utf-8", () -> {
+        })) {
+            XMLStreamReader xmlStreamReader = response.getXmlStreamReader();
+            while (xmlStreamReader.next() != XMLStreamConstants.START_ELEMENT
+                    || !xmlStreamReader.getLocalName().equals("age")) {
+                assertTrue(xmlStreamReader.hasNext());
+            }
+            assertEquals("3", xmlStreamReader.getElementText());
+        }
+    }
+
+    @Test
+    void closeReleasesOnce() throws IOException {
+        AtomicInteger releases = new AtomicInteger();
+        SoapResponse response = new SoapResponse(new ByteArrayInputStream(new byte[0]), null,
+                releases::incrementAndGet);
+        response.close();
+        response.close();
+        assertEquals(1, releases.get());
+    }
+
+    @Test
+    void readByteBufferWithKnownLength() throws IOException {
+        byte[] body = randomBytes(100_000);
+        try (SoapResponse response = new SoapResponse(new ByteArrayInputStream(body), "text/xml", body.length, () -> {
+        })) {
+            ByteBuffer buffer = response.readByteBuffer();
+            assertEquals(body.length, buffer.remaining());
+            assertEquals(body.length, buffer.array().length);
+            assertArrayEquals(body, Arrays.copyOfRange(buffer.array(), buffer.position(), buffer.limit()));
+        }
+    }
+
+    @Test
+    void readByteBufferWithUnknownOrWrongLength() throws IOException {
+        byte[] body = randomBytes(100_000);
+        for (long contentLength : new long[]{-1, 10, 0}) {
+            try (SoapResponse response = new SoapResponse(new ByteArrayInputStream(body), "text/xml", contentLength,
+                    () -> {
+                    })) {
+                ByteBuffer buffer = response.readByteBuffer();
+                assertArrayEquals(body, Arrays.copyOfRange(buffer.array(), buffer.position(), buffer.limit()));
+            }
+        }
+        try (SoapResponse response = new SoapResponse(new ByteArrayInputStream(new byte[0]), "text/xml", () -> {
+        })) {
+            assertEquals(0, response.readByteBuffer().remaining());
+        }
+    }
+
+    @Test
+    void transferToChannel() throws IOException {
+        byte[] body = randomBytes(3 * ByteBufferPool.BUFFER_SIZE + 17);
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        try (SoapResponse response = new SoapResponse(new ByteArrayInputStream(body), "text/xml", () -> {
+        })) {
+            assertEquals(5, response.getInputStream().skip(5));
+            assertEquals(body.length - 5, response.transferTo(Channels.newChannel(target)));
+        }
+        assertArrayEquals(Arrays.copyOfRange(body, 5, body.length), target.toByteArray());
+    }
+
+    @Test
+    void transferToFile(@TempDir Path tempDir) throws IOException {
+        byte[] body = randomBytes(200_000);
+        Path file = tempDir.resolve("response.xml");
+        Files.write(file, randomBytes(300_000));
+        try (SoapResponse response = new SoapResponse(new ByteArrayInputStream(body), "text/xml", () -> {
+        })) {
+            assertEquals(body.length, response.transferTo(file));
+        }
+        assertArrayEquals(body, Files.readAllBytes(file));
+        try (SoapResponse response = new SoapResponse(new ByteArrayInputStream(body), "text/xml", () -> {
+        })) {
+            assertEquals(body.length, response.transferTo(file, StandardOpenOption.APPEND));
+        }
+        assertEquals(2 * body.length, Files.size(file));
+    }
+
+    @Test
+    void byteBufferPoolReusesBuffers() {
+        ByteBufferPool pool = new ByteBufferPool(1024, 1);
+        ByteBuffer first = pool.acquire();
+        ByteBuffer second = pool.acquire();
+        assertTrue(first.isDirect());
+        assertEquals(1024, first.capacity());
+        first.put((byte) 1);
+        pool.release(first);
+        pool.release(second);
+        assertEquals(1, pool.getPooledBuffers());
+        ByteBuffer reused = pool.acquire();
+        assertSame(first, reused);
+        assertEquals(0, reused.position());
+        assertEquals(1024, reused.remaining());
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
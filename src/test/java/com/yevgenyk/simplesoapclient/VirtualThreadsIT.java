@@ -0,0 +1,65 @@
+package com.yevgenyk.simplesoapclient;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import java.io.File;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * These tests run against the multi-release JAR on Java 21 or newer.
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadsIT {
+
+    private WireMockServer wireMockServer;
+
+    @AfterEach
+    void tearDown() {
+        if (wireMockServer != null) {
+            wireMockServer.stop();
+        }
+    }
+
+    @Test
+    void sendSoapRequestAsyncOnVirtualThread() throws Exception {
+        assertTrue(ExecutionMode.isVirtualThreadsSupported());
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>4</AddResult>").withFixedDelay(200)));
+        SimpleSoapClient client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").executionMode(ExecutionMode.VIRTUAL_THREADS).build();
+        String threadName = client.sendSoapRequestAsync(new File("src/test/resources/requestExample.xml"))
+                .thenApply(response -> Thread.currentThread().getName())
+                .get(10, TimeUnit.SECONDS);
+        assertTrue(threadName.startsWith("simple-soap-client-virtual-"), threadName);
+    }
+
+    @Test
+    void sendSoapRequestAsyncCancelInterruptsVirtualThread() throws Exception {
+        wireMockServer = new WireMockServer();
+        wireMockServer.start();
+        wireMockServer.stubFor(post("/calculator.asmx?op=Add")
+                .willReturn(okTextXml("<AddResult>4</AddResult>").withFixedDelay(5000)));
+        SimpleSoapClientImpl client = SimpleSoapClientImpl.builder("http://localhost:8080/calculator",
+                "http://tempuri.org", "Add").executionMode(ExecutionMode.VIRTUAL_THREADS).build();
+        CompletableFuture<String> future =
+                client.sendSoapRequestAsync(new File("src/test/resources/requestExample.xml"));
+        while (client.getConnectionPoolStatistics().getLeasedConnections() == 0) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        assertTrue(future.cancel(true));
+        assertThrows(CancellationException.class, future::join);
+        SimpleSoapClientImplTest.assertConnectionReleased(client);
+    }
+}
@@ -0,0 +1,121 @@
+package com.yevgenyk.simplesoapclient;
+
+import org.junit.jupiter.api.Test;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class XmlExtractionPlanTest {
+
+    private static final String ORDER_XML =
+            "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>" +
+                    "<GetOrderResponse xmlns=\"http://tempuri.org/\">" +
+                    "<Id>17</Id>" +
+                    "<Customer><Name>Roger</Name></Customer>" +
+                    "<Items><Item><Name>Duck</Name><Price>3</Price></Item>" +
+                    "<Item><Name>Pond</Name><Price>40</Price></Item>" +
+                    "<Item><Name>Bread</Name><Price/></Item></Items>" +
+                    "</GetOrderResponse></soap:Body></soap:Envelope>";
+
+    private static XmlExtractionPlan orderPlan() throws XmlParsingException {
+        return XmlExtractionPlan.builder()
+                .field("id", "Id")
+                .field("customer", "//Customer/Name")
+                .list("names", "//Item/Name")
+                .list("prices", "/Envelope/Body/GetOrderResponse/Items/Item/Price")
+                .field("firstName", "Name")
+                .field("body", "soap:Body")
+                .field("total", "Total")
+                .list("discounts", "Discount")
+                .build();
+    }
+
+    private static void assertOrder(XmlExtractionResult result) {
+        assertEquals("17", result.getValue("id"));
+        assertEquals("Roger", result.getValue("customer"));
+        assertEquals(Arrays.asList("Duck", "Pond", "Bread"), result.getValues("names"));
+        assertEquals(Arrays.asList("3", "40", ""), result.getValues("prices"));
+        assertEquals("Roger", result.getValue("firstName"));
+        assertEquals(Collections.singletonList("Roger"), result.getValues("firstName"));
+        assertTrue(result.getValue("body").startsWith("17RogerDuck3"));
+        assertFalse(result.contains("total"));
+        assertNull(result.getValue("total"));
+        assertEquals(Collections.emptyList(), result.getValues("discounts"));
+        assertEquals(6, result.asMap().size());
+    }
+
+    @Test
+    void extractFromString() throws XmlParsingException, XMLStreamException {
+        assertOrder(orderPlan().extract(ORDER_XML));
+    }
+
+    @Test
+    void extractFromStream() throws XmlParsingException, XMLStreamException {
+        assertOrder(orderPlan().extract(new ByteArrayInputStream(ORDER_XML.getBytes(UTF_8))));
+    }
+
+    @Test
+    void extractFromDocument() throws XmlParsingException, IOException, SAXException, ParserConfigurationException {
+        assertOrder(orderPlan().extract(XmlUtilities.xmlStringToDocument(ORDER_XML)));
+    }
+
+    @Test
+    void extractNestedListElementsInDocumentOrder() throws XmlParsingException, XMLStreamException, IOException,
+            SAXException, ParserConfigurationException {
+        String xml = "<tree><node>a<node>b</node><node>c<node>d</node></node></node><node>e</node></tree>";
+        XmlExtractionPlan plan = XmlExtractionPlan.builder().list("nodes", "node").build();
+        assertEquals(Arrays.asList("abcd", "b", "cd", "d", "e"), plan.extract(xml).getValues("nodes"));
+        assertEquals(Arrays.asList("abcd", "b", "cd", "d", "e"),
+                plan.extract(XmlUtilities.xmlStringToDocument(xml)).getValues("nodes"));
+    }
+
+    @Test
+    void extractStopsWhenAllValuesFound() throws XmlParsingException, XMLStreamException {
+        // The stream fails if it's read past the first duck
+        InputStream xmlStream = new SequenceInputStream(
+                new ByteArrayInputStream("<zoo><duck><name>Roger</name><age>3</age></duck>".getBytes(UTF_8)),
+                new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("Read past the requested values");
+                    }
+                });
+        XmlExtractionResult result = XmlExtractionPlan.builder()
+                .field("name", "name")
+                .field("age", "//duck/age")
+                .build()
+                .extract(xmlStream);
+        assertEquals("Roger", result.getValue("name"));
+        assertEquals("3", result.getValue("age"));
+    }
+
+    @Test
+    void extractedResultIsImmutable() throws XmlParsingException, XMLStreamException {
+        XmlExtractionResult result = orderPlan().extract(ORDER_XML);
+        assertThrows(UnsupportedOperationException.class, () -> result.getValues("names").clear());
+        assertThrows(UnsupportedOperationException.class, () -> result.asMap().clear());
+    }
+
+    @Test
+    void builderNegativeInvalidFields() {
+        XmlExtractionPlan.Builder builder = XmlExtractionPlan.builder().field("age", "age");
+        IllegalArgumentException illegalArgumentException =
+                assertThrows(IllegalArgumentException.class, () -> builder.list("age", "//duck/age"));
+        assertEquals("Field \"age\" was already added", illegalArgumentException.getMessage());
+        illegalArgumentException = assertThrows(IllegalArgumentException.class, () -> builder.field("", "age"));
+        assertEquals("Field name is required", illegalArgumentException.getMessage());
+        XmlParsingException xmlParsingException = assertThrows(XmlParsingException.class,
+                () -> builder.field("duck", "//zoo/duck[1]").build());
+        assertEquals("Unsupported streaming path: \"//zoo/duck[1]\"", xmlParsingException.getMessage());
+    }
+}
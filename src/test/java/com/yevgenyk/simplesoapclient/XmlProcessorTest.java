@@ -0,0 +1,104 @@
+package com.yevgenyk.simplesoapclient;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.xpath.XPathExpressionException;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XmlProcessorTest {
+
+    static private String testXml;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        testXml = new String(Files.readAllBytes(Paths.get("src/test/resources/xmlExample.xml")));
+    }
+
+    @Test
+    void getTextContentOfXmlElementReusesCompiledXPath() throws IOException, SAXException,
+            ParserConfigurationException, XPathExpressionException, XmlParsingException {
+        XmlProcessor xmlProcessor = new XmlProcessor();
+        for (int i = 0; i < 3; i++) {
+            Document document = xmlProcessor.xmlStringToDocument(testXml);
+            assertEquals("3", xmlProcessor.getTextContentOfXmlElement(document, "//zoo/duck/age"));
+            assertEquals("Roger", xmlProcessor.getTextContentOfXmlElement(document, "//duck/name"));
+        }
+        assertEquals(2, xmlProcessor.cachedXPathExpressions());
+    }
+
+    @Test
+    void xpathCacheIsBounded() throws IOException, SAXException, ParserConfigurationException,
+            XPathExpressionException, XmlParsingException {
+        XmlProcessor xmlProcessor = new XmlProcessor(2);
+        Document document = xmlProcessor.xmlStringToDocument(testXml);
+        xmlProcessor.findXmlNodeByXPath(document, "//zoo/name");
+        xmlProcessor.findXmlNodeByXPath(document, "//zoo/duck/name");
+        xmlProcessor.findXmlNodeByXPath(document, "//zoo/duck/age");
+        assertEquals(2, xmlProcessor.cachedXPathExpressions());
+    }
+
+    @Test
+    void xmlDocumentToStringReusesTransformer() throws IOException, SAXException, ParserConfigurationException,
+            TransformerException {
+        XmlProcessor xmlProcessor = new XmlProcessor();
+        Document document = xmlProcessor.xmlStringToDocument(testXml);
+        String withDeclaration = xmlProcessor.xmlDocumentToString(document, false);
+        String withoutDeclaration = xmlProcessor.xmlDocumentToString(document, true);
+        assertTrue(withDeclaration.startsWith("<?xml"));
+        assertEquals(testXml, withoutDeclaration.replaceAll("\\r\\n", "\n").replaceAll("\\r", "\n"));
+    }
+
+    @Test
+    void concurrentUse() throws InterruptedException, ExecutionException, TimeoutException {
+        XmlProcessor xmlProcessor = new XmlProcessor();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<String>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 200; i++) {
+                String path = i % 2 == 0 ? "age" : "//zoo/duck/age";
+                futures.add(executorService.submit(() -> xmlProcessor.getTextContentOfXmlElement(
+                        xmlProcessor.xmlStringToDocument(testXml), path)));
+            }
+            for (Future<String> future : futures) {
+                assertEquals("3", future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void discardedProcessorIsNotHeldByThread() throws IOException, SAXException, ParserConfigurationException,
+            XPathExpressionException, XmlParsingException, InterruptedException {
+        XmlProcessor xmlProcessor = new XmlProcessor();
+        Document document = xmlProcessor.xmlStringToDocument(testXml);
+        assertEquals("3", xmlProcessor.getTextContentOfXmlElement(document, "//zoo/duck/age"));
+        WeakReference<XmlProcessor> processorReference = new WeakReference<>(xmlProcessor);
+        xmlProcessor = null;
+        for (int i = 0; i < 50 && processorReference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(processorReference.get());
+    }
+
+    @Test
+    void xmlProcessorNegativeInvalidCacheSize() {
+        IllegalArgumentException illegalArgumentException = assertThrows(IllegalArgumentException.class,
+                () -> new XmlProcessor(0));
+        assertEquals("XPath cache size must be positive", illegalArgumentException.getMessage());
+    }
+}
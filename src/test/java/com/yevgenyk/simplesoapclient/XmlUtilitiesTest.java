@@ -8,16 +8,23 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerException;
 import javax.xml.xpath.XPathExpressionException;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
 
 class XmlUtilitiesTest {
 
@@ -147,6 +154,58 @@ class XmlUtilitiesTest {
         assertEquals("Couldn't find node named \"gender\"", xmlParsingException.getMessage());
     }
 
+    @Test
+    void extractTextContent() throws XMLStreamException, XmlParsingException {
+        Map<String, String> actual = XmlUtilities.extractTextContent(testXml,
+                Arrays.asList("age", "/zoo/name", "//duck/name", "size", "gender"));
+        assertEquals("3", actual.get("age"));
+        assertEquals("Tokyo Zoo", actual.get("/zoo/name"));
+        assertEquals("Roger", actual.get("//duck/name"));
+        assertEquals("", actual.get("size"));
+        assertFalse(actual.containsKey("gender"));
+    }
+
+    @Test
+    void extractTextContentOfNestedElements() throws XMLStreamException, XmlParsingException {
+        Map<String, String> actual = XmlUtilities.extractTextContent(
+                "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>" +
+                        "<AddResponse xmlns=\"http://tempuri.org/\"><AddResult>4</AddResult></AddResponse>" +
+                        "</soap:Body></soap:Envelope>",
+                Arrays.asList("soap:Body", "AddResponse", "/Envelope/Body/AddResponse/AddResult"));
+        assertEquals("4", actual.get("soap:Body"));
+        assertEquals("4", actual.get("AddResponse"));
+        assertEquals("4", actual.get("/Envelope/Body/AddResponse/AddResult"));
+    }
+
+    @Test
+    void extractTextContentStopsWhenAllValuesFound() throws XMLStreamException, XmlParsingException {
+        // The stream fails if it's read past the first duck
+        InputStream xmlStream = new SequenceInputStream(
+                new ByteArrayInputStream("<zoo><duck><age>3</age></duck>".getBytes(UTF_8)),
+                new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("Read past the requested values");
+                    }
+                });
+        Map<String, String> actual = XmlUtilities.extractTextContent(xmlStream, Collections.singleton("age"));
+        assertEquals("3", actual.get("age"));
+    }
+
+    @Test
+    void extractTextContentNegativeUnsupportedPath() {
+        XmlParsingException xmlParsingException = assertThrows(XmlParsingException.class,
+                () -> XmlUtilities.extractTextContent(testXml, Collections.singleton("//zoo/duck[1]/age")));
+        assertEquals("Unsupported streaming path: \"//zoo/duck[1]/age\"", xmlParsingException.getMessage());
+    }
+
+    @Test
+    void extractTextContentNegativeEmptyPath() {
+        XmlParsingException xmlParsingException = assertThrows(XmlParsingException.class,
+                () -> XmlUtilities.extractTextContent(testXml, Collections.singleton(" ")));
+        assertEquals("Path to field parameter was not set correctly", xmlParsingException.getMessage());
+    }
+
     @Test
     void xmlUtilitiesConstructorAccessNegative() throws NoSuchMethodException {
         Constructor<XmlUtilities> declaredConstructor = XmlUtilities.class.getDeclaredConstructor();